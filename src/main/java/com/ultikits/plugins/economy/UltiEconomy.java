@@ -2,10 +2,38 @@ package com.ultikits.plugins.economy;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
 import com.ultikits.plugins.economy.factory.MoneyNoteFactory;
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.IdempotencyKeyEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.plugins.economy.entity.WalletEntity;
+import com.ultikits.plugins.economy.model.CurrencyDefinition;
 import com.ultikits.plugins.economy.placeholder.EconomyPlaceholderExpansion;
+import com.ultikits.plugins.economy.service.AccountLocks;
+import com.ultikits.plugins.economy.service.BalanceCache;
+import com.ultikits.plugins.economy.service.BalanceRepository;
 import com.ultikits.plugins.economy.service.CurrencyManager;
+import com.ultikits.plugins.economy.service.DatabaseLeaderboard;
 import com.ultikits.plugins.economy.service.EconomyService;
+import com.ultikits.plugins.economy.service.EconomyServiceImpl;
+import com.ultikits.plugins.economy.service.FixedPointMigration;
+import com.ultikits.plugins.economy.service.GroupCommitRepository;
+import com.ultikits.plugins.economy.service.HotAccounts;
+import com.ultikits.plugins.economy.service.IdempotencyStore;
+import com.ultikits.plugins.economy.service.IoExecutors;
+import com.ultikits.plugins.economy.service.JdbcBalanceStore;
 import com.ultikits.plugins.economy.service.LeaderboardService;
+import com.ultikits.plugins.economy.service.LiveLeaderboards;
+import com.ultikits.plugins.economy.service.MappedFileBridge;
+import com.ultikits.plugins.economy.service.MappedFileRepository;
+import com.ultikits.plugins.economy.service.OffHeapBalanceStore;
+import com.ultikits.plugins.economy.service.SplitTableRepository;
+import com.ultikits.plugins.economy.service.TaxService;
+import com.ultikits.plugins.economy.service.TotalWealthMigration;
+import com.ultikits.plugins.economy.service.TransactionLog;
+import com.ultikits.plugins.economy.service.TransactionLogReplay;
+import com.ultikits.plugins.economy.service.WalletMigration;
+import com.ultikits.plugins.economy.service.WalletRepository;
 import com.ultikits.plugins.economy.vault.VaultEconomyProvider;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.annotations.UltiToolsModule;
@@ -14,17 +42,56 @@ import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.ServicePriority;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @UltiToolsModule
 public class UltiEconomy extends UltiToolsPlugin {
 
     private VaultEconomyProvider vaultProvider;
+    private EconomyService economyService;
     private volatile CurrencyManager currencyManager;
     private volatile MoneyNoteFactory noteFactory;
+    private volatile AccountLocks accountLocks;
+    private volatile BalanceRepository balanceRepository;
+    private volatile GroupCommitRepository groupCommit;
+    private volatile MappedFileRepository mappedFile;
+    private volatile BalanceCache balanceCache;
+    private volatile ExecutorService ioExecutor;
+    private volatile TransactionLog transactionLog;
+    private boolean transactionLogOpened;
+    private volatile IdempotencyStore idempotencyStore;
+    private volatile JdbcBalanceStore balanceStore;
+    private boolean balanceStoreOpened;
+    private volatile OffHeapBalanceStore offHeapStore;
+    private boolean offHeapStoreOpened;
+    private volatile HotAccounts hotAccounts;
+    private boolean hotAccountsOpened;
+    private volatile TaxService taxService;
+    private volatile LiveLeaderboards liveLeaderboards;
+    private boolean liveLeaderboardsOpened;
+    private volatile DatabaseLeaderboard databaseLeaderboard;
+    private boolean databaseLeaderboardOpened;
+    private BukkitTask flushTask;
+    private BukkitTask checkpointTask;
+    private BukkitTask idempotencyPurgeTask;
+    private BukkitTask mappedFileSyncTask;
+    private BukkitTask groupCommitTask;
+    private BukkitTask hotAccountFoldTask;
+    private BukkitTask treasuryFlushTask;
+    private BukkitTask leaderboardTask;
 
     public CurrencyManager getCurrencyManager() {
         if (currencyManager == null) {
@@ -51,24 +118,457 @@ public class UltiEconomy extends UltiToolsPlugin {
         return noteFactory;
     }
 
+    public AccountLocks getAccountLocks() {
+        if (accountLocks == null) {
+            synchronized (this) {
+                if (accountLocks == null) {
+                    accountLocks = new AccountLocks();
+                }
+            }
+        }
+        return accountLocks;
+    }
+
+    /**
+     * Returns where accounts and balances are stored: the balance file when
+     * {@code storage.mapped-file} is on, otherwise the database, with one wallet row per
+     * player when {@code storage.wallets} is on and the two original tables if not. Database
+     * writes go through {@link GroupCommitRepository} when group commit applies.
+     */
+    public BalanceRepository getBalanceRepository() {
+        if (balanceRepository == null) {
+            synchronized (this) {
+                if (balanceRepository == null) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    if (config.isMappedFileEnabled()) {
+                        balanceRepository = getMappedFile();
+                    } else if (isGroupCommitApplied(config)) {
+                        groupCommit = new GroupCommitRepository(this, databaseRepository(), getBalanceStore());
+                        balanceRepository = groupCommit;
+                    } else {
+                        balanceRepository = databaseRepository();
+                    }
+                }
+            }
+        }
+        return balanceRepository;
+    }
+
+    /**
+     * Returns the group-commit stage balance writes pass through, or null when it is not in use.
+     */
+    public GroupCommitRepository getGroupCommit() {
+        getBalanceRepository();
+        return groupCommit;
+    }
+
+    /**
+     * The cache already merges writes, and a held row would hide other servers' versions from
+     * optimistic locking. The balance file is written in place, so holding saves it nothing.
+     */
+    private static boolean isGroupCommitApplied(EconomyConfig config) {
+        return config.isGroupCommitEnabled() && !config.isCacheEnabled()
+                && !config.isOptimisticLockingEnabled() && !config.isMappedFileEnabled();
+    }
+
+    private BalanceRepository databaseRepository() {
+        return getConfig(EconomyConfig.class).isWalletStorageEnabled()
+                ? new WalletRepository(getDataOperator(WalletEntity.class))
+                : splitTables();
+    }
+
+    /**
+     * Opens the balance file on first use. Also used with the file off, to export it back.
+     */
+    private MappedFileRepository getMappedFile() {
+        if (mappedFile == null) {
+            synchronized (this) {
+                if (mappedFile == null) {
+                    try {
+                        MappedFileRepository file = new MappedFileRepository(getConfigFile("data/balances.dat"));
+                        if (file.getDiscarded() > 0) {
+                            getLogger().error("Dropped " + file.getDiscarded()
+                                    + " damaged records from the balance file; the transaction log restores them");
+                        }
+                        mappedFile = file;
+                    } catch (IOException e) {
+                        // Falling back to the database would serve balances older than the file's
+                        throw new IllegalStateException("Failed to open the balance file", e);
+                    }
+                }
+            }
+        }
+        return mappedFile;
+    }
+
+    private BalanceRepository splitTables() {
+        return new SplitTableRepository(
+                getDataOperator(PlayerAccountEntity.class),
+                getDataOperator(CurrencyBalanceEntity.class));
+    }
+
+    public BalanceCache getBalanceCache() {
+        if (balanceCache == null) {
+            synchronized (this) {
+                if (balanceCache == null) {
+                    balanceCache = new BalanceCache(this,
+                            getBalanceRepository(),
+                            getAccountLocks(),
+                            getTransactionLog(),
+                            getCurrencyManager().getOrdinals());
+                }
+            }
+        }
+        return balanceCache;
+    }
+
+    public ExecutorService getIoExecutor() {
+        if (ioExecutor == null) {
+            synchronized (this) {
+                if (ioExecutor == null) {
+                    ioExecutor = IoExecutors.create(getConfig(EconomyConfig.class).getAsyncIoThreads());
+                }
+            }
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * Returns the write-ahead log, opening it on first use, or null when it is disabled
+     * or the file cannot be opened.
+     */
+    public TransactionLog getTransactionLog() {
+        if (!transactionLogOpened) {
+            synchronized (this) {
+                if (!transactionLogOpened) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    if (config.isWalEnabled()) {
+                        try {
+                            transactionLog = new TransactionLog(
+                                    getConfigFile("data/transactions.wal"), config.isWalFsync());
+                        } catch (IOException e) {
+                            getLogger().error("Failed to open transaction log, continuing without it: "
+                                    + e.getMessage());
+                        }
+                    }
+                    transactionLogOpened = true;
+                }
+            }
+        }
+        return transactionLog;
+    }
+
+    public IdempotencyStore getIdempotencyStore() {
+        if (idempotencyStore == null) {
+            synchronized (this) {
+                if (idempotencyStore == null) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    IdempotencyStore store = new IdempotencyStore(this,
+                            getDataOperator(IdempotencyKeyEntity.class),
+                            TimeUnit.SECONDS.toMillis(Math.max(1, config.getIdempotencyTtl())),
+                            config.getIdempotencyMaxKeys());
+                    store.load();
+                    idempotencyStore = store;
+                }
+            }
+        }
+        return idempotencyStore;
+    }
+
+    /**
+     * Returns the store for atomic SQL increments, or null when no JDBC URL is configured.
+     * Also null with wallet storage, whose balances live in one encoded column per player,
+     * and with the balance file, which the database does not hold.
+     */
+    public JdbcBalanceStore getBalanceStore() {
+        if (!balanceStoreOpened) {
+            synchronized (this) {
+                if (!balanceStoreOpened) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    String url = config.getStorageJdbcUrl();
+                    if (url != null && !url.isEmpty() && !config.isWalletStorageEnabled()
+                            && !config.isMappedFileEnabled()) {
+                        balanceStore = new JdbcBalanceStore(connections(config));
+                    }
+                    balanceStoreOpened = true;
+                }
+            }
+        }
+        return balanceStore;
+    }
+
+    /**
+     * Returns the off-heap mirror of every balance, loading it on first use, or null when
+     * {@code storage.off-heap} is off. Load it only after the log has been replayed.
+     */
+    public OffHeapBalanceStore getOffHeapStore() {
+        if (!offHeapStoreOpened) {
+            synchronized (this) {
+                if (!offHeapStoreOpened) {
+                    if (getConfig(EconomyConfig.class).isOffHeapEnabled()) {
+                        OffHeapBalanceStore store = new OffHeapBalanceStore(
+                                getCurrencyManager().getOrdinals().size(), 1024);
+                        store.load(getBalanceRepository(), getCurrencyManager());
+                        getLogger().info("Loaded " + store.size() + " players into off-heap storage");
+                        offHeapStore = store;
+                    }
+                    offHeapStoreOpened = true;
+                }
+            }
+        }
+        return offHeapStore;
+    }
+
+    /**
+     * Returns the accounts listed under {@code hot-accounts.uuids}, or null when none are.
+     */
+    public HotAccounts getHotAccounts() {
+        if (!hotAccountsOpened) {
+            synchronized (this) {
+                if (!hotAccountsOpened) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    List<UUID> uuids = new ArrayList<>();
+                    for (String uuid : config.getHotAccountUuids()) {
+                        try {
+                            uuids.add(UUID.fromString(uuid.trim()));
+                        } catch (IllegalArgumentException e) {
+                            getLogger().error("Ignoring hot account " + uuid + ": not a UUID");
+                        }
+                    }
+                    if (!uuids.isEmpty()) {
+                        hotAccounts = new HotAccounts(uuids, config.getHotAccountStripes());
+                    }
+                    hotAccountsOpened = true;
+                }
+            }
+        }
+        return hotAccounts;
+    }
+
+    /**
+     * Returns the leaderboards kept in order as balances change, or null when
+     * {@code leaderboard.live} is off or the off-heap store or the database ranks balances instead.
+     */
+    public LiveLeaderboards getLiveLeaderboards() {
+        if (!liveLeaderboardsOpened) {
+            synchronized (this) {
+                if (!liveLeaderboardsOpened) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    if (config.isLeaderboardLive() && !config.isOffHeapEnabled() && getDatabaseLeaderboard() == null) {
+                        liveLeaderboards = new LiveLeaderboards();
+                    }
+                    liveLeaderboardsOpened = true;
+                }
+            }
+        }
+        return liveLeaderboards;
+    }
+
+    /**
+     * Returns the leaderboards ordered and paged by the database, or null when
+     * {@code leaderboard.database} is off, the off-heap store ranks balances instead, or
+     * balances are not kept in the two original tables.
+     */
+    public DatabaseLeaderboard getDatabaseLeaderboard() {
+        if (!databaseLeaderboardOpened) {
+            synchronized (this) {
+                if (!databaseLeaderboardOpened) {
+                    EconomyConfig config = getConfig(EconomyConfig.class);
+                    if (config.isLeaderboardDatabase() && !config.isOffHeapEnabled()
+                            && !config.isWalletStorageEnabled() && !config.isMappedFileEnabled()) {
+                        databaseLeaderboard = new DatabaseLeaderboard(
+                                getDataOperator(PlayerAccountEntity.class),
+                                getDataOperator(CurrencyBalanceEntity.class));
+                    }
+                    databaseLeaderboardOpened = true;
+                }
+            }
+        }
+        return databaseLeaderboard;
+    }
+
+    /**
+     * Returns the tax service shared by every caller, since it holds the treasury balances.
+     */
+    public TaxService getTaxService() {
+        if (taxService == null) {
+            synchronized (this) {
+                if (taxService == null) {
+                    taxService = new TaxService(getConfig(EconomyConfig.class),
+                            getDataOperator(TreasuryEntity.class), getCurrencyManager());
+                }
+            }
+        }
+        return taxService;
+    }
+
     @Override
     public boolean registerSelf() {
-        EconomyService economyService = getContext().getBean(EconomyService.class);
         EconomyConfig config = getConfig(EconomyConfig.class);
+        TransactionLog log = getTransactionLog();
+        File migrated = getConfigFile("data/wallets.migrated");
+        boolean migrateWallets = config.isWalletStorageEnabled() && !migrated.exists();
+        boolean exportWallets = !config.isWalletStorageEnabled() && migrated.exists();
+        File imported = getConfigFile("data/balances.imported");
+        boolean importFile = config.isMappedFileEnabled() && !imported.exists();
+        boolean exportFile = !config.isMappedFileEnabled() && imported.exists();
+        if (config.isWalletStorageEnabled()) {
+            for (CurrencyDefinition currency : getCurrencyManager().getAllCurrencies()) {
+                if (!WalletRepository.canStore(currency.getId())) {
+                    getLogger().error("Currency id " + currency.getId()
+                            + " may not contain ';', '=' or ',' with storage.wallets on; not starting");
+                    return false;
+                }
+            }
+        }
+        // Before the replay and the copies below, which all write these columns
+        if (!addColumns(config)) {
+            getLogger().error("Missing columns could not be added to the balance tables; not starting");
+            return false;
+        }
+        if (log != null) {
+            // Replay before anything reads balances, so rows lost in a crash are back first.
+            // The log describes wherever balances were kept when it was written: the file
+            // until it has been exported, the old tables until the first wallet migration
+            // and the wallets until they have been copied back.
+            BalanceRepository logged = imported.exists() ? getMappedFile()
+                    : migrateWallets ? splitTables()
+                    : exportWallets ? new WalletRepository(getDataOperator(WalletEntity.class))
+                    : databaseRepository();
+            new TransactionLogReplay(this, log, logged).run();
+        }
+        // A partial copy is not run with: the next start would copy again over this session's changes
+        if (migrateWallets) {
+            if (!walletMigration().run()) {
+                getLogger().error("Balances could not all be copied into wallets; not starting");
+                return false;
+            }
+            markMigrated(migrated);
+        }
+        // Before the balance file is imported or exported, so the file's copy is the one kept
+        if (exportWallets) {
+            if (!walletMigration().export(splitTables())) {
+                getLogger().error("Balances could not all be copied back from wallets; not starting");
+                return false;
+            }
+            if (!migrated.delete()) {
+                getLogger().error("Failed to remove " + migrated.getPath() + "; wallets will be copied back again");
+            }
+        }
+        if (importFile) {
+            if (!new MappedFileBridge(this, getMappedFile()).importFrom(databaseRepository())) {
+                getLogger().error("Balances could not all be copied into the balance file; not starting");
+                return false;
+            }
+            markMigrated(imported);
+        }
+        if (exportFile) {
+            if (!new MappedFileBridge(this, getMappedFile()).exportTo(databaseRepository())) {
+                getLogger().error("Balances could not all be copied back from the balance file; not starting");
+                return false;
+            }
+            closeMappedFile();
+            if (!imported.delete()) {
+                getLogger().error("Failed to remove " + imported.getPath() + "; the file will be exported again");
+            }
+        }
+        // Recorded with the precisions it rounded to, so changing one rounds the rows again.
+        // Rows written while fixed-point mode is off may leave the grid, so turning it off forgets the run
+        File rounded = getConfigFile("data/fixed-point.migrated");
+        if (config.isFixedPointEnabled()) {
+            String precisions = FixedPointMigration.precisions(getCurrencyManager());
+            if (!precisions.equals(readMarker(rounded))) {
+                FixedPointMigration migration = new FixedPointMigration(this, getCurrencyManager(),
+                        getBalanceRepository(),
+                        getDataOperator(TreasuryEntity.class));
+                migration.run();
+                if (migration.isComplete()) {
+                    writeMarker(rounded, precisions);
+                }
+            }
+        } else if (rounded.exists() && !rounded.delete()) {
+            getLogger().error("Failed to remove " + rounded.getPath() + "; balances will not be rounded again");
+        }
+        // The store writes total_wealth on every add and take, so its column step always runs
+        File wealthStored = getConfigFile("data/total-wealth.stored");
+        if (getBalanceStore() != null
+                || getDatabaseLeaderboard() != null && !wealthStored.exists()) {
+            boolean complete = new TotalWealthMigration(this,
+                    getDataOperator(PlayerAccountEntity.class),
+                    getDataOperator(CurrencyBalanceEntity.class),
+                    getBalanceStore()).run();
+            if (complete && getBalanceStore() == null) {
+                markMigrated(wealthStored);
+            }
+        }
+        // Loaded once the rows are final, so the mirror starts from what the services will see
+        getOffHeapStore();
+
+        economyService = getContext().getBean(EconomyService.class);
         vaultProvider = new VaultEconomyProvider(economyService, config);
 
+        // Exposes the native API, including batch mutations, to plugins that need more than Vault offers
+        Plugin host = Bukkit.getPluginManager().getPlugin("UltiTools");
+        Bukkit.getServicesManager().register(
+                EconomyService.class, economyService, host, ServicePriority.Normal);
+
         Plugin vaultPlugin = Bukkit.getPluginManager().getPlugin("Vault");
         if (vaultPlugin != null) {
             Bukkit.getServicesManager().register(
                     Economy.class, vaultProvider, vaultPlugin, ServicePriority.Normal);
         }
 
+        LeaderboardService leaderboardService = getContext().getBean(LeaderboardService.class);
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
-            LeaderboardService leaderboardService = getContext().getBean(LeaderboardService.class);
             new EconomyPlaceholderExpansion(economyService, leaderboardService,
                     getCurrencyManager()).register();
         }
 
+        if (config.isCacheEnabled()) {
+            long period = Math.max(1, config.getCacheFlushInterval()) * 20L;
+            flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                    host, getBalanceCache()::flush, period, period);
+        } else if (log != null) {
+            long period = Math.max(1, config.getWalCheckpointInterval()) * 20L;
+            checkpointTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                    host, this::checkpointLog, period, period);
+        }
+
+        if (getHotAccounts() != null && economyService instanceof EconomyServiceImpl) {
+            long period = Math.max(1, config.getHotAccountFoldInterval()) * 20L;
+            hotAccountFoldTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                    host, ((EconomyServiceImpl) economyService)::foldHotAccounts, period, period);
+        }
+
+        // Live leaderboards are loaded by the first run and only repaired by later ones
+        long leaderboardPeriod = Math.max(1, getLiveLeaderboards() != null
+                ? config.getLeaderboardRepairInterval() : config.getLeaderboardUpdateInterval()) * 20L;
+        leaderboardTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                host, leaderboardService::refreshAll, 0L, leaderboardPeriod);
+
+        if (config.getTreasuryFlushInterval() > 0) {
+            long period = config.getTreasuryFlushInterval() * 20L;
+            treasuryFlushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                    host, this::flushTreasury, period, period);
+        }
+
+        if (getGroupCommit() != null) {
+            long period = Math.max(1, config.getGroupCommitWindow());
+            groupCommitTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                    host, groupCommit::commit, period, period);
+        }
+
+        if (config.isMappedFileEnabled()) {
+            long period = Math.max(1, config.getMappedFileSyncInterval()) * 20L;
+            mappedFileSyncTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                    host, this::syncMappedFile, period, period);
+        }
+
+        // Expired keys are already ignored; this only keeps the table from growing
+        long purgePeriod = TimeUnit.MINUTES.toSeconds(10) * 20L;
+        idempotencyPurgeTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                host, getIdempotencyStore()::purgeExpired, purgePeriod, purgePeriod);
+
         return true;
     }
 
@@ -77,6 +577,193 @@ public class UltiEconomy extends UltiToolsPlugin {
         if (vaultProvider != null) {
             Bukkit.getServicesManager().unregister(Economy.class, vaultProvider);
         }
+        if (economyService != null) {
+            Bukkit.getServicesManager().unregister(EconomyService.class, economyService);
+        }
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (checkpointTask != null) {
+            checkpointTask.cancel();
+            checkpointTask = null;
+        }
+        if (idempotencyPurgeTask != null) {
+            idempotencyPurgeTask.cancel();
+            idempotencyPurgeTask = null;
+        }
+        if (mappedFileSyncTask != null) {
+            mappedFileSyncTask.cancel();
+            mappedFileSyncTask = null;
+        }
+        if (groupCommitTask != null) {
+            groupCommitTask.cancel();
+            groupCommitTask = null;
+        }
+        if (hotAccountFoldTask != null) {
+            hotAccountFoldTask.cancel();
+            hotAccountFoldTask = null;
+        }
+        if (treasuryFlushTask != null) {
+            treasuryFlushTask.cancel();
+            treasuryFlushTask = null;
+        }
+        if (leaderboardTask != null) {
+            leaderboardTask.cancel();
+            leaderboardTask = null;
+        }
+        if (ioExecutor != null) {
+            // Let queued mutations land before the final flush
+            ioExecutor.shutdown();
+            try {
+                if (!ioExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    getLogger().error("Timed out waiting for pending economy operations");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (hotAccounts != null && economyService instanceof EconomyServiceImpl) {
+            ((EconomyServiceImpl) economyService).foldHotAccounts();
+        }
+        if (taxService != null) {
+            flushTreasury();
+        }
+        if (balanceCache != null) {
+            balanceCache.flush();
+        } else if (transactionLog != null) {
+            checkpointLog();
+        } else if (groupCommit != null) {
+            groupCommit.commit();
+        }
+        if (balanceStore != null) {
+            balanceStore.close();
+        }
+        closeMappedFile();
+        if (transactionLog != null) {
+            try {
+                transactionLog.close();
+            } catch (IOException e) {
+                getLogger().error("Failed to close transaction log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the columns later versions write to balance tables an older version created, through
+     * the balance store or, when wallets or the balance file leave it off, a connection of its
+     * own. Without a JDBC URL the tables cannot be altered and are left as they are.
+     */
+    private boolean addColumns(EconomyConfig config) {
+        String url = config.getStorageJdbcUrl();
+        if (url == null || url.isEmpty()) {
+            return true;
+        }
+        JdbcBalanceStore store = getBalanceStore();
+        JdbcBalanceStore schema = store != null ? store : new JdbcBalanceStore(connections(config));
+        try {
+            schema.addColumns();
+            return true;
+        } catch (SQLException e) {
+            getLogger().error("Failed to add missing balance columns: " + e.getMessage());
+            return false;
+        } finally {
+            if (schema != store) {
+                schema.close();
+            }
+        }
+    }
+
+    private static JdbcBalanceStore.ConnectionFactory connections(EconomyConfig config) {
+        String url = config.getStorageJdbcUrl();
+        String user = config.getStorageJdbcUsername();
+        String password = config.getStorageJdbcPassword();
+        return () -> DriverManager.getConnection(url, user, password);
+    }
+
+    private WalletMigration walletMigration() {
+        return new WalletMigration(this,
+                getDataOperator(PlayerAccountEntity.class),
+                getDataOperator(CurrencyBalanceEntity.class),
+                getDataOperator(WalletEntity.class));
+    }
+
+    private void markMigrated(File marker) {
+        marker.getParentFile().mkdirs();
+        try {
+            marker.createNewFile();
+        } catch (IOException e) {
+            // Each of these can be run again without harm
+            getLogger().error("Failed to record " + marker.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns what a marker written by {@link #writeMarker} holds, or null if there is none.
+     */
+    private String readMarker(File marker) {
+        if (!marker.exists()) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            getLogger().error("Failed to read " + marker.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeMarker(File marker, String content) {
+        marker.getParentFile().mkdirs();
+        try {
+            Files.write(marker.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // The run it records can be repeated without harm
+            getLogger().error("Failed to record " + marker.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void flushTreasury() {
+        try {
+            getTaxService().flush();
+        } catch (IllegalAccessException e) {
+            getLogger().error("Failed to write treasury balances: " + e.getMessage());
+        }
+    }
+
+    private void syncMappedFile() {
+        try {
+            getMappedFile().sync();
+        } catch (IOException e) {
+            getLogger().error("Failed to sync the balance file: " + e.getMessage());
+        }
+    }
+
+    private synchronized void closeMappedFile() {
+        if (mappedFile == null) {
+            return;
+        }
+        try {
+            mappedFile.close();
+        } catch (IOException e) {
+            getLogger().error("Failed to close the balance file: " + e.getMessage());
+        }
+        mappedFile = null;
+    }
+
+    /**
+     * Without the cache every logged mutation is written through, or held by group commit, before
+     * its locks are released, so the whole log up to the current mark can be dropped once the
+     * repository has synced, which commits held writes first.
+     */
+    private void checkpointLog() {
+        try {
+            long mark = transactionLog.mark(getAccountLocks());
+            getBalanceRepository().sync();
+            transactionLog.truncate(mark);
+        } catch (IOException e) {
+            getLogger().error("Failed to compact transaction log: " + e.getMessage());
+        }
     }
 
     @Override
@@ -0,0 +1,143 @@
+package com.ultikits.plugins.economy.commands;
+
+import com.ultikits.plugins.economy.UltiEconomy;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
+import com.ultikits.plugins.economy.service.CurrencyManager;
+import com.ultikits.plugins.economy.service.EconomyService;
+import com.ultikits.plugins.economy.service.LeaderboardService;
+import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.annotations.command.*;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+@CmdExecutor(
+        permission = "ultieconomy.baltop",
+        description = "查看财富排行榜",
+        alias = {"baltop"}
+)
+public class BaltopCommand extends AbstractCommandExecutor {
+
+    private UltiToolsPlugin plugin;
+    private EconomyService economyService;
+    private AsyncEconomyService asyncEconomyService;
+    private LeaderboardService leaderboardService;
+    private CurrencyManager currencyManager;
+
+    public BaltopCommand(UltiToolsPlugin plugin, EconomyService economyService,
+                         AsyncEconomyService asyncEconomyService, LeaderboardService leaderboardService) {
+        this.plugin = plugin;
+        this.economyService = economyService;
+        this.asyncEconomyService = asyncEconomyService;
+        this.leaderboardService = leaderboardService;
+        this.currencyManager = ((UltiEconomy) plugin).getCurrencyManager();
+    }
+
+    @SuppressWarnings("all")
+    static BaltopCommand createForTest(UltiToolsPlugin plugin, EconomyService economyService,
+                                       AsyncEconomyService asyncEconomyService,
+                                       LeaderboardService leaderboardService, CurrencyManager currencyManager) {
+        try {
+            java.lang.reflect.Field f = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            sun.misc.Unsafe unsafe = (sun.misc.Unsafe) f.get(null);
+            BaltopCommand cmd = (BaltopCommand) unsafe.allocateInstance(BaltopCommand.class);
+            cmd.plugin = plugin;
+            cmd.economyService = economyService;
+            cmd.asyncEconomyService = asyncEconomyService;
+            cmd.leaderboardService = leaderboardService;
+            cmd.currencyManager = currencyManager;
+            return cmd;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @CmdMapping(format = "")
+    public void onTop(@CmdSender CommandSender sender) {
+        showPage(sender, 1, null);
+    }
+
+    @CmdMapping(format = "<page>")
+    public void onPage(@CmdSender CommandSender sender, @CmdParam("page") String pageStr) {
+        int page = parsePage(sender, pageStr);
+        if (page > 0) {
+            showPage(sender, page, null);
+        }
+    }
+
+    @CmdMapping(format = "<page> <currency>")
+    public void onCurrencyPage(
+            @CmdSender CommandSender sender,
+            @CmdParam("page") String pageStr,
+            @CmdParam("currency") String currencyId) {
+        int page = parsePage(sender, pageStr);
+        if (page <= 0) {
+            return;
+        }
+        if (currencyManager.getCurrency(currencyId) == null) {
+            sender.sendMessage(ChatColor.RED + plugin.i18n("货币不存在"));
+            return;
+        }
+        showPage(sender, page, currencyId);
+    }
+
+    /**
+     * @return the page, or 0 after telling the sender it is not a positive number
+     */
+    private int parsePage(CommandSender sender, String pageStr) {
+        int page;
+        try {
+            page = Integer.parseInt(pageStr);
+        } catch (NumberFormatException e) {
+            page = 0;
+        }
+        if (page <= 0) {
+            sender.sendMessage(ChatColor.RED + plugin.i18n("无效的页码"));
+        }
+        return Math.max(0, page);
+    }
+
+    /**
+     * Reads the page on the I/O executor, since in database mode it is a query, and replies on
+     * the server thread.
+     */
+    private void showPage(CommandSender sender, int page, String currencyId) {
+        asyncEconomyService.submit(economy -> leaderboardService.getPage(page, currencyId))
+                .whenCompleteAsync((entries, error) -> reply(sender, page, currencyId, entries, error),
+                        asyncEconomyService.mainThread());
+    }
+
+    private void reply(CommandSender sender, int page, String currencyId,
+                       List<LeaderboardService.LeaderboardEntry> entries, Throwable error) {
+        if (error != null) {
+            sender.sendMessage(ChatColor.RED + plugin.i18n("操作失败"));
+            return;
+        }
+        if (entries.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + plugin.i18n("该页没有数据"));
+            return;
+        }
+        String title = String.format(plugin.i18n("财富排行榜 - 第 %d 页"), page);
+        sender.sendMessage(ChatColor.GOLD + "=== " + title
+                + (currencyId != null ? " (" + currencyId + ")" : "") + " ===");
+        int rank = (page - 1) * Math.max(1, leaderboardService.getDefaultDisplayCount());
+        for (LeaderboardService.LeaderboardEntry entry : entries) {
+            String amount = currencyId != null
+                    ? economyService.formatAmount(entry.getTotalWealth(), currencyId)
+                    : economyService.formatAmount(entry.getTotalWealth());
+            sender.sendMessage(ChatColor.YELLOW + "#" + (++rank) + " " + entry.getPlayerName()
+                    + ChatColor.GRAY + " - " + ChatColor.GREEN + amount);
+        }
+    }
+
+    @Override
+    protected void handleHelp(CommandSender sender) {
+        sender.sendMessage(ChatColor.GOLD + "=== UltiEconomy ===");
+        sender.sendMessage(ChatColor.YELLOW + "/baltop [page]" + ChatColor.GRAY + " - " + plugin.i18n("查看财富排行榜"));
+        sender.sendMessage(ChatColor.YELLOW + "/baltop <page> <currency>" + ChatColor.GRAY + " - "
+                + plugin.i18n("查看指定货币排行榜"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
@@ -9,6 +10,8 @@ import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 @CmdExecutor(
         permission = "ultieconomy.deposit",
         description = "存款到银行",
@@ -16,13 +19,18 @@ import org.bukkit.entity.Player;
 )
 public class DepositCommand extends AbstractCommandExecutor {
 
+    private static final String DEPOSITED = "成功存入 %s 到银行";
+
     private final UltiToolsPlugin plugin;
     private final EconomyService economyService;
+    private final AsyncEconomyService asyncEconomyService;
     private final EconomyConfig config;
 
-    public DepositCommand(UltiToolsPlugin plugin, EconomyService economyService, EconomyConfig config) {
+    public DepositCommand(UltiToolsPlugin plugin, EconomyService economyService,
+                          AsyncEconomyService asyncEconomyService, EconomyConfig config) {
         this.plugin = plugin;
         this.economyService = economyService;
+        this.asyncEconomyService = asyncEconomyService;
         this.config = config;
     }
 
@@ -53,20 +61,19 @@ public class DepositCommand extends AbstractCommandExecutor {
             return;
         }
 
-        boolean success = economyService.depositToBank(player.getUniqueId(), amount);
-        if (success) {
-            String formatted = economyService.formatAmount(amount);
-            player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("成功存入 %s 到银行"), formatted));
-        } else {
+        UUID uuid = player.getUniqueId();
+        double maxBalance = config.getMaxBankBalance();
+        asyncEconomyService.submit(economy -> {
+            if (economy.depositToBank(uuid, amount)) {
+                return DEPOSITED;
+            }
             // Could be insufficient cash or max bank balance exceeded
-            double maxBalance = config.getMaxBankBalance();
-            double currentBank = economyService.getBank(player.getUniqueId());
-            if (maxBalance > 0 && currentBank + amount > maxBalance) {
-                player.sendMessage(ChatColor.RED + plugin.i18n("银行余额已达上限"));
-            } else {
-                player.sendMessage(ChatColor.RED + plugin.i18n("余额不足"));
+            if (maxBalance > 0 && economy.getBank(uuid) + amount > maxBalance) {
+                return "银行余额已达上限";
             }
-        }
+            return "余额不足";
+        }).whenCompleteAsync((outcome, error) -> reply(player, outcome, error,
+                economyService.formatAmount(amount)), asyncEconomyService.mainThread());
     }
 
     @CmdMapping(format = "<amount> <currency>")
@@ -89,12 +96,18 @@ public class DepositCommand extends AbstractCommandExecutor {
             return;
         }
 
-        boolean success = economyService.depositToBank(player.getUniqueId(), amount, currencyId);
-        if (success) {
-            String formatted = economyService.formatAmount(amount, currencyId);
-            player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("成功存入 %s 到银行"), formatted));
+        asyncEconomyService.depositToBank(player.getUniqueId(), amount, currencyId)
+                .whenCompleteAsync((success, error) -> reply(player, success ? DEPOSITED : "余额不足", error,
+                        economyService.formatAmount(amount, currencyId)), asyncEconomyService.mainThread());
+    }
+
+    private void reply(Player player, String outcome, Throwable error, String formatted) {
+        if (error != null) {
+            player.sendMessage(ChatColor.RED + plugin.i18n("操作失败"));
+        } else if (DEPOSITED.equals(outcome)) {
+            player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n(DEPOSITED), formatted));
         } else {
-            player.sendMessage(ChatColor.RED + plugin.i18n("余额不足"));
+            player.sendMessage(ChatColor.RED + plugin.i18n(outcome));
         }
     }
 
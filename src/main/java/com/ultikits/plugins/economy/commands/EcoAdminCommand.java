@@ -1,10 +1,10 @@
 package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.UltiEconomy;
-import com.ultikits.plugins.economy.config.EconomyConfig;
-import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
 import com.ultikits.plugins.economy.service.CurrencyManager;
 import com.ultikits.plugins.economy.service.EconomyService;
+import com.ultikits.plugins.economy.service.GroupCommitRepository;
 import com.ultikits.plugins.economy.service.TaxService;
 import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
@@ -25,14 +25,14 @@ public class EcoAdminCommand extends AbstractCommandExecutor {
     private EconomyService economyService;
     private TaxService taxService;
     private CurrencyManager currencyManager;
+    private GroupCommitRepository groupCommit;
 
     public EcoAdminCommand(UltiToolsPlugin plugin, EconomyService economyService) {
         this.plugin = plugin;
         this.economyService = economyService;
-        this.taxService = new TaxService(
-                plugin.getConfig(EconomyConfig.class),
-                plugin.getDataOperator(TreasuryEntity.class));
         this.currencyManager = ((UltiEconomy) plugin).getCurrencyManager();
+        this.taxService = ((UltiEconomy) plugin).getTaxService();
+        this.groupCommit = ((UltiEconomy) plugin).getGroupCommit();
     }
 
     @SuppressWarnings("all")
@@ -64,6 +64,10 @@ public class EcoAdminCommand extends AbstractCommandExecutor {
         return cmd;
     }
 
+    void setGroupCommit(GroupCommitRepository groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
     @CmdMapping(format = "give <player> <amount>")
     public void onGive(
             @CmdSender CommandSender sender,
@@ -138,9 +142,10 @@ public class EcoAdminCommand extends AbstractCommandExecutor {
         OfflinePlayer target = resolvePlayer(sender, playerName);
         if (target == null) return;
 
-        double cash = economyService.getCash(target.getUniqueId());
-        double bank = economyService.getBank(target.getUniqueId());
-        double total = economyService.getTotalWealth(target.getUniqueId());
+        WalletSnapshot wallet = economyService.getWallet(target.getUniqueId());
+        double cash = wallet.getCash();
+        double bank = wallet.getBank();
+        double total = wallet.getTotalWealth();
 
         sender.sendMessage(ChatColor.GOLD + "=== " + target.getName() + " ===");
         sender.sendMessage(ChatColor.YELLOW + String.format(
@@ -231,9 +236,10 @@ public class EcoAdminCommand extends AbstractCommandExecutor {
         OfflinePlayer target = resolvePlayer(sender, playerName);
         if (target == null) return;
 
-        double cash = economyService.getCash(target.getUniqueId(), currencyId);
-        double bank = economyService.getBank(target.getUniqueId(), currencyId);
-        double total = economyService.getTotalWealth(target.getUniqueId(), currencyId);
+        WalletSnapshot wallet = economyService.getWallet(target.getUniqueId());
+        double cash = wallet.getCash(currencyId);
+        double bank = wallet.getBank(currencyId);
+        double total = wallet.getTotalWealth(currencyId);
 
         sender.sendMessage(ChatColor.GOLD + "=== " + target.getName() + " (" + currencyId + ") ===");
         sender.sendMessage(ChatColor.YELLOW + String.format(
@@ -309,6 +315,20 @@ public class EcoAdminCommand extends AbstractCommandExecutor {
         }
     }
 
+    @CmdMapping(format = "stats")
+    public void onStats(@CmdSender CommandSender sender) {
+        if (groupCommit == null) {
+            sender.sendMessage(ChatColor.RED + plugin.i18n("写入合并未启用"));
+            return;
+        }
+        sender.sendMessage(ChatColor.YELLOW + String.format(
+                plugin.i18n("写入合并: 收到 %d 次更新, 写入 %d 行, 节省 %.1f%%"),
+                groupCommit.getUpdates(), groupCommit.getRowsWritten(), groupCommit.getSavedFraction() * 100));
+        sender.sendMessage(ChatColor.YELLOW + String.format(
+                plugin.i18n("已提交 %d 次, 其中 %d 次为批量写入, 待写入 %d 行"),
+                groupCommit.getCommits(), groupCommit.getBatches(), groupCommit.getHeldCount()));
+    }
+
     @Override
     protected void handleHelp(CommandSender sender) {
         sender.sendMessage(ChatColor.GOLD + "=== UltiEconomy Admin ===");
@@ -318,6 +338,7 @@ public class EcoAdminCommand extends AbstractCommandExecutor {
         sender.sendMessage(ChatColor.YELLOW + "/eco check <player> [currency]");
         sender.sendMessage(ChatColor.YELLOW + "/eco treasury");
         sender.sendMessage(ChatColor.YELLOW + "/eco treasury withdraw <amount> [currency]");
+        sender.sendMessage(ChatColor.YELLOW + "/eco stats");
     }
 
     @SuppressWarnings("deprecation")
@@ -1,5 +1,6 @@
 package com.ultikits.plugins.economy.commands;
 
+import com.ultikits.plugins.economy.model.WalletSnapshot;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
@@ -26,13 +27,11 @@ public class MoneyCommand extends AbstractCommandExecutor {
     @CmdMapping(format = "")
     @CmdTarget(CmdTarget.CmdTargetType.PLAYER)
     public void onBalance(@CmdSender Player player) {
-        double cash = economyService.getCash(player.getUniqueId());
-        double bank = economyService.getBank(player.getUniqueId());
-        double total = economyService.getTotalWealth(player.getUniqueId());
+        WalletSnapshot wallet = economyService.getWallet(player.getUniqueId());
 
-        String formattedCash = economyService.formatAmount(cash);
-        String formattedBank = economyService.formatAmount(bank);
-        String formattedTotal = economyService.formatAmount(total);
+        String formattedCash = economyService.formatAmount(wallet.getCash());
+        String formattedBank = economyService.formatAmount(wallet.getBank());
+        String formattedTotal = economyService.formatAmount(wallet.getTotalWealth());
 
         player.sendMessage(ChatColor.GOLD + "=== " + plugin.i18n("经济系统") + " ===");
         player.sendMessage(ChatColor.YELLOW + String.format(plugin.i18n("你的余额: %s"), formattedCash));
@@ -43,13 +42,11 @@ public class MoneyCommand extends AbstractCommandExecutor {
     @CmdMapping(format = "<currency>")
     @CmdTarget(CmdTarget.CmdTargetType.PLAYER)
     public void onCurrencyBalance(@CmdSender Player player, @CmdParam("currency") String currencyId) {
-        double cash = economyService.getCash(player.getUniqueId(), currencyId);
-        double bank = economyService.getBank(player.getUniqueId(), currencyId);
-        double total = economyService.getTotalWealth(player.getUniqueId(), currencyId);
+        WalletSnapshot wallet = economyService.getWallet(player.getUniqueId());
 
-        String formattedCash = economyService.formatAmount(cash, currencyId);
-        String formattedBank = economyService.formatAmount(bank, currencyId);
-        String formattedTotal = economyService.formatAmount(total, currencyId);
+        String formattedCash = economyService.formatAmount(wallet.getCash(currencyId), currencyId);
+        String formattedBank = economyService.formatAmount(wallet.getBank(currencyId), currencyId);
+        String formattedTotal = economyService.formatAmount(wallet.getTotalWealth(currencyId), currencyId);
 
         player.sendMessage(ChatColor.GOLD + "=== " + plugin.i18n("经济系统") + " (" + currencyId + ") ===");
         player.sendMessage(ChatColor.YELLOW + String.format(plugin.i18n("你的余额: %s"), formattedCash));
@@ -57,10 +54,31 @@ public class MoneyCommand extends AbstractCommandExecutor {
         player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("总资产: %s"), formattedTotal));
     }
 
+    @CmdMapping(format = "all")
+    @CmdTarget(CmdTarget.CmdTargetType.PLAYER)
+    public void onAllBalances(@CmdSender Player player) {
+        WalletSnapshot wallet = economyService.getWallet(player.getUniqueId());
+        String primaryId = economyService.getPrimaryCurrencyId();
+
+        player.sendMessage(ChatColor.GOLD + "=== " + plugin.i18n("经济系统") + " ===");
+        player.sendMessage(ChatColor.YELLOW + String.format(plugin.i18n("%s: 现金 %s, 银行 %s"), primaryId,
+                economyService.formatAmount(wallet.getCash(), primaryId),
+                economyService.formatAmount(wallet.getBank(), primaryId)));
+        for (String currencyId : wallet.getCurrencyIds()) {
+            if (currencyId.equals(primaryId)) {
+                continue;
+            }
+            player.sendMessage(ChatColor.YELLOW + String.format(plugin.i18n("%s: 现金 %s, 银行 %s"), currencyId,
+                    economyService.formatAmount(wallet.getCash(currencyId), currencyId),
+                    economyService.formatAmount(wallet.getBank(currencyId), currencyId)));
+        }
+    }
+
     @Override
     protected void handleHelp(CommandSender sender) {
         sender.sendMessage(ChatColor.GOLD + "=== UltiEconomy ===");
         sender.sendMessage(ChatColor.YELLOW + "/money" + ChatColor.GRAY + " - " + plugin.i18n("查看余额"));
         sender.sendMessage(ChatColor.YELLOW + "/money <currency>" + ChatColor.GRAY + " - " + plugin.i18n("查看指定货币余额"));
+        sender.sendMessage(ChatColor.YELLOW + "/money all" + ChatColor.GRAY + " - " + plugin.i18n("查看所有货币余额"));
     }
 }
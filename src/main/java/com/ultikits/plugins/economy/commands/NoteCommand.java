@@ -2,6 +2,7 @@ package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.UltiEconomy;
 import com.ultikits.plugins.economy.factory.MoneyNoteFactory;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
@@ -11,6 +12,8 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.concurrent.CompletableFuture;
+
 @CmdExecutor(
         permission = "ultieconomy.note",
         description = "创建/兑换纸币",
@@ -20,16 +23,20 @@ public class NoteCommand extends AbstractCommandExecutor {
 
     private UltiToolsPlugin plugin;
     private EconomyService economyService;
+    private AsyncEconomyService asyncEconomyService;
     private MoneyNoteFactory noteFactory;
 
-    public NoteCommand(UltiToolsPlugin plugin, EconomyService economyService) {
+    public NoteCommand(UltiToolsPlugin plugin, EconomyService economyService,
+                       AsyncEconomyService asyncEconomyService) {
         this.plugin = plugin;
         this.economyService = economyService;
+        this.asyncEconomyService = asyncEconomyService;
         this.noteFactory = ((UltiEconomy) plugin).getMoneyNoteFactory();
     }
 
     @SuppressWarnings("all")
-    static NoteCommand createForTest(UltiToolsPlugin plugin, EconomyService economyService, MoneyNoteFactory noteFactory) {
+    static NoteCommand createForTest(UltiToolsPlugin plugin, EconomyService economyService,
+                                     AsyncEconomyService asyncEconomyService, MoneyNoteFactory noteFactory) {
         try {
             java.lang.reflect.Field f = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
             f.setAccessible(true);
@@ -37,6 +44,7 @@ public class NoteCommand extends AbstractCommandExecutor {
             NoteCommand cmd = (NoteCommand) unsafe.allocateInstance(NoteCommand.class);
             cmd.plugin = plugin;
             cmd.economyService = economyService;
+            cmd.asyncEconomyService = asyncEconomyService;
             cmd.noteFactory = noteFactory;
             return cmd;
         } catch (Exception e) {
@@ -51,15 +59,8 @@ public class NoteCommand extends AbstractCommandExecutor {
         if (amount <= 0) return;
 
         String currencyId = economyService.getPrimaryCurrencyId();
-        if (!economyService.takeCash(player.getUniqueId(), amount)) {
-            player.sendMessage(ChatColor.RED + plugin.i18n("余额不足"));
-            return;
-        }
-
-        ItemStack note = noteFactory.createNote(currencyId, amount, player.getUniqueId(), player.getName());
-        player.getInventory().addItem(note);
-        String formatted = economyService.formatAmount(amount);
-        player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("纸币已创建: %s"), formatted));
+        issueNote(player, asyncEconomyService.takeCash(player.getUniqueId(), amount), currencyId, amount,
+                economyService.formatAmount(amount));
     }
 
     @CmdMapping(format = "<amount> <currency>")
@@ -71,15 +72,32 @@ public class NoteCommand extends AbstractCommandExecutor {
         double amount = parseAmount(player, amountStr);
         if (amount <= 0) return;
 
-        if (!economyService.takeCash(player.getUniqueId(), amount, currencyId)) {
-            player.sendMessage(ChatColor.RED + plugin.i18n("余额不足"));
-            return;
-        }
+        issueNote(player, asyncEconomyService.takeCash(player.getUniqueId(), amount, currencyId), currencyId, amount,
+                economyService.formatAmount(amount, currencyId));
+    }
 
-        ItemStack note = noteFactory.createNote(currencyId, amount, player.getUniqueId(), player.getName());
-        player.getInventory().addItem(note);
-        String formatted = economyService.formatAmount(amount, currencyId);
-        player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("纸币已创建: %s"), formatted));
+    /**
+     * Hands out the note once the cash has been taken off-thread. The item is only created
+     * after the debit succeeds, so a failed or pending debit can never leave a note behind.
+     * A player who logged off meanwhile gets the cash back instead.
+     */
+    private void issueNote(Player player, CompletableFuture<Boolean> debit, String currencyId,
+                           double amount, String formatted) {
+        debit.whenCompleteAsync((success, error) -> {
+            if (error != null) {
+                player.sendMessage(ChatColor.RED + plugin.i18n("操作失败"));
+            } else if (!success) {
+                player.sendMessage(ChatColor.RED + plugin.i18n("余额不足"));
+            } else {
+                if (!player.isOnline()) {
+                    refund(player, currencyId, amount);
+                    return;
+                }
+                ItemStack note = noteFactory.createNote(currencyId, amount, player.getUniqueId(), player.getName());
+                give(player, note);
+                player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("纸币已创建: %s"), formatted));
+            }
+        }, asyncEconomyService.mainThread());
     }
 
     @CmdMapping(format = "redeem")
@@ -94,21 +112,60 @@ public class NoteCommand extends AbstractCommandExecutor {
         double value = noteFactory.getNoteValue(held);
         String currencyId = noteFactory.getNoteCurrency(held);
 
-        boolean success;
-        if (currencyId.equals(economyService.getPrimaryCurrencyId())) {
-            success = economyService.addCash(player.getUniqueId(), value);
+        // Consume the note before crediting so it cannot be redeemed twice while the credit is in flight;
+        // it is handed back if the credit does not go through.
+        ItemStack single = held.clone();
+        single.setAmount(1);
+        if (held.getAmount() > 1) {
+            held.setAmount(held.getAmount() - 1);
         } else {
-            success = economyService.addCash(player.getUniqueId(), value, currencyId);
+            player.getInventory().setItemInMainHand(null);
         }
 
-        if (success) {
-            if (held.getAmount() > 1) {
-                held.setAmount(held.getAmount() - 1);
-            } else {
-                player.getInventory().setItemInMainHand(null);
+        CompletableFuture<Boolean> credit = credit(player, currencyId, value);
+
+        String formatted = economyService.formatAmount(value, currencyId);
+        credit.whenCompleteAsync((success, error) -> {
+            if (error == null && success) {
+                player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("纸币已兑换: %s"), formatted));
+                return;
             }
-            String formatted = economyService.formatAmount(value, currencyId);
-            player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("纸币已兑换: %s"), formatted));
+            if (!player.isOnline()) {
+                refund(player, currencyId, value);
+                return;
+            }
+            give(player, single);
+            if (error != null) {
+                player.sendMessage(ChatColor.RED + plugin.i18n("操作失败"));
+            }
+        }, asyncEconomyService.mainThread());
+    }
+
+    private CompletableFuture<Boolean> credit(Player player, String currencyId, double amount) {
+        if (currencyId.equals(economyService.getPrimaryCurrencyId())) {
+            return asyncEconomyService.addCash(player.getUniqueId(), amount);
+        }
+        return asyncEconomyService.addCash(player.getUniqueId(), amount, currencyId);
+    }
+
+    /**
+     * Credits the value of a note that could not be handed to a player who has logged off.
+     */
+    private void refund(Player player, String currencyId, double amount) {
+        credit(player, currencyId, amount).whenComplete((success, error) -> {
+            if (error != null || !success) {
+                plugin.getLogger().error("Failed to refund a note of " + amount + " " + currencyId
+                        + " to " + player.getUniqueId());
+            }
+        });
+    }
+
+    /**
+     * Puts the item in the player's inventory, dropping it at their feet if the inventory is full.
+     */
+    private static void give(Player player, ItemStack item) {
+        for (ItemStack leftover : player.getInventory().addItem(item).values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
         }
     }
 
@@ -1,5 +1,6 @@
 package com.ultikits.plugins.economy.commands;
 
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
@@ -18,10 +19,13 @@ public class PayCommand extends AbstractCommandExecutor {
 
     private final UltiToolsPlugin plugin;
     private final EconomyService economyService;
+    private final AsyncEconomyService asyncEconomyService;
 
-    public PayCommand(UltiToolsPlugin plugin, EconomyService economyService) {
+    public PayCommand(UltiToolsPlugin plugin, EconomyService economyService,
+                      AsyncEconomyService asyncEconomyService) {
         this.plugin = plugin;
         this.economyService = economyService;
+        this.asyncEconomyService = asyncEconomyService;
     }
 
     @CmdMapping(format = "<player> <amount>")
@@ -55,16 +59,9 @@ public class PayCommand extends AbstractCommandExecutor {
             return;
         }
 
-        boolean success = economyService.transfer(sender.getUniqueId(), target.getUniqueId(), amount);
-        if (success) {
-            String formatted = economyService.formatAmount(amount);
-            sender.sendMessage(ChatColor.GREEN + String.format(
-                    plugin.i18n("成功转账 %s 给 %s"), formatted, target.getName()));
-            target.sendMessage(ChatColor.GREEN + String.format(
-                    plugin.i18n("%s 向你转账了 %s"), sender.getName(), formatted));
-        } else {
-            sender.sendMessage(ChatColor.RED + plugin.i18n("余额不足"));
-        }
+        asyncEconomyService.transfer(sender.getUniqueId(), target.getUniqueId(), amount)
+                .whenCompleteAsync((success, error) -> reply(sender, target, success, error,
+                        economyService.formatAmount(amount)), asyncEconomyService.mainThread());
     }
 
     @CmdMapping(format = "<player> <amount> <currency>")
@@ -99,9 +96,15 @@ public class PayCommand extends AbstractCommandExecutor {
             return;
         }
 
-        boolean success = economyService.transfer(sender.getUniqueId(), target.getUniqueId(), amount, currencyId);
-        if (success) {
-            String formatted = economyService.formatAmount(amount, currencyId);
+        asyncEconomyService.transfer(sender.getUniqueId(), target.getUniqueId(), amount, currencyId)
+                .whenCompleteAsync((success, error) -> reply(sender, target, success, error,
+                        economyService.formatAmount(amount, currencyId)), asyncEconomyService.mainThread());
+    }
+
+    private void reply(Player sender, Player target, Boolean success, Throwable error, String formatted) {
+        if (error != null) {
+            sender.sendMessage(ChatColor.RED + plugin.i18n("操作失败"));
+        } else if (success) {
             sender.sendMessage(ChatColor.GREEN + String.format(
                     plugin.i18n("成功转账 %s 给 %s"), formatted, target.getName()));
             target.sendMessage(ChatColor.GREEN + String.format(
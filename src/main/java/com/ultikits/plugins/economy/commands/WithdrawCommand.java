@@ -1,6 +1,7 @@
 package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.AbstractCommandExecutor;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
@@ -18,11 +19,14 @@ public class WithdrawCommand extends AbstractCommandExecutor {
 
     private final UltiToolsPlugin plugin;
     private final EconomyService economyService;
+    private final AsyncEconomyService asyncEconomyService;
     private final EconomyConfig config;
 
-    public WithdrawCommand(UltiToolsPlugin plugin, EconomyService economyService, EconomyConfig config) {
+    public WithdrawCommand(UltiToolsPlugin plugin, EconomyService economyService,
+                           AsyncEconomyService asyncEconomyService, EconomyConfig config) {
         this.plugin = plugin;
         this.economyService = economyService;
+        this.asyncEconomyService = asyncEconomyService;
         this.config = config;
     }
 
@@ -47,13 +51,9 @@ public class WithdrawCommand extends AbstractCommandExecutor {
             return;
         }
 
-        boolean success = economyService.withdrawFromBank(player.getUniqueId(), amount);
-        if (success) {
-            String formatted = economyService.formatAmount(amount);
-            player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("成功从银行取出 %s"), formatted));
-        } else {
-            player.sendMessage(ChatColor.RED + plugin.i18n("银行存款不足"));
-        }
+        asyncEconomyService.withdrawFromBank(player.getUniqueId(), amount)
+                .whenCompleteAsync((success, error) -> reply(player, success, error,
+                        economyService.formatAmount(amount)), asyncEconomyService.mainThread());
     }
 
     @CmdMapping(format = "<amount> <currency>")
@@ -76,9 +76,15 @@ public class WithdrawCommand extends AbstractCommandExecutor {
             return;
         }
 
-        boolean success = economyService.withdrawFromBank(player.getUniqueId(), amount, currencyId);
-        if (success) {
-            String formatted = economyService.formatAmount(amount, currencyId);
+        asyncEconomyService.withdrawFromBank(player.getUniqueId(), amount, currencyId)
+                .whenCompleteAsync((success, error) -> reply(player, success, error,
+                        economyService.formatAmount(amount, currencyId)), asyncEconomyService.mainThread());
+    }
+
+    private void reply(Player player, Boolean success, Throwable error, String formatted) {
+        if (error != null) {
+            player.sendMessage(ChatColor.RED + plugin.i18n("操作失败"));
+        } else if (success) {
             player.sendMessage(ChatColor.GREEN + String.format(plugin.i18n("成功从银行取出 %s"), formatted));
         } else {
             player.sendMessage(ChatColor.RED + plugin.i18n("银行存款不足"));
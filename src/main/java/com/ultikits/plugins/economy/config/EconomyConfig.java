@@ -6,6 +6,9 @@ import com.ultikits.ultitools.annotations.ConfigEntry;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Getter
 @Setter
 @ConfigEntity("config/config.yml")
@@ -51,6 +54,87 @@ public class EconomyConfig extends AbstractConfigEntity {
     @ConfigEntry(path = "leaderboard.display-count", comment = "Default leaderboard entries")
     private int leaderboardDisplayCount = 10;
 
+    @ConfigEntry(path = "leaderboard.live", comment = "Keep leaderboards in order as balances change instead of re-sorting on every refresh")
+    private boolean leaderboardLive = true;
+
+    @ConfigEntry(path = "leaderboard.repair-interval", comment = "Seconds between full reloads of the live leaderboards")
+    private int leaderboardRepairInterval = 600;
+
+    @ConfigEntry(path = "leaderboard.top-k", comment = "Keep only the richest K players per refreshed leaderboard and estimate other ranks; 0 keeps everyone")
+    private int leaderboardTopK = 0;
+
+    @ConfigEntry(path = "leaderboard.database", comment = "Order and page leaderboards in the database instead of loading every balance; needs the original two tables")
+    private boolean leaderboardDatabase = false;
+
+    @ConfigEntry(path = "cache.enabled", comment = "Serve balances from an in-memory write-behind cache")
+    private boolean cacheEnabled = true;
+
+    @ConfigEntry(path = "cache.flush-interval", comment = "Seconds between write-behind flushes")
+    private int cacheFlushInterval = 30;
+
+    @ConfigEntry(path = "group-commit.enabled", comment = "Merge balance writes to the same row within a window into one write; only with the cache off")
+    private boolean groupCommitEnabled = false;
+
+    @ConfigEntry(path = "group-commit.window", comment = "Ticks between group commits")
+    private int groupCommitWindow = 20;
+
+    @ConfigEntry(path = "hot-accounts.uuids", comment = "Server-owned accounts whose cash changes are collected in striped cells and written periodically")
+    private List<String> hotAccountUuids = new ArrayList<>();
+
+    @ConfigEntry(path = "hot-accounts.stripes", comment = "Cells each hot balance is spread over")
+    private int hotAccountStripes = 16;
+
+    @ConfigEntry(path = "hot-accounts.fold-interval", comment = "Seconds between writes of what hot accounts have collected")
+    private int hotAccountFoldInterval = 5;
+
+    @ConfigEntry(path = "money.fixed-point", comment = "Do balance arithmetic in exact minor units of each currency's precision")
+    private boolean fixedPointEnabled = false;
+
+    @ConfigEntry(path = "wal.enabled", comment = "Record every balance change in a write-ahead log before applying it")
+    private boolean walEnabled = true;
+
+    @ConfigEntry(path = "wal.fsync", comment = "Force each log record to disk, surviving power loss as well as crashes")
+    private boolean walFsync = false;
+
+    @ConfigEntry(path = "wal.checkpoint-interval", comment = "Seconds between log compactions when the cache is disabled")
+    private int walCheckpointInterval = 300;
+
+    @ConfigEntry(path = "optimistic-locking.enabled", comment = "Check each row's version before writing it; needed when several servers share the database")
+    private boolean optimisticLockingEnabled = false;
+
+    @ConfigEntry(path = "optimistic-locking.max-retries", comment = "Times a mutation is retried after another writer changed its row")
+    private int optimisticLockingMaxRetries = 3;
+
+    @ConfigEntry(path = "storage.jdbc-url", comment = "JDBC URL of the database holding the economy tables; enables atomic increments when the cache is off")
+    private String storageJdbcUrl = "";
+
+    @ConfigEntry(path = "storage.jdbc-username", comment = "Database user for atomic increments")
+    private String storageJdbcUsername = "";
+
+    @ConfigEntry(path = "storage.jdbc-password", comment = "Database password for atomic increments")
+    private String storageJdbcPassword = "";
+
+    @ConfigEntry(path = "storage.wallets", comment = "Keep each player's account and balances in one wallet row")
+    private boolean walletStorageEnabled = false;
+
+    @ConfigEntry(path = "storage.mapped-file", comment = "Keep balances in a memory-mapped file instead of the database")
+    private boolean mappedFileEnabled = false;
+
+    @ConfigEntry(path = "storage.mapped-file-sync-interval", comment = "Seconds between forced writes of the balance file to disk")
+    private int mappedFileSyncInterval = 30;
+
+    @ConfigEntry(path = "storage.off-heap", comment = "Mirror every balance in off-heap memory for leaderboards and interest sweeps")
+    private boolean offHeapEnabled = false;
+
+    @ConfigEntry(path = "idempotency.ttl", comment = "Seconds an idempotency key is remembered")
+    private int idempotencyTtl = 86400;
+
+    @ConfigEntry(path = "idempotency.max-keys", comment = "Most idempotency keys kept in memory; the oldest are dropped first")
+    private int idempotencyMaxKeys = 100000;
+
+    @ConfigEntry(path = "async.io-threads", comment = "Worker threads for economy database I/O")
+    private int asyncIoThreads = 4;
+
     @ConfigEntry(path = "tax.enabled", comment = "Enable tax system")
     private boolean taxEnabled = false;
 
@@ -63,6 +147,9 @@ public class EconomyConfig extends AbstractConfigEntity {
     @ConfigEntry(path = "tax.transaction-tax.exempt-permission", comment = "Permission to exempt from transaction tax")
     private String transactionTaxExemptPermission = "ultieconomy.tax.exempt";
 
+    @ConfigEntry(path = "tax.treasury-flush-interval", comment = "Seconds between treasury writes; 0 writes every deposit immediately")
+    private int treasuryFlushInterval = 10;
+
     @ConfigEntry(path = "tax.wealth-tax.enabled", comment = "Enable periodic wealth tax")
     private boolean wealthTaxEnabled = false;
 
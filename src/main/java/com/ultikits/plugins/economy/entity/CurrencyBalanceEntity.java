@@ -27,6 +27,17 @@ public class CurrencyBalanceEntity extends BaseDataEntity<String> {
     @Builder.Default
     private double bank = 0.0;
 
+    /**
+     * Cash plus bank as of the last write, stored so the database can order leaderboards by
+     * it. Repositories set it on every write; read {@link #getTotalWealth()} instead.
+     */
+    @Column(value = "total_wealth", type = "DOUBLE")
+    @EqualsAndHashCode.Exclude
+    private double storedWealth;
+
+    @Column(value = "version", type = "BIGINT")
+    private long version;
+
     public double getTotalWealth() {
         return cash + bank;
     }
@@ -0,0 +1,25 @@
+package com.ultikits.plugins.economy.entity;
+
+import com.ultikits.ultitools.abstracts.data.BaseDataEntity;
+import com.ultikits.ultitools.annotations.Column;
+import com.ultikits.ultitools.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Table("economy_idempotency_keys")
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKeyEntity extends BaseDataEntity<String> {
+
+    @Column("idempotency_key")
+    private String idempotencyKey;
+
+    @Column(value = "created_at", type = "BIGINT")
+    private long createdAt;
+}
@@ -0,0 +1,46 @@
+package com.ultikits.plugins.economy.entity;
+
+import com.ultikits.ultitools.abstracts.data.BaseDataEntity;
+import com.ultikits.ultitools.annotations.Column;
+import com.ultikits.ultitools.annotations.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything one player holds in a single row: the primary account in its own columns and
+ * every currency balance encoded in {@code balances} as
+ * {@code currency=cash,bank,version;currency=cash,bank,version}.
+ */
+@Table("economy_wallets")
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletEntity extends BaseDataEntity<String> {
+
+    @Column("uuid")
+    private String uuid;
+
+    @Column("player_name")
+    private String playerName;
+
+    @Column(value = "account_open", type = "BOOLEAN")
+    private boolean accountOpen;
+
+    @Column(value = "cash", type = "DOUBLE")
+    private double cash;
+
+    @Column(value = "bank", type = "DOUBLE")
+    private double bank;
+
+    @Column(value = "version", type = "BIGINT")
+    private long version;
+
+    @Column(value = "balances", type = "TEXT")
+    @Builder.Default
+    private String balances = "";
+}
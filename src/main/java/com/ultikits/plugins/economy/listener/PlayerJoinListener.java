@@ -2,20 +2,40 @@ package com.ultikits.plugins.economy.listener;
 
 import com.ultikits.plugins.economy.UltiEconomy;
 import com.ultikits.plugins.economy.model.CurrencyDefinition;
+import com.ultikits.plugins.economy.service.AccountLocks;
 import com.ultikits.plugins.economy.service.CurrencyManager;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.annotations.EventListener;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 @EventListener
 public class PlayerJoinListener implements Listener {
 
     private EconomyService economyService;
     private CurrencyManager currencyManager;
+    // Players whose rows pre-login already loaded or created, so their join needs nothing
+    private Set<UUID> preloaded = ConcurrentHashMap.newKeySet();
+    // A fresh token per pre-login, so a quit's eviction can tell the player has come back since
+    private Map<UUID, Long> sessions = new ConcurrentHashMap<>();
+    private AtomicLong nextSession = new AtomicLong();
+    // Serializes a player's preload against an eviction from an earlier session
+    private AccountLocks locks = new AccountLocks(64);
 
     public PlayerJoinListener(UltiToolsPlugin plugin, EconomyService economyService) {
         this.economyService = economyService;
@@ -31,15 +51,58 @@ public class PlayerJoinListener implements Listener {
             PlayerJoinListener listener = (PlayerJoinListener) unsafe.allocateInstance(PlayerJoinListener.class);
             listener.economyService = economyService;
             listener.currencyManager = currencyManager;
+            listener.preloaded = ConcurrentHashMap.newKeySet();
+            listener.sessions = new ConcurrentHashMap<>();
+            listener.nextSession = new AtomicLong();
+            listener.locks = new AccountLocks(64);
             return listener;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Loads the account and all balances off the main thread while the player is still
+     * connecting, so {@link #onPlayerJoin} does no I/O. Without the balance cache there is
+     * no working set to fill: this only creates missing rows, and later reads still go to
+     * the database.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID playerUuid = event.getUniqueId();
+        ReentrantLock lock = locks.forAccount(playerUuid);
+        lock.lock();
+        try {
+            sessions.put(playerUuid, nextSession.incrementAndGet());
+            economyService.preloadPlayer(playerUuid, event.getName());
+            preloaded.add(playerUuid);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases what {@link #onPreLogin} loaded for a player a later check turned away, such as
+     * the whitelist, a ban or a full server. No quit follows a refused login.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            releaseLater(event.getPlayer().getUniqueId());
+        }
+    }
+
+    // Nothing to do for players handled by onPreLogin; creates the rows for players who were
+    // already online when the plugin was (re)loaded.
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
+        if (preloaded.remove(player.getUniqueId())) {
+            return;
+        }
         economyService.getOrCreateAccount(player.getUniqueId(), player.getName());
 
         if (currencyManager != null) {
@@ -49,4 +112,39 @@ public class PlayerJoinListener implements Listener {
             }
         }
     }
+
+    /**
+     * Evicts the player off the main thread, unless they have reconnected by the time the
+     * task runs: their new pre-login either finished first, which the session shows, or
+     * waits for the eviction and loads them again.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        releaseLater(event.getPlayer().getUniqueId());
+    }
+
+    private void releaseLater(UUID playerUuid) {
+        Long session = sessions.get(playerUuid);
+        Bukkit.getScheduler().runTaskAsynchronously(
+                Bukkit.getPluginManager().getPlugin("UltiTools"),
+                () -> release(playerUuid, session));
+    }
+
+    private void release(UUID playerUuid, Long session) {
+        ReentrantLock lock = locks.forAccount(playerUuid);
+        lock.lock();
+        try {
+            Long current = sessions.get(playerUuid);
+            if (current != null && !current.equals(session)) {
+                return;
+            }
+            economyService.releasePlayer(playerUuid);
+            if (current != null) {
+                sessions.remove(playerUuid, current);
+            }
+            preloaded.remove(playerUuid);
+        } finally {
+            lock.unlock();
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package com.ultikits.plugins.economy.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * One signed change to a player's balance inside a batch. A positive delta credits the
+ * bucket and a negative delta debits it. A null or primary currency id targets the
+ * primary account, the same record the single-currency methods operate on.
+ */
+@Getter
+@Builder
+public class BalanceMutation {
+
+    public enum Bucket {
+        CASH,
+        BANK
+    }
+
+    private final UUID uuid;
+    private final String currencyId;
+    private final double delta;
+    @Builder.Default private final Bucket bucket = Bucket.CASH;
+}
@@ -0,0 +1,41 @@
+package com.ultikits.plugins.economy.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch of {@link BalanceMutation}s. A batch is applied as a whole or not at
+ * all; when it is rejected the statuses show which items caused it, and every other item
+ * is reported as {@link Status#SKIPPED}.
+ */
+@Getter
+public class BatchResult {
+
+    public enum Status {
+        APPLIED,
+        SKIPPED,
+        INVALID,
+        UNKNOWN_CURRENCY,
+        NO_ACCOUNT,
+        INSUFFICIENT_FUNDS,
+        WRITE_FAILED
+    }
+
+    private final boolean applied;
+    private final List<Status> statuses;
+
+    public BatchResult(boolean applied, List<Status> statuses) {
+        this.applied = applied;
+        this.statuses = Collections.unmodifiableList(statuses);
+    }
+
+    public Status getStatus(int index) {
+        return statuses.get(index);
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+}
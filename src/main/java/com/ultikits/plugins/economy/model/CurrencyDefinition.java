@@ -14,4 +14,5 @@ public class CurrencyDefinition {
     @Builder.Default private final double minDeposit = 0.0;
     @Builder.Default private final double maxBankBalance = -1;
     @Builder.Default private final boolean primary = false;
+    @Builder.Default private final int precision = Money.DEFAULT_PRECISION;
 }
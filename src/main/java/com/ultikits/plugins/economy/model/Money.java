@@ -0,0 +1,92 @@
+package com.ultikits.plugins.economy.model;
+
+/**
+ * Fixed-point arithmetic on money held as {@code long} minor units, where a currency with
+ * precision {@code p} stores {@code 1.00} as {@code 10^p}. All operations work on primitives
+ * and throw {@link ArithmeticException} instead of silently overflowing.
+ */
+public final class Money {
+
+    public static final int DEFAULT_PRECISION = 2;
+    public static final int MAX_PRECISION = 8;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    /**
+     * Magnitude, in minor units, above which a double no longer holds every whole number, so
+     * converting through it would silently drop minor units: 2^53.
+     */
+    public static final double EXACT_LIMIT = (double) (1L << 53);
+
+    private Money() {
+    }
+
+    public static long scale(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION + ": " + precision);
+        }
+        return POW10[precision];
+    }
+
+    /**
+     * Converts a major-unit amount to minor units, rounding half away from zero.
+     */
+    public static long toMinor(double amount, int precision) {
+        double scaled = amount * scale(precision);
+        if (Double.isNaN(scaled) || Math.abs(scaled) >= EXACT_LIMIT) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return scaled < 0 ? -Math.round(-scaled) : Math.round(scaled);
+    }
+
+    public static double toMajor(long minor, int precision) {
+        return (double) minor / scale(precision);
+    }
+
+    /**
+     * Snaps an amount onto the precision grid, e.g. {@code 0.125} at precision 2 becomes {@code 0.13}.
+     */
+    public static double round(double amount, int precision) {
+        return toMajor(toMinor(amount, precision), precision);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Multiplies minor units by a rate such as an interest or tax percentage and rounds the
+     * result back to whole minor units.
+     */
+    public static long multiply(long minor, double rate) {
+        double product = minor * rate;
+        if (Double.isNaN(product) || Math.abs(product) >= EXACT_LIMIT) {
+            throw new ArithmeticException("Product out of range: " + minor + " * " + rate);
+        }
+        return product < 0 ? -Math.round(-product) : Math.round(product);
+    }
+
+    /**
+     * Adds two major-unit amounts exactly on the precision grid.
+     */
+    public static double add(double a, double b, int precision) {
+        return toMajor(exact(add(toMinor(a, precision), toMinor(b, precision))), precision);
+    }
+
+    public static double subtract(double a, double b, int precision) {
+        return toMajor(exact(subtract(toMinor(a, precision), toMinor(b, precision))), precision);
+    }
+
+    private static long exact(long minor) {
+        if (Math.abs((double) minor) >= EXACT_LIMIT) {
+            throw new ArithmeticException("Amount out of range: " + minor + " minor units");
+        }
+        return minor;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ultikits.plugins.economy.model;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats amounts as a fixed prefix followed by fixed-point digits, e.g. {@code $1,234.50}.
+ * Immutable and safe to share between threads, unlike {@link DecimalFormat}; digits are
+ * written into a per-thread buffer, so a call allocates only the returned string.
+ * <p>
+ * Amounts are rounded half away from zero like {@link Money#toMinor}, and use {@code ','}
+ * and {@code '.'} whatever the server locale. Amounts too large for minor units in a
+ * {@code long} fall back to a {@link DecimalFormat} built for the call.
+ */
+public final class MoneyFormatter {
+
+    /**
+     * Two decimals without a prefix or grouping, the raw form given to placeholders.
+     */
+    public static final MoneyFormatter PLAIN = new MoneyFormatter("", Money.DEFAULT_PRECISION, false);
+
+    /**
+     * Two grouped decimals without a prefix, for amounts of no known currency.
+     */
+    public static final MoneyFormatter PLAIN_GROUPED = new MoneyFormatter("", Money.DEFAULT_PRECISION, true);
+
+    // Sign, 19 digits, 6 separators, point and up to 8 decimals, with room to spare
+    private static final int DIGITS = 40;
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[64]);
+
+    private final String prefix;
+    private final int precision;
+    private final boolean grouping;
+    private final long scale;
+
+    public MoneyFormatter(String prefix, int precision, boolean grouping) {
+        this.prefix = prefix != null ? prefix : "";
+        this.precision = precision;
+        this.grouping = grouping;
+        this.scale = Money.scale(precision);
+    }
+
+    /**
+     * A grouped formatter for the currency's symbol and precision.
+     */
+    public static MoneyFormatter of(CurrencyDefinition currency) {
+        return new MoneyFormatter(currency.getSymbol(), currency.getPrecision(), true);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public String format(double amount) {
+        double scaled = Math.abs(amount * scale);
+        if (!(scaled < Money.EXACT_LIMIT)) {
+            return slowFormat(amount);
+        }
+        long minor = Money.toMinor(amount, precision);
+        char[] buffer = BUFFERS.get();
+        int needed = prefix.length() + DIGITS;
+        if (buffer.length < needed) {
+            buffer = new char[needed];
+            BUFFERS.set(buffer);
+        }
+
+        // Write backwards from the end: decimals, point, grouped integer digits, sign, prefix
+        int pos = buffer.length;
+        long value = Math.abs(minor);
+        for (int i = 0; i < precision; i++) {
+            buffer[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        if (precision > 0) {
+            buffer[--pos] = '.';
+        }
+        int digits = 0;
+        do {
+            if (grouping && digits > 0 && digits % 3 == 0) {
+                buffer[--pos] = ',';
+            }
+            buffer[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+            digits++;
+        } while (value != 0);
+        if (minor < 0) {
+            buffer[--pos] = '-';
+        }
+        pos -= prefix.length();
+        prefix.getChars(0, prefix.length(), buffer, pos);
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    private String slowFormat(double amount) {
+        StringBuilder pattern = new StringBuilder(grouping ? "#,##0" : "0");
+        if (precision > 0) {
+            pattern.append('.');
+            for (int i = 0; i < precision; i++) {
+                pattern.append('0');
+            }
+        }
+        DecimalFormat format = new DecimalFormat(pattern.toString(), DecimalFormatSymbols.getInstance(Locale.ROOT));
+        return prefix + format.format(amount);
+    }
+}
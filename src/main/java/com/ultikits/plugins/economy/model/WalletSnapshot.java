@@ -0,0 +1,130 @@
+package com.ultikits.plugins.economy.model;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable copy of everything a player holds: the primary account plus one holding per
+ * currency. Values are copied out of the entities when the snapshot is taken, so later
+ * mutations do not show through and all figures describe the same instant.
+ */
+public final class WalletSnapshot {
+
+    private static final Holding EMPTY = new Holding(0.0, 0.0);
+
+    @Getter
+    private final String uuid;
+    private final boolean account;
+    private final double cash;
+    private final double bank;
+    private final Map<String, Holding> holdings;
+
+    private WalletSnapshot(String uuid, boolean account, double cash, double bank, Map<String, Holding> holdings) {
+        this.uuid = uuid;
+        this.account = account;
+        this.cash = cash;
+        this.bank = bank;
+        this.holdings = holdings;
+    }
+
+    /**
+     * Builds a snapshot from the stored rows. Either argument may be missing; absent values read as zero.
+     */
+    public static WalletSnapshot of(String uuid, PlayerAccountEntity account,
+                                    Collection<CurrencyBalanceEntity> balances) {
+        Map<String, Holding> holdings = new LinkedHashMap<>();
+        for (CurrencyBalanceEntity balance : balances) {
+            holdings.put(balance.getCurrencyId(), new Holding(balance.getCash(), balance.getBank()));
+        }
+        return new WalletSnapshot(uuid,
+                account != null,
+                account != null ? account.getCash() : 0.0,
+                account != null ? account.getBank() : 0.0,
+                Collections.unmodifiableMap(holdings));
+    }
+
+    public static WalletSnapshot empty(String uuid) {
+        return new WalletSnapshot(uuid, false, 0.0, 0.0, Collections.emptyMap());
+    }
+
+    /**
+     * Returns a copy with {@code amount} added to the cash of the primary account, for a null
+     * currency id, or of the given currency.
+     */
+    public WalletSnapshot plusCash(String currencyId, double amount) {
+        if (amount == 0.0) {
+            return this;
+        }
+        if (currencyId == null) {
+            return new WalletSnapshot(uuid, account, cash + amount, bank, holdings);
+        }
+        Map<String, Holding> copy = new LinkedHashMap<>(holdings);
+        Holding holding = holding(currencyId);
+        copy.put(currencyId, new Holding(holding.getCash() + amount, holding.getBank()));
+        return new WalletSnapshot(uuid, account, cash, bank, Collections.unmodifiableMap(copy));
+    }
+
+    public boolean hasAccount() {
+        return account;
+    }
+
+    // Explicit because Lombok skips getters that share a name with the per-currency overloads.
+    public double getCash() {
+        return cash;
+    }
+
+    public double getBank() {
+        return bank;
+    }
+
+    public double getTotalWealth() {
+        return cash + bank;
+    }
+
+    public boolean hasBalance(String currencyId) {
+        return holdings.containsKey(currencyId);
+    }
+
+    public double getCash(String currencyId) {
+        return holding(currencyId).getCash();
+    }
+
+    public double getBank(String currencyId) {
+        return holding(currencyId).getBank();
+    }
+
+    public double getTotalWealth(String currencyId) {
+        return holding(currencyId).getTotalWealth();
+    }
+
+    public Set<String> getCurrencyIds() {
+        return holdings.keySet();
+    }
+
+    private Holding holding(String currencyId) {
+        Holding holding = holdings.get(currencyId);
+        return holding != null ? holding : EMPTY;
+    }
+
+    @Getter
+    public static final class Holding {
+        private final double cash;
+        private final double bank;
+
+        Holding(double cash, double bank) {
+            this.cash = cash;
+            this.bank = bank;
+        }
+
+        public double getTotalWealth() {
+            return cash + bank;
+        }
+    }
+}
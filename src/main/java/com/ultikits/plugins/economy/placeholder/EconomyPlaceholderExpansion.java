@@ -1,5 +1,6 @@
 package com.ultikits.plugins.economy.placeholder;
 
+import com.ultikits.plugins.economy.model.MoneyFormatter;
 import com.ultikits.plugins.economy.service.CurrencyManager;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.plugins.economy.service.LeaderboardService;
@@ -71,11 +72,11 @@ public class EconomyPlaceholderExpansion extends PlaceholderExpansion {
 
         switch (param) {
             case "cash":
-                return String.format("%.2f", economyService.getCash(player.getUniqueId()));
+                return MoneyFormatter.PLAIN.format(economyService.getCash(player.getUniqueId()));
             case "bank":
-                return String.format("%.2f", economyService.getBank(player.getUniqueId()));
+                return MoneyFormatter.PLAIN.format(economyService.getBank(player.getUniqueId()));
             case "total":
-                return String.format("%.2f", economyService.getTotalWealth(player.getUniqueId()));
+                return MoneyFormatter.PLAIN.format(economyService.getTotalWealth(player.getUniqueId()));
             case "cash_formatted":
                 return economyService.formatAmount(economyService.getCash(player.getUniqueId()));
             case "rank":
@@ -89,11 +90,11 @@ public class EconomyPlaceholderExpansion extends PlaceholderExpansion {
     private String handleCurrencyPlaceholder(OfflinePlayer player, String currencyId, String type) {
         switch (type) {
             case "cash":
-                return String.format("%.2f", economyService.getCash(player.getUniqueId(), currencyId));
+                return MoneyFormatter.PLAIN.format(economyService.getCash(player.getUniqueId(), currencyId));
             case "bank":
-                return String.format("%.2f", economyService.getBank(player.getUniqueId(), currencyId));
+                return MoneyFormatter.PLAIN.format(economyService.getBank(player.getUniqueId(), currencyId));
             case "total":
-                return String.format("%.2f", economyService.getTotalWealth(player.getUniqueId(), currencyId));
+                return MoneyFormatter.PLAIN.format(economyService.getTotalWealth(player.getUniqueId(), currencyId));
             case "cash_formatted":
                 return economyService.formatAmount(economyService.getCash(player.getUniqueId(), currencyId), currencyId);
             case "rank":
@@ -135,7 +136,7 @@ public class EconomyPlaceholderExpansion extends PlaceholderExpansion {
         if (top.size() < index) {
             return "0.00";
         }
-        return String.format("%.2f", top.get(index - 1).getTotalWealth());
+        return MoneyFormatter.PLAIN.format(top.get(index - 1).getTotalWealth());
     }
 
     private int parseIndex(String str) {
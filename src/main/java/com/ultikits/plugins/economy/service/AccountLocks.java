@@ -0,0 +1,140 @@
+package com.ultikits.plugins.economy.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock striping for balance mutations. Every primary account maps to one stripe by
+ * player UUID and every currency balance maps to one stripe by (UUID, currency id),
+ * so read-modify-write sequences on the same record are serialized while unrelated
+ * records almost always land on different stripes and proceed in parallel.
+ */
+public class AccountLocks {
+
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public AccountLocks(int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public ReentrantLock forAccount(UUID playerUuid) {
+        return stripes[accountIndex(playerUuid)];
+    }
+
+    public ReentrantLock forBalance(UUID playerUuid, String currencyId) {
+        return stripes[balanceIndex(playerUuid, currencyId)];
+    }
+
+    /**
+     * Returns the stripes guarding two primary accounts in ascending stripe order.
+     * Callers that lock the returned array front to back never deadlock against each
+     * other, regardless of which side of a transfer each player is on. When both
+     * accounts share a stripe a single lock is returned.
+     */
+    public ReentrantLock[] forAccounts(UUID first, UUID second) {
+        return ordered(accountIndex(first), accountIndex(second));
+    }
+
+    public ReentrantLock[] forBalances(UUID first, UUID second, String currencyId) {
+        return ordered(balanceIndex(first, currencyId), balanceIndex(second, currencyId));
+    }
+
+    /**
+     * Returns every stripe guarding a player's account and the given currency balances,
+     * deduplicated and in ascending stripe order.
+     */
+    public ReentrantLock[] forPlayer(UUID playerUuid, Collection<String> currencyIds) {
+        int[] indexes = new int[currencyIds.size() + 1];
+        int n = 0;
+        indexes[n++] = accountIndex(playerUuid);
+        for (String currencyId : currencyIds) {
+            indexes[n++] = balanceIndex(playerUuid, currencyId);
+        }
+        return forStripes(indexes);
+    }
+
+    /**
+     * Returns the stripes at the given indexes from {@link #accountIndex} and
+     * {@link #balanceIndex}, deduplicated and in ascending stripe order.
+     * The array is sorted in place.
+     */
+    ReentrantLock[] forStripes(int[] indexes) {
+        Arrays.sort(indexes);
+        ReentrantLock[] held = new ReentrantLock[indexes.length];
+        int count = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                held[count++] = stripes[indexes[i]];
+            }
+        }
+        return count == held.length ? held : Arrays.copyOf(held, count);
+    }
+
+    /**
+     * Returns every stripe in ascending order, for the rare caller that must wait until
+     * no mutation is in progress anywhere.
+     */
+    public ReentrantLock[] all() {
+        return stripes.clone();
+    }
+
+    /**
+     * Locks stripes returned by this class front to back. Every multi-stripe caller acquires
+     * in ascending order, which rules out lock-order deadlocks between them.
+     */
+    public static void lockAll(ReentrantLock[] held) {
+        for (ReentrantLock lock : held) {
+            lock.lock();
+        }
+    }
+
+    public static void unlockAll(ReentrantLock[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            held[i].unlock();
+        }
+    }
+
+    int accountIndex(UUID playerUuid) {
+        return spread(playerUuid.hashCode()) & mask;
+    }
+
+    int balanceIndex(UUID playerUuid, String currencyId) {
+        return spread(31 * playerUuid.hashCode() + currencyId.hashCode()) & mask;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private ReentrantLock[] ordered(int a, int b) {
+        if (a == b) {
+            return new ReentrantLock[]{stripes[a]};
+        }
+        return a < b
+                ? new ReentrantLock[]{stripes[a], stripes[b]}
+                : new ReentrantLock[]{stripes[b], stripes[a]};
+    }
+
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
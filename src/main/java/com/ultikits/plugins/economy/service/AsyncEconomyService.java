@@ -0,0 +1,54 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.plugins.economy.model.BatchResult;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link EconomyService}. Calls run on the plugin's bounded I/O
+ * executor and their futures complete there; pass {@link #mainThread()} to the
+ * {@code *Async} stages of {@link CompletableFuture} to continue on the server thread.
+ * A future completes exceptionally if the operation throws or the executor is saturated.
+ */
+public interface AsyncEconomyService {
+
+    /**
+     * Runs an arbitrary operation against the synchronous service on the I/O executor.
+     */
+    <T> CompletableFuture<T> submit(Function<EconomyService, T> operation);
+
+    CompletableFuture<WalletSnapshot> getWallet(UUID playerUuid);
+
+    CompletableFuture<Boolean> addCash(UUID playerUuid, double amount);
+
+    CompletableFuture<Boolean> takeCash(UUID playerUuid, double amount);
+
+    CompletableFuture<Boolean> transfer(UUID from, UUID to, double amount);
+
+    CompletableFuture<Boolean> depositToBank(UUID playerUuid, double amount);
+
+    CompletableFuture<Boolean> withdrawFromBank(UUID playerUuid, double amount);
+
+    CompletableFuture<Boolean> addCash(UUID playerUuid, double amount, String currencyId);
+
+    CompletableFuture<Boolean> takeCash(UUID playerUuid, double amount, String currencyId);
+
+    CompletableFuture<Boolean> transfer(UUID from, UUID to, double amount, String currencyId);
+
+    CompletableFuture<Boolean> depositToBank(UUID playerUuid, double amount, String currencyId);
+
+    CompletableFuture<Boolean> withdrawFromBank(UUID playerUuid, double amount, String currencyId);
+
+    CompletableFuture<BatchResult> applyBatch(List<BalanceMutation> mutations);
+
+    /**
+     * Executor that runs tasks on the server thread, inline when already on it.
+     */
+    Executor mainThread();
+}
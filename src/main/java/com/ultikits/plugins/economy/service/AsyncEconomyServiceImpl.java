@@ -0,0 +1,146 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.UltiEconomy;
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.plugins.economy.model.BatchResult;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.annotations.Service;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+@Service
+public class AsyncEconomyServiceImpl implements AsyncEconomyService {
+
+    private UltiToolsPlugin plugin;
+    private EconomyService economyService;
+    private Executor ioExecutor;
+    private Executor mainThread;
+
+    public AsyncEconomyServiceImpl(UltiToolsPlugin plugin, EconomyService economyService) {
+        this.plugin = plugin;
+        this.economyService = economyService;
+        this.ioExecutor = ((UltiEconomy) plugin).getIoExecutor();
+        Plugin host = Bukkit.getPluginManager().getPlugin("UltiTools");
+        this.mainThread = task -> {
+            if (Bukkit.isPrimaryThread()) {
+                task.run();
+            } else {
+                Bukkit.getScheduler().runTask(host, task);
+            }
+        };
+    }
+
+    @SuppressWarnings("all")
+    static AsyncEconomyServiceImpl createForTest(UltiToolsPlugin plugin,
+                                                 EconomyService economyService,
+                                                 Executor ioExecutor,
+                                                 Executor mainThread) {
+        try {
+            java.lang.reflect.Field f = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            sun.misc.Unsafe unsafe = (sun.misc.Unsafe) f.get(null);
+            AsyncEconomyServiceImpl instance =
+                    (AsyncEconomyServiceImpl) unsafe.allocateInstance(AsyncEconomyServiceImpl.class);
+            instance.plugin = plugin;
+            instance.economyService = economyService;
+            instance.ioExecutor = ioExecutor;
+            instance.mainThread = mainThread;
+            return instance;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Function<EconomyService, T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    future.complete(operation.apply(economyService));
+                } catch (Throwable e) {
+                    // Errors too: a future left pending would leave its caller waiting forever
+                    plugin.getLogger().error("Async economy operation failed: " + e);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().error("Economy I/O queue is full, rejecting operation");
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<WalletSnapshot> getWallet(UUID playerUuid) {
+        return submit(economy -> economy.getWallet(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addCash(UUID playerUuid, double amount) {
+        return submit(economy -> economy.addCash(playerUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> takeCash(UUID playerUuid, double amount) {
+        return submit(economy -> economy.takeCash(playerUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transfer(UUID from, UUID to, double amount) {
+        return submit(economy -> economy.transfer(from, to, amount));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> depositToBank(UUID playerUuid, double amount) {
+        return submit(economy -> economy.depositToBank(playerUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> withdrawFromBank(UUID playerUuid, double amount) {
+        return submit(economy -> economy.withdrawFromBank(playerUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addCash(UUID playerUuid, double amount, String currencyId) {
+        return submit(economy -> economy.addCash(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> takeCash(UUID playerUuid, double amount, String currencyId) {
+        return submit(economy -> economy.takeCash(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transfer(UUID from, UUID to, double amount, String currencyId) {
+        return submit(economy -> economy.transfer(from, to, amount, currencyId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> depositToBank(UUID playerUuid, double amount, String currencyId) {
+        return submit(economy -> economy.depositToBank(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> withdrawFromBank(UUID playerUuid, double amount, String currencyId) {
+        return submit(economy -> economy.withdrawFromBank(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult> applyBatch(List<BalanceMutation> mutations) {
+        return submit(economy -> economy.applyBatch(mutations));
+    }
+
+    @Override
+    public Executor mainThread() {
+        return mainThread;
+    }
+}
@@ -0,0 +1,508 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authoritative write-behind cache in front of the account and currency balance tables.
+ * Entries are loaded from the database on first access and served from memory afterwards.
+ * Mutated entries are marked dirty and written back by {@link #flush()}, which the main
+ * plugin runs on a fixed interval and once more on shutdown. Each entry is written while
+ * holding its {@link AccountLocks} stripe so a flush never persists a half-applied mutation.
+ * When a {@link TransactionLog} is attached, a flush that writes everything also compacts
+ * the log up to the point where it started.
+ * <p>
+ * Currency balances are held per player in a {@link CachedWallet}, primitive arrays indexed
+ * by currency ordinal, so a million cached players do not cost a million entities, id strings
+ * and map keys per currency. Balances are handed out as detached entities; a change reaches
+ * the cache when the entity is passed to {@link #markDirty(CurrencyBalanceEntity)}.
+ */
+public class BalanceCache {
+
+    private final UltiToolsPlugin plugin;
+    private final BalanceRepository repository;
+    private final AccountLocks locks;
+    private final TransactionLog log;
+    private final CurrencyOrdinals ordinals;
+
+    private final ConcurrentMap<String, PlayerAccountEntity> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CachedWallet> wallets = new ConcurrentHashMap<>();
+    private final Set<String> dirtyAccounts = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyBalances = ConcurrentHashMap.newKeySet();
+
+    public BalanceCache(UltiToolsPlugin plugin,
+                        DataOperator<PlayerAccountEntity> accountOperator,
+                        DataOperator<CurrencyBalanceEntity> balanceOperator,
+                        AccountLocks locks) {
+        this(plugin, accountOperator, balanceOperator, locks, null);
+    }
+
+    public BalanceCache(UltiToolsPlugin plugin,
+                        DataOperator<PlayerAccountEntity> accountOperator,
+                        DataOperator<CurrencyBalanceEntity> balanceOperator,
+                        AccountLocks locks,
+                        TransactionLog log) {
+        this(plugin, new SplitTableRepository(accountOperator, balanceOperator), locks, log);
+    }
+
+    public BalanceCache(UltiToolsPlugin plugin,
+                        BalanceRepository repository,
+                        AccountLocks locks,
+                        TransactionLog log) {
+        this(plugin, repository, locks, log, new CurrencyOrdinals());
+    }
+
+    public BalanceCache(UltiToolsPlugin plugin,
+                        BalanceRepository repository,
+                        AccountLocks locks,
+                        TransactionLog log,
+                        CurrencyOrdinals ordinals) {
+        this.plugin = plugin;
+        this.repository = repository;
+        this.locks = locks;
+        this.log = log;
+        this.ordinals = ordinals;
+    }
+
+    public AccountLocks getLocks() {
+        return locks;
+    }
+
+    // --- Primary accounts ---
+
+    /**
+     * Returns the cached account, loading it from the database on a miss.
+     * Returns null if the account does not exist.
+     */
+    public PlayerAccountEntity getAccount(String uuid) {
+        PlayerAccountEntity cached = accounts.get(uuid);
+        if (cached != null) {
+            return cached;
+        }
+        PlayerAccountEntity loaded = repository.findAccount(uuid);
+        if (loaded == null) {
+            return null;
+        }
+        PlayerAccountEntity existing = accounts.putIfAbsent(uuid, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Inserts a freshly created account and starts tracking it.
+     */
+    public PlayerAccountEntity insertAccount(PlayerAccountEntity account) {
+        repository.insertAccount(account);
+        PlayerAccountEntity existing = accounts.putIfAbsent(account.getUuid(), account);
+        return existing != null ? existing : account;
+    }
+
+    public void markDirty(PlayerAccountEntity account) {
+        dirtyAccounts.add(account.getUuid());
+    }
+
+    /**
+     * Returns the live cached copy of an account read in bulk from the database,
+     * so that sweeps do not act on values older than the last flush.
+     */
+    public PlayerAccountEntity resolve(PlayerAccountEntity stored) {
+        PlayerAccountEntity cached = accounts.get(stored.getUuid());
+        return cached != null ? cached : stored;
+    }
+
+    // --- Per-currency balances ---
+
+    /**
+     * Returns a copy of the cached balance, loading it from the database on a miss.
+     * Returns null if the balance does not exist.
+     */
+    public CurrencyBalanceEntity getBalance(String uuid, String currencyId) {
+        CurrencyBalanceEntity cached = cached(uuid, currencyId);
+        if (cached != null) {
+            return cached;
+        }
+        CurrencyBalanceEntity loaded = repository.findBalance(uuid, currencyId);
+        return loaded != null ? track(loaded) : null;
+    }
+
+    public CurrencyBalanceEntity insertBalance(CurrencyBalanceEntity balance) {
+        repository.insertBalance(balance);
+        return track(balance);
+    }
+
+    /**
+     * Stores the balance's values in the cache and queues it for the next flush.
+     * Callers hold the balance's stripe.
+     */
+    public void markDirty(CurrencyBalanceEntity balance) {
+        int ordinal = ordinals.intern(balance.getCurrencyId());
+        wallets.compute(balance.getUuid(), (uuid, wallet) -> {
+            CachedWallet target = wallet != null ? wallet : new CachedWallet(uuid, ordinals.size());
+            target.put(ordinal, balance);
+            return target;
+        });
+        dirtyBalances.add(balanceKey(balance.getUuid(), balance.getCurrencyId()));
+    }
+
+    public CurrencyBalanceEntity resolve(CurrencyBalanceEntity stored) {
+        CurrencyBalanceEntity cached = cached(stored.getUuid(), stored.getCurrencyId());
+        return cached != null ? cached : stored;
+    }
+
+    private CurrencyBalanceEntity cached(String uuid, String currencyId) {
+        CachedWallet wallet = wallets.get(uuid);
+        if (wallet == null) {
+            return null;
+        }
+        int ordinal = ordinals.intern(currencyId);
+        return wallet.get(ordinal, ordinals.idOf(ordinal));
+    }
+
+    private boolean isCached(String uuid, String currencyId) {
+        CachedWallet wallet = wallets.get(uuid);
+        return wallet != null && wallet.has(ordinals.intern(currencyId));
+    }
+
+    /**
+     * Caches a balance read from the database unless a copy is already cached, and returns
+     * the cached values. Structural changes go through {@code compute} so an eviction that
+     * drops an emptied wallet cannot race with a balance being added to it.
+     */
+    private CurrencyBalanceEntity track(CurrencyBalanceEntity balance) {
+        int ordinal = ordinals.intern(balance.getCurrencyId());
+        CachedWallet tracked = wallets.compute(balance.getUuid(), (uuid, wallet) -> {
+            CachedWallet target = wallet != null ? wallet : new CachedWallet(uuid, ordinals.size());
+            if (!target.has(ordinal)) {
+                target.put(ordinal, balance);
+            }
+            return target;
+        });
+        return tracked.get(ordinal, ordinals.idOf(ordinal));
+    }
+
+    // --- Working set ---
+
+    /**
+     * Loads a player's account and all of their currency balances with one query per table.
+     * Runs under the player's stripe locks so it cannot interleave with {@link #evict} and
+     * resurrect a row older than the one being written back.
+     */
+    public void preload(UUID playerUuid, Collection<String> currencyIds) {
+        ReentrantLock[] held = locks.forPlayer(playerUuid, currencyIds);
+        AccountLocks.lockAll(held);
+        try {
+            load(playerUuid.toString(), currencyIds);
+        } finally {
+            AccountLocks.unlockAll(held);
+        }
+    }
+
+    /**
+     * Returns a consistent copy of the player's account and currency balances, loading
+     * anything not yet cached with the same single query per table as {@link #preload}.
+     * All of the player's stripes are held while copying, so no mutation is seen half-applied.
+     */
+    public WalletSnapshot snapshot(UUID playerUuid, Collection<String> currencyIds) {
+        String uuid = playerUuid.toString();
+        ReentrantLock[] held = locks.forPlayer(playerUuid, currencyIds);
+        AccountLocks.lockAll(held);
+        try {
+            load(uuid, currencyIds);
+            List<CurrencyBalanceEntity> owned = new ArrayList<>();
+            for (String currencyId : currencyIds) {
+                CurrencyBalanceEntity balance = cached(uuid, currencyId);
+                if (balance != null) {
+                    owned.add(balance);
+                }
+            }
+            return WalletSnapshot.of(uuid, accounts.get(uuid), owned);
+        } finally {
+            AccountLocks.unlockAll(held);
+        }
+    }
+
+    private void load(String uuid, Collection<String> currencyIds) {
+        if (!accounts.containsKey(uuid)) {
+            PlayerAccountEntity loaded = repository.findAccount(uuid);
+            if (loaded != null) {
+                accounts.putIfAbsent(uuid, loaded);
+            }
+        }
+        boolean missing = false;
+        for (String currencyId : currencyIds) {
+            if (!isCached(uuid, currencyId)) {
+                missing = true;
+                break;
+            }
+        }
+        if (missing) {
+            for (CurrencyBalanceEntity balance : repository.findBalances(uuid)) {
+                track(balance);
+            }
+        }
+    }
+
+    /**
+     * Writes back a player's dirty entries and drops them from memory.
+     * Entries that fail to write stay cached and dirty for the next flush.
+     *
+     * @return true if every entry was released
+     */
+    public boolean evict(UUID playerUuid, Collection<String> currencyIds) {
+        String uuid = playerUuid.toString();
+        ReentrantLock[] held = locks.forPlayer(playerUuid, currencyIds);
+        AccountLocks.lockAll(held);
+        try {
+            boolean released = release(accounts, dirtyAccounts, uuid, repository::updateAccount);
+            for (String currencyId : currencyIds) {
+                released &= release(uuid, currencyId);
+            }
+            wallets.computeIfPresent(uuid, (key, wallet) -> wallet.count() == 0 ? null : wallet);
+            return released;
+        } finally {
+            AccountLocks.unlockAll(held);
+        }
+    }
+
+    private boolean release(String uuid, String currencyId) {
+        CachedWallet wallet = wallets.get(uuid);
+        CurrencyBalanceEntity balance = cached(uuid, currencyId);
+        if (balance == null) {
+            return true;
+        }
+        if (!release(balance, balanceKey(uuid, currencyId), dirtyBalances, repository::updateBalance)) {
+            return false;
+        }
+        wallet.remove(ordinals.intern(currencyId));
+        return true;
+    }
+
+    private <T> boolean release(ConcurrentMap<String, T> entries, Set<String> dirty,
+                                String key, Writer<T> writer) {
+        T entry = entries.get(key);
+        if (entry == null) {
+            return true;
+        }
+        if (!release(entry, key, dirty, writer)) {
+            return false;
+        }
+        entries.remove(key);
+        return true;
+    }
+
+    private <T> boolean release(T entry, String key, Set<String> dirty, Writer<T> writer) {
+        if (dirty.remove(key)) {
+            try {
+                writer.write(entry);
+            } catch (IllegalAccessException e) {
+                dirty.add(key);
+                plugin.getLogger().error("Failed to write back " + key + " on release: " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(T entry) throws IllegalAccessException;
+    }
+
+    // --- Bulk reads ---
+
+    /**
+     * Returns the accounts of the given players, loading every one not yet cached with a
+     * single query. Callers hold the players' stripes, as {@link #preload} does.
+     * Players without an account are absent from the result.
+     */
+    public Map<String, PlayerAccountEntity> getAccounts(Collection<String> uuids) {
+        Map<String, PlayerAccountEntity> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String uuid : uuids) {
+            PlayerAccountEntity cached = accounts.get(uuid);
+            if (cached != null) {
+                found.put(uuid, cached);
+            } else {
+                misses.add(uuid);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (PlayerAccountEntity loaded : repository.findAccounts(misses)) {
+                PlayerAccountEntity existing = accounts.putIfAbsent(loaded.getUuid(), loaded);
+                found.put(loaded.getUuid(), existing != null ? existing : loaded);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the balances for the given {@link #balanceKey} keys, loading the misses with a
+     * single query. Rows that query returns for keys not asked for are dropped rather than
+     * cached, since the caller does not hold their stripes.
+     */
+    public Map<String, CurrencyBalanceEntity> getBalances(Set<String> keys) {
+        Map<String, CurrencyBalanceEntity> found = new HashMap<>();
+        Set<String> missingPlayers = new HashSet<>();
+        Set<String> missingCurrencies = new HashSet<>();
+        for (String key : keys) {
+            int split = key.lastIndexOf(':');
+            CurrencyBalanceEntity cached = cached(key.substring(0, split), key.substring(split + 1));
+            if (cached != null) {
+                found.put(key, cached);
+            } else {
+                missingPlayers.add(key.substring(0, split));
+                missingCurrencies.add(key.substring(split + 1));
+            }
+        }
+        if (!missingPlayers.isEmpty()) {
+            for (CurrencyBalanceEntity loaded : repository.findBalances(missingPlayers, missingCurrencies)) {
+                String key = balanceKey(loaded.getUuid(), loaded.getCurrencyId());
+                if (!keys.contains(key)) {
+                    continue;
+                }
+                found.put(key, track(loaded));
+            }
+        }
+        return found;
+    }
+
+    // --- Write-back ---
+
+    /**
+     * Writes every dirty entry back to the database in one pass.
+     * Entries that fail to write stay dirty and are retried on the next flush.
+     * If nothing failed, log records from before the flush started are dropped,
+     * since every row they describe is now in the database.
+     *
+     * @return number of rows written
+     */
+    public int flush() {
+        long mark = markLog();
+        int written = 0;
+        List<String> failedAccounts = new ArrayList<>();
+        List<String> failedBalances = new ArrayList<>();
+
+        Set<String> accountsDue = new HashSet<>();
+        Map<String, List<String>> byPlayer = new LinkedHashMap<>();
+        for (Iterator<String> it = dirtyAccounts.iterator(); it.hasNext(); ) {
+            String uuid = it.next();
+            it.remove();
+            accountsDue.add(uuid);
+            byPlayer.computeIfAbsent(uuid, k -> new ArrayList<>());
+        }
+        for (Iterator<String> it = dirtyBalances.iterator(); it.hasNext(); ) {
+            String key = it.next();
+            it.remove();
+            int split = key.lastIndexOf(':');
+            byPlayer.computeIfAbsent(key.substring(0, split), k -> new ArrayList<>()).add(key.substring(split + 1));
+        }
+        // A player's account and balances go in one call, which a wallet repository writes as one row
+        for (Map.Entry<String, List<String>> player : byPlayer.entrySet()) {
+            String uuid = player.getKey();
+            ReentrantLock[] held = locks.forPlayer(UUID.fromString(uuid), player.getValue());
+            AccountLocks.lockAll(held);
+            PlayerAccountEntity account = accountsDue.contains(uuid) ? accounts.get(uuid) : null;
+            List<CurrencyBalanceEntity> balances = new ArrayList<>(player.getValue().size());
+            try {
+                // Copied under the stripes, since the cache holds values rather than live entities
+                for (String currencyId : player.getValue()) {
+                    CurrencyBalanceEntity balance = cached(uuid, currencyId);
+                    if (balance != null) {
+                        balances.add(balance);
+                    }
+                }
+                if (account == null && balances.isEmpty()) {
+                    continue;
+                }
+                write(uuid, account, balances);
+                written += balances.size() + (account != null ? 1 : 0);
+            } catch (IllegalAccessException e) {
+                if (account != null) {
+                    failedAccounts.add(uuid);
+                }
+                for (CurrencyBalanceEntity balance : balances) {
+                    failedBalances.add(balanceKey(uuid, balance.getCurrencyId()));
+                }
+                plugin.getLogger().error("Failed to flush " + uuid + ": " + e.getMessage());
+            } finally {
+                AccountLocks.unlockAll(held);
+            }
+        }
+        dirtyAccounts.addAll(failedAccounts);
+        dirtyBalances.addAll(failedBalances);
+        boolean clean = failedAccounts.isEmpty() && failedBalances.isEmpty();
+
+        if (mark >= 0 && clean) {
+            try {
+                // Log records may only go once what they describe is on disk
+                repository.sync();
+                log.truncate(mark);
+            } catch (IOException e) {
+                plugin.getLogger().error("Failed to compact transaction log: " + e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param account null if only balances are dirty
+     */
+    private void write(String uuid, PlayerAccountEntity account,
+                       List<CurrencyBalanceEntity> balances) throws IllegalAccessException {
+        if (account == null) {
+            repository.updateBalances(uuid, balances);
+        } else if (balances.isEmpty()) {
+            repository.updateAccount(account);
+        } else {
+            repository.updatePlayer(uuid, account, balances);
+        }
+    }
+
+    /**
+     * Returns the log position every dirty entry is already marked for, or -1 without a log.
+     */
+    private long markLog() {
+        if (log == null) {
+            return -1;
+        }
+        try {
+            return log.mark(locks);
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to read transaction log position: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public int getDirtyCount() {
+        return dirtyAccounts.size() + dirtyBalances.size();
+    }
+
+    public int size() {
+        int size = accounts.size();
+        for (CachedWallet wallet : wallets.values()) {
+            size += wallet.count();
+        }
+        return size;
+    }
+
+    static String balanceKey(String uuid, String currencyId) {
+        return uuid + ':' + currencyId;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Where primary accounts and per-currency balances are stored. The rows handed out are
+ * detached copies: changes to them reach storage only through the matching update call.
+ * {@link SplitTableRepository} keeps the two original tables; {@link WalletRepository} keeps
+ * one row per player holding everything; {@link MappedFileRepository} keeps a local file.
+ */
+public interface BalanceRepository {
+
+    PlayerAccountEntity findAccount(String uuid);
+
+    List<PlayerAccountEntity> findAccounts(Collection<String> uuids);
+
+    List<PlayerAccountEntity> allAccounts();
+
+    void insertAccount(PlayerAccountEntity account);
+
+    void updateAccount(PlayerAccountEntity account) throws IllegalAccessException;
+
+    CurrencyBalanceEntity findBalance(String uuid, String currencyId);
+
+    List<CurrencyBalanceEntity> findBalances(String uuid);
+
+    /**
+     * Returns the stored balances whose player is in {@code uuids} and whose currency is in
+     * {@code currencyIds}; callers filter out combinations they did not ask for.
+     */
+    List<CurrencyBalanceEntity> findBalances(Collection<String> uuids, Collection<String> currencyIds);
+
+    List<CurrencyBalanceEntity> allBalances();
+
+    void insertBalance(CurrencyBalanceEntity balance);
+
+    void updateBalance(CurrencyBalanceEntity balance) throws IllegalAccessException;
+
+    /**
+     * Writes back several balances of one player. Repositories that keep a player in one row
+     * override this to write that row once instead of once per balance.
+     */
+    default void updateBalances(String uuid, Collection<CurrencyBalanceEntity> balances) throws IllegalAccessException {
+        for (CurrencyBalanceEntity balance : balances) {
+            updateBalance(balance);
+        }
+    }
+
+    /**
+     * Writes back a player's account and several of their balances together. Repositories
+     * that keep a player in one row override this to write that row once.
+     */
+    default void updatePlayer(String uuid, PlayerAccountEntity account,
+                              Collection<CurrencyBalanceEntity> balances) throws IllegalAccessException {
+        updateAccount(account);
+        updateBalances(uuid, balances);
+    }
+
+    /**
+     * Reads a player's account and every balance together.
+     */
+    WalletSnapshot findWallet(String uuid);
+
+    /**
+     * Visits every player once with their account, or null if they have none, and their balances.
+     */
+    void forEachPlayer(BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor);
+
+    /**
+     * Makes every write that has returned durable. Database-backed repositories already are.
+     */
+    default void sync() throws IOException {
+    }
+}
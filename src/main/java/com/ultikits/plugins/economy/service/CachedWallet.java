@@ -0,0 +1,93 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+
+import java.util.Arrays;
+
+/**
+ * One player's cached currency balances as parallel primitive arrays indexed by
+ * {@link CurrencyOrdinals ordinal}, instead of an entity, a currency id string and a map
+ * key per balance. A negative version marks an ordinal the player has no balance in.
+ * Callers get detached entities from {@link #get} and hand changed ones back to {@link #put}.
+ * The arrays only grow, under this object's monitor; two currencies of one player sit on
+ * different lock stripes, so the stripes alone do not serialize access to them.
+ */
+final class CachedWallet {
+
+    private static final long ABSENT = -1L;
+
+    private final String uuid;
+    private String[] ids;
+    private double[] cash;
+    private double[] bank;
+    private long[] versions;
+
+    CachedWallet(String uuid, int capacity) {
+        this.uuid = uuid;
+        int size = Math.max(1, capacity);
+        this.ids = new String[size];
+        this.cash = new double[size];
+        this.bank = new double[size];
+        this.versions = new long[size];
+        Arrays.fill(versions, ABSENT);
+    }
+
+    String getUuid() {
+        return uuid;
+    }
+
+    synchronized boolean has(int ordinal) {
+        return ordinal < versions.length && versions[ordinal] != ABSENT;
+    }
+
+    /**
+     * @return a detached copy of the balance, or null if the player has none in this currency
+     */
+    synchronized CurrencyBalanceEntity get(int ordinal, String currencyId) {
+        if (!has(ordinal)) {
+            return null;
+        }
+        CurrencyBalanceEntity balance = CurrencyBalanceEntity.builder()
+                .uuid(uuid)
+                .currencyId(currencyId)
+                .cash(cash[ordinal])
+                .bank(bank[ordinal])
+                .version(versions[ordinal])
+                .build();
+        balance.setId(ids[ordinal]);
+        return balance;
+    }
+
+    synchronized void put(int ordinal, CurrencyBalanceEntity balance) {
+        if (ordinal >= versions.length) {
+            int size = Math.max(ordinal + 1, versions.length * 2);
+            int old = versions.length;
+            ids = Arrays.copyOf(ids, size);
+            cash = Arrays.copyOf(cash, size);
+            bank = Arrays.copyOf(bank, size);
+            versions = Arrays.copyOf(versions, size);
+            Arrays.fill(versions, old, size, ABSENT);
+        }
+        ids[ordinal] = balance.getId();
+        cash[ordinal] = balance.getCash();
+        bank[ordinal] = balance.getBank();
+        versions[ordinal] = Math.max(0L, balance.getVersion());
+    }
+
+    synchronized void remove(int ordinal) {
+        if (ordinal < versions.length) {
+            ids[ordinal] = null;
+            versions[ordinal] = ABSENT;
+        }
+    }
+
+    synchronized int count() {
+        int count = 0;
+        for (long version : versions) {
+            if (version != ABSENT) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
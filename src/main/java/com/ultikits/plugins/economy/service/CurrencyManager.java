@@ -1,6 +1,8 @@
 package com.ultikits.plugins.economy.service;
 
 import com.ultikits.plugins.economy.model.CurrencyDefinition;
+import com.ultikits.plugins.economy.model.Money;
+import com.ultikits.plugins.economy.model.MoneyFormatter;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -9,7 +11,9 @@ import java.util.*;
 public class CurrencyManager {
 
     private final Map<String, CurrencyDefinition> currencies = new LinkedHashMap<>();
+    private final Map<String, MoneyFormatter> formatters = new HashMap<>();
     private final String primaryCurrencyId;
+    private final CurrencyOrdinals ordinals = new CurrencyOrdinals();
 
     public CurrencyManager(YamlConfiguration yaml) {
         ConfigurationSection section = yaml.getConfigurationSection("currencies");
@@ -31,9 +35,16 @@ public class CurrencyManager {
                     .minDeposit(cs.getDouble("min-deposit", 0.0))
                     .maxBankBalance(cs.getDouble("max-bank-balance", -1))
                     .primary(cs.getBoolean("primary", false))
+                    .precision(cs.getInt("precision", Money.DEFAULT_PRECISION))
                     .build();
 
+            if (def.getPrecision() < 0 || def.getPrecision() > Money.MAX_PRECISION) {
+                throw new IllegalStateException("Invalid precision for currency " + id + ": " + def.getPrecision());
+            }
+
             currencies.put(id, def);
+            formatters.put(id, MoneyFormatter.of(def));
+            ordinals.intern(id);
             if (def.isPrimary()) {
                 if (foundPrimary != null) {
                     throw new IllegalStateException("Multiple primary currencies: " + foundPrimary + " and " + id);
@@ -60,6 +71,37 @@ public class CurrencyManager {
         return primaryCurrencyId;
     }
 
+    /**
+     * Decimal places of the given currency, or the default precision for unknown ids.
+     */
+    public int getPrecision(String id) {
+        CurrencyDefinition def = currencies.get(id);
+        return def != null ? def.getPrecision() : Money.DEFAULT_PRECISION;
+    }
+
+    /**
+     * The currency's symbol and grouped digits at its precision, or plain two-decimal digits
+     * for unknown ids.
+     */
+    public MoneyFormatter getFormatter(String id) {
+        MoneyFormatter formatter = formatters.get(id);
+        return formatter != null ? formatter : MoneyFormatter.PLAIN_GROUPED;
+    }
+
+    /**
+     * Small int ordinals for currency ids, the configured currencies first in file order.
+     */
+    public CurrencyOrdinals getOrdinals() {
+        return ordinals;
+    }
+
+    /**
+     * @return the ordinal of a configured currency, or -1 for unknown ids
+     */
+    public int getOrdinal(String id) {
+        return currencies.containsKey(id) ? ordinals.ordinalOf(id) : -1;
+    }
+
     public boolean hasCurrency(String id) {
         return currencies.containsKey(id);
     }
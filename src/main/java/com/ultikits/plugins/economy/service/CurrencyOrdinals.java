@@ -0,0 +1,59 @@
+package com.ultikits.plugins.economy.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns currency ids to small, dense int ordinals so per-player data can be kept in arrays
+ * indexed by currency instead of maps keyed by string. {@link CurrencyManager} seeds one with
+ * the configured currencies in file order; ids met later, such as rows left behind by a
+ * removed currency, get the next free ordinal. Ordinals are never reused.
+ */
+public final class CurrencyOrdinals {
+
+    private final ConcurrentMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private volatile String[] ids = new String[0];
+
+    /**
+     * Returns the ordinal of {@code currencyId}, assigning the next one if it is new.
+     */
+    public int intern(String currencyId) {
+        Integer ordinal = ordinals.get(currencyId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (this) {
+            ordinal = ordinals.get(currencyId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int next = ids.length;
+            String[] grown = Arrays.copyOf(ids, next + 1);
+            grown[next] = currencyId;
+            // Publish the id before the ordinal, so anyone who finds the ordinal can resolve it
+            ids = grown;
+            ordinals.put(currencyId, next);
+            return next;
+        }
+    }
+
+    /**
+     * @return the ordinal of {@code currencyId}, or -1 if it has none yet
+     */
+    public int ordinalOf(String currencyId) {
+        Integer ordinal = ordinals.get(currencyId);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * @return the interned id for {@code ordinal}
+     */
+    public String idOf(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Leaderboards ordered and paged by the database on the stored {@code total_wealth} column,
+ * so nothing ever loads every balance. Each call transfers only the rows it asks for: one
+ * page, or a count of the rows richer than a player. Every call is a query; keep them off
+ * the server thread.
+ */
+public class DatabaseLeaderboard {
+
+    public static final String WEALTH_COLUMN = "total_wealth";
+
+    private final DataOperator<PlayerAccountEntity> accountOperator;
+    private final DataOperator<CurrencyBalanceEntity> balanceOperator;
+
+    public DatabaseLeaderboard(DataOperator<PlayerAccountEntity> accountOperator,
+                               DataOperator<CurrencyBalanceEntity> balanceOperator) {
+        this.accountOperator = accountOperator;
+        this.balanceOperator = balanceOperator;
+    }
+
+    /**
+     * Returns up to {@code limit} entries richest first, skipping the richest {@code offset}.
+     * Currency entries are named after the player's primary account, or their uuid without one.
+     *
+     * @param currencyId null for the primary leaderboard
+     */
+    public List<LeaderboardService.LeaderboardEntry> page(String currencyId, int offset, int limit) {
+        List<LeaderboardService.LeaderboardEntry> entries = new ArrayList<>();
+        if (limit <= 0) {
+            return entries;
+        }
+        if (currencyId == null) {
+            for (PlayerAccountEntity account : accountOperator.query()
+                    .orderByDesc(WEALTH_COLUMN).offset(Math.max(0, offset)).limit(limit).list()) {
+                entries.add(new LeaderboardService.LeaderboardEntry(
+                        account.getUuid(), account.getPlayerName(), account.getTotalWealth()));
+            }
+            return entries;
+        }
+        List<CurrencyBalanceEntity> balances = balanceOperator.query()
+                .where("currency_id").eq(currencyId)
+                .orderByDesc(WEALTH_COLUMN).offset(Math.max(0, offset)).limit(limit).list();
+        Map<String, String> names = names(balances);
+        for (CurrencyBalanceEntity balance : balances) {
+            entries.add(new LeaderboardService.LeaderboardEntry(balance.getUuid(),
+                    names.getOrDefault(balance.getUuid(), balance.getUuid()), balance.getTotalWealth()));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the 1-based rank of a player with this total wealth: one more than the number of
+     * richer rows, so players with equal wealth share a rank.
+     *
+     * @param currencyId null for the primary leaderboard
+     */
+    public int rankOf(String currencyId, double wealth) {
+        long richer = currencyId == null
+                ? accountOperator.query().where(WEALTH_COLUMN).gt(wealth).count()
+                : balanceOperator.query().where("currency_id").eq(currencyId)
+                        .and(WEALTH_COLUMN).gt(wealth).count();
+        return (int) Math.min(Integer.MAX_VALUE, richer + 1);
+    }
+
+    private Map<String, String> names(List<CurrencyBalanceEntity> balances) {
+        Map<String, String> names = new HashMap<>();
+        if (balances.isEmpty()) {
+            return names;
+        }
+        Set<String> uuids = new LinkedHashSet<>();
+        for (CurrencyBalanceEntity balance : balances) {
+            uuids.add(balance.getUuid());
+        }
+        for (PlayerAccountEntity account : accountOperator.query().where("uuid").in(uuids).list()) {
+            names.put(account.getUuid(), account.getPlayerName());
+        }
+        return names;
+    }
+}
@@ -2,7 +2,11 @@ package com.ultikits.plugins.economy.service;
 
 import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
 import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.plugins.economy.model.BatchResult;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface EconomyService {
@@ -76,4 +80,57 @@ public interface EconomyService {
     String formatAmount(double amount, String currencyId);
 
     String getPrimaryCurrencyId();
+
+    /**
+     * Returns the player's primary account and every currency balance in one call, read with
+     * a single query per table or straight from the cache. Never null; a player without an
+     * account gets an empty snapshot.
+     */
+    WalletSnapshot getWallet(UUID playerUuid);
+
+    // --- Batch mutations ---
+
+    /**
+     * Applies every mutation or none of them. All items are validated against the current
+     * balances first, with later items seeing the effect of earlier ones on the same record;
+     * if any item fails the whole batch is rejected and nothing is written.
+     *
+     * @return per-item statuses in the order of {@code mutations}
+     */
+    BatchResult applyBatch(List<BalanceMutation> mutations);
+
+    // --- Idempotent mutations ---
+    // A non-null key makes a retry safe: once a call with that key has succeeded, later calls
+    // with the same key return success without applying again. Failed calls are not
+    // remembered and may be retried. A null currencyId means the primary currency.
+
+    boolean addCash(UUID playerUuid, double amount, String currencyId, String idempotencyKey);
+
+    boolean addBank(UUID playerUuid, double amount, String currencyId, String idempotencyKey);
+
+    boolean takeCash(UUID playerUuid, double amount, String currencyId, String idempotencyKey);
+
+    boolean takeBank(UUID playerUuid, double amount, String currencyId, String idempotencyKey);
+
+    boolean transfer(UUID from, UUID to, double amount, String currencyId, String idempotencyKey);
+
+    /**
+     * Like {@link #applyBatch(List)}; a repeat of a batch that was applied reports every item
+     * as {@link BatchResult.Status#APPLIED} without touching any balance.
+     */
+    BatchResult applyBatch(List<BalanceMutation> mutations, String idempotencyKey);
+
+    // --- Working set ---
+
+    /**
+     * Loads the player's account and every currency balance into memory, creating any that
+     * are missing. Intended for the async pre-login phase so the join itself needs no I/O.
+     * Without the balance cache nothing is kept in memory: only missing rows are created.
+     */
+    void preloadPlayer(UUID playerUuid, String playerName);
+
+    /**
+     * Writes back and evicts the player's cached entries. Call off the main thread.
+     */
+    void releasePlayer(UUID playerUuid);
 }
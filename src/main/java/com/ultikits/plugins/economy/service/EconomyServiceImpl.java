@@ -4,36 +4,69 @@ import com.ultikits.plugins.economy.UltiEconomy;
 import com.ultikits.plugins.economy.config.EconomyConfig;
 import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
 import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
-import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.plugins.economy.model.BatchResult;
 import com.ultikits.plugins.economy.model.CurrencyDefinition;
+import com.ultikits.plugins.economy.model.Money;
+import com.ultikits.plugins.economy.model.MoneyFormatter;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.annotations.Service;
 import com.ultikits.ultitools.interfaces.DataOperator;
 
-import java.text.DecimalFormat;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
 public class EconomyServiceImpl implements EconomyService {
 
     private UltiToolsPlugin plugin;
-    private DataOperator<PlayerAccountEntity> dataOperator;
+    private BalanceRepository repository;
     private EconomyConfig config;
-    private DataOperator<CurrencyBalanceEntity> currencyDataOperator;
     private CurrencyManager currencyManager;
     private TaxService taxService;
-    private final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+    private BalanceCache balanceCache;
+    private AccountLocks locks;
+    private TransactionLog transactionLog;
+    private IdempotencyStore idempotencyStore;
+    private JdbcBalanceStore balanceStore;
+    private OffHeapBalanceStore offHeapStore;
+    private HotAccounts hotAccounts;
+    private LiveLeaderboards liveLeaderboards;
+    private volatile MoneyFormatter primaryFormatter;
 
     public EconomyServiceImpl(UltiToolsPlugin plugin) {
         this.plugin = plugin;
-        this.dataOperator = plugin.getDataOperator(PlayerAccountEntity.class);
+        this.repository = ((UltiEconomy) plugin).getBalanceRepository();
         this.config = plugin.getConfig(EconomyConfig.class);
-        this.currencyDataOperator = plugin.getDataOperator(CurrencyBalanceEntity.class);
         this.currencyManager = ((UltiEconomy) plugin).getCurrencyManager();
-        this.taxService = new TaxService(
-                plugin.getConfig(EconomyConfig.class),
-                plugin.getDataOperator(TreasuryEntity.class));
+        this.taxService = ((UltiEconomy) plugin).getTaxService();
+        this.locks = ((UltiEconomy) plugin).getAccountLocks();
+        this.transactionLog = ((UltiEconomy) plugin).getTransactionLog();
+        this.idempotencyStore = ((UltiEconomy) plugin).getIdempotencyStore();
+        this.balanceStore = ((UltiEconomy) plugin).getBalanceStore();
+        this.offHeapStore = ((UltiEconomy) plugin).getOffHeapStore();
+        this.hotAccounts = ((UltiEconomy) plugin).getHotAccounts();
+        this.liveLeaderboards = ((UltiEconomy) plugin).getLiveLeaderboards();
+        if (config.isCacheEnabled()) {
+            this.balanceCache = ((UltiEconomy) plugin).getBalanceCache();
+        }
     }
 
     @SuppressWarnings("all")
@@ -48,48 +81,95 @@ public class EconomyServiceImpl implements EconomyService {
             sun.misc.Unsafe unsafe = (sun.misc.Unsafe) f.get(null);
             EconomyServiceImpl instance = (EconomyServiceImpl) unsafe.allocateInstance(EconomyServiceImpl.class);
             instance.plugin = plugin;
-            instance.dataOperator = dataOperator;
+            instance.repository = new SplitTableRepository(dataOperator, currencyDataOperator);
             instance.config = config;
-            instance.currencyDataOperator = currencyDataOperator;
             instance.currencyManager = currencyManager;
-            // Field initializers don't run with allocateInstance
-            java.lang.reflect.Field df = EconomyServiceImpl.class.getDeclaredField("decimalFormat");
-            df.setAccessible(true);
-            df.set(instance, new DecimalFormat("#,##0.00"));
+            instance.locks = new AccountLocks();
             return instance;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    static EconomyServiceImpl createForTest(UltiToolsPlugin plugin,
+                                            DataOperator<PlayerAccountEntity> dataOperator,
+                                            EconomyConfig config,
+                                            DataOperator<CurrencyBalanceEntity> currencyDataOperator,
+                                            CurrencyManager currencyManager,
+                                            BalanceCache balanceCache) {
+        EconomyServiceImpl instance = createForTest(plugin, dataOperator, config, currencyDataOperator, currencyManager);
+        instance.balanceCache = balanceCache;
+        instance.locks = balanceCache.getLocks();
+        return instance;
+    }
+
     public void setTaxService(TaxService taxService) {
         this.taxService = taxService;
     }
 
+    public void setTransactionLog(TransactionLog transactionLog) {
+        this.transactionLog = transactionLog;
+    }
+
+    public void setIdempotencyStore(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    public void setBalanceStore(JdbcBalanceStore balanceStore) {
+        this.balanceStore = balanceStore;
+    }
+
+    public void setBalanceRepository(BalanceRepository repository) {
+        this.repository = repository;
+    }
+
+    public void setHotAccounts(HotAccounts hotAccounts) {
+        this.hotAccounts = hotAccounts;
+    }
+
+    public void setOffHeapStore(OffHeapBalanceStore offHeapStore) {
+        this.offHeapStore = offHeapStore;
+    }
+
+    public void setLiveLeaderboards(LiveLeaderboards liveLeaderboards) {
+        this.liveLeaderboards = liveLeaderboards;
+    }
+
     // --- Legacy single-currency methods (delegate to primary) ---
 
     @Override
     public PlayerAccountEntity getAccount(UUID playerUuid) {
-        List<PlayerAccountEntity> results = dataOperator.query()
-                .where("uuid").eq(playerUuid.toString())
-                .list();
-        return results.isEmpty() ? null : results.get(0);
+        if (balanceCache != null) {
+            return balanceCache.getAccount(playerUuid.toString());
+        }
+        return repository.findAccount(playerUuid.toString());
     }
 
     @Override
     public PlayerAccountEntity getOrCreateAccount(UUID playerUuid, String playerName) {
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account != null) {
+        Lock lock = locks.forAccount(playerUuid);
+        lock.lock();
+        try {
+            PlayerAccountEntity account = getAccount(playerUuid);
+            if (account != null) {
+                return account;
+            }
+            account = PlayerAccountEntity.builder()
+                    .uuid(playerUuid.toString())
+                    .playerName(playerName)
+                    .cash(config.getInitialCash())
+                    .bank(0.0)
+                    .build();
+            if (balanceCache != null) {
+                account = balanceCache.insertAccount(account);
+            } else {
+                repository.insertAccount(account);
+            }
+            mirror(account);
             return account;
+        } finally {
+            lock.unlock();
         }
-        account = PlayerAccountEntity.builder()
-                .uuid(playerUuid.toString())
-                .playerName(playerName)
-                .cash(config.getInitialCash())
-                .bank(0.0)
-                .build();
-        dataOperator.insert(account);
-        return account;
     }
 
     @Override
@@ -100,7 +180,7 @@ public class EconomyServiceImpl implements EconomyService {
     @Override
     public double getCash(UUID playerUuid) {
         PlayerAccountEntity account = getAccount(playerUuid);
-        return account != null ? account.getCash() : 0.0;
+        return account != null ? account.getCash() + pending(playerUuid, null) : 0.0;
     }
 
     @Override
@@ -112,194 +192,258 @@ public class EconomyServiceImpl implements EconomyService {
     @Override
     public double getTotalWealth(UUID playerUuid) {
         PlayerAccountEntity account = getAccount(playerUuid);
-        return account != null ? account.getTotalWealth() : 0.0;
+        return account != null ? account.getTotalWealth() + pending(playerUuid, null) : 0.0;
     }
 
     @Override
     public boolean setCash(UUID playerUuid, double amount) {
-        if (amount < 0) {
+        double value = snap(amount, primaryPrecision());
+        if (!(value >= 0)) {
             return false;
         }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null) {
-            return false;
-        }
-        account.setCash(amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            account.setCash(value);
+            return true;
+        });
     }
 
     @Override
     public boolean setBank(UUID playerUuid, double amount) {
-        if (amount < 0) {
-            return false;
-        }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null) {
+        double value = snap(amount, primaryPrecision());
+        if (!(value >= 0)) {
             return false;
         }
-        account.setBank(amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            account.setBank(value);
+            return true;
+        });
     }
 
     @Override
     public boolean addCash(UUID playerUuid, double amount) {
-        if (amount <= 0) {
+        int precision = primaryPrecision();
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null) {
-            return false;
+        if (isHot(playerUuid) && hotAccounts.canCollect(delta)) {
+            return creditHot(playerUuid, null, delta);
         }
-        account.setCash(account.getCash() + amount);
-        return updateAccount(account);
+        if (incrementsEnabled()) {
+            return increment(playerUuid, null, BalanceMutation.Bucket.CASH, delta, precision);
+        }
+        return mutateAccount(playerUuid, account -> {
+            account.setCash(plus(account.getCash(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean addBank(UUID playerUuid, double amount) {
-        if (amount <= 0) {
+        int precision = primaryPrecision();
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null) {
-            return false;
+        if (incrementsEnabled()) {
+            return increment(playerUuid, null, BalanceMutation.Bucket.BANK, delta, precision);
         }
-        account.setBank(account.getBank() + amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            account.setBank(plus(account.getBank(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean takeCash(UUID playerUuid, double amount) {
-        if (amount <= 0) {
+        int precision = primaryPrecision();
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null || account.getCash() < amount) {
-            return false;
+        if (isHot(playerUuid)) {
+            if (debitHot(playerUuid, null, delta)) {
+                return true;
+            }
+        } else if (incrementsEnabled()) {
+            return increment(playerUuid, null, BalanceMutation.Bucket.CASH, -delta, precision);
         }
-        account.setCash(account.getCash() - amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            if (account.getCash() < delta) {
+                return false;
+            }
+            account.setCash(minus(account.getCash(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean takeBank(UUID playerUuid, double amount) {
-        if (amount <= 0) {
+        int precision = primaryPrecision();
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null || account.getBank() < amount) {
-            return false;
+        if (incrementsEnabled()) {
+            return increment(playerUuid, null, BalanceMutation.Bucket.BANK, -delta, precision);
         }
-        account.setBank(account.getBank() - amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            if (account.getBank() < delta) {
+                return false;
+            }
+            account.setBank(minus(account.getBank(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean transfer(UUID from, UUID to, double amount) {
-        if (amount <= 0 || from.equals(to)) {
+        int precision = primaryPrecision();
+        double value = snap(amount, precision);
+        if (!(value > 0) || from.equals(to)) {
             return false;
         }
-        PlayerAccountEntity sender = getAccount(from);
-        if (sender == null || sender.getCash() < amount) {
-            return false;
-        }
-        PlayerAccountEntity receiver = getAccount(to);
-        if (receiver == null) {
-            return false;
-        }
-        double tax = (taxService != null) ? taxService.calculateTransactionTax(amount) : 0.0;
-        double received = amount - tax;
-        sender.setCash(sender.getCash() - amount);
-        receiver.setCash(receiver.getCash() + received);
-        if (!updateAccount(sender)) {
-            sender.setCash(sender.getCash() + amount);
-            return false;
-        }
-        if (!updateAccount(receiver)) {
-            sender.setCash(sender.getCash() + amount);
-            updateAccount(sender);
-            return false;
-        }
-        if (tax > 0 && taxService != null) {
-            try {
-                taxService.depositToTreasury(tax, currencyManager.getPrimaryCurrency().getId());
-            } catch (IllegalAccessException ignored) {
+        settle(from, null);
+        ReentrantLock[] held = locks.forAccounts(from, to);
+        AccountLocks.lockAll(held);
+        try {
+            int attempts = writeAttempts();
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                PlayerAccountEntity sender = getAccount(from);
+                if (sender == null || sender.getCash() < value) {
+                    return false;
+                }
+                PlayerAccountEntity receiver = getAccount(to);
+                if (receiver == null) {
+                    return false;
+                }
+                double tax = snap(calculateTransactionTax(value), precision);
+                double senderCash = sender.getCash();
+                double receiverCash = receiver.getCash();
+                double senderAfter = minus(senderCash, value, precision);
+                double receiverAfter = plus(receiverCash, minus(value, tax, precision), precision);
+                if (!isCurrent(sender) || !isCurrent(receiver)) {
+                    continue;
+                }
+                sender.setCash(senderAfter);
+                receiver.setCash(receiverAfter);
+                try {
+                    return commitTransfer(sender, receiver, TransactionLog.Image::of, this::updateAccount, () -> {
+                        sender.setCash(senderCash);
+                        receiver.setCash(receiverCash);
+                    }, tax, getPrimaryCurrencyId());
+                } catch (StaleRowException e) {
+                    // Another server wrote one of the rows since it was read; read both again
+                }
             }
+            return conflicted(from + " -> " + to, attempts);
+        } catch (ArithmeticException e) {
+            return false;
+        } finally {
+            AccountLocks.unlockAll(held);
         }
-        return true;
     }
 
     @Override
     public boolean depositToBank(UUID playerUuid, double amount) {
-        if (amount <= 0) {
-            return false;
-        }
-        if (amount < config.getMinDeposit()) {
+        int precision = primaryPrecision();
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null || account.getCash() < amount) {
+        if (delta < config.getMinDeposit()) {
             return false;
         }
         double maxBalance = config.getMaxBankBalance();
-        if (maxBalance > 0 && account.getBank() + amount > maxBalance) {
-            return false;
-        }
-        account.setCash(account.getCash() - amount);
-        account.setBank(account.getBank() + amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            if (account.getCash() < delta) {
+                return false;
+            }
+            double bank = plus(account.getBank(), delta, precision);
+            if (maxBalance > 0 && bank > maxBalance) {
+                return false;
+            }
+            account.setCash(minus(account.getCash(), delta, precision));
+            account.setBank(bank);
+            return true;
+        });
     }
 
     @Override
     public boolean withdrawFromBank(UUID playerUuid, double amount) {
-        if (amount <= 0) {
-            return false;
-        }
-        PlayerAccountEntity account = getAccount(playerUuid);
-        if (account == null || account.getBank() < amount) {
+        int precision = primaryPrecision();
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        account.setBank(account.getBank() - amount);
-        account.setCash(account.getCash() + amount);
-        return updateAccount(account);
+        return mutateAccount(playerUuid, account -> {
+            if (account.getBank() < delta) {
+                return false;
+            }
+            double cash = plus(account.getCash(), delta, precision);
+            account.setBank(minus(account.getBank(), delta, precision));
+            account.setCash(cash);
+            return true;
+        });
     }
 
     @Override
     public String formatAmount(double amount) {
-        return config.getCurrencySymbol() + decimalFormat.format(amount);
+        if (currencyManager != null) {
+            return currencyManager.getFormatter(currencyManager.getPrimaryCurrencyId()).format(amount);
+        }
+        MoneyFormatter formatter = primaryFormatter;
+        String symbol = config.getCurrencySymbol();
+        if (formatter == null || !formatter.getPrefix().equals(symbol)) {
+            // Rebuilt only when the configured symbol changes
+            formatter = new MoneyFormatter(symbol, Money.DEFAULT_PRECISION, true);
+            primaryFormatter = formatter;
+        }
+        return formatter.format(amount);
     }
 
     // --- Currency-aware methods ---
 
     @Override
     public CurrencyBalanceEntity getBalance(UUID playerUuid, String currencyId) {
-        List<CurrencyBalanceEntity> results = currencyDataOperator.query()
-                .where("uuid").eq(playerUuid.toString())
-                .and("currency_id").eq(currencyId)
-                .list();
-        return results.isEmpty() ? null : results.get(0);
+        if (balanceCache != null) {
+            return balanceCache.getBalance(playerUuid.toString(), currencyId);
+        }
+        return repository.findBalance(playerUuid.toString(), currencyId);
     }
 
     @Override
     public CurrencyBalanceEntity getOrCreateBalance(UUID playerUuid, String playerName, String currencyId) {
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance != null) {
-            return balance;
-        }
-        double initialCash = 0.0;
-        if (currencyManager != null) {
-            CurrencyDefinition def = currencyManager.getCurrency(currencyId);
-            if (def != null) {
-                initialCash = def.getInitialCash();
+        Lock lock = locks.forBalance(playerUuid, currencyId);
+        lock.lock();
+        try {
+            CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
+            if (balance != null) {
+                return balance;
             }
+            double initialCash = 0.0;
+            if (currencyManager != null) {
+                CurrencyDefinition def = currencyManager.getCurrency(currencyId);
+                if (def != null) {
+                    initialCash = def.getInitialCash();
+                }
+            }
+            balance = CurrencyBalanceEntity.builder()
+                    .uuid(playerUuid.toString())
+                    .currencyId(currencyId)
+                    .cash(initialCash)
+                    .bank(0.0)
+                    .build();
+            if (balanceCache != null) {
+                balance = balanceCache.insertBalance(balance);
+            } else {
+                repository.insertBalance(balance);
+            }
+            mirror(balance);
+            return balance;
+        } finally {
+            lock.unlock();
         }
-        balance = CurrencyBalanceEntity.builder()
-                .uuid(playerUuid.toString())
-                .currencyId(currencyId)
-                .cash(initialCash)
-                .bank(0.0)
-                .build();
-        currencyDataOperator.insert(balance);
-        return balance;
     }
 
     @Override
@@ -310,7 +454,7 @@ public class EconomyServiceImpl implements EconomyService {
     @Override
     public double getCash(UUID playerUuid, String currencyId) {
         CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        return balance != null ? balance.getCash() : 0.0;
+        return balance != null ? balance.getCash() + pending(playerUuid, currencyId) : 0.0;
     }
 
     @Override
@@ -322,125 +466,163 @@ public class EconomyServiceImpl implements EconomyService {
     @Override
     public double getTotalWealth(UUID playerUuid, String currencyId) {
         CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        return balance != null ? balance.getTotalWealth() : 0.0;
+        return balance != null ? balance.getTotalWealth() + pending(playerUuid, currencyId) : 0.0;
     }
 
     @Override
     public boolean setCash(UUID playerUuid, double amount, String currencyId) {
-        if (amount < 0) {
+        double value = snap(amount, precision(currencyId));
+        if (!(value >= 0)) {
             return false;
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null) {
-            return false;
-        }
-        balance.setCash(amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            balance.setCash(value);
+            return true;
+        });
     }
 
     @Override
     public boolean setBank(UUID playerUuid, double amount, String currencyId) {
-        if (amount < 0) {
-            return false;
-        }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null) {
+        double value = snap(amount, precision(currencyId));
+        if (!(value >= 0)) {
             return false;
         }
-        balance.setBank(amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            balance.setBank(value);
+            return true;
+        });
     }
 
     @Override
     public boolean addCash(UUID playerUuid, double amount, String currencyId) {
-        if (amount <= 0) {
+        int precision = precision(currencyId);
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null) {
-            return false;
+        if (isHot(playerUuid) && hotAccounts.canCollect(delta)) {
+            return creditHot(playerUuid, currencyId, delta);
+        }
+        if (incrementsEnabled()) {
+            return increment(playerUuid, currencyId, BalanceMutation.Bucket.CASH, delta, precision);
         }
-        balance.setCash(balance.getCash() + amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            balance.setCash(plus(balance.getCash(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean addBank(UUID playerUuid, double amount, String currencyId) {
-        if (amount <= 0) {
+        int precision = precision(currencyId);
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null) {
-            return false;
+        if (incrementsEnabled()) {
+            return increment(playerUuid, currencyId, BalanceMutation.Bucket.BANK, delta, precision);
         }
-        balance.setBank(balance.getBank() + amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            balance.setBank(plus(balance.getBank(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean takeCash(UUID playerUuid, double amount, String currencyId) {
-        if (amount <= 0) {
+        int precision = precision(currencyId);
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null || balance.getCash() < amount) {
-            return false;
+        if (isHot(playerUuid)) {
+            if (debitHot(playerUuid, currencyId, delta)) {
+                return true;
+            }
+        } else if (incrementsEnabled()) {
+            return increment(playerUuid, currencyId, BalanceMutation.Bucket.CASH, -delta, precision);
         }
-        balance.setCash(balance.getCash() - amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            if (balance.getCash() < delta) {
+                return false;
+            }
+            balance.setCash(minus(balance.getCash(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean takeBank(UUID playerUuid, double amount, String currencyId) {
-        if (amount <= 0) {
+        int precision = precision(currencyId);
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null || balance.getBank() < amount) {
-            return false;
+        if (incrementsEnabled()) {
+            return increment(playerUuid, currencyId, BalanceMutation.Bucket.BANK, -delta, precision);
         }
-        balance.setBank(balance.getBank() - amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            if (balance.getBank() < delta) {
+                return false;
+            }
+            balance.setBank(minus(balance.getBank(), delta, precision));
+            return true;
+        });
     }
 
     @Override
     public boolean transfer(UUID from, UUID to, double amount, String currencyId) {
-        if (amount <= 0 || from.equals(to)) {
-            return false;
-        }
-        CurrencyBalanceEntity sender = getBalance(from, currencyId);
-        if (sender == null || sender.getCash() < amount) {
-            return false;
-        }
-        CurrencyBalanceEntity receiver = getBalance(to, currencyId);
-        if (receiver == null) {
-            return false;
-        }
-        double tax = (taxService != null) ? taxService.calculateTransactionTax(amount) : 0.0;
-        double received = amount - tax;
-        sender.setCash(sender.getCash() - amount);
-        receiver.setCash(receiver.getCash() + received);
-        if (!updateBalance(sender)) {
-            sender.setCash(sender.getCash() + amount);
+        int precision = precision(currencyId);
+        double value = snap(amount, precision);
+        if (!(value > 0) || from.equals(to)) {
             return false;
         }
-        if (!updateBalance(receiver)) {
-            sender.setCash(sender.getCash() + amount);
-            updateBalance(sender);
-            return false;
-        }
-        if (tax > 0 && taxService != null) {
-            try {
-                taxService.depositToTreasury(tax, currencyId);
-            } catch (IllegalAccessException ignored) {
+        settle(from, currencyId);
+        ReentrantLock[] held = locks.forBalances(from, to, currencyId);
+        AccountLocks.lockAll(held);
+        try {
+            int attempts = writeAttempts();
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                CurrencyBalanceEntity sender = getBalance(from, currencyId);
+                if (sender == null || sender.getCash() < value) {
+                    return false;
+                }
+                CurrencyBalanceEntity receiver = getBalance(to, currencyId);
+                if (receiver == null) {
+                    return false;
+                }
+                double tax = snap(calculateTransactionTax(value), precision);
+                double senderCash = sender.getCash();
+                double receiverCash = receiver.getCash();
+                double senderAfter = minus(senderCash, value, precision);
+                double receiverAfter = plus(receiverCash, minus(value, tax, precision), precision);
+                if (!isCurrent(sender) || !isCurrent(receiver)) {
+                    continue;
+                }
+                sender.setCash(senderAfter);
+                receiver.setCash(receiverAfter);
+                try {
+                    return commitTransfer(sender, receiver, TransactionLog.Image::of, this::updateBalance, () -> {
+                        sender.setCash(senderCash);
+                        receiver.setCash(receiverCash);
+                    }, tax, currencyId);
+                } catch (StaleRowException e) {
+                    // Another server wrote one of the rows since it was read; read both again
+                }
             }
+            return conflicted(from + " -> " + to + " in " + currencyId, attempts);
+        } catch (ArithmeticException e) {
+            return false;
+        } finally {
+            AccountLocks.unlockAll(held);
         }
-        return true;
     }
 
     @Override
     public boolean depositToBank(UUID playerUuid, double amount, String currencyId) {
-        if (amount <= 0) {
+        int precision = precision(currencyId);
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
         CurrencyDefinition def = currencyManager != null ? currencyManager.getCurrency(currencyId) : null;
@@ -448,48 +630,49 @@ public class EconomyServiceImpl implements EconomyService {
             if (!def.isBankEnabled()) {
                 return false;
             }
-            if (amount < def.getMinDeposit()) {
+            if (delta < def.getMinDeposit()) {
                 return false;
             }
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null || balance.getCash() < amount) {
-            return false;
-        }
-        if (def != null) {
-            double maxBalance = def.getMaxBankBalance();
-            if (maxBalance > 0 && balance.getBank() + amount > maxBalance) {
+        double maxBalance = def != null ? def.getMaxBankBalance() : 0;
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            if (balance.getCash() < delta) {
                 return false;
             }
-        }
-        balance.setCash(balance.getCash() - amount);
-        balance.setBank(balance.getBank() + amount);
-        return updateBalance(balance);
+            double bank = plus(balance.getBank(), delta, precision);
+            if (maxBalance > 0 && bank > maxBalance) {
+                return false;
+            }
+            balance.setCash(minus(balance.getCash(), delta, precision));
+            balance.setBank(bank);
+            return true;
+        });
     }
 
     @Override
     public boolean withdrawFromBank(UUID playerUuid, double amount, String currencyId) {
-        if (amount <= 0) {
+        int precision = precision(currencyId);
+        double delta = snap(amount, precision);
+        if (!(delta > 0)) {
             return false;
         }
-        CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
-        if (balance == null || balance.getBank() < amount) {
-            return false;
-        }
-        balance.setBank(balance.getBank() - amount);
-        balance.setCash(balance.getCash() + amount);
-        return updateBalance(balance);
+        return mutateBalance(playerUuid, currencyId, balance -> {
+            if (balance.getBank() < delta) {
+                return false;
+            }
+            double cash = plus(balance.getCash(), delta, precision);
+            balance.setBank(minus(balance.getBank(), delta, precision));
+            balance.setCash(cash);
+            return true;
+        });
     }
 
     @Override
     public String formatAmount(double amount, String currencyId) {
         if (currencyManager != null) {
-            CurrencyDefinition def = currencyManager.getCurrency(currencyId);
-            if (def != null) {
-                return def.getSymbol() + decimalFormat.format(amount);
-            }
+            return currencyManager.getFormatter(currencyId).format(amount);
         }
-        return decimalFormat.format(amount);
+        return MoneyFormatter.PLAIN_GROUPED.format(amount);
     }
 
     @Override
@@ -497,27 +680,921 @@ public class EconomyServiceImpl implements EconomyService {
         return currencyManager != null ? currencyManager.getPrimaryCurrencyId() : "coins";
     }
 
+    // --- Batch mutations ---
+
+    @Override
+    public BatchResult applyBatch(List<BalanceMutation> mutations) {
+        int size = mutations.size();
+        BatchResult.Status[] statuses = new BatchResult.Status[size];
+        String[] currencies = new String[size];
+        double[] deltas = new double[size];
+        String primaryId = getPrimaryCurrencyId();
+        boolean valid = true;
+
+        for (int i = 0; i < size; i++) {
+            BalanceMutation mutation = mutations.get(i);
+            String currencyId = mutation.getCurrencyId() != null ? mutation.getCurrencyId() : primaryId;
+            if (currencyManager != null && !currencyManager.hasCurrency(currencyId)) {
+                statuses[i] = BatchResult.Status.UNKNOWN_CURRENCY;
+                valid = false;
+                continue;
+            }
+            double delta = snap(mutation.getDelta(), precision(currencyId));
+            if (mutation.getUuid() == null || mutation.getBucket() == null
+                    || delta == 0 || Double.isNaN(delta) || Double.isInfinite(delta)) {
+                statuses[i] = BatchResult.Status.INVALID;
+                valid = false;
+                continue;
+            }
+            currencies[i] = currencyId;
+            deltas[i] = delta;
+        }
+        if (!valid) {
+            return rejected(statuses);
+        }
+        // Debits check the stored rows, so fold in what hot accounts have collected first
+        for (int i = 0; i < size; i++) {
+            if (deltas[i] < 0) {
+                settle(mutations.get(i).getUuid(), currencies[i].equals(primaryId) ? null : currencies[i]);
+            }
+        }
+
+        Set<String> accountUuids = new LinkedHashSet<>();
+        Set<String> balanceKeys = new LinkedHashSet<>();
+        int[] stripes = new int[size];
+        for (int i = 0; i < size; i++) {
+            UUID uuid = mutations.get(i).getUuid();
+            if (currencies[i].equals(primaryId)) {
+                accountUuids.add(uuid.toString());
+                stripes[i] = locks.accountIndex(uuid);
+            } else {
+                balanceKeys.add(BalanceCache.balanceKey(uuid.toString(), currencies[i]));
+                stripes[i] = locks.balanceIndex(uuid, currencies[i]);
+            }
+        }
+
+        ReentrantLock[] held = locks.forStripes(stripes);
+        AccountLocks.lockAll(held);
+        try {
+            int attempts = writeAttempts();
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                Map<String, PlayerAccountEntity> accounts = loadAccounts(accountUuids);
+                Map<String, CurrencyBalanceEntity> balances = loadBalances(balanceKeys);
+                Map<String, PendingWrite> pending = new LinkedHashMap<>();
+
+                for (int i = 0; i < size; i++) {
+                    BalanceMutation mutation = mutations.get(i);
+                    String uuid = mutation.getUuid().toString();
+                    boolean primary = currencies[i].equals(primaryId);
+                    String key = primary ? uuid : BalanceCache.balanceKey(uuid, currencies[i]);
+                    PendingWrite write = pending.get(key);
+                    if (write == null) {
+                        PlayerAccountEntity account = primary ? accounts.get(uuid) : null;
+                        CurrencyBalanceEntity balance = primary ? null : balances.get(key);
+                        if (account == null && balance == null) {
+                            statuses[i] = BatchResult.Status.NO_ACCOUNT;
+                            valid = false;
+                            continue;
+                        }
+                        write = new PendingWrite(account, balance);
+                        pending.put(key, write);
+                    }
+                    write.items.add(i);
+
+                    int precision = precision(currencies[i]);
+                    try {
+                        double current = write.get(mutation.getBucket());
+                        double next = deltas[i] > 0
+                                ? plus(current, deltas[i], precision)
+                                : minus(current, -deltas[i], precision);
+                        if (next < 0) {
+                            statuses[i] = BatchResult.Status.INSUFFICIENT_FUNDS;
+                            valid = false;
+                        } else {
+                            write.set(mutation.getBucket(), next);
+                            statuses[i] = BatchResult.Status.APPLIED;
+                        }
+                    } catch (ArithmeticException e) {
+                        statuses[i] = BatchResult.Status.INVALID;
+                        valid = false;
+                    }
+                }
+                if (!valid) {
+                    return rejected(statuses);
+                }
+
+                if (!isCurrent(pending.values())) {
+                    continue;
+                }
+
+                List<PendingWrite> written = new ArrayList<>();
+                for (PendingWrite write : pending.values()) {
+                    write.apply();
+                }
+                if (!journal(images(pending.values()))) {
+                    for (PendingWrite staged : pending.values()) {
+                        staged.restore();
+                    }
+                    Arrays.fill(statuses, BatchResult.Status.WRITE_FAILED);
+                    return rejected(statuses);
+                }
+                PendingWrite failed = null;
+                boolean stale = false;
+                for (PendingWrite write : pending.values()) {
+                    try {
+                        if (write.persist()) {
+                            written.add(write);
+                            continue;
+                        }
+                    } catch (StaleRowException e) {
+                        stale = true;
+                    }
+                    failed = write;
+                    break;
+                }
+                if (failed == null) {
+                    return new BatchResult(true, Arrays.asList(statuses));
+                }
+                for (PendingWrite staged : pending.values()) {
+                    staged.restore();
+                }
+                for (PendingWrite done : written) {
+                    if (!rewrite(done::persist)) {
+                        plugin.getLogger().error("Failed to roll back batch write");
+                    }
+                }
+                journal(images(pending.values()));
+                if (stale) {
+                    continue;
+                }
+                for (int item : failed.items) {
+                    statuses[item] = BatchResult.Status.WRITE_FAILED;
+                }
+                return rejected(statuses);
+            }
+            conflicted("batch of " + size, attempts);
+            Arrays.fill(statuses, BatchResult.Status.WRITE_FAILED);
+            return rejected(statuses);
+        } finally {
+            AccountLocks.unlockAll(held);
+        }
+    }
+
+    // --- Idempotent mutations ---
+
+    @Override
+    public boolean addCash(UUID playerUuid, double amount, String currencyId, String idempotencyKey) {
+        return idempotent(idempotencyKey, () -> currencyId == null
+                ? addCash(playerUuid, amount)
+                : addCash(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public boolean addBank(UUID playerUuid, double amount, String currencyId, String idempotencyKey) {
+        return idempotent(idempotencyKey, () -> currencyId == null
+                ? addBank(playerUuid, amount)
+                : addBank(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public boolean takeCash(UUID playerUuid, double amount, String currencyId, String idempotencyKey) {
+        return idempotent(idempotencyKey, () -> currencyId == null
+                ? takeCash(playerUuid, amount)
+                : takeCash(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public boolean takeBank(UUID playerUuid, double amount, String currencyId, String idempotencyKey) {
+        return idempotent(idempotencyKey, () -> currencyId == null
+                ? takeBank(playerUuid, amount)
+                : takeBank(playerUuid, amount, currencyId));
+    }
+
+    @Override
+    public boolean transfer(UUID from, UUID to, double amount, String currencyId, String idempotencyKey) {
+        return idempotent(idempotencyKey, () -> currencyId == null
+                ? transfer(from, to, amount)
+                : transfer(from, to, amount, currencyId));
+    }
+
+    @Override
+    public BatchResult applyBatch(List<BalanceMutation> mutations, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyStore == null) {
+            return applyBatch(mutations);
+        }
+        return idempotencyStore.execute(idempotencyKey,
+                () -> applyBatch(mutations),
+                BatchResult::isApplied,
+                () -> new BatchResult(true,
+                        new ArrayList<>(Collections.nCopies(mutations.size(), BatchResult.Status.APPLIED))));
+    }
+
+    private boolean idempotent(String key, Supplier<Boolean> operation) {
+        if (key == null || idempotencyStore == null) {
+            return operation.get();
+        }
+        return idempotencyStore.execute(key, operation, Boolean::booleanValue, () -> true);
+    }
+
+    private static BatchResult rejected(BatchResult.Status[] statuses) {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == null || statuses[i] == BatchResult.Status.APPLIED) {
+                statuses[i] = BatchResult.Status.SKIPPED;
+            }
+        }
+        return new BatchResult(false, Arrays.asList(statuses));
+    }
+
+    private static List<TransactionLog.Image> images(Iterable<PendingWrite> writes) {
+        List<TransactionLog.Image> images = new ArrayList<>();
+        for (PendingWrite write : writes) {
+            images.add(write.image());
+        }
+        return images;
+    }
+
+    private Map<String, PlayerAccountEntity> loadAccounts(Set<String> uuids) {
+        if (balanceCache != null) {
+            return balanceCache.getAccounts(uuids);
+        }
+        Map<String, PlayerAccountEntity> found = new HashMap<>();
+        for (PlayerAccountEntity account : repository.findAccounts(uuids)) {
+            found.put(account.getUuid(), account);
+        }
+        return found;
+    }
+
+    private Map<String, CurrencyBalanceEntity> loadBalances(Set<String> keys) {
+        if (balanceCache != null) {
+            return balanceCache.getBalances(keys);
+        }
+        Map<String, CurrencyBalanceEntity> found = new HashMap<>();
+        if (keys.isEmpty()) {
+            return found;
+        }
+        Set<String> uuids = new LinkedHashSet<>();
+        Set<String> currencyIds = new LinkedHashSet<>();
+        for (String key : keys) {
+            int split = key.lastIndexOf(':');
+            uuids.add(key.substring(0, split));
+            currencyIds.add(key.substring(split + 1));
+        }
+        for (CurrencyBalanceEntity balance : repository.findBalances(uuids, currencyIds)) {
+            String key = BalanceCache.balanceKey(balance.getUuid(), balance.getCurrencyId());
+            if (keys.contains(key)) {
+                found.put(key, balance);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * New values staged for one record touched by a batch. Items on the same record run
+     * against these running values, so they compose in order before anything is assigned.
+     */
+    private final class PendingWrite {
+        private final PlayerAccountEntity account;
+        private final CurrencyBalanceEntity balance;
+        private final double oldCash;
+        private final double oldBank;
+        private final List<Integer> items = new ArrayList<>();
+        private double cash;
+        private double bank;
+
+        PendingWrite(PlayerAccountEntity account, CurrencyBalanceEntity balance) {
+            this.account = account;
+            this.balance = balance;
+            this.oldCash = account != null ? account.getCash() : balance.getCash();
+            this.oldBank = account != null ? account.getBank() : balance.getBank();
+            this.cash = oldCash;
+            this.bank = oldBank;
+        }
+
+        double get(BalanceMutation.Bucket bucket) {
+            return bucket == BalanceMutation.Bucket.CASH ? cash : bank;
+        }
+
+        void set(BalanceMutation.Bucket bucket, double value) {
+            if (bucket == BalanceMutation.Bucket.CASH) {
+                cash = value;
+            } else {
+                bank = value;
+            }
+        }
+
+        void apply() {
+            assign(cash, bank);
+        }
+
+        void restore() {
+            assign(oldCash, oldBank);
+        }
+
+        boolean persist() {
+            return account != null ? updateAccount(account) : updateBalance(balance);
+        }
+
+        TransactionLog.Image image() {
+            return account != null ? TransactionLog.Image.of(account) : TransactionLog.Image.of(balance);
+        }
+
+        boolean isCurrent() {
+            return account != null ? EconomyServiceImpl.this.isCurrent(account) : EconomyServiceImpl.this.isCurrent(balance);
+        }
+
+        private void assign(double newCash, double newBank) {
+            if (account != null) {
+                account.setCash(newCash);
+                account.setBank(newBank);
+            } else {
+                balance.setCash(newCash);
+                balance.setBank(newBank);
+            }
+        }
+    }
+
+    // --- Working set ---
+
+    @Override
+    public WalletSnapshot getWallet(UUID playerUuid) {
+        WalletSnapshot wallet = balanceCache != null
+                ? balanceCache.snapshot(playerUuid, currencyIds())
+                : repository.findWallet(playerUuid.toString());
+        if (!isHot(playerUuid)) {
+            return wallet;
+        }
+        // Credits collected for a hot account are not in its rows yet
+        wallet = wallet.plusCash(null, hotAccounts.pending(playerUuid, null));
+        for (String currencyId : new ArrayList<>(wallet.getCurrencyIds())) {
+            wallet = wallet.plusCash(currencyId, hotAccounts.pending(playerUuid, currencyId));
+        }
+        return wallet;
+    }
+
+    @Override
+    public void preloadPlayer(UUID playerUuid, String playerName) {
+        if (balanceCache != null) {
+            balanceCache.preload(playerUuid, currencyIds());
+        }
+        getOrCreateAccount(playerUuid, playerName);
+        for (String currencyId : currencyIds()) {
+            getOrCreateBalance(playerUuid, playerName, currencyId);
+        }
+    }
+
+    @Override
+    public void releasePlayer(UUID playerUuid) {
+        if (balanceCache != null) {
+            balanceCache.evict(playerUuid, currencyIds());
+        }
+    }
+
+    private List<String> currencyIds() {
+        List<String> ids = new ArrayList<>();
+        if (currencyManager != null) {
+            for (CurrencyDefinition currency : currencyManager.getAllCurrencies()) {
+                ids.add(currency.getId());
+            }
+        }
+        return ids;
+    }
+
     public CurrencyManager getCurrencyManager() {
         return currencyManager;
     }
 
-    private boolean updateAccount(PlayerAccountEntity account) {
+    /**
+     * Runs a read-modify-write on a primary account while holding its stripe lock,
+     * so concurrent callers on the same player are serialized.
+     * The mutation returns false to abort without writing. Mutations compute every new
+     * value before assigning any, so an overflow aborts with the entity untouched.
+     * With optimistic locking the row is re-read and the mutation run again whenever
+     * another writer changed it in the meantime.
+     */
+    private boolean mutateAccount(UUID playerUuid, Predicate<PlayerAccountEntity> mutation) {
+        settle(playerUuid, null);
+        return writeAccount(playerUuid, mutation);
+    }
+
+    private boolean writeAccount(UUID playerUuid, Predicate<PlayerAccountEntity> mutation) {
+        Lock lock = locks.forAccount(playerUuid);
+        lock.lock();
         try {
-            dataOperator.update(account);
+            int attempts = writeAttempts();
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                PlayerAccountEntity account = getAccount(playerUuid);
+                if (account == null) {
+                    return false;
+                }
+                double cash = account.getCash();
+                double bank = account.getBank();
+                if (!mutation.test(account)) {
+                    return false;
+                }
+                Runnable restore = () -> {
+                    account.setCash(cash);
+                    account.setBank(bank);
+                };
+                if (!isCurrent(account)) {
+                    restore.run();
+                    continue;
+                }
+                try {
+                    return commitRow(account, TransactionLog.Image::of, this::updateAccount, restore);
+                } catch (StaleRowException e) {
+                    // Another server wrote the row since it was read; read it again
+                }
+            }
+            return conflicted(playerUuid.toString(), attempts);
+        } catch (ArithmeticException e) {
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean mutateBalance(UUID playerUuid, String currencyId, Predicate<CurrencyBalanceEntity> mutation) {
+        settle(playerUuid, currencyId);
+        return writeBalance(playerUuid, currencyId, mutation);
+    }
+
+    private boolean writeBalance(UUID playerUuid, String currencyId, Predicate<CurrencyBalanceEntity> mutation) {
+        Lock lock = locks.forBalance(playerUuid, currencyId);
+        lock.lock();
+        try {
+            int attempts = writeAttempts();
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                CurrencyBalanceEntity balance = getBalance(playerUuid, currencyId);
+                if (balance == null) {
+                    return false;
+                }
+                double cash = balance.getCash();
+                double bank = balance.getBank();
+                if (!mutation.test(balance)) {
+                    return false;
+                }
+                Runnable restore = () -> {
+                    balance.setCash(cash);
+                    balance.setBank(bank);
+                };
+                if (!isCurrent(balance)) {
+                    restore.run();
+                    continue;
+                }
+                try {
+                    return commitRow(balance, TransactionLog.Image::of, this::updateBalance, restore);
+                } catch (StaleRowException e) {
+                    // Another server wrote the row since it was read; read it again
+                }
+            }
+            return conflicted(BalanceCache.balanceKey(playerUuid.toString(), currencyId), attempts);
+        } catch (ArithmeticException e) {
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs and writes one mutated row. If either step fails the row is restored, and a failed
+     * write logs the restored values as well so a replay cannot bring the failed write back.
+     *
+     * @throws StaleRowException if another server wrote the row first; it is restored
+     */
+    private <T> boolean commitRow(T row, Function<T, TransactionLog.Image> image,
+                                  Predicate<T> writer, Runnable restore) {
+        if (!journal(Collections.singletonList(image.apply(row)))) {
+            restore.run();
+            return false;
+        }
+        boolean written = false;
+        try {
+            written = writer.test(row);
+            return written;
+        } finally {
+            if (!written) {
+                restore.run();
+                journal(Collections.singletonList(image.apply(row)));
+            }
+        }
+    }
+
+    /**
+     * Commits an already applied debit, credit and tax as one unit while both stripe
+     * locks are held. The treasury is credited first because it is the only step that
+     * can fail once the write-behind cache is enabled; after it succeeds both rows go into
+     * a single transaction log record and are marked dirty together, so neither a flush nor
+     * a crash can observe one without the other.
+     * Without the cache the rows are written directly and any failure restores the
+     * in-memory values and reverses the steps already persisted. The rows are restored
+     * whatever a step throws, because they may be the cache's live entities.
+     *
+     * @throws StaleRowException if another server wrote a row first; everything is reversed
+     */
+    private <T> boolean commitTransfer(T sender, T receiver, Function<T, TransactionLog.Image> image,
+                                       Predicate<T> writer, Runnable restore, double tax, String currencyId) {
+        boolean credited = false;
+        boolean journaled = false;
+        boolean debited = false;
+        boolean done = false;
+        try {
+            credited = creditTreasury(tax, currencyId);
+            journaled = credited && journal(Arrays.asList(image.apply(sender), image.apply(receiver)));
+            debited = journaled && writer.test(sender);
+            done = debited && writer.test(receiver);
+            return done;
+        } finally {
+            if (!done) {
+                restore.run();
+                if (debited && !rewrite(() -> writer.test(sender))) {
+                    plugin.getLogger().error("Failed to roll back transfer debit in " + currencyId);
+                }
+                if (journaled) {
+                    journal(Arrays.asList(image.apply(sender), image.apply(receiver)));
+                }
+                if (credited) {
+                    refundTreasury(tax, currencyId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a rollback write, which has nothing to retry when another server got there first.
+     */
+    private static boolean rewrite(BooleanSupplier write) {
+        try {
+            return write.getAsBoolean();
+        } catch (StaleRowException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends the after-images of one mutation to the transaction log, if enabled.
+     * Returns false when the record could not be written, in which case the caller
+     * must not apply the mutation.
+     */
+    private boolean journal(List<TransactionLog.Image> images) {
+        if (transactionLog == null) {
+            return true;
+        }
+        try {
+            transactionLog.append(images);
             return true;
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to append to transaction log: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private int primaryPrecision() {
+        return precision(getPrimaryCurrencyId());
+    }
+
+    private int precision(String currencyId) {
+        return currencyManager != null ? currencyManager.getPrecision(currencyId) : Money.DEFAULT_PRECISION;
+    }
+
+    /**
+     * In fixed-point mode snaps an incoming amount onto the currency's minor-unit grid so
+     * every stored balance stays an exact multiple of one minor unit. Returns NaN for
+     * amounts too large to represent, which every caller rejects.
+     */
+    private double snap(double amount, int precision) {
+        if (!config.isFixedPointEnabled()) {
+            return amount;
+        }
+        try {
+            return Money.round(amount, precision);
+        } catch (ArithmeticException e) {
+            return Double.NaN;
+        }
+    }
+
+    private double plus(double balance, double amount, int precision) {
+        return config.isFixedPointEnabled() ? Money.add(balance, amount, precision) : balance + amount;
+    }
+
+    private double minus(double balance, double amount, int precision) {
+        return config.isFixedPointEnabled() ? Money.subtract(balance, amount, precision) : balance - amount;
+    }
+
+    private double calculateTransactionTax(double amount) {
+        return taxService != null ? taxService.calculateTransactionTax(amount) : 0.0;
+    }
+
+    private boolean creditTreasury(double tax, String currencyId) {
+        if (tax <= 0 || taxService == null) {
+            return true;
+        }
+        try {
+            taxService.depositToTreasury(tax, currencyId);
+            return true;
+        } catch (IllegalAccessException e) {
+            plugin.getLogger().error("Failed to credit treasury: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void refundTreasury(double tax, String currencyId) {
+        if (tax <= 0 || taxService == null) {
+            return;
+        }
+        try {
+            taxService.withdrawFromTreasury(tax, currencyId);
         } catch (IllegalAccessException e) {
+            plugin.getLogger().error("Failed to roll back treasury credit: " + e.getMessage());
+        }
+    }
+
+    private boolean updateAccount(PlayerAccountEntity account) {
+        if (balanceCache != null) {
+            balanceCache.markDirty(account);
+            mirror(account);
+            return true;
+        }
+        long read = account.getVersion();
+        account.setVersion(read + 1);
+        try {
+            if (!compareAndSetEnabled()) {
+                repository.updateAccount(account);
+            } else if (!balanceStore.compareAndSet(account, read)) {
+                account.setVersion(read);
+                throw StaleRowException.INSTANCE;
+            }
+            mirror(account);
+            return true;
+        } catch (IllegalAccessException | SQLException e) {
+            account.setVersion(read);
             plugin.getLogger().error("Failed to update account: " + e.getMessage());
             return false;
         }
     }
 
     private boolean updateBalance(CurrencyBalanceEntity balance) {
+        if (balanceCache != null) {
+            balanceCache.markDirty(balance);
+            mirror(balance);
+            return true;
+        }
+        long read = balance.getVersion();
+        balance.setVersion(read + 1);
         try {
-            currencyDataOperator.update(balance);
+            if (!compareAndSetEnabled()) {
+                repository.updateBalance(balance);
+            } else if (!balanceStore.compareAndSet(balance, read)) {
+                balance.setVersion(read);
+                throw StaleRowException.INSTANCE;
+            }
+            mirror(balance);
             return true;
-        } catch (IllegalAccessException e) {
+        } catch (IllegalAccessException | SQLException e) {
+            balance.setVersion(read);
+            plugin.getLogger().error("Failed to update balance: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // --- Atomic increments ---
+
+    /**
+     * Plain adds and takes go to the database as one atomic increment when a JDBC store is
+     * configured. Not with the cache on, which needs every change to pass through memory, nor
+     * with group commit, whose held rows an increment would bypass and later be overwritten by.
+     */
+    private boolean incrementsEnabled() {
+        return balanceStore != null && balanceCache == null && !(repository instanceof GroupCommitRepository);
+    }
+
+    /**
+     * The stripe lock still matters here: transfers and other read-modify-write paths on this
+     * server must not read a balance, miss an increment and write the old value back. The
+     * increment is not journaled; the database applies it atomically, and the version it bumps
+     * keeps a replay of older images from undoing it.
+     */
+    private boolean increment(UUID playerUuid, String currencyId, BalanceMutation.Bucket bucket,
+                              double delta, int precision) {
+        Lock lock = currencyId == null ? locks.forAccount(playerUuid) : locks.forBalance(playerUuid, currencyId);
+        lock.lock();
+        try {
+            int rounding = config.isFixedPointEnabled() ? precision : -1;
+            if (balanceStore.increment(playerUuid.toString(), currencyId, bucket, delta, rounding) != 1) {
+                return false;
+            }
+            if (liveLeaderboards != null) {
+                liveLeaderboards.add(playerUuid.toString(), currencyId, delta);
+            }
+            if (offHeapStore != null) {
+                boolean bank = bucket == BalanceMutation.Bucket.BANK;
+                if (currencyId == null) {
+                    offHeapStore.addAccount(playerUuid.toString(), bank, delta, rounding);
+                } else if (currencyManager != null) {
+                    offHeapStore.addBalance(playerUuid.toString(), currencyManager.getOrdinal(currencyId),
+                            bank, delta, rounding);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
             plugin.getLogger().error("Failed to update balance: " + e.getMessage());
             return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Off-heap and leaderboard mirrors ---
+
+    /**
+     * Copies a row this server just wrote into the off-heap store or the live leaderboards,
+     * if there are any. Rows other servers write are not seen until the next restart, or the
+     * next leaderboard repair.
+     */
+    private void mirror(PlayerAccountEntity account) {
+        if (liveLeaderboards != null) {
+            liveLeaderboards.update(account);
+        }
+        if (offHeapStore != null) {
+            offHeapStore.putAccount(account.getUuid(), account.getPlayerName(), account.getCash(), account.getBank());
+        }
+    }
+
+    private void mirror(CurrencyBalanceEntity balance) {
+        if (liveLeaderboards != null) {
+            liveLeaderboards.update(balance);
+        }
+        if (offHeapStore != null && currencyManager != null) {
+            offHeapStore.putBalance(balance.getUuid(), currencyManager.getOrdinal(balance.getCurrencyId()),
+                    balance.getCash(), balance.getBank());
+        }
+    }
+
+    // --- Hot accounts ---
+
+    private boolean isHot(UUID playerUuid) {
+        return hotAccounts != null && hotAccounts.isHot(playerUuid);
+    }
+
+    private double pending(UUID playerUuid, String currencyId) {
+        return isHot(playerUuid) ? hotAccounts.pending(playerUuid, currencyId) : 0.0;
+    }
+
+    /**
+     * Collects a credit without touching the stored row. The row must exist, as for any
+     * other add; that is only read for the first credit to each balance. Credits too large
+     * to collect take the ordinary path instead.
+     */
+    private boolean creditHot(UUID playerUuid, String currencyId, double delta) {
+        if (!hotAccounts.isCollecting(playerUuid, currencyId)) {
+            boolean exists = currencyId == null
+                    ? getAccount(playerUuid) != null
+                    : getBalance(playerUuid, currencyId) != null;
+            if (!exists) {
+                return false;
+            }
+        }
+        try {
+            hotAccounts.credit(playerUuid, currencyId, delta);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes a debit from what has collected. When that is not enough the caller falls back to
+     * the stored row, which folds the collected amount in first.
+     */
+    private boolean debitHot(UUID playerUuid, String currencyId, double delta) {
+        try {
+            return hotAccounts.debit(playerUuid, currencyId, delta);
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Folds what a hot account has collected into its stored row, under the row's lock so the
+     * read-modify-write that follows sees it. A failed write collects the amount again.
+     *
+     * @return whether anything was written
+     */
+    private boolean settle(UUID playerUuid, String currencyId) {
+        if (!isHot(playerUuid)) {
+            return false;
+        }
+        Lock lock = currencyId == null ? locks.forAccount(playerUuid) : locks.forBalance(playerUuid, currencyId);
+        lock.lock();
+        try {
+            double collected = hotAccounts.drain(playerUuid, currencyId);
+            if (collected == 0) {
+                return false;
+            }
+            if (foldInto(playerUuid, currencyId, collected)) {
+                return true;
+            }
+            hotAccounts.restore(playerUuid, currencyId, collected);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean foldInto(UUID playerUuid, String currencyId, double delta) {
+        if (currencyId == null) {
+            int precision = primaryPrecision();
+            return writeAccount(playerUuid, account -> {
+                account.setCash(plus(account.getCash(), delta, precision));
+                return true;
+            });
+        }
+        int precision = precision(currencyId);
+        return writeBalance(playerUuid, currencyId, balance -> {
+            balance.setCash(plus(balance.getCash(), delta, precision));
+            return true;
+        });
+    }
+
+    /**
+     * Writes what every hot account has collected into its stored row. Run periodically and
+     * before shutdown; what is still collecting when the server dies is lost.
+     *
+     * @return number of balances written
+     */
+    public int foldHotAccounts() {
+        if (hotAccounts == null) {
+            return 0;
+        }
+        int[] folded = new int[1];
+        hotAccounts.forEachCollected((uuid, currencyId) -> {
+            if (settle(uuid, currencyId)) {
+                folded[0]++;
+            }
+        });
+        return folded[0];
+    }
+
+    // --- Optimistic locking ---
+
+    private int writeAttempts() {
+        return config.isOptimisticLockingEnabled() ? 1 + Math.max(0, config.getOptimisticLockingMaxRetries()) : 1;
+    }
+
+    /**
+     * With a JDBC store each write is itself a compare-and-set on the row version, so a row
+     * another server wrote since it was read is never overwritten and no extra read is needed.
+     */
+    private boolean compareAndSetEnabled() {
+        return config.isOptimisticLockingEnabled() && balanceStore != null && balanceCache == null;
+    }
+
+    /**
+     * Whether the stored row still has the version this copy was read at. Without a JDBC store
+     * the data layer has no conditional update, so this re-read is the best check available:
+     * it narrows the window for another server's write to be lost but cannot close it. The
+     * stripe locks keep this server from racing itself between the check and the write.
+     * Always true with optimistic locking off, with the cache on, whose entries are only
+     * ever written by this server, and when the write itself is a compare-and-set.
+     */
+    private boolean isCurrent(PlayerAccountEntity account) {
+        if (!config.isOptimisticLockingEnabled() || balanceCache != null || compareAndSetEnabled()) {
+            return true;
+        }
+        PlayerAccountEntity stored = repository.findAccount(account.getUuid());
+        return stored != null && stored.getVersion() == account.getVersion();
+    }
+
+    private boolean isCurrent(CurrencyBalanceEntity balance) {
+        if (!config.isOptimisticLockingEnabled() || balanceCache != null || compareAndSetEnabled()) {
+            return true;
+        }
+        CurrencyBalanceEntity stored = repository.findBalance(balance.getUuid(), balance.getCurrencyId());
+        return stored != null && stored.getVersion() == balance.getVersion();
+    }
+
+    private static boolean isCurrent(Iterable<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            if (!write.isCurrent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean conflicted(String row, int attempts) {
+        plugin.getLogger().error("Gave up writing " + row + " after " + attempts + " version conflicts");
+        return false;
+    }
+
+    /**
+     * Thrown by a compare-and-set write that found the row changed since it was read, to
+     * send the caller round its retry loop. Carries no stack trace; it is control flow.
+     */
+    private static final class StaleRowException extends RuntimeException {
+        private static final StaleRowException INSTANCE = new StaleRowException();
+
+        private StaleRowException() {
+            super("Row changed since it was read", null, false, false);
         }
     }
 }
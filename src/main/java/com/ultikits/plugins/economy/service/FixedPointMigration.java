@@ -0,0 +1,150 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.plugins.economy.model.Money;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Brings stored balances onto the minor-unit grid when fixed-point mode is switched on.
+ * Rows written before the switch may carry binary rounding residue such as 0.30000000000000004;
+ * each one is rounded to its currency's precision and rewritten. Rows already on the grid are
+ * left alone, so running it again is safe, but it reads every row; the caller records a
+ * {@link #isComplete complete} run under the {@link #precisions} it used and skips the scan until
+ * they change. A row whose amount cannot be held in minor units, such as NaN or one beyond 2^53
+ * of them, is logged and left as it is.
+ */
+public class FixedPointMigration {
+
+    private final UltiToolsPlugin plugin;
+    private final CurrencyManager currencyManager;
+    private final BalanceRepository repository;
+    private final DataOperator<TreasuryEntity> treasuryOperator;
+    private boolean complete;
+
+    public FixedPointMigration(UltiToolsPlugin plugin,
+                               CurrencyManager currencyManager,
+                               DataOperator<PlayerAccountEntity> accountOperator,
+                               DataOperator<CurrencyBalanceEntity> balanceOperator,
+                               DataOperator<TreasuryEntity> treasuryOperator) {
+        this(plugin, currencyManager, new SplitTableRepository(accountOperator, balanceOperator), treasuryOperator);
+    }
+
+    public FixedPointMigration(UltiToolsPlugin plugin,
+                               CurrencyManager currencyManager,
+                               BalanceRepository repository,
+                               DataOperator<TreasuryEntity> treasuryOperator) {
+        this.plugin = plugin;
+        this.currencyManager = currencyManager;
+        this.repository = repository;
+        this.treasuryOperator = treasuryOperator;
+    }
+
+    /**
+     * Describes every currency's precision, such as {@code coins=2,gems=0}, so a change to any
+     * of them, or a new currency, can be told apart from the run already recorded.
+     */
+    public static String precisions(CurrencyManager currencyManager) {
+        Map<String, Integer> sorted = new TreeMap<>();
+        currencyManager.getAllCurrencies().forEach(currency -> sorted.put(currency.getId(), currency.getPrecision()));
+        StringJoiner joined = new StringJoiner(",");
+        sorted.forEach((id, precision) -> joined.add(id + "=" + precision));
+        return joined.toString();
+    }
+
+    /**
+     * Whether the last {@link #run} wrote every row it had to. Rows skipped because they cannot
+     * be held in minor units do not count against it; running again would not change them.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return number of rows rewritten
+     */
+    public int run() {
+        int migrated = 0;
+        complete = true;
+
+        int primaryPrecision = currencyManager.getPrecision(currencyManager.getPrimaryCurrencyId());
+        for (PlayerAccountEntity account : repository.allAccounts()) {
+            double cash;
+            double bank;
+            try {
+                cash = Money.round(account.getCash(), primaryPrecision);
+                bank = Money.round(account.getBank(), primaryPrecision);
+            } catch (ArithmeticException e) {
+                plugin.getLogger().error("Skipped account " + account.getUuid() + ": " + e.getMessage());
+                continue;
+            }
+            if (cash == account.getCash() && bank == account.getBank()) {
+                continue;
+            }
+            account.setCash(cash);
+            account.setBank(bank);
+            try {
+                repository.updateAccount(account);
+                migrated++;
+            } catch (IllegalAccessException e) {
+                complete = false;
+                plugin.getLogger().error("Failed to migrate account " + account.getUuid() + ": " + e.getMessage());
+            }
+        }
+
+        for (CurrencyBalanceEntity balance : repository.allBalances()) {
+            int precision = currencyManager.getPrecision(balance.getCurrencyId());
+            double cash;
+            double bank;
+            try {
+                cash = Money.round(balance.getCash(), precision);
+                bank = Money.round(balance.getBank(), precision);
+            } catch (ArithmeticException e) {
+                plugin.getLogger().error("Skipped balance " + balance.getUuid()
+                        + ":" + balance.getCurrencyId() + ": " + e.getMessage());
+                continue;
+            }
+            if (cash == balance.getCash() && bank == balance.getBank()) {
+                continue;
+            }
+            balance.setCash(cash);
+            balance.setBank(bank);
+            try {
+                repository.updateBalance(balance);
+                migrated++;
+            } catch (IllegalAccessException e) {
+                complete = false;
+                plugin.getLogger().error("Failed to migrate balance " + balance.getUuid()
+                        + ":" + balance.getCurrencyId() + ": " + e.getMessage());
+            }
+        }
+
+        for (TreasuryEntity treasury : treasuryOperator.getAll()) {
+            double rounded;
+            try {
+                rounded = Money.round(treasury.getBalance(), currencyManager.getPrecision(treasury.getCurrencyId()));
+            } catch (ArithmeticException e) {
+                plugin.getLogger().error("Skipped treasury " + treasury.getCurrencyId() + ": " + e.getMessage());
+                continue;
+            }
+            if (rounded == treasury.getBalance()) {
+                continue;
+            }
+            treasury.setBalance(rounded);
+            try {
+                treasuryOperator.update(treasury);
+                migrated++;
+            } catch (IllegalAccessException e) {
+                complete = false;
+                plugin.getLogger().error("Failed to migrate treasury " + treasury.getCurrencyId() + ": " + e.getMessage());
+            }
+        }
+        return migrated;
+    }
+}
@@ -0,0 +1,341 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Holds account and balance updates for a short window and writes each changed row once, with
+ * its final value, instead of once per mutation. A player earning dozens of times a second
+ * then costs one write per window. Reads see held values first, so callers cannot tell the
+ * write has not happened yet; inserts go straight through, so every held row exists.
+ * <p>
+ * {@link #commit()} runs once per window. With a JDBC store the window's rows go to the
+ * database as one batch in one transaction; otherwise, or if the batch fails, they are
+ * written one by one through the wrapped repository. A row that still fails is held again
+ * unless a newer value has been held meanwhile.
+ * <p>
+ * Like the write-behind cache this assumes no other server writes the same rows: a held value
+ * overwrites theirs when it is committed.
+ */
+public class GroupCommitRepository implements BalanceRepository {
+
+    private final UltiToolsPlugin plugin;
+    private final BalanceRepository delegate;
+    private final JdbcBalanceStore batchStore;
+
+    private final ConcurrentMap<String, PlayerAccountEntity> heldAccounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CurrencyBalanceEntity> heldBalances = new ConcurrentHashMap<>();
+    // Rows taken by a commit that is still writing them; reads fall back to these, not the database
+    private final ConcurrentMap<String, PlayerAccountEntity> committingAccounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CurrencyBalanceEntity> committingBalances = new ConcurrentHashMap<>();
+
+    private final LongAdder updates = new LongAdder();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * @param batchStore writes a window as one JDBC batch, or null to write rows one by one
+     */
+    public GroupCommitRepository(UltiToolsPlugin plugin, BalanceRepository delegate, JdbcBalanceStore batchStore) {
+        this.plugin = plugin;
+        this.delegate = delegate;
+        this.batchStore = batchStore;
+    }
+
+    // --- Accounts ---
+
+    @Override
+    public PlayerAccountEntity findAccount(String uuid) {
+        PlayerAccountEntity held = heldAccount(uuid);
+        return held != null ? held : delegate.findAccount(uuid);
+    }
+
+    @Override
+    public List<PlayerAccountEntity> findAccounts(Collection<String> uuids) {
+        return overlayAccounts(delegate.findAccounts(uuids));
+    }
+
+    @Override
+    public List<PlayerAccountEntity> allAccounts() {
+        return overlayAccounts(delegate.allAccounts());
+    }
+
+    @Override
+    public void insertAccount(PlayerAccountEntity account) {
+        delegate.insertAccount(account);
+    }
+
+    @Override
+    public void updateAccount(PlayerAccountEntity account) {
+        heldAccounts.put(account.getUuid(), copy(account));
+        updates.increment();
+    }
+
+    // --- Currency balances ---
+
+    @Override
+    public CurrencyBalanceEntity findBalance(String uuid, String currencyId) {
+        CurrencyBalanceEntity held = heldBalance(BalanceCache.balanceKey(uuid, currencyId));
+        return held != null ? held : delegate.findBalance(uuid, currencyId);
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(String uuid) {
+        return overlayBalances(delegate.findBalances(uuid));
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(Collection<String> uuids, Collection<String> currencyIds) {
+        return overlayBalances(delegate.findBalances(uuids, currencyIds));
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> allBalances() {
+        return overlayBalances(delegate.allBalances());
+    }
+
+    @Override
+    public void insertBalance(CurrencyBalanceEntity balance) {
+        delegate.insertBalance(balance);
+    }
+
+    @Override
+    public void updateBalance(CurrencyBalanceEntity balance) {
+        heldBalances.put(BalanceCache.balanceKey(balance.getUuid(), balance.getCurrencyId()), copy(balance));
+        updates.increment();
+    }
+
+    // --- Whole players ---
+
+    @Override
+    public WalletSnapshot findWallet(String uuid) {
+        return WalletSnapshot.of(uuid, findAccount(uuid), findBalances(uuid));
+    }
+
+    @Override
+    public void forEachPlayer(BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor) {
+        delegate.forEachPlayer((account, balances) -> visitor.accept(
+                account != null ? overlay(account) : null, overlayBalances(balances)));
+    }
+
+    // --- Commits ---
+
+    /**
+     * Writes every held row and returns how many were written.
+     */
+    public synchronized int commit() {
+        List<PlayerAccountEntity> accounts = take(heldAccounts, committingAccounts);
+        List<CurrencyBalanceEntity> balances = take(heldBalances, committingBalances);
+        if (accounts.isEmpty() && balances.isEmpty()) {
+            return 0;
+        }
+        commits.incrementAndGet();
+        int written = batchStore != null && writeBatch(accounts, balances)
+                ? accounts.size() + balances.size()
+                : writeRows(accounts, balances);
+        rowsWritten.addAndGet(written);
+        return written;
+    }
+
+    private boolean writeBatch(List<PlayerAccountEntity> accounts, List<CurrencyBalanceEntity> balances) {
+        try {
+            batchStore.update(accounts, balances);
+        } catch (SQLException e) {
+            plugin.getLogger().error("Batched balance write failed, writing rows one by one: " + e.getMessage());
+            return false;
+        }
+        batches.incrementAndGet();
+        accounts.forEach(account -> committingAccounts.remove(account.getUuid(), account));
+        balances.forEach(balance -> committingBalances.remove(key(balance), balance));
+        return true;
+    }
+
+    private int writeRows(List<PlayerAccountEntity> accounts, List<CurrencyBalanceEntity> balances) {
+        int written = 0;
+        Map<String, PlayerAccountEntity> accountOf = new HashMap<>();
+        Map<String, List<CurrencyBalanceEntity>> byPlayer = new LinkedHashMap<>();
+        for (PlayerAccountEntity account : accounts) {
+            accountOf.put(account.getUuid(), account);
+            byPlayer.computeIfAbsent(account.getUuid(), uuid -> new ArrayList<>());
+        }
+        for (CurrencyBalanceEntity balance : balances) {
+            byPlayer.computeIfAbsent(balance.getUuid(), uuid -> new ArrayList<>()).add(balance);
+        }
+        // A player's account and balances go in one call, which a wallet repository writes as one row
+        for (Map.Entry<String, List<CurrencyBalanceEntity>> player : byPlayer.entrySet()) {
+            String uuid = player.getKey();
+            PlayerAccountEntity account = accountOf.get(uuid);
+            List<CurrencyBalanceEntity> owned = player.getValue();
+            try {
+                if (account == null) {
+                    delegate.updateBalances(uuid, owned);
+                } else if (owned.isEmpty()) {
+                    delegate.updateAccount(account);
+                } else {
+                    delegate.updatePlayer(uuid, account, owned);
+                }
+                written += owned.size() + (account != null ? 1 : 0);
+            } catch (IllegalAccessException e) {
+                if (account != null) {
+                    heldAccounts.putIfAbsent(uuid, account);
+                }
+                owned.forEach(balance -> heldBalances.putIfAbsent(key(balance), balance));
+                plugin.getLogger().error("Failed to write " + uuid + ": " + e.getMessage());
+            }
+            if (account != null) {
+                committingAccounts.remove(uuid, account);
+            }
+            owned.forEach(balance -> committingBalances.remove(key(balance), balance));
+        }
+        return written;
+    }
+
+    /**
+     * Commits what is held before making the wrapped repository durable, so a log truncated
+     * after this call only drops mutations that have reached storage.
+     */
+    @Override
+    public void sync() throws IOException {
+        commit();
+        delegate.sync();
+    }
+
+    public int getHeldCount() {
+        return heldAccounts.size() + heldBalances.size();
+    }
+
+    /**
+     * @return updates received since startup, each of which would otherwise have been a write
+     */
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * @return commits that went to the database as a single batch
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return the share of updates that did not need a write of their own, from 0 to 1
+     */
+    public double getSavedFraction() {
+        long received = getUpdates();
+        return received == 0 ? 0.0 : Math.max(0.0, 1.0 - (double) getRowsWritten() / received);
+    }
+
+    // --- Internals ---
+
+    private static <T> List<T> take(ConcurrentMap<String, T> held, ConcurrentMap<String, T> committing) {
+        List<T> taken = new ArrayList<>(held.size());
+        for (Map.Entry<String, T> entry : held.entrySet()) {
+            // Published as committing before it leaves the held map, so reads never miss it
+            committing.put(entry.getKey(), entry.getValue());
+            if (held.remove(entry.getKey(), entry.getValue())) {
+                taken.add(entry.getValue());
+            } else {
+                committing.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        return taken;
+    }
+
+    private PlayerAccountEntity heldAccount(String uuid) {
+        PlayerAccountEntity held = heldAccounts.get(uuid);
+        if (held == null) {
+            held = committingAccounts.get(uuid);
+        }
+        return held != null ? copy(held) : null;
+    }
+
+    private CurrencyBalanceEntity heldBalance(String key) {
+        CurrencyBalanceEntity held = heldBalances.get(key);
+        if (held == null) {
+            held = committingBalances.get(key);
+        }
+        return held != null ? copy(held) : null;
+    }
+
+    private PlayerAccountEntity overlay(PlayerAccountEntity stored) {
+        PlayerAccountEntity held = heldAccount(stored.getUuid());
+        return held != null ? held : stored;
+    }
+
+    private List<PlayerAccountEntity> overlayAccounts(List<PlayerAccountEntity> stored) {
+        if (heldAccounts.isEmpty() && committingAccounts.isEmpty()) {
+            return stored;
+        }
+        List<PlayerAccountEntity> result = new ArrayList<>(stored.size());
+        for (PlayerAccountEntity account : stored) {
+            result.add(overlay(account));
+        }
+        return result;
+    }
+
+    private List<CurrencyBalanceEntity> overlayBalances(List<CurrencyBalanceEntity> stored) {
+        if (heldBalances.isEmpty() && committingBalances.isEmpty()) {
+            return stored;
+        }
+        List<CurrencyBalanceEntity> result = new ArrayList<>(stored.size());
+        for (CurrencyBalanceEntity balance : stored) {
+            CurrencyBalanceEntity held = heldBalance(key(balance));
+            result.add(held != null ? held : balance);
+        }
+        return result;
+    }
+
+    private static String key(CurrencyBalanceEntity balance) {
+        return BalanceCache.balanceKey(balance.getUuid(), balance.getCurrencyId());
+    }
+
+    private static PlayerAccountEntity copy(PlayerAccountEntity account) {
+        PlayerAccountEntity copy = PlayerAccountEntity.builder()
+                .uuid(account.getUuid())
+                .playerName(account.getPlayerName())
+                .cash(account.getCash())
+                .bank(account.getBank())
+                .version(account.getVersion())
+                .build();
+        copy.setId(account.getId());
+        return copy;
+    }
+
+    private static CurrencyBalanceEntity copy(CurrencyBalanceEntity balance) {
+        CurrencyBalanceEntity copy = CurrencyBalanceEntity.builder()
+                .uuid(balance.getUuid())
+                .currencyId(balance.getCurrencyId())
+                .cash(balance.getCash())
+                .bank(balance.getBank())
+                .version(balance.getVersion())
+                .build();
+        copy.setId(balance.getId());
+        return copy;
+    }
+}
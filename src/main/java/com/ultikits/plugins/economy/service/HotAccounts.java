@@ -0,0 +1,122 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.model.Money;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Server-owned accounts, such as admin shops, that take a mutation on nearly every player
+ * action. Their cash changes collect in a {@link StripedBalance} per account and currency
+ * instead of each taking the account's lock and writing its row; the owner periodically
+ * {@link #drain drains} what has collected into the stored balance.
+ * <p>
+ * The stored row and the collected amount add up to the balance, so every other path may keep
+ * writing the row. Amounts are held at {@link Money#MAX_PRECISION}, so a single credit too
+ * large to count exactly at that precision, about 9e7, is left to the stored row; see
+ * {@link #canCollect}.
+ */
+public class HotAccounts {
+
+    private final Set<UUID> uuids;
+    private final int stripes;
+    private final ConcurrentMap<String, StripedBalance> balances = new ConcurrentHashMap<>();
+
+    public HotAccounts(Collection<UUID> uuids, int stripes) {
+        this.uuids = new HashSet<>(uuids);
+        this.stripes = Math.max(1, stripes);
+    }
+
+    public boolean isHot(UUID uuid) {
+        return uuids.contains(uuid);
+    }
+
+    public boolean isEmpty() {
+        return uuids.isEmpty();
+    }
+
+    /**
+     * Whether credits to this account and currency have been collected since startup.
+     */
+    public boolean isCollecting(UUID uuid, String currencyId) {
+        return balances.containsKey(key(uuid, currencyId));
+    }
+
+    /**
+     * Whether one credit of {@code amount} can be collected. Larger credits go to the row.
+     */
+    public boolean canCollect(double amount) {
+        return Math.abs(amount * Money.scale(Money.MAX_PRECISION)) < Money.EXACT_LIMIT;
+    }
+
+    /**
+     * @param currencyId null for the primary account
+     * @throws ArithmeticException if the amount cannot be held; nothing is credited
+     */
+    public void credit(UUID uuid, String currencyId, double amount) {
+        long minor = Money.toMinor(amount, Money.MAX_PRECISION);
+        balances.computeIfAbsent(key(uuid, currencyId), k -> new StripedBalance(stripes)).credit(minor);
+    }
+
+    /**
+     * Takes the amount from what has collected, or returns false to leave it to the stored row.
+     */
+    public boolean debit(UUID uuid, String currencyId, double amount) {
+        StripedBalance balance = balances.get(key(uuid, currencyId));
+        return balance != null && balance.debit(Money.toMinor(amount, Money.MAX_PRECISION));
+    }
+
+    /**
+     * Returns what has collected and not been folded yet.
+     */
+    public double pending(UUID uuid, String currencyId) {
+        StripedBalance balance = balances.get(key(uuid, currencyId));
+        return balance != null ? Money.toMajor(balance.sum(), Money.MAX_PRECISION) : 0.0;
+    }
+
+    /**
+     * Removes and returns what has collected, for a caller about to write the stored row.
+     * Give it back with {@link #restore} if that write fails.
+     */
+    public double drain(UUID uuid, String currencyId) {
+        StripedBalance balance = balances.get(key(uuid, currencyId));
+        return balance != null ? Money.toMajor(balance.drain(), Money.MAX_PRECISION) : 0.0;
+    }
+
+    /**
+     * Gives back what {@link #drain} returned. Credits that each could be collected may add up
+     * to more than one credit can take, so this rounds instead of requiring an exact amount.
+     */
+    public void restore(UUID uuid, String currencyId, double amount) {
+        if (amount > 0) {
+            long minor = Math.round(amount * Money.scale(Money.MAX_PRECISION));
+            balances.computeIfAbsent(key(uuid, currencyId), k -> new StripedBalance(stripes)).credit(minor);
+        }
+    }
+
+    /**
+     * Calls {@code action} with the account and currency, null for the primary account, of
+     * every balance that has something collected.
+     */
+    public void forEachCollected(BiConsumer<UUID, String> action) {
+        for (Map.Entry<String, StripedBalance> entry : balances.entrySet()) {
+            if (entry.getValue().sum() == 0) {
+                continue;
+            }
+            String key = entry.getKey();
+            int split = key.indexOf(':');
+            action.accept(UUID.fromString(split < 0 ? key : key.substring(0, split)),
+                    split < 0 ? null : key.substring(split + 1));
+        }
+    }
+
+    private static String key(UUID uuid, String currencyId) {
+        return currencyId == null ? uuid.toString() : BalanceCache.balanceKey(uuid.toString(), currencyId);
+    }
+}
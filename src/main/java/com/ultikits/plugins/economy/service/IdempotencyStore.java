@@ -0,0 +1,165 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.IdempotencyKeyEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the idempotency keys of mutations that succeeded, so a caller that retries after
+ * a timeout gets the original outcome instead of a second payout. Keys live in memory in
+ * insertion order, expire after a fixed time and are capped in number, dropping the oldest
+ * first. Each key is also written to the database so a restart does not forget them.
+ * Only successes are recorded: retrying a call that failed runs it again, which is safe
+ * because a failed mutation changed nothing.
+ */
+public class IdempotencyStore {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final UltiToolsPlugin plugin;
+    private final DataOperator<IdempotencyKeyEntity> operator;
+    private final long ttlMillis;
+    private final int capacity;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<String, Long> keys = new LinkedHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public IdempotencyStore(UltiToolsPlugin plugin, DataOperator<IdempotencyKeyEntity> operator,
+                            long ttlMillis, int capacity) {
+        this(plugin, operator, ttlMillis, capacity, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(UltiToolsPlugin plugin, DataOperator<IdempotencyKeyEntity> operator,
+                     long ttlMillis, int capacity, LongSupplier clock) {
+        this.plugin = plugin;
+        this.operator = operator;
+        this.ttlMillis = ttlMillis;
+        this.capacity = Math.max(1, capacity);
+        this.clock = clock;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Loads the unexpired keys written by earlier runs.
+     *
+     * @return number of keys loaded
+     */
+    public int load() {
+        long now = clock.getAsLong();
+        List<IdempotencyKeyEntity> stored = new ArrayList<>(operator.getAll());
+        stored.sort(Comparator.comparingLong(IdempotencyKeyEntity::getCreatedAt));
+        synchronized (this) {
+            for (IdempotencyKeyEntity entity : stored) {
+                if (!expired(entity.getCreatedAt(), now)) {
+                    keys.put(entity.getIdempotencyKey(), entity.getCreatedAt());
+                }
+            }
+            trim(now);
+            return keys.size();
+        }
+    }
+
+    /**
+     * Runs {@code operation} unless a successful run with the same key is remembered, in
+     * which case {@code duplicate} supplies the result instead. Runs sharing a key are
+     * serialized, so two concurrent retries cannot both apply.
+     */
+    public <T> T execute(String key, Supplier<T> operation, Predicate<T> succeeded, Supplier<T> duplicate) {
+        ReentrantLock lock = locks[(key.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+        lock.lock();
+        try {
+            if (contains(key)) {
+                return duplicate.get();
+            }
+            T result = operation.get();
+            if (succeeded.test(result)) {
+                record(key);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        Long createdAt = keys.get(key);
+        if (createdAt == null) {
+            return false;
+        }
+        if (expired(createdAt, clock.getAsLong())) {
+            keys.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    private void record(String key) {
+        long now = clock.getAsLong();
+        synchronized (this) {
+            keys.remove(key);
+            keys.put(key, now);
+            trim(now);
+        }
+        try {
+            operator.insert(IdempotencyKeyEntity.builder().idempotencyKey(key).createdAt(now).build());
+        } catch (RuntimeException e) {
+            // Still remembered in memory; only a restart within the expiry window can miss it
+            plugin.getLogger().error("Failed to persist idempotency key " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets expired keys in memory and deletes their rows.
+     *
+     * @return number of rows deleted
+     */
+    public int purgeExpired() {
+        long now = clock.getAsLong();
+        synchronized (this) {
+            trim(now);
+        }
+        try {
+            return operator.query().where("created_at").lt(now - ttlMillis).delete();
+        } catch (RuntimeException e) {
+            plugin.getLogger().error("Failed to purge idempotency keys: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    /**
+     * Drops expired keys and then the oldest ones beyond capacity. Keys are in insertion
+     * order, which is also expiry order, so both stop at the first key that stays.
+     */
+    private void trim(long now) {
+        Iterator<Map.Entry<String, Long>> it = keys.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (!expired(eldest.getValue(), now) && keys.size() <= capacity) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private boolean expired(long createdAt, long now) {
+        return now - createdAt >= ttlMillis;
+    }
+}
@@ -13,7 +13,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
-import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -23,17 +22,21 @@ public class InterestService {
     private UltiToolsPlugin plugin;
     private EconomyService economyService;
     private EconomyConfig config;
-    private DataOperator<PlayerAccountEntity> dataOperator;
-    private DataOperator<CurrencyBalanceEntity> currencyDataOperator;
+    private BalanceRepository repository;
     private CurrencyManager currencyManager;
+    private BalanceCache balanceCache;
+    private OffHeapBalanceStore offHeapStore;
 
     public InterestService(UltiToolsPlugin plugin, EconomyService economyService) {
         this.plugin = plugin;
         this.economyService = economyService;
         this.config = plugin.getConfig(EconomyConfig.class);
-        this.dataOperator = plugin.getDataOperator(PlayerAccountEntity.class);
-        this.currencyDataOperator = plugin.getDataOperator(CurrencyBalanceEntity.class);
+        this.repository = ((UltiEconomy) plugin).getBalanceRepository();
         this.currencyManager = ((UltiEconomy) plugin).getCurrencyManager();
+        if (config.isCacheEnabled()) {
+            this.balanceCache = ((UltiEconomy) plugin).getBalanceCache();
+        }
+        this.offHeapStore = ((UltiEconomy) plugin).getOffHeapStore();
     }
 
     @SuppressWarnings("all")
@@ -51,8 +54,7 @@ public class InterestService {
             svc.plugin = plugin;
             svc.economyService = economyService;
             svc.config = config;
-            svc.dataOperator = dataOperator;
-            svc.currencyDataOperator = currencyDataOperator;
+            svc.repository = new SplitTableRepository(dataOperator, currencyDataOperator);
             svc.currencyManager = currencyManager;
             return svc;
         } catch (Exception e) {
@@ -60,55 +62,83 @@ public class InterestService {
         }
     }
 
+    void setOffHeapStore(OffHeapBalanceStore offHeapStore) {
+        this.offHeapStore = offHeapStore;
+    }
+
     /**
      * Distributes interest to all accounts with positive bank balance.
      * Handles both primary currency (PlayerAccountEntity) and per-currency balances
      * (CurrencyBalanceEntity) for bank-enabled currencies.
-     * Called periodically by the scheduled task.
+     * Called periodically by the scheduled task. Every player is visited once with their
+     * account and balances together. With the off-heap store the sweep reads it instead,
+     * one pass per bank-enabled currency, without loading any rows.
      */
     public void distributeInterest() {
-        double rate = config.getInterestRate();
-        double maxInterest = config.getMaxInterest();
-
-        // Primary currency interest
-        List<PlayerAccountEntity> accounts = dataOperator.getAll();
-        for (PlayerAccountEntity account : accounts) {
-            if (account.getBank() <= 0) {
-                continue;
+        if (offHeapStore != null) {
+            distributeOffHeap();
+            return;
+        }
+        repository.forEachPlayer((account, balances) -> {
+            if (account != null) {
+                payInterest(account);
             }
-
-            double interest = account.getBank() * rate;
-            if (maxInterest > 0 && interest > maxInterest) {
-                interest = maxInterest;
+            if (currencyManager == null) {
+                return;
             }
+            for (CurrencyBalanceEntity balance : balances) {
+                payInterest(balance);
+            }
+        });
+    }
 
-            economyService.addBank(UUID.fromString(account.getUuid()), interest);
-            notifyPlayer(account.getUuid(), interest);
-        }
-
-        // Per-currency interest
-        if (currencyDataOperator == null || currencyManager == null) {
+    private void distributeOffHeap() {
+        offHeapStore.forEach(OffHeapBalanceStore.ACCOUNT, (record, cash, bank) -> {
+            if (bank > 0) {
+                String uuid = offHeapStore.uuid(record);
+                double interest = calculateInterest(bank);
+                economyService.addBank(UUID.fromString(uuid), interest);
+                notifyPlayer(uuid, interest);
+            }
+        });
+        if (currencyManager == null) {
             return;
         }
-
-        List<CurrencyBalanceEntity> currencyBalances = currencyDataOperator.getAll();
-        for (CurrencyBalanceEntity balance : currencyBalances) {
-            CurrencyDefinition def = currencyManager.getCurrency(balance.getCurrencyId());
-            if (def == null || !def.isBankEnabled()) {
-                continue;
-            }
-            if (balance.getBank() <= 0) {
+        for (CurrencyDefinition def : currencyManager.getAllCurrencies()) {
+            int ordinal = currencyManager.getOrdinal(def.getId());
+            if (!def.isBankEnabled() || ordinal < 0) {
                 continue;
             }
+            offHeapStore.forEach(ordinal, (record, cash, bank) -> {
+                if (bank > 0) {
+                    String uuid = offHeapStore.uuid(record);
+                    double interest = calculateInterest(bank);
+                    economyService.addBank(UUID.fromString(uuid), interest, def.getId());
+                    notifyPlayer(uuid, interest, def.getId());
+                }
+            });
+        }
+    }
 
-            double interest = balance.getBank() * rate;
-            if (maxInterest > 0 && interest > maxInterest) {
-                interest = maxInterest;
-            }
+    private void payInterest(PlayerAccountEntity stored) {
+        PlayerAccountEntity account = balanceCache != null ? balanceCache.resolve(stored) : stored;
+        if (account.getBank() <= 0) {
+            return;
+        }
+        double interest = calculateInterest(account.getBank());
+        economyService.addBank(UUID.fromString(account.getUuid()), interest);
+        notifyPlayer(account.getUuid(), interest);
+    }
 
-            economyService.addBank(UUID.fromString(balance.getUuid()), interest, balance.getCurrencyId());
-            notifyPlayer(balance.getUuid(), interest, balance.getCurrencyId());
+    private void payInterest(CurrencyBalanceEntity stored) {
+        CurrencyBalanceEntity balance = balanceCache != null ? balanceCache.resolve(stored) : stored;
+        CurrencyDefinition def = currencyManager.getCurrency(balance.getCurrencyId());
+        if (def == null || !def.isBankEnabled() || balance.getBank() <= 0) {
+            return;
         }
+        double interest = calculateInterest(balance.getBank());
+        economyService.addBank(UUID.fromString(balance.getUuid()), interest, balance.getCurrencyId());
+        notifyPlayer(balance.getUuid(), interest, balance.getCurrencyId());
     }
 
     /**
@@ -0,0 +1,62 @@
+package com.ultikits.plugins.economy.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the bounded executor that runs economy I/O off the server thread. The pool never
+ * grows past the configured worker count, so the database sees at most that many concurrent
+ * callers, and the queue is capped so a stalled database rejects work instead of piling it up.
+ * Workers are virtual threads on JVMs that support them and daemon platform threads otherwise.
+ */
+public final class IoExecutors {
+
+    public static final int QUEUE_CAPACITY = 10_000;
+
+    private static final String THREAD_PREFIX = "UltiEconomy-IO-";
+
+    private IoExecutors() {
+    }
+
+    public static ExecutorService create(int threads) {
+        int workers = Math.max(1, threads);
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    static ThreadFactory threadFactory() {
+        ThreadFactory virtual = virtualThreadFactory();
+        return virtual != null ? virtual : platformThreadFactory();
+    }
+
+    /**
+     * Looks up {@code Thread.ofVirtual()} reflectively so the plugin still loads on Java 8.
+     * Returns null when the JVM has no virtual threads or they are behind a preview flag.
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method name = builderType.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, THREAD_PREFIX, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, THREAD_PREFIX + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
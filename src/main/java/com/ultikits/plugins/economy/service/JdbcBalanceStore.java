@@ -0,0 +1,341 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.ultitools.annotations.Table;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Applies add and take operations as a single {@code UPDATE ... SET cash = cash + ?} on the
+ * balance tables, so a hot account costs one round trip instead of a read and a full-row
+ * write, and writers on other servers cannot overwrite each other's change. A take is guarded
+ * in the same statement by requiring the result to stay non-negative; whether it went through
+ * is read from the affected-row count. Every statement bumps the row version as well.
+ * <p>
+ * {@link #compareAndSet} writes one whole row only if its version is still the one it was read
+ * at, for optimistic locking across servers.
+ * {@link #update} writes many whole rows as one batch in one transaction, for
+ * {@link GroupCommitRepository}. Both keep each row's {@code total_wealth} in step, and
+ * {@link #indexTotalWealth} prepares that column for database-ordered leaderboards.
+ * {@link #addColumns} gives tables created by older versions the columns every writer needs.
+ * <p>
+ * {@link com.ultikits.ultitools.interfaces.DataOperator} has no way to express either, so the
+ * store talks to the database directly over JDBC, reusing idle connections between calls.
+ * An idle connection is checked before reuse, since the server may have dropped it meanwhile.
+ */
+public class JdbcBalanceStore implements Closeable {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    // Seconds to wait for an idle connection to answer before opening a new one
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    private final ConnectionFactory factory;
+    private final String accountTable;
+    private final String balanceTable;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+
+    public JdbcBalanceStore(ConnectionFactory factory) {
+        this(factory,
+                PlayerAccountEntity.class.getAnnotation(Table.class).value(),
+                CurrencyBalanceEntity.class.getAnnotation(Table.class).value());
+    }
+
+    JdbcBalanceStore(ConnectionFactory factory, String accountTable, String balanceTable) {
+        this.factory = factory;
+        this.accountTable = accountTable;
+        this.balanceTable = balanceTable;
+    }
+
+    /**
+     * Adds {@code delta} to one bucket of a row unless the result would be negative.
+     *
+     * @param currencyId null for the primary account row
+     * @param precision  decimals to round the result to, or negative to leave it unrounded
+     * @return number of rows changed: 1 on success, 0 if the row is missing or lacks funds
+     */
+    public int increment(String uuid, String currencyId, BalanceMutation.Bucket bucket,
+                         double delta, int precision) throws SQLException {
+        String column = bucket == BalanceMutation.Bucket.CASH ? "cash" : "bank";
+        String other = bucket == BalanceMutation.Bucket.CASH ? "bank" : "cash";
+        String result = precision >= 0
+                ? "ROUND(" + column + " + ?, " + precision + ")"
+                : column + " + ?";
+        // total_wealth is set first: MySQL reads columns already assigned earlier in the statement
+        String sql = "UPDATE " + (currencyId == null ? accountTable : balanceTable)
+                + " SET total_wealth = " + result + " + " + other
+                + ", " + column + " = " + result + ", version = version + 1"
+                + " WHERE uuid = ?" + (currencyId == null ? "" : " AND currency_id = ?")
+                + " AND " + result + " >= 0";
+        Connection connection = borrow();
+        int changed;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setDouble(index++, delta);
+            statement.setDouble(index++, delta);
+            statement.setString(index++, uuid);
+            if (currencyId != null) {
+                statement.setString(index++, currencyId);
+            }
+            statement.setDouble(index, delta);
+            changed = statement.executeUpdate();
+        } catch (SQLException e) {
+            // The connection may be broken; open a fresh one next time
+            closeQuietly(connection);
+            throw e;
+        }
+        idle.offer(connection);
+        return changed;
+    }
+
+    /**
+     * Writes the account's cash, bank and total wealth only if its stored version is still
+     * {@code expectedVersion}, bumping the version in the same statement.
+     *
+     * @return false if another writer changed the row first, or the row is missing
+     */
+    public boolean compareAndSet(PlayerAccountEntity account, long expectedVersion) throws SQLException {
+        return compareAndSet(accountTable, account.getUuid(), null,
+                account.getCash(), account.getBank(), expectedVersion);
+    }
+
+    /**
+     * Like {@link #compareAndSet(PlayerAccountEntity, long)} for a currency balance.
+     */
+    public boolean compareAndSet(CurrencyBalanceEntity balance, long expectedVersion) throws SQLException {
+        return compareAndSet(balanceTable, balance.getUuid(), balance.getCurrencyId(),
+                balance.getCash(), balance.getBank(), expectedVersion);
+    }
+
+    private boolean compareAndSet(String table, String uuid, String currencyId,
+                                  double cash, double bank, long expectedVersion) throws SQLException {
+        String sql = "UPDATE " + table
+                + " SET cash = ?, bank = ?, total_wealth = ?, version = version + 1"
+                + " WHERE uuid = ?" + (currencyId == null ? "" : " AND currency_id = ?")
+                + " AND version = ?";
+        Connection connection = borrow();
+        int changed;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setDouble(index++, cash);
+            statement.setDouble(index++, bank);
+            statement.setDouble(index++, cash + bank);
+            statement.setString(index++, uuid);
+            if (currencyId != null) {
+                statement.setString(index++, currencyId);
+            }
+            statement.setLong(index, expectedVersion);
+            changed = statement.executeUpdate();
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        idle.offer(connection);
+        return changed == 1;
+    }
+
+    /**
+     * Writes the cash, bank, total wealth and version of every given row in one transaction, sending each
+     * table's rows as one batch. Rows are matched by player and currency, not by id. Nothing is
+     * written if any row is missing.
+     *
+     * @throws SQLException if the batch fails or a row is missing; the transaction is rolled back
+     */
+    public void update(List<PlayerAccountEntity> accounts, List<CurrencyBalanceEntity> balances) throws SQLException {
+        Connection connection = borrow();
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (!accounts.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement("UPDATE " + accountTable
+                            + " SET cash = ?, bank = ?, total_wealth = ?, version = ? WHERE uuid = ?")) {
+                        for (PlayerAccountEntity account : accounts) {
+                            statement.setDouble(1, account.getCash());
+                            statement.setDouble(2, account.getBank());
+                            statement.setDouble(3, account.getTotalWealth());
+                            statement.setLong(4, account.getVersion());
+                            statement.setString(5, account.getUuid());
+                            statement.addBatch();
+                        }
+                        requireAll(statement.executeBatch(), accountTable);
+                    }
+                }
+                if (!balances.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement("UPDATE " + balanceTable
+                            + " SET cash = ?, bank = ?, total_wealth = ?, version = ? WHERE uuid = ? AND currency_id = ?")) {
+                        for (CurrencyBalanceEntity balance : balances) {
+                            statement.setDouble(1, balance.getCash());
+                            statement.setDouble(2, balance.getBank());
+                            statement.setDouble(3, balance.getTotalWealth());
+                            statement.setLong(4, balance.getVersion());
+                            statement.setString(5, balance.getUuid());
+                            statement.setString(6, balance.getCurrencyId());
+                            statement.addBatch();
+                        }
+                        requireAll(statement.executeBatch(), balanceTable);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        idle.offer(connection);
+    }
+
+    /**
+     * Adds the {@code version} and {@code total_wealth} columns to tables created before they
+     * existed, since the ORM only creates tables that are missing and both columns are written
+     * by every row write. Safe to run on every startup.
+     */
+    public void addColumns() throws SQLException {
+        Connection connection = borrow();
+        try {
+            DatabaseMetaData metadata = connection.getMetaData();
+            try (Statement statement = connection.createStatement()) {
+                for (String table : new String[] {accountTable, balanceTable}) {
+                    addColumn(statement, metadata, table, "version", "BIGINT NOT NULL DEFAULT 0");
+                    addColumn(statement, metadata, table, "total_wealth", "DOUBLE NOT NULL DEFAULT 0");
+                }
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        idle.offer(connection);
+    }
+
+    /**
+     * Adds the {@code total_wealth} column to tables created before it existed, fills it in
+     * for rows written before it was kept, and indexes it, per currency on the balance table.
+     * Safe to run on every startup.
+     *
+     * @return number of rows whose total wealth was filled in
+     */
+    public int indexTotalWealth() throws SQLException {
+        Connection connection = borrow();
+        int filled;
+        try {
+            filled = indexTotalWealth(connection, accountTable, "total_wealth")
+                    + indexTotalWealth(connection, balanceTable, "currency_id, total_wealth");
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        idle.offer(connection);
+        return filled;
+    }
+
+    private static int indexTotalWealth(Connection connection, String table, String columns) throws SQLException {
+        DatabaseMetaData metadata = connection.getMetaData();
+        String index = "idx_" + table + "_wealth";
+        try (Statement statement = connection.createStatement()) {
+            addColumn(statement, metadata, table, "total_wealth", "DOUBLE NOT NULL DEFAULT 0");
+            int filled = statement.executeUpdate("UPDATE " + table + " SET total_wealth = cash + bank"
+                    + " WHERE total_wealth IS NULL OR total_wealth <> cash + bank");
+            if (!hasIndex(metadata, table, index)) {
+                statement.executeUpdate("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+            }
+            return filled;
+        }
+    }
+
+    private static void addColumn(Statement statement, DatabaseMetaData metadata, String table,
+                                  String column, String type) throws SQLException {
+        if (!hasColumn(metadata, table, column)) {
+            statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    private static boolean hasColumn(DatabaseMetaData metadata, String table, String column) throws SQLException {
+        for (String name : spellings(table)) {
+            try (ResultSet columns = metadata.getColumns(null, null, name, null)) {
+                while (columns.next()) {
+                    if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasIndex(DatabaseMetaData metadata, String table, String index) throws SQLException {
+        for (String name : spellings(table)) {
+            try (ResultSet indexes = metadata.getIndexInfo(null, null, name, false, true)) {
+                while (indexes.next()) {
+                    if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Table names as databases may report them: as written, upper case, or lower case.
+     */
+    private static String[] spellings(String table) {
+        return new String[] {table, table.toUpperCase(Locale.ROOT), table.toLowerCase(Locale.ROOT)};
+    }
+
+    private static void requireAll(int[] counts, String table) throws SQLException {
+        for (int count : counts) {
+            // Drivers may report success without a count
+            if (count == 0) {
+                throw new SQLException("A batched row is missing from " + table);
+            }
+        }
+    }
+
+    private Connection borrow() throws SQLException {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            // The server closes connections idle past its timeout, e.g. MySQL's wait_timeout
+            if (connection.isValid(VALIDATION_TIMEOUT)) {
+                return connection;
+            }
+            closeQuietly(connection);
+        }
+        return factory.open();
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Nothing left to do with a connection that fails to close
+        }
+    }
+}
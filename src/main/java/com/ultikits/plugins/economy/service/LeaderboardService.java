@@ -4,29 +4,45 @@ import com.ultikits.plugins.economy.UltiEconomy;
 import com.ultikits.plugins.economy.config.EconomyConfig;
 import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
 import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.CurrencyDefinition;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.annotations.Service;
 import com.ultikits.ultitools.interfaces.DataOperator;
 import lombok.Getter;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntSupplier;
 
 @Service
 public class LeaderboardService {
 
     private EconomyConfig config;
-    private DataOperator<PlayerAccountEntity> dataOperator;
-    private DataOperator<CurrencyBalanceEntity> currencyDataOperator;
+    private BalanceRepository repository;
     private CurrencyManager currencyManager;
-    private volatile List<LeaderboardEntry> cachedLeaderboard = Collections.emptyList();
-    private volatile Map<String, List<LeaderboardEntry>> currencyLeaderboards = Collections.emptyMap();
+    private BalanceCache balanceCache;
+    private OffHeapBalanceStore offHeapStore;
+    private LiveLeaderboards live;
+    private DatabaseLeaderboard database;
+    private Executor ioExecutor;
+    private volatile Rankings rankings = Rankings.EMPTY;
+    private volatile Boards boards = Boards.EMPTY;
+    // Ranks looked up in storage since the last refresh, by uuid or balance key; replaced on every publish
+    private volatile Map<String, Integer> lookedUpRanks = new ConcurrentHashMap<>();
 
     public LeaderboardService(UltiToolsPlugin plugin) {
         this.config = plugin.getConfig(EconomyConfig.class);
-        this.dataOperator = plugin.getDataOperator(PlayerAccountEntity.class);
-        this.currencyDataOperator = plugin.getDataOperator(CurrencyBalanceEntity.class);
+        this.repository = ((UltiEconomy) plugin).getBalanceRepository();
         this.currencyManager = ((UltiEconomy) plugin).getCurrencyManager();
+        if (config.isCacheEnabled()) {
+            this.balanceCache = ((UltiEconomy) plugin).getBalanceCache();
+        }
+        this.offHeapStore = ((UltiEconomy) plugin).getOffHeapStore();
+        this.live = ((UltiEconomy) plugin).getLiveLeaderboards();
+        this.database = ((UltiEconomy) plugin).getDatabaseLeaderboard();
+        this.ioExecutor = ((UltiEconomy) plugin).getIoExecutor();
     }
 
     @SuppressWarnings("all")
@@ -40,88 +56,257 @@ public class LeaderboardService {
             sun.misc.Unsafe unsafe = (sun.misc.Unsafe) f.get(null);
             LeaderboardService svc = (LeaderboardService) unsafe.allocateInstance(LeaderboardService.class);
             svc.config = config;
-            svc.dataOperator = dataOperator;
-            svc.currencyDataOperator = currencyDataOperator;
+            svc.repository = new SplitTableRepository(dataOperator, currencyDataOperator);
             svc.currencyManager = currencyManager;
             // Field initializers don't run with allocateInstance
-            java.lang.reflect.Field cl = LeaderboardService.class.getDeclaredField("cachedLeaderboard");
-            cl.setAccessible(true);
-            cl.set(svc, java.util.Collections.emptyList());
-            java.lang.reflect.Field clb = LeaderboardService.class.getDeclaredField("currencyLeaderboards");
-            clb.setAccessible(true);
-            clb.set(svc, java.util.Collections.emptyMap());
+            java.lang.reflect.Field b = LeaderboardService.class.getDeclaredField("boards");
+            b.setAccessible(true);
+            b.set(svc, Boards.EMPTY);
+            java.lang.reflect.Field dr = LeaderboardService.class.getDeclaredField("lookedUpRanks");
+            dr.setAccessible(true);
+            dr.set(svc, new ConcurrentHashMap<>());
+            java.lang.reflect.Field r = LeaderboardService.class.getDeclaredField("rankings");
+            r.setAccessible(true);
+            r.set(svc, Rankings.EMPTY);
             return svc;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    void setOffHeapStore(OffHeapBalanceStore offHeapStore) {
+        this.offHeapStore = offHeapStore;
+    }
+
+    void setLiveLeaderboards(LiveLeaderboards live) {
+        this.live = live;
+    }
+
+    void setDatabaseLeaderboard(DatabaseLeaderboard database) {
+        this.database = database;
+    }
+
+    void setIoExecutor(Executor ioExecutor) {
+        this.ioExecutor = ioExecutor;
+    }
+
     /**
-     * Refreshes the leaderboard cache from the database.
+     * Refreshes the primary leaderboard and every currency's.
      * Called periodically by the scheduled task in the main plugin.
+     * <p>
+     * Builds every leaderboard first and publishes them all together, in every mode, so
+     * readers never mix the primary leaderboard of one refresh with a currency's from another.
+     * Outside the off-heap and database modes it walks every player once, sharing out their
+     * balances to the currency leaderboards as it goes.
+     */
+    public void refreshAll() {
+        if (currencyManager == null) {
+            refreshLeaderboard();
+            return;
+        }
+        if (offHeapStore != null) {
+            Map<String, OffHeapBalanceStore.Ranking> ranked = new HashMap<>();
+            for (CurrencyDefinition currency : currencyManager.getAllCurrencies()) {
+                int ordinal = currencyManager.getOrdinal(currency.getId());
+                if (ordinal >= 0) {
+                    ranked.put(currency.getId(), offHeapStore.rank(ordinal));
+                }
+            }
+            rankings = new Rankings(offHeapStore.rank(OffHeapBalanceStore.ACCOUNT),
+                    Collections.unmodifiableMap(ranked));
+            return;
+        }
+        if (database != null) {
+            Map<String, LeaderboardSnapshot> pages = new HashMap<>();
+            for (CurrencyDefinition currency : currencyManager.getAllCurrencies()) {
+                pages.put(currency.getId(),
+                        new LeaderboardSnapshot(database.page(currency.getId(), 0, databaseDepth())));
+            }
+            publish(new Boards(new LeaderboardSnapshot(database.page(null, 0, databaseDepth())),
+                    Collections.unmodifiableMap(pages)));
+            return;
+        }
+        Board accounts = new Board();
+        Map<String, Board> currencies = new LinkedHashMap<>();
+        for (CurrencyDefinition currency : currencyManager.getAllCurrencies()) {
+            currencies.put(currency.getId(), new Board());
+        }
+        repository.forEachPlayer((stored, balances) -> {
+            String name = null;
+            if (stored != null) {
+                PlayerAccountEntity a = balanceCache != null ? balanceCache.resolve(stored) : stored;
+                name = a.getPlayerName();
+                accounts.offer(a.getUuid(), name, a.getTotalWealth());
+            }
+            for (CurrencyBalanceEntity storedBalance : balances) {
+                Board board = currencies.get(storedBalance.getCurrencyId());
+                if (board == null) {
+                    continue;
+                }
+                CurrencyBalanceEntity b = balanceCache != null ? balanceCache.resolve(storedBalance) : storedBalance;
+                board.offer(b.getUuid(), name != null ? name : b.getUuid(), b.getTotalWealth());
+            }
+        });
+        if (live != null) {
+            LiveLeaderboard loadedAccounts = new LiveLeaderboard();
+            accounts.load(loadedAccounts);
+            Map<String, LiveLeaderboard> loaded = new HashMap<>();
+            currencies.forEach((id, board) -> {
+                LiveLeaderboard l = new LiveLeaderboard();
+                board.load(l);
+                loaded.put(id, l);
+            });
+            live.replaceAll(loadedAccounts, loaded);
+            return;
+        }
+        Map<String, LeaderboardSnapshot> snapshots = new HashMap<>();
+        currencies.forEach((id, board) -> snapshots.put(id, board.toSnapshot()));
+        publish(new Boards(accounts.toSnapshot(), Collections.unmodifiableMap(snapshots)));
+    }
+
+    /**
+     * Refreshes the leaderboard cache from the database.
+     * With the off-heap store the ranking is built there and entries are only made for the
+     * rows actually shown. Live leaderboards are reloaded in place, repairing what their
+     * updates missed; a balance written during the reload may show its old value until it
+     * next changes. With {@code leaderboard.top-k} set, only the richest K are kept.
+     * In database mode only the first rows, in database order, are read.
      */
     public void refreshLeaderboard() {
-        List<PlayerAccountEntity> accounts = dataOperator.getAll();
-        cachedLeaderboard = accounts.stream()
-                .map(a -> new LeaderboardEntry(a.getUuid(), a.getPlayerName(), a.getTotalWealth()))
-                .sorted(Comparator.comparingDouble(LeaderboardEntry::getTotalWealth).reversed())
-                .collect(Collectors.toList());
+        if (offHeapStore != null) {
+            publishRanking(null, offHeapStore.rank(OffHeapBalanceStore.ACCOUNT));
+            return;
+        }
+        if (database != null) {
+            publishAccounts(new LeaderboardSnapshot(database.page(null, 0, databaseDepth())));
+            return;
+        }
+        Board board = new Board();
+        for (PlayerAccountEntity stored : repository.allAccounts()) {
+            PlayerAccountEntity a = balanceCache != null ? balanceCache.resolve(stored) : stored;
+            board.offer(a.getUuid(), a.getPlayerName(), a.getTotalWealth());
+        }
+        if (live != null) {
+            board.load(live.accounts());
+            return;
+        }
+        publishAccounts(board.toSnapshot());
     }
 
     /**
      * Refreshes the leaderboard cache for a specific currency.
-     * Builds a UUID→playerName map from primary accounts, then filters
-     * currency balances by currencyId and sorts by total wealth.
+     * Walks every player once, taking the name from their primary account,
+     * and sorts their balance in this currency by total wealth.
      */
     public void refreshCurrencyLeaderboard(String currencyId) {
-        if (currencyDataOperator == null) {
+        if (offHeapStore != null && currencyManager != null) {
+            int ordinal = currencyManager.getOrdinal(currencyId);
+            if (ordinal >= 0) {
+                publishRanking(currencyId, offHeapStore.rank(ordinal));
+                return;
+            }
+        }
+        if (database != null) {
+            publishCurrency(currencyId, new LeaderboardSnapshot(database.page(currencyId, 0, databaseDepth())));
+            return;
+        }
+        Board board = new Board();
+        repository.forEachPlayer((account, balances) -> {
+            for (CurrencyBalanceEntity stored : balances) {
+                if (!currencyId.equals(stored.getCurrencyId())) {
+                    continue;
+                }
+                CurrencyBalanceEntity b = balanceCache != null ? balanceCache.resolve(stored) : stored;
+                String name = account != null ? account.getPlayerName() : b.getUuid();
+                board.offer(b.getUuid(), name, b.getTotalWealth());
+            }
+        });
+        if (live != null) {
+            board.load(live.currency(currencyId));
             return;
         }
+        publishCurrency(currencyId, board.toSnapshot());
+    }
+
+    /**
+     * Rows kept from the database per leaderboard: enough for the default display and,
+     * when {@code leaderboard.top-k} is set, for the richest K.
+     */
+    private int databaseDepth() {
+        return Math.max(1, Math.max(config.getLeaderboardDisplayCount(), config.getLeaderboardTopK()));
+    }
 
-        // Build UUID → playerName map from primary accounts
-        Map<String, String> nameMap = new HashMap<>();
-        for (PlayerAccountEntity account : dataOperator.getAll()) {
-            nameMap.put(account.getUuid(), account.getPlayerName());
+    /**
+     * @param currencyId null for the primary account
+     */
+    private synchronized void publishRanking(String currencyId, OffHeapBalanceStore.Ranking ranking) {
+        Rankings current = rankings;
+        if (currencyId == null) {
+            rankings = new Rankings(ranking, current.currencies);
+            return;
         }
+        Map<String, OffHeapBalanceStore.Ranking> updated = new HashMap<>(current.currencies);
+        updated.put(currencyId, ranking);
+        rankings = new Rankings(current.accounts, Collections.unmodifiableMap(updated));
+    }
+
+    private synchronized void publish(Boards published) {
+        boards = published;
+        lookedUpRanks = new ConcurrentHashMap<>();
+    }
 
-        List<CurrencyBalanceEntity> balances = currencyDataOperator.getAll();
-        List<LeaderboardEntry> entries = balances.stream()
-                .filter(b -> currencyId.equals(b.getCurrencyId()))
-                .map(b -> new LeaderboardEntry(
-                        b.getUuid(),
-                        nameMap.getOrDefault(b.getUuid(), b.getUuid()),
-                        b.getTotalWealth()))
-                .sorted(Comparator.comparingDouble(LeaderboardEntry::getTotalWealth).reversed())
-                .collect(Collectors.toList());
+    private synchronized void publishAccounts(LeaderboardSnapshot snapshot) {
+        boards = new Boards(snapshot, boards.currencies);
+        lookedUpRanks = new ConcurrentHashMap<>();
+    }
 
-        Map<String, List<LeaderboardEntry>> updated = new HashMap<>(currencyLeaderboards);
-        updated.put(currencyId, entries);
-        currencyLeaderboards = Collections.unmodifiableMap(updated);
+    private synchronized void publishCurrency(String currencyId, LeaderboardSnapshot snapshot) {
+        Map<String, LeaderboardSnapshot> updated = new HashMap<>(boards.currencies);
+        updated.put(currencyId, snapshot);
+        boards = new Boards(boards.accounts, Collections.unmodifiableMap(updated));
+        lookedUpRanks = new ConcurrentHashMap<>();
     }
 
     /**
      * Returns the top N players from the cached leaderboard.
      */
     public List<LeaderboardEntry> getTopPlayers(int count) {
-        List<LeaderboardEntry> snapshot = cachedLeaderboard;
-        if (count >= snapshot.size()) {
-            return new ArrayList<>(snapshot);
+        OffHeapBalanceStore.Ranking ranking = rankings.accounts;
+        if (ranking != null) {
+            return top(ranking, count);
         }
-        return new ArrayList<>(snapshot.subList(0, count));
+        if (live != null) {
+            return live.accounts().top(count);
+        }
+        return boards.accounts.top(count);
     }
 
     /**
-     * Returns a player's 1-based rank, or -1 if not found.
+     * Returns a player's 1-based rank, or -1 if not found. Constant-time without allocating
+     * when served from a published snapshot. Players outside a top-K snapshot get a rank
+     * estimated from their wealth, read on the I/O executor once per refresh and -1 until
+     * then; in database mode, one counted by the database the same way.
      */
     public int getPlayerRank(UUID playerUuid) {
-        String uuidStr = playerUuid.toString();
-        List<LeaderboardEntry> snapshot = cachedLeaderboard;
-        for (int i = 0; i < snapshot.size(); i++) {
-            if (uuidStr.equals(snapshot.get(i).getUuid())) {
-                return i + 1;
-            }
+        OffHeapBalanceStore.Ranking ranking = rankings.accounts;
+        if (ranking != null) {
+            return rank(ranking, playerUuid);
         }
-        return -1;
+        if (live != null) {
+            return live.accounts().rankOf(playerUuid.toString());
+        }
+        LeaderboardSnapshot snapshot = boards.accounts;
+        int rank = snapshot.rankOf(playerUuid);
+        if (rank > 0) {
+            return rank;
+        }
+        if (database != null) {
+            return databaseRank(playerUuid.toString(), null);
+        }
+        if (!snapshot.isTruncated()) {
+            return rank;
+        }
+        return estimateRank(snapshot, playerUuid.toString(), null);
     }
 
     /**
@@ -129,33 +314,158 @@ public class LeaderboardService {
      * Falls back to primary leaderboard if no per-currency data available.
      */
     public List<LeaderboardEntry> getTopPlayers(int count, String currencyId) {
-        List<LeaderboardEntry> snapshot = currencyLeaderboards.getOrDefault(currencyId, Collections.emptyList());
+        OffHeapBalanceStore.Ranking ranking = rankings.currencies.get(currencyId);
+        if (ranking != null && ranking.size() > 0) {
+            return top(ranking, count);
+        }
+        if (live != null) {
+            LiveLeaderboard board = live.find(currencyId);
+            return board != null && board.size() > 0 ? board.top(count) : getTopPlayers(count);
+        }
+        LeaderboardSnapshot snapshot = boards.currencies.getOrDefault(currencyId, LeaderboardSnapshot.EMPTY);
         if (snapshot.isEmpty()) {
             return getTopPlayers(count);
         }
-        if (count >= snapshot.size()) {
-            return new ArrayList<>(snapshot);
-        }
-        return new ArrayList<>(snapshot.subList(0, count));
+        return snapshot.top(count);
     }
 
     /**
      * Returns a player's 1-based rank for a specific currency, or -1 if not found.
      */
     public int getPlayerRank(UUID playerUuid, String currencyId) {
-        String uuidStr = playerUuid.toString();
-        List<LeaderboardEntry> snapshot = currencyLeaderboards.getOrDefault(currencyId, Collections.emptyList());
+        OffHeapBalanceStore.Ranking ranking = rankings.currencies.get(currencyId);
+        if (ranking != null && ranking.size() > 0) {
+            return rank(ranking, playerUuid);
+        }
+        if (live != null) {
+            LiveLeaderboard board = live.find(currencyId);
+            return board != null && board.size() > 0
+                    ? board.rankOf(playerUuid.toString()) : getPlayerRank(playerUuid);
+        }
+        LeaderboardSnapshot snapshot = boards.currencies.getOrDefault(currencyId, LeaderboardSnapshot.EMPTY);
         if (snapshot.isEmpty()) {
             return getPlayerRank(playerUuid);
         }
-        for (int i = 0; i < snapshot.size(); i++) {
-            if (uuidStr.equals(snapshot.get(i).getUuid())) {
-                return i + 1;
+        int rank = snapshot.rankOf(playerUuid);
+        if (rank > 0) {
+            return rank;
+        }
+        if (database != null) {
+            return databaseRank(playerUuid.toString(), currencyId);
+        }
+        if (!snapshot.isTruncated()) {
+            return rank;
+        }
+        return estimateRank(snapshot, playerUuid.toString(), currencyId);
+    }
+
+    /**
+     * Returns one page of a leaderboard, {@code leaderboard.display-count} entries long,
+     * richest first; pages start at 1. In database mode the page is read from the database,
+     * so call it off the server thread.
+     *
+     * @param currencyId null for the primary leaderboard
+     */
+    public List<LeaderboardEntry> getPage(int page, String currencyId) {
+        int size = Math.max(1, config.getLeaderboardDisplayCount());
+        long offset = (Math.max(1, page) - 1L) * size;
+        if (offset + size > Integer.MAX_VALUE) {
+            return new ArrayList<>();
+        }
+        if (database != null) {
+            return database.page(currencyId, (int) offset, size);
+        }
+        int end = (int) offset + size;
+        List<LeaderboardEntry> top = currencyId == null ? getTopPlayers(end) : getTopPlayers(end, currencyId);
+        return offset >= top.size() ? new ArrayList<>() : new ArrayList<>(top.subList((int) offset, top.size()));
+    }
+
+    /**
+     * Places a player left off a top-K snapshot by their wealth, once per refresh.
+     */
+    private int estimateRank(LeaderboardSnapshot snapshot, String uuid, String currencyId) {
+        return lookedUpRank(currencyId == null ? uuid : BalanceCache.balanceKey(uuid, currencyId), () -> {
+            double wealth = wealthOf(uuid, currencyId);
+            return Double.isNaN(wealth) ? -1 : snapshot.estimateRank(wealth);
+        });
+    }
+
+    /**
+     * Returns the rank kept under {@code key} since the last refresh, or looks it up with
+     * {@code lookup}, which reads storage. With an I/O executor the lookup runs there and -1
+     * is returned until it is done, so placeholders never wait on storage on the server thread.
+     */
+    private int lookedUpRank(String key, IntSupplier lookup) {
+        Map<String, Integer> ranks = lookedUpRanks;
+        Integer cached = ranks.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (ioExecutor == null) {
+            int rank = lookup.getAsInt();
+            ranks.put(key, rank);
+            return rank;
+        }
+        // The placeholder -1 also keeps later calls from queuing the same lookup
+        if (ranks.putIfAbsent(key, -1) == null) {
+            try {
+                ioExecutor.execute(() -> {
+                    try {
+                        ranks.put(key, lookup.getAsInt());
+                    } catch (RuntimeException e) {
+                        ranks.remove(key, -1);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                ranks.remove(key, -1);
             }
         }
         return -1;
     }
 
+    /**
+     * Counts the player's rank in the database once per refresh, on the I/O executor.
+     */
+    private int databaseRank(String uuid, String currencyId) {
+        return lookedUpRank(currencyId == null ? uuid : BalanceCache.balanceKey(uuid, currencyId), () -> {
+            double wealth = wealthOf(uuid, currencyId);
+            return Double.isNaN(wealth) ? -1 : database.rankOf(currencyId, wealth);
+        });
+    }
+
+    /**
+     * Returns the player's current total wealth, or NaN if they have no such balance.
+     *
+     * @param currencyId null for the primary account
+     */
+    private double wealthOf(String uuid, String currencyId) {
+        if (currencyId == null) {
+            PlayerAccountEntity account = balanceCache != null
+                    ? balanceCache.getAccount(uuid) : repository.findAccount(uuid);
+            return account != null ? account.getTotalWealth() : Double.NaN;
+        }
+        CurrencyBalanceEntity balance = balanceCache != null
+                ? balanceCache.getBalance(uuid, currencyId) : repository.findBalance(uuid, currencyId);
+        return balance != null ? balance.getTotalWealth() : Double.NaN;
+    }
+
+    private List<LeaderboardEntry> top(OffHeapBalanceStore.Ranking ranking, int count) {
+        int shown = Math.min(count, ranking.size());
+        List<LeaderboardEntry> entries = new ArrayList<>(shown);
+        for (int i = 0; i < shown; i++) {
+            int record = ranking.record(i);
+            String uuid = offHeapStore.uuid(record);
+            String name = offHeapStore.playerName(record);
+            entries.add(new LeaderboardEntry(uuid, name != null ? name : uuid, ranking.wealth(i)));
+        }
+        return entries;
+    }
+
+    private int rank(OffHeapBalanceStore.Ranking ranking, UUID playerUuid) {
+        int position = ranking.positionOf(offHeapStore.find(playerUuid.toString()));
+        return position < 0 ? -1 : position + 1;
+    }
+
     /**
      * Returns the configured default display count.
      */
@@ -163,6 +473,71 @@ public class LeaderboardService {
         return config.getLeaderboardDisplayCount();
     }
 
+    /**
+     * The published leaderboards, replaced as a whole on every refresh.
+     */
+    private static final class Boards {
+        private static final Boards EMPTY = new Boards(LeaderboardSnapshot.EMPTY, Collections.emptyMap());
+
+        private final LeaderboardSnapshot accounts;
+        private final Map<String, LeaderboardSnapshot> currencies;
+
+        private Boards(LeaderboardSnapshot accounts, Map<String, LeaderboardSnapshot> currencies) {
+            this.accounts = accounts;
+            this.currencies = currencies;
+        }
+    }
+
+    /**
+     * The off-heap rankings, the primary one null until first built.
+     */
+    private static final class Rankings {
+        private static final Rankings EMPTY = new Rankings(null, Collections.emptyMap());
+
+        private final OffHeapBalanceStore.Ranking accounts;
+        private final Map<String, OffHeapBalanceStore.Ranking> currencies;
+
+        private Rankings(OffHeapBalanceStore.Ranking accounts, Map<String, OffHeapBalanceStore.Ranking> currencies) {
+            this.accounts = accounts;
+            this.currencies = currencies;
+        }
+    }
+
+    /**
+     * Gathers one leaderboard's entries during a refresh: every entry for a live leaderboard
+     * or a full snapshot, or only the richest K when {@code leaderboard.top-k} is set.
+     */
+    private final class Board {
+        private final TopKSelector selector;
+        private final List<LeaderboardEntry> entries;
+
+        private Board() {
+            int topK = live == null ? config.getLeaderboardTopK() : 0;
+            this.selector = topK > 0 ? new TopKSelector(topK) : null;
+            this.entries = topK > 0 ? null : new ArrayList<>();
+        }
+
+        private void offer(String uuid, String playerName, double wealth) {
+            if (selector != null) {
+                selector.offer(uuid, playerName, wealth);
+            } else {
+                entries.add(new LeaderboardEntry(uuid, playerName, wealth));
+            }
+        }
+
+        private LeaderboardSnapshot toSnapshot() {
+            if (selector != null) {
+                return selector.toSnapshot();
+            }
+            entries.sort(Comparator.comparingDouble(LeaderboardEntry::getTotalWealth).reversed());
+            return new LeaderboardSnapshot(entries);
+        }
+
+        private void load(LiveLeaderboard board) {
+            board.replaceAll(entries);
+        }
+    }
+
     @Getter
     public static class LeaderboardEntry {
         private final String uuid;
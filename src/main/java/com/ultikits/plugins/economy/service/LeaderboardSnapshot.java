@@ -0,0 +1,135 @@
+package com.ultikits.plugins.economy.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A published, immutable leaderboard: the entries richest first, and an index from each
+ * player's uuid to their rank built when the snapshot is made, so rank lookups for
+ * placeholders are constant-time and allocate nothing. A top-K snapshot lists only the
+ * richest K and keeps a {@link WealthHistogram} of everyone to estimate the other ranks.
+ * <p>
+ * The index is an open-addressing table keyed by the uuid's two longs, held in primitive
+ * arrays with linear probing. Entries whose uuid does not parse are listed but not indexed.
+ */
+public final class LeaderboardSnapshot {
+
+    public static final LeaderboardSnapshot EMPTY = new LeaderboardSnapshot(Collections.emptyList());
+
+    private final List<LeaderboardService.LeaderboardEntry> entries;
+    private final WealthHistogram histogram;
+    // Slot i holds the uuid in keys[2i] and keys[2i + 1], and its 1-based rank, 0 when empty
+    private final long[] keys;
+    private final int[] ranks;
+    private final int mask;
+
+    /**
+     * @param sorted entries richest first; the first entry for a uuid decides its rank
+     */
+    public LeaderboardSnapshot(List<LeaderboardService.LeaderboardEntry> sorted) {
+        this(sorted, null);
+    }
+
+    /**
+     * @param sorted    the richest entries, richest first
+     * @param histogram every player's wealth, including those listed; null when all are listed
+     */
+    public LeaderboardSnapshot(List<LeaderboardService.LeaderboardEntry> sorted, WealthHistogram histogram) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(sorted));
+        this.histogram = histogram;
+        int capacity = 2;
+        while (capacity < sorted.size() + (sorted.size() >> 1) + 1) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity * 2];
+        this.ranks = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < sorted.size(); i++) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(sorted.get(i).getUuid());
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            index(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), i + 1);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Whether players were left off the list, so a missing uuid may still have a rank.
+     */
+    public boolean isTruncated() {
+        return histogram != null && histogram.getTotal() > entries.size();
+    }
+
+    /**
+     * Estimates the rank of an unlisted player from their wealth, never placing them inside
+     * the listed entries; -1 when the snapshot is not truncated.
+     */
+    public int estimateRank(double wealth) {
+        if (!isTruncated()) {
+            return -1;
+        }
+        long estimate = Math.max(entries.size() + 1L, histogram.estimateRank(wealth));
+        return (int) Math.min(histogram.getTotal(), estimate);
+    }
+
+    /**
+     * Returns the richest {@code count} players, richest first.
+     */
+    public List<LeaderboardService.LeaderboardEntry> top(int count) {
+        if (count >= entries.size()) {
+            return new ArrayList<>(entries);
+        }
+        return new ArrayList<>(entries.subList(0, Math.max(0, count)));
+    }
+
+    /**
+     * Returns the player's 1-based rank, or -1 if they are not on the leaderboard.
+     */
+    public int rankOf(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int slot = slot(msb, lsb); ; slot = (slot + 1) & mask) {
+            int rank = ranks[slot];
+            if (rank == 0) {
+                return -1;
+            }
+            if (keys[slot * 2] == msb && keys[slot * 2 + 1] == lsb) {
+                return rank;
+            }
+        }
+    }
+
+    private void index(long msb, long lsb, int rank) {
+        int slot = slot(msb, lsb);
+        while (ranks[slot] != 0) {
+            if (keys[slot * 2] == msb && keys[slot * 2 + 1] == lsb) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot * 2] = msb;
+        keys[slot * 2 + 1] = lsb;
+        ranks[slot] = rank;
+    }
+
+    private int slot(long msb, long lsb) {
+        // Random uuids are already well mixed; the finalizer guards against sequential ones
+        long h = msb * 31 + lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
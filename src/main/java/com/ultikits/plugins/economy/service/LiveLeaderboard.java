@@ -0,0 +1,289 @@
+package com.ultikits.plugins.economy.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One leaderboard kept in order as balances change, instead of being re-sorted from a full
+ * table read. Entries live in a treap ordered richest first, ties by uuid, where every node
+ * knows the size of its subtree, so a balance change, a player's rank and the top N are all
+ * O(log n), plus N for the top N.
+ * <p>
+ * All methods synchronize on the leaderboard and hold the lock for one O(log n) walk.
+ * {@link #replaceAll} sorts the entries in O(n log n) and builds the new tree in O(n)
+ * without the lock, then only takes it to swap the tree in.
+ */
+public class LiveLeaderboard {
+
+    private static final class Node {
+        private final String uuid;
+        private String playerName;
+        private double wealth;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(String uuid, String playerName, double wealth, int priority) {
+            this.uuid = uuid;
+            this.playerName = playerName;
+            this.wealth = wealth;
+            this.priority = priority;
+        }
+    }
+
+    private Map<String, Node> nodes = new HashMap<>();
+    private Node root;
+    private int seed = 0x2545F491;
+    // Results of split; only touched while holding the leaderboard's lock
+    private Node splitLeft;
+    private Node splitRight;
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the name recorded for the player, or null if they are not on the leaderboard
+     */
+    public synchronized String nameOf(String uuid) {
+        Node node = nodes.get(uuid);
+        return node != null ? node.playerName : null;
+    }
+
+    /**
+     * Adds the player or moves them to their new wealth.
+     *
+     * @param playerName null to keep the recorded name, or the uuid for a new player
+     */
+    public synchronized void put(String uuid, String playerName, double wealth) {
+        Node node = nodes.get(uuid);
+        if (node != null) {
+            if (playerName != null) {
+                node.playerName = playerName;
+            }
+            if (node.wealth == wealth) {
+                return;
+            }
+            root = erase(root, node);
+            node.wealth = wealth;
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+        } else {
+            node = new Node(uuid, playerName != null ? playerName : uuid, wealth, nextPriority());
+            nodes.put(uuid, node);
+        }
+        root = insert(root, node);
+    }
+
+    /**
+     * Moves a player already on the leaderboard by {@code delta}; does nothing for others.
+     */
+    public synchronized void add(String uuid, double delta) {
+        Node node = nodes.get(uuid);
+        if (node != null) {
+            put(uuid, null, node.wealth + delta);
+        }
+    }
+
+    public synchronized boolean remove(String uuid) {
+        Node node = nodes.remove(uuid);
+        if (node == null) {
+            return false;
+        }
+        root = erase(root, node);
+        return true;
+    }
+
+    /**
+     * Returns a player's 1-based rank, or -1 if they are not on the leaderboard.
+     */
+    public synchronized int rankOf(String uuid) {
+        Node node = nodes.get(uuid);
+        if (node == null) {
+            return -1;
+        }
+        int before = 0;
+        Node t = root;
+        while (t != null) {
+            int cmp = compare(node, t);
+            if (cmp < 0) {
+                t = t.left;
+            } else if (cmp > 0) {
+                before += size(t.left) + 1;
+                t = t.right;
+            } else {
+                return before + size(t.left) + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the richest {@code count} players, richest first.
+     */
+    public synchronized List<LeaderboardService.LeaderboardEntry> top(int count) {
+        int shown = Math.max(0, Math.min(count, nodes.size()));
+        List<LeaderboardService.LeaderboardEntry> entries = new ArrayList<>(shown);
+        Deque<Node> path = new ArrayDeque<>();
+        Node t = root;
+        while (entries.size() < shown) {
+            while (t != null) {
+                path.push(t);
+                t = t.left;
+            }
+            Node next = path.pop();
+            entries.add(new LeaderboardService.LeaderboardEntry(next.uuid, next.playerName, next.wealth));
+            t = next.right;
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces every entry, repairing whatever the live updates missed, such as rows other
+     * servers wrote. A later entry for the same uuid wins. Updates made while the new tree is
+     * built are lost with the old one; the entries are assumed to be read after them.
+     */
+    public void replaceAll(Collection<LeaderboardService.LeaderboardEntry> entries) {
+        // Built off the lock from fresh nodes, so readers keep the old tree until the swap
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Node> latest = new HashMap<>();
+        for (LeaderboardService.LeaderboardEntry entry : entries) {
+            latest.put(entry.getUuid(), new Node(entry.getUuid(), entry.getPlayerName(),
+                    entry.getTotalWealth(), random.nextInt()));
+        }
+        List<Node> sorted = new ArrayList<>(latest.values());
+        sorted.sort(LiveLeaderboard::compare);
+
+        // Build the treap over the sorted nodes in one pass, keeping the right spine on a stack
+        Deque<Node> spine = new ArrayDeque<>();
+        for (Node node : sorted) {
+            Node popped = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                popped = spine.pop();
+                resize(popped);
+            }
+            node.left = popped;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+        Node top = null;
+        while (!spine.isEmpty()) {
+            top = spine.pop();
+            resize(top);
+        }
+        synchronized (this) {
+            nodes = latest;
+            root = top;
+        }
+    }
+
+    private Node insert(Node t, Node node) {
+        if (t == null) {
+            return node;
+        }
+        if (node.priority > t.priority) {
+            split(t, node);
+            node.left = splitLeft;
+            node.right = splitRight;
+            splitLeft = null;
+            splitRight = null;
+            resize(node);
+            return node;
+        }
+        if (compare(node, t) < 0) {
+            t.left = insert(t.left, node);
+        } else {
+            t.right = insert(t.right, node);
+        }
+        resize(t);
+        return t;
+    }
+
+    private Node erase(Node t, Node node) {
+        if (t == null) {
+            return null;
+        }
+        if (t == node) {
+            return merge(t.left, t.right);
+        }
+        if (compare(node, t) < 0) {
+            t.left = erase(t.left, node);
+        } else {
+            t.right = erase(t.right, node);
+        }
+        resize(t);
+        return t;
+    }
+
+    /**
+     * Splits {@code t} into the nodes ordered before {@code key} and those after it.
+     */
+    private void split(Node t, Node key) {
+        if (t == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        if (compare(t, key) < 0) {
+            split(t.right, key);
+            t.right = splitLeft;
+            resize(t);
+            splitLeft = t;
+        } else {
+            split(t.left, key);
+            t.left = splitRight;
+            resize(t);
+            splitRight = t;
+        }
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            resize(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        resize(b);
+        return b;
+    }
+
+    private int nextPriority() {
+        // xorshift; a treap only needs priorities that look random to the key order
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+
+    private static int compare(Node a, Node b) {
+        int byWealth = Double.compare(b.wealth, a.wealth);
+        return byWealth != 0 ? byWealth : a.uuid.compareTo(b.uuid);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static void resize(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+}
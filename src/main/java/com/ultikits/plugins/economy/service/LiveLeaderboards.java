@@ -0,0 +1,79 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The primary account leaderboard and one per currency, updated by the economy service after
+ * every write it makes. Currency entries take their name from the player's primary account.
+ */
+public class LiveLeaderboards {
+
+    private volatile Boards boards = new Boards(new LiveLeaderboard(), new ConcurrentHashMap<>());
+
+    public LiveLeaderboard accounts() {
+        return boards.accounts;
+    }
+
+    public LiveLeaderboard currency(String currencyId) {
+        return boards.currency(currencyId);
+    }
+
+    /**
+     * @return the currency's leaderboard, or null if nothing has been ranked in it
+     */
+    public LiveLeaderboard find(String currencyId) {
+        return boards.currencies.get(currencyId);
+    }
+
+    /**
+     * Swaps in a freshly loaded primary leaderboard and currency leaderboards all at once, so
+     * readers never mix boards from two refreshes. Currencies left out keep their current board.
+     * A write landing on the old boards while these were loaded shows its old value until the
+     * balance next changes.
+     */
+    public void replaceAll(LiveLeaderboard accounts, Map<String, LiveLeaderboard> currencies) {
+        ConcurrentMap<String, LiveLeaderboard> replaced = new ConcurrentHashMap<>(boards.currencies);
+        replaced.putAll(currencies);
+        boards = new Boards(accounts, replaced);
+    }
+
+    public void update(PlayerAccountEntity account) {
+        boards.accounts.put(account.getUuid(), account.getPlayerName(), account.getTotalWealth());
+    }
+
+    public void update(CurrencyBalanceEntity balance) {
+        Boards current = boards;
+        current.currency(balance.getCurrencyId()).put(balance.getUuid(),
+                current.accounts.nameOf(balance.getUuid()), balance.getTotalWealth());
+    }
+
+    /**
+     * @param currencyId null for the primary account
+     */
+    public void add(String uuid, String currencyId, double delta) {
+        Boards current = boards;
+        (currencyId == null ? current.accounts : current.currency(currencyId)).add(uuid, delta);
+    }
+
+    /**
+     * The boards readers and writers see, replaced as a whole by {@link #replaceAll}.
+     */
+    private static final class Boards {
+        private final LiveLeaderboard accounts;
+        private final ConcurrentMap<String, LiveLeaderboard> currencies;
+
+        private Boards(LiveLeaderboard accounts, ConcurrentMap<String, LiveLeaderboard> currencies) {
+            this.accounts = accounts;
+            this.currencies = currencies;
+        }
+
+        private LiveLeaderboard currency(String currencyId) {
+            return currencies.computeIfAbsent(currencyId, id -> new LiveLeaderboard());
+        }
+    }
+}
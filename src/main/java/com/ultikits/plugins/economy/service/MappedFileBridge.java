@@ -0,0 +1,105 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+
+import java.io.IOException;
+
+/**
+ * Moves balances between the balance file and the database, whichever layout the database
+ * uses. Turning the file on imports the database into it; turning it off again exports the
+ * file back, so the database is current whenever it is the one in use. Each copy overwrites
+ * what the target holds and can simply be run again after an interruption.
+ */
+public class MappedFileBridge {
+
+    private final UltiToolsPlugin plugin;
+    private final MappedFileRepository file;
+
+    public MappedFileBridge(UltiToolsPlugin plugin, MappedFileRepository file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+
+    /**
+     * @return true if every row was copied and the file synced
+     */
+    public boolean importFrom(BalanceRepository database) {
+        boolean complete = copy(database, file, "into the balance file");
+        try {
+            file.sync();
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to sync the balance file: " + e.getMessage());
+            return false;
+        }
+        return complete;
+    }
+
+    /**
+     * @return true if every row was copied
+     */
+    public boolean exportTo(BalanceRepository database) {
+        return copy(file, database, "from the balance file to the database");
+    }
+
+    private boolean copy(BalanceRepository from, BalanceRepository to, String direction) {
+        boolean[] complete = {true};
+        int[] copied = {0};
+        from.forEachPlayer((account, balances) -> {
+            try {
+                if (account != null) {
+                    copy(account, to);
+                    copied[0]++;
+                }
+                for (CurrencyBalanceEntity balance : balances) {
+                    copy(balance, to);
+                    copied[0]++;
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                complete[0] = false;
+                String uuid = account != null ? account.getUuid() : balances.get(0).getUuid();
+                plugin.getLogger().error("Failed to copy balances of " + uuid + ": " + e.getMessage());
+            }
+        });
+        plugin.getLogger().info("Copied " + copied[0] + " rows " + direction);
+        return complete[0];
+    }
+
+    static void copy(PlayerAccountEntity account, BalanceRepository to) throws IllegalAccessException {
+        PlayerAccountEntity stored = to.findAccount(account.getUuid());
+        if (stored == null) {
+            to.insertAccount(PlayerAccountEntity.builder()
+                    .uuid(account.getUuid())
+                    .playerName(account.getPlayerName())
+                    .cash(account.getCash())
+                    .bank(account.getBank())
+                    .version(account.getVersion())
+                    .build());
+            return;
+        }
+        stored.setPlayerName(account.getPlayerName());
+        stored.setCash(account.getCash());
+        stored.setBank(account.getBank());
+        stored.setVersion(account.getVersion());
+        to.updateAccount(stored);
+    }
+
+    static void copy(CurrencyBalanceEntity balance, BalanceRepository to) throws IllegalAccessException {
+        CurrencyBalanceEntity stored = to.findBalance(balance.getUuid(), balance.getCurrencyId());
+        if (stored == null) {
+            to.insertBalance(CurrencyBalanceEntity.builder()
+                    .uuid(balance.getUuid())
+                    .currencyId(balance.getCurrencyId())
+                    .cash(balance.getCash())
+                    .bank(balance.getBank())
+                    .version(balance.getVersion())
+                    .build());
+            return;
+        }
+        stored.setCash(balance.getCash());
+        stored.setBank(balance.getBank());
+        stored.setVersion(balance.getVersion());
+        to.updateBalance(stored);
+    }
+}
@@ -0,0 +1,652 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps accounts and balances in a memory-mapped file of fixed-width records, one per player
+ * and currency, with no query, row mapping or reflection on the way. Reads and writes are
+ * plain buffer accesses; the operating system writes the pages back, and {@link #sync()}
+ * forces them to disk for a durable checkpoint.
+ * <p>
+ * File layout: a {@value #HEADER_SIZE}-byte header, then {@value #RECORD_SIZE}-byte records:
+ * <pre>
+ *   0  status, 1 in use                  4
+ *   4  CRC32 of bytes 8 to the end        4
+ *   8  uuid most, least significant bits 16
+ *  24  currency id, UTF-8, 0-padded      32   empty for the primary account
+ *  56  player name, UTF-8, 0-padded      40
+ *  96  cash, bank                        16
+ * 112  version                            8
+ * </pre>
+ * Records never move. On open the file is scanned once to build the UUID index in memory;
+ * unused slots and records whose checksum does not match, such as a write torn by a power
+ * loss, go on the free list and are reused first. The write-ahead log restores what they held.
+ * <p>
+ * Callers lock per player or per player and currency, as for the other repositories; a record
+ * lock here keeps sweeps from reading a half-written record.
+ */
+public class MappedFileRepository implements BalanceRepository, Closeable {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 128;
+
+    private static final int MAGIC = 0x55454246;
+    private static final int FORMAT = 1;
+    private static final int H_MAGIC = 0;
+    private static final int H_FORMAT = 4;
+    private static final int H_RECORD_SIZE = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_CHECKPOINT = 16;
+    private static final int H_CHECKPOINT_TIME = 24;
+
+    private static final int R_STATUS = 0;
+    private static final int R_CRC = 4;
+    private static final int R_MSB = 8;
+    private static final int R_LSB = 16;
+    private static final int R_CURRENCY = 24;
+    private static final int R_NAME = 56;
+    private static final int R_CASH = 96;
+    private static final int R_BANK = 104;
+    private static final int R_VERSION = 112;
+    private static final int CURRENCY_BYTES = 32;
+    private static final int NAME_BYTES = 40;
+
+    private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+    private static final int LOCK_STRIPES = 64;
+    private static final int NONE = -1;
+
+    private final FileChannel channel;
+    private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
+    private final Object[] recordLocks = new Object[LOCK_STRIPES];
+
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+    private int freeHead = NONE;
+    private int discarded;
+    private long checkpoint;
+
+    /** Per record: the player's next record, or for free records the next free one. */
+    private int[] next;
+
+    // UUID index: open addressing over the two longs, mapping to the player's first record
+    private long[] indexMsb;
+    private long[] indexLsb;
+    private int[] indexHead;
+    private int players;
+
+    public MappedFileRepository(File file) throws IOException {
+        this(file, 1024);
+    }
+
+    MappedFileRepository(File file, int initialCapacity) throws IOException {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            recordLocks[i] = new Object();
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() < HEADER_SIZE;
+        int stored = created ? 0 : readHeader();
+        this.capacity = Math.max(Math.max(16, initialCapacity), stored);
+        this.buffer = map(capacity);
+        this.next = new int[capacity];
+        resetIndex(Math.max(16, stored));
+        if (created) {
+            buffer.putInt(H_MAGIC, MAGIC);
+            buffer.putInt(H_FORMAT, FORMAT);
+            buffer.putInt(H_RECORD_SIZE, RECORD_SIZE);
+            buffer.putInt(H_COUNT, 0);
+        } else {
+            checkpoint = buffer.getLong(H_CHECKPOINT);
+        }
+        load(stored);
+    }
+
+    private int readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_FORMAT) != FORMAT
+                || header.getInt(H_RECORD_SIZE) != RECORD_SIZE) {
+            channel.close();
+            throw new IOException("Not a balance file of format " + FORMAT);
+        }
+        int stored = header.getInt(H_COUNT);
+        long available = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        return (int) Math.min(stored, available);
+    }
+
+    private MappedByteBuffer map(int records) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+    }
+
+    private void load(int stored) {
+        count = stored;
+        for (int record = stored - 1; record >= 0; record--) {
+            next[record] = NONE;
+        }
+        // Chains are built back to front, so each player's records stay in file order
+        for (int record = stored - 1; record >= 0; record--) {
+            if (buffer.getInt(base(record) + R_STATUS) != 1) {
+                free(record);
+            } else if (buffer.getInt(base(record) + R_CRC) != checksum(record)) {
+                discarded++;
+                free(record);
+            } else {
+                int slot = slot(buffer.getLong(base(record) + R_MSB), buffer.getLong(base(record) + R_LSB), true);
+                next[record] = indexHead[slot] - 1;
+                indexHead[slot] = record + 1;
+            }
+        }
+    }
+
+    /**
+     * @return records dropped on open because their checksum did not match
+     */
+    public int getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * @return checkpoints completed over the life of the file
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public int getPlayerCount() {
+        structure.readLock().lock();
+        try {
+            return players;
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    // --- Accounts ---
+
+    @Override
+    public PlayerAccountEntity findAccount(String uuid) {
+        structure.readLock().lock();
+        try {
+            int record = find(UUID.fromString(uuid), "");
+            return record != NONE ? account(record) : null;
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PlayerAccountEntity> findAccounts(Collection<String> uuids) {
+        List<PlayerAccountEntity> found = new ArrayList<>();
+        for (String uuid : uuids) {
+            PlayerAccountEntity account = findAccount(uuid);
+            if (account != null) {
+                found.add(account);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<PlayerAccountEntity> allAccounts() {
+        List<PlayerAccountEntity> accounts = new ArrayList<>();
+        forEachPlayer((account, balances) -> {
+            if (account != null) {
+                accounts.add(account);
+            }
+        });
+        return accounts;
+    }
+
+    @Override
+    public void insertAccount(PlayerAccountEntity account) {
+        int record = findOrAllocate(account.getUuid(), "");
+        structure.readLock().lock();
+        try {
+            write(record, "", account.getPlayerName(), account.getCash(), account.getBank(), account.getVersion());
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAccount(PlayerAccountEntity account) throws IllegalAccessException {
+        structure.readLock().lock();
+        try {
+            int record = find(UUID.fromString(account.getUuid()), "");
+            if (record == NONE) {
+                throw new IllegalAccessException("No account stored for " + account.getUuid());
+            }
+            write(record, "", account.getPlayerName(), account.getCash(), account.getBank(), account.getVersion());
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    // --- Currency balances ---
+
+    @Override
+    public CurrencyBalanceEntity findBalance(String uuid, String currencyId) {
+        structure.readLock().lock();
+        try {
+            int record = find(UUID.fromString(uuid), currencyId);
+            return record != NONE ? balance(record) : null;
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(String uuid) {
+        structure.readLock().lock();
+        try {
+            List<CurrencyBalanceEntity> balances = new ArrayList<>();
+            collect(UUID.fromString(uuid), null, balances);
+            return balances;
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(Collection<String> uuids, Collection<String> currencyIds) {
+        Set<String> wanted = new HashSet<>(currencyIds);
+        List<CurrencyBalanceEntity> balances = new ArrayList<>();
+        structure.readLock().lock();
+        try {
+            for (String uuid : uuids) {
+                collect(UUID.fromString(uuid), wanted, balances);
+            }
+        } finally {
+            structure.readLock().unlock();
+        }
+        return balances;
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> allBalances() {
+        List<CurrencyBalanceEntity> all = new ArrayList<>();
+        forEachPlayer((account, balances) -> all.addAll(balances));
+        return all;
+    }
+
+    @Override
+    public void insertBalance(CurrencyBalanceEntity balance) {
+        int record = findOrAllocate(balance.getUuid(), balance.getCurrencyId());
+        structure.readLock().lock();
+        try {
+            write(record, balance.getCurrencyId(), null, balance.getCash(), balance.getBank(), balance.getVersion());
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateBalance(CurrencyBalanceEntity balance) throws IllegalAccessException {
+        structure.readLock().lock();
+        try {
+            int record = find(UUID.fromString(balance.getUuid()), balance.getCurrencyId());
+            if (record == NONE) {
+                throw new IllegalAccessException("No " + balance.getCurrencyId() + " balance stored for "
+                        + balance.getUuid());
+            }
+            write(record, balance.getCurrencyId(), null, balance.getCash(), balance.getBank(), balance.getVersion());
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    // --- Whole players ---
+
+    @Override
+    public WalletSnapshot findWallet(String uuid) {
+        structure.readLock().lock();
+        try {
+            UUID key = UUID.fromString(uuid);
+            List<CurrencyBalanceEntity> balances = new ArrayList<>();
+            collect(key, null, balances);
+            int record = find(key, "");
+            return WalletSnapshot.of(uuid, record != NONE ? account(record) : null, balances);
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    /**
+     * Players added while the sweep runs may or may not be visited. No lock is held while
+     * the visitor runs, so it may write back.
+     */
+    @Override
+    public void forEachPlayer(BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor) {
+        int[] heads;
+        structure.readLock().lock();
+        try {
+            heads = new int[players];
+            int found = 0;
+            for (int head : indexHead) {
+                if (head != 0) {
+                    heads[found++] = head - 1;
+                }
+            }
+        } finally {
+            structure.readLock().unlock();
+        }
+        for (int head : heads) {
+            PlayerAccountEntity account = null;
+            List<CurrencyBalanceEntity> balances = new ArrayList<>();
+            structure.readLock().lock();
+            try {
+                for (int record = head; record != NONE; record = next[record]) {
+                    if (isAccount(record)) {
+                        account = account(record);
+                    } else {
+                        balances.add(balance(record));
+                    }
+                }
+            } finally {
+                structure.readLock().unlock();
+            }
+            visitor.accept(account, balances);
+        }
+    }
+
+    // --- Durability ---
+
+    /**
+     * Forces every write made so far to disk, then records the checkpoint in the header and
+     * forces that too. Once this returns, a crash of the machine loses nothing written before it.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        structure.readLock().lock();
+        try {
+            buffer.force();
+            // Pages written through a mapping replaced by growth belong to the same file
+            channel.force(false);
+            checkpoint++;
+            buffer.putLong(H_CHECKPOINT, checkpoint);
+            buffer.putLong(H_CHECKPOINT_TIME, System.currentTimeMillis());
+            buffer.force();
+        } finally {
+            structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    // --- Internals ---
+
+    private int findOrAllocate(String uuid, String currencyId) {
+        if (currencyId.getBytes(StandardCharsets.UTF_8).length > CURRENCY_BYTES) {
+            throw new IllegalStateException("Currency id longer than " + CURRENCY_BYTES + " bytes: " + currencyId);
+        }
+        UUID key = UUID.fromString(uuid);
+        structure.writeLock().lock();
+        try {
+            int record = find(key, currencyId);
+            if (record != NONE) {
+                return record;
+            }
+            record = allocate();
+            int at = base(record);
+            synchronized (lockFor(record)) {
+                for (int i = 0; i < RECORD_SIZE; i += 8) {
+                    buffer.putLong(at + i, 0L);
+                }
+                buffer.putLong(at + R_MSB, key.getMostSignificantBits());
+                buffer.putLong(at + R_LSB, key.getLeastSignificantBits());
+                putString(at + R_CURRENCY, CURRENCY_BYTES, currencyId);
+                buffer.putInt(at + R_STATUS, 1);
+            }
+            link(key, record);
+            return record;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to grow the balance file", e);
+        } finally {
+            structure.writeLock().unlock();
+        }
+    }
+
+    private int allocate() throws IOException {
+        if (freeHead != NONE) {
+            int record = freeHead;
+            freeHead = next[record];
+            next[record] = NONE;
+            return record;
+        }
+        if (count == capacity) {
+            if (capacity == MAX_RECORDS) {
+                throw new IOException("Balance file is full at " + MAX_RECORDS + " records");
+            }
+            capacity = (int) Math.min((long) capacity * 2, MAX_RECORDS);
+            buffer = map(capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        int record = count++;
+        next[record] = NONE;
+        buffer.putInt(H_COUNT, count);
+        return record;
+    }
+
+    private void free(int record) {
+        buffer.putInt(base(record) + R_STATUS, 0);
+        next[record] = freeHead;
+        freeHead = record;
+    }
+
+    /**
+     * Appends {@code record} to the end of its player's chain, so a head never changes once set.
+     */
+    private void link(UUID key, int record) {
+        int slot = slot(key.getMostSignificantBits(), key.getLeastSignificantBits(), false);
+        if (slot >= 0) {
+            int last = indexHead[slot] - 1;
+            while (next[last] != NONE) {
+                last = next[last];
+            }
+            next[last] = record;
+            return;
+        }
+        slot = slot(key.getMostSignificantBits(), key.getLeastSignificantBits(), true);
+        indexHead[slot] = record + 1;
+    }
+
+    private void resetIndex(int expected) {
+        int slots = 16;
+        while (slots < expected * 2) {
+            slots <<= 1;
+        }
+        indexMsb = new long[slots];
+        indexLsb = new long[slots];
+        indexHead = new int[slots];
+        players = 0;
+    }
+
+    private void rehash(int slots) {
+        long[] msbs = indexMsb;
+        long[] lsbs = indexLsb;
+        int[] heads = indexHead;
+        indexMsb = new long[slots];
+        indexLsb = new long[slots];
+        indexHead = new int[slots];
+        players = 0;
+        for (int i = 0; i < heads.length; i++) {
+            if (heads[i] != 0) {
+                indexHead[slot(msbs[i], lsbs[i], true)] = heads[i];
+            }
+        }
+    }
+
+    /**
+     * Finds the index slot for a UUID. With {@code claim}, an empty slot is taken for it and
+     * returned; without, -1 is returned for UUIDs not in the index.
+     */
+    private int slot(long msb, long lsb, boolean claim) {
+        int mask = indexHead.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (indexHead[slot] != 0) {
+            if (indexMsb[slot] == msb && indexLsb[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!claim) {
+            return -1;
+        }
+        if ((players + 1) * 2 > indexHead.length) {
+            rehash(indexHead.length * 2);
+            return slot(msb, lsb, true);
+        }
+        indexMsb[slot] = msb;
+        indexLsb[slot] = lsb;
+        players++;
+        return slot;
+    }
+
+    private int find(UUID key, String currencyId) {
+        int slot = slot(key.getMostSignificantBits(), key.getLeastSignificantBits(), false);
+        if (slot < 0) {
+            return NONE;
+        }
+        for (int record = indexHead[slot] - 1; record != NONE; record = next[record]) {
+            if (currencyId.equals(getString(base(record) + R_CURRENCY, CURRENCY_BYTES))) {
+                return record;
+            }
+        }
+        return NONE;
+    }
+
+    private void collect(UUID key, Set<String> currencyIds, List<CurrencyBalanceEntity> into) {
+        int slot = slot(key.getMostSignificantBits(), key.getLeastSignificantBits(), false);
+        if (slot < 0) {
+            return;
+        }
+        for (int record = indexHead[slot] - 1; record != NONE; record = next[record]) {
+            if (isAccount(record)) {
+                continue;
+            }
+            CurrencyBalanceEntity balance = balance(record);
+            if (currencyIds == null || currencyIds.contains(balance.getCurrencyId())) {
+                into.add(balance);
+            }
+        }
+    }
+
+    private boolean isAccount(int record) {
+        return buffer.get(base(record) + R_CURRENCY) == 0;
+    }
+
+    private PlayerAccountEntity account(int record) {
+        int at = base(record);
+        synchronized (lockFor(record)) {
+            return PlayerAccountEntity.builder()
+                    .uuid(new UUID(buffer.getLong(at + R_MSB), buffer.getLong(at + R_LSB)).toString())
+                    .playerName(getString(at + R_NAME, NAME_BYTES))
+                    .cash(buffer.getDouble(at + R_CASH))
+                    .bank(buffer.getDouble(at + R_BANK))
+                    .version(buffer.getLong(at + R_VERSION))
+                    .build();
+        }
+    }
+
+    private CurrencyBalanceEntity balance(int record) {
+        int at = base(record);
+        synchronized (lockFor(record)) {
+            return CurrencyBalanceEntity.builder()
+                    .uuid(new UUID(buffer.getLong(at + R_MSB), buffer.getLong(at + R_LSB)).toString())
+                    .currencyId(getString(at + R_CURRENCY, CURRENCY_BYTES))
+                    .cash(buffer.getDouble(at + R_CASH))
+                    .bank(buffer.getDouble(at + R_BANK))
+                    .version(buffer.getLong(at + R_VERSION))
+                    .build();
+        }
+    }
+
+    private void write(int record, String currencyId, String playerName, double cash, double bank, long version) {
+        int at = base(record);
+        synchronized (lockFor(record)) {
+            if (currencyId.isEmpty()) {
+                putString(at + R_NAME, NAME_BYTES, playerName);
+            }
+            buffer.putDouble(at + R_CASH, cash);
+            buffer.putDouble(at + R_BANK, bank);
+            buffer.putLong(at + R_VERSION, version);
+            buffer.putInt(at + R_CRC, checksum(record));
+        }
+    }
+
+    private int checksum(int record) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(base(record) + RECORD_SIZE);
+        view.position(base(record) + R_MSB);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private void putString(int at, int length, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int size = Math.min(bytes.length, length);
+        // Cut before a partial UTF-8 sequence
+        while (size > 0 && size < bytes.length && (bytes[size] & 0xC0) == 0x80) {
+            size--;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer.put(at + i, i < size ? bytes[i] : 0);
+        }
+    }
+
+    private String getString(int at, int length) {
+        byte[] bytes = new byte[length];
+        int size = 0;
+        while (size < length && (bytes[size] = buffer.get(at + size)) != 0) {
+            size++;
+        }
+        return new String(bytes, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private Object lockFor(int record) {
+        return recordLocks[record & (LOCK_STRIPES - 1)];
+    }
+
+    private static int base(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
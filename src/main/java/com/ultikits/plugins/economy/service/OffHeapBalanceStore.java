@@ -0,0 +1,456 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Every known player's balances in fixed-width records in a direct buffer, outside the
+ * Java heap, so sweeps and rankings over a million accounts neither build entities nor give
+ * the collector a million objects to trace. Records are found by UUID through an
+ * open-addressing hash table held in a second direct buffer.
+ * <p>
+ * Record layout, {@code 56 + 16 * currencySlots} bytes:
+ * <pre>
+ *   0  uuid most significant bits      8
+ *   8  uuid least significant bits     8
+ *  16  player name, ASCII, 0-padded   16
+ *  32  presence bits                   8   bit 0 primary account, bit 1 + n currency ordinal n
+ *  40  primary account cash, bank     16
+ *  56  per currency ordinal: cash, bank  16 each
+ * </pre>
+ * Writers serialize on a {@link StampedLock}; readers take an optimistic stamp per record and
+ * only fall back to the read lock if a write overlapped, so any number of readers run
+ * alongside each other and alongside writers. Visitors are called outside the lock and may
+ * write back. Records are never removed; currency ordinals past the configured slots are ignored.
+ */
+public class OffHeapBalanceStore {
+
+    /**
+     * Slot of the primary account, as opposed to a currency ordinal.
+     */
+    public static final int ACCOUNT = -1;
+
+    private static final int MAX_CURRENCY_SLOTS = 63;
+    private static final int NAME_BYTES = 16;
+    private static final int OFF_NAME = 16;
+    private static final int OFF_PRESENT = 32;
+    private static final int OFF_SLOTS = 40;
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int record, double cash, double bank);
+    }
+
+    private final int currencySlots;
+    private final int recordSize;
+    private final StampedLock lock = new StampedLock();
+
+    private volatile ByteBuffer records;
+    private volatile ByteBuffer index;
+    private volatile int count;
+
+    public OffHeapBalanceStore(int currencySlots, int expectedPlayers) {
+        this.currencySlots = Math.min(Math.max(0, currencySlots), MAX_CURRENCY_SLOTS);
+        this.recordSize = OFF_SLOTS + 16 * (1 + this.currencySlots);
+        int capacity = Math.max(16, expectedPlayers);
+        this.records = ByteBuffer.allocateDirect(capacity * recordSize);
+        this.index = ByteBuffer.allocateDirect(tableSize(capacity) * 4);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCurrencySlots() {
+        return currencySlots;
+    }
+
+    /**
+     * Copies every stored account and configured currency balance in, one player at a time.
+     */
+    public void load(BalanceRepository repository, CurrencyManager currencyManager) {
+        repository.forEachPlayer((account, balances) -> {
+            if (account != null) {
+                putAccount(account.getUuid(), account.getPlayerName(), account.getCash(), account.getBank());
+            }
+            for (CurrencyBalanceEntity balance : balances) {
+                putBalance(balance.getUuid(), currencyManager.getOrdinal(balance.getCurrencyId()),
+                        balance.getCash(), balance.getBank());
+            }
+        });
+    }
+
+    // --- Writes ---
+
+    public void putAccount(String uuid, String playerName, double cash, double bank) {
+        long stamp = lock.writeLock();
+        try {
+            int record = findOrAdd(UUID.fromString(uuid));
+            writeName(record, playerName);
+            writeSlot(record, ACCOUNT, cash, bank);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void putBalance(String uuid, int ordinal, double cash, double bank) {
+        if (ordinal < 0 || ordinal >= currencySlots) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            writeSlot(findOrAdd(UUID.fromString(uuid)), ordinal, cash, bank);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the cash or bank of an account already held, for changes the
+     * database applied without this server reading the new value.
+     *
+     * @param precision decimals to round the result to as the database did, or negative for none
+     */
+    public void addAccount(String uuid, boolean bank, double delta, int precision) {
+        add(uuid, ACCOUNT, bank, delta, precision);
+    }
+
+    public void addBalance(String uuid, int ordinal, boolean bank, double delta, int precision) {
+        if (ordinal >= 0) {
+            add(uuid, ordinal, bank, delta, precision);
+        }
+    }
+
+    private void add(String uuid, int slot, boolean bank, double delta, int precision) {
+        if (slot >= currencySlots) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int record = find(records, index, UUID.fromString(uuid));
+            if (record < 0 || !present(records, record, slot)) {
+                return;
+            }
+            int offset = slotOffset(record, slot) + (bank ? 8 : 0);
+            double value = records.getDouble(offset) + delta;
+            if (precision >= 0) {
+                value = BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP).doubleValue();
+            }
+            records.putDouble(offset, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- Reads ---
+
+    /**
+     * @return the record holding {@code uuid}, or -1 if there is none
+     */
+    public int find(String uuid) {
+        UUID key = UUID.fromString(uuid);
+        long stamp = lock.tryOptimisticRead();
+        int record = find(records, index, key);
+        if (lock.validate(stamp)) {
+            return record;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(records, index, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public String uuid(int record) {
+        ByteBuffer buffer = records;
+        int base = record * recordSize;
+        return new UUID(buffer.getLong(base), buffer.getLong(base + 8)).toString();
+    }
+
+    /**
+     * @return the stored player name, or null for players known only by their currency balances
+     */
+    public String playerName(int record) {
+        byte[] name = new byte[NAME_BYTES];
+        long stamp = lock.tryOptimisticRead();
+        int length = readName(records, record, name);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                length = readName(records, record, name);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return length > 0 ? new String(name, 0, length, StandardCharsets.US_ASCII) : null;
+    }
+
+    /**
+     * Calls {@code visitor} with the cash and bank of every record that has {@code slot},
+     * in insertion order. Each record is read consistently; the sweep as a whole is not a
+     * snapshot, and records added while it runs may or may not be visited.
+     */
+    public void forEach(int slot, Visitor visitor) {
+        if (slot >= currencySlots) {
+            return;
+        }
+        int total = count;
+        for (int record = 0; record < total; record++) {
+            long stamp = lock.tryOptimisticRead();
+            ByteBuffer buffer = records;
+            boolean present = present(buffer, record, slot);
+            double cash = buffer.getDouble(slotOffset(record, slot));
+            double bank = buffer.getDouble(slotOffset(record, slot) + 8);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    buffer = records;
+                    present = present(buffer, record, slot);
+                    cash = buffer.getDouble(slotOffset(record, slot));
+                    bank = buffer.getDouble(slotOffset(record, slot) + 8);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (present) {
+                visitor.visit(record, cash, bank);
+            }
+        }
+    }
+
+    /**
+     * Orders every record holding {@code slot} by total wealth, richest first, using only
+     * primitive arrays. Ties keep insertion order.
+     */
+    public Ranking rank(int slot) {
+        int total = count;
+        int[] order = new int[total];
+        double[] wealth = new double[total];
+        int[] size = new int[1];
+        forEach(slot, (record, cash, bank) -> {
+            if (record < total) {
+                order[size[0]] = record;
+                wealth[size[0]] = cash + bank;
+                size[0]++;
+            }
+        });
+        return Ranking.of(order, wealth, size[0], total);
+    }
+
+    // --- Internals, all called with the write lock held or an optimistic stamp ---
+
+    private int findOrAdd(UUID key) {
+        int record = find(records, index, key);
+        if (record >= 0) {
+            return record;
+        }
+        record = count;
+        if ((record + 1) * recordSize > records.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(records.capacity() * 2);
+            ByteBuffer old = records.duplicate();
+            old.clear();
+            grown.put(old);
+            records = grown;
+        }
+        int base = record * recordSize;
+        for (int i = 0; i < recordSize; i += 8) {
+            records.putLong(base + i, 0L);
+        }
+        records.putLong(base, key.getMostSignificantBits());
+        records.putLong(base + 8, key.getLeastSignificantBits());
+        if (tableSize(record + 1) * 4 > index.capacity()) {
+            rehash(tableSize(record + 1));
+        }
+        insert(index, key, record);
+        count = record + 1;
+        return record;
+    }
+
+    private void rehash(int slots) {
+        ByteBuffer table = ByteBuffer.allocateDirect(slots * 4);
+        for (int record = 0; record < count; record++) {
+            int base = record * recordSize;
+            insert(table, new UUID(records.getLong(base), records.getLong(base + 8)), record);
+        }
+        index = table;
+    }
+
+    private void insert(ByteBuffer table, UUID key, int record) {
+        int mask = table.capacity() / 4 - 1;
+        int slot = hash(key) & mask;
+        while (table.getInt(slot * 4) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putInt(slot * 4, record + 1);
+    }
+
+    private int find(ByteBuffer data, ByteBuffer table, UUID key) {
+        int mask = table.capacity() / 4 - 1;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int entry = table.getInt(slot * 4);
+            if (entry == 0) {
+                return -1;
+            }
+            int base = (entry - 1) * recordSize;
+            if (base + 16 <= data.capacity()
+                    && data.getLong(base) == key.getMostSignificantBits()
+                    && data.getLong(base + 8) == key.getLeastSignificantBits()) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void writeName(int record, String playerName) {
+        int base = record * recordSize + OFF_NAME;
+        for (int i = 0; i < NAME_BYTES; i++) {
+            char c = playerName != null && i < playerName.length() ? playerName.charAt(i) : 0;
+            records.put(base + i, (byte) (c < 128 ? c : '?'));
+        }
+    }
+
+    private int readName(ByteBuffer data, int record, byte[] name) {
+        int base = record * recordSize + OFF_NAME;
+        int length = 0;
+        while (length < NAME_BYTES && (name[length] = data.get(base + length)) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private void writeSlot(int record, int slot, double cash, double bank) {
+        int offset = slotOffset(record, slot);
+        records.putDouble(offset, cash);
+        records.putDouble(offset + 8, bank);
+        int flags = record * recordSize + OFF_PRESENT;
+        records.putLong(flags, records.getLong(flags) | bit(slot));
+    }
+
+    private boolean present(ByteBuffer data, int record, int slot) {
+        return (data.getLong(record * recordSize + OFF_PRESENT) & bit(slot)) != 0;
+    }
+
+    private int slotOffset(int record, int slot) {
+        return record * recordSize + OFF_SLOTS + 16 * (slot + 1);
+    }
+
+    private static long bit(int slot) {
+        return 1L << (slot + 1);
+    }
+
+    private static int hash(UUID key) {
+        long h = key.getMostSignificantBits() ^ key.getLeastSignificantBits();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Power-of-two slot count keeping the table at most half full.
+     */
+    private static int tableSize(int entries) {
+        int slots = 16;
+        while (slots < entries * 2) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    /**
+     * Records ordered by wealth, with each record's position for rank lookups. Immutable.
+     */
+    public static final class Ranking {
+
+        private static final Ranking EMPTY = new Ranking(new int[0], new double[0], new int[0]);
+
+        private final int[] order;
+        private final double[] wealth;
+        private final int[] positions;
+
+        private Ranking(int[] order, double[] wealth, int[] positions) {
+            this.order = order;
+            this.wealth = wealth;
+            this.positions = positions;
+        }
+
+        static Ranking of(int[] records, double[] wealth, int size, int recordCount) {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[] byPosition = new int[size];
+            for (int i = 0; i < size; i++) {
+                byPosition[i] = i;
+            }
+            sortDescending(byPosition, wealth, new int[size], 0, size);
+            int[] order = new int[size];
+            double[] sorted = new double[size];
+            int[] positions = new int[recordCount];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < size; i++) {
+                order[i] = records[byPosition[i]];
+                sorted[i] = wealth[byPosition[i]];
+                positions[order[i]] = i;
+            }
+            return new Ranking(order, sorted, positions);
+        }
+
+        public static Ranking empty() {
+            return EMPTY;
+        }
+
+        public int size() {
+            return order.length;
+        }
+
+        public int record(int position) {
+            return order[position];
+        }
+
+        public double wealth(int position) {
+            return wealth[position];
+        }
+
+        /**
+         * @return the 0-based position of {@code record}, or -1 if it is not ranked
+         */
+        public int positionOf(int record) {
+            return record >= 0 && record < positions.length ? positions[record] : -1;
+        }
+
+        /**
+         * Stable merge sort of indices into {@code keys}, largest key first.
+         */
+        private static void sortDescending(int[] items, double[] keys, int[] scratch, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sortDescending(items, keys, scratch, from, mid);
+            sortDescending(items, keys, scratch, mid, to);
+            if (keys[items[mid - 1]] >= keys[items[mid]]) {
+                return;
+            }
+            System.arraycopy(items, from, scratch, from, to - from);
+            int left = from;
+            int right = mid;
+            for (int i = from; i < to; i++) {
+                if (right >= to || left < mid && keys[scratch[left]] >= keys[scratch[right]]) {
+                    items[i] = scratch[left++];
+                } else {
+                    items[i] = scratch[right++];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The original layout: primary accounts in {@code economy_accounts}, one
+ * {@code currency_balances} row per player and currency. Every write also stores the row's
+ * total wealth, which database-ordered leaderboards sort by.
+ */
+public class SplitTableRepository implements BalanceRepository {
+
+    private final DataOperator<PlayerAccountEntity> accountOperator;
+    private final DataOperator<CurrencyBalanceEntity> balanceOperator;
+
+    public SplitTableRepository(DataOperator<PlayerAccountEntity> accountOperator,
+                                DataOperator<CurrencyBalanceEntity> balanceOperator) {
+        this.accountOperator = accountOperator;
+        this.balanceOperator = balanceOperator;
+    }
+
+    @Override
+    public PlayerAccountEntity findAccount(String uuid) {
+        List<PlayerAccountEntity> results = accountOperator.query()
+                .where("uuid").eq(uuid)
+                .list();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public List<PlayerAccountEntity> findAccounts(Collection<String> uuids) {
+        if (uuids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return accountOperator.query().where("uuid").in(uuids).list();
+    }
+
+    @Override
+    public List<PlayerAccountEntity> allAccounts() {
+        return accountOperator.getAll();
+    }
+
+    @Override
+    public void insertAccount(PlayerAccountEntity account) {
+        account.setStoredWealth(account.getTotalWealth());
+        accountOperator.insert(account);
+    }
+
+    @Override
+    public void updateAccount(PlayerAccountEntity account) throws IllegalAccessException {
+        account.setStoredWealth(account.getTotalWealth());
+        accountOperator.update(account);
+    }
+
+    @Override
+    public CurrencyBalanceEntity findBalance(String uuid, String currencyId) {
+        List<CurrencyBalanceEntity> results = balanceOperator.query()
+                .where("uuid").eq(uuid)
+                .and("currency_id").eq(currencyId)
+                .list();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(String uuid) {
+        return balanceOperator.query()
+                .where("uuid").eq(uuid)
+                .list();
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(Collection<String> uuids, Collection<String> currencyIds) {
+        if (uuids.isEmpty() || currencyIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return balanceOperator.query()
+                .where("uuid").in(uuids)
+                .and("currency_id").in(currencyIds)
+                .list();
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> allBalances() {
+        return balanceOperator != null ? balanceOperator.getAll() : Collections.emptyList();
+    }
+
+    @Override
+    public void insertBalance(CurrencyBalanceEntity balance) {
+        balance.setStoredWealth(balance.getTotalWealth());
+        balanceOperator.insert(balance);
+    }
+
+    @Override
+    public void updateBalance(CurrencyBalanceEntity balance) throws IllegalAccessException {
+        balance.setStoredWealth(balance.getTotalWealth());
+        balanceOperator.update(balance);
+    }
+
+    @Override
+    public WalletSnapshot findWallet(String uuid) {
+        return WalletSnapshot.of(uuid, findAccount(uuid), findBalances(uuid));
+    }
+
+    /**
+     * Reads both tables in full and pairs them up in memory; players with balances but no
+     * account come last.
+     */
+    @Override
+    public void forEachPlayer(BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor) {
+        List<PlayerAccountEntity> accounts = allAccounts();
+        Map<String, List<CurrencyBalanceEntity>> byPlayer = new LinkedHashMap<>();
+        for (CurrencyBalanceEntity balance : allBalances()) {
+            byPlayer.computeIfAbsent(balance.getUuid(), k -> new ArrayList<>()).add(balance);
+        }
+        for (PlayerAccountEntity account : accounts) {
+            List<CurrencyBalanceEntity> balances = byPlayer.remove(account.getUuid());
+            visitor.accept(account, balances != null ? balances : Collections.emptyList());
+        }
+        for (List<CurrencyBalanceEntity> orphaned : byPlayer.values()) {
+            visitor.accept(null, orphaned);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.ultikits.plugins.economy.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An amount of minor units spread over several cells, so threads crediting the same account
+ * at once each add to their own cell instead of queueing on one lock, as with
+ * {@link java.util.concurrent.atomic.LongAdder}. No cell ever goes below zero.
+ * <p>
+ * A debit first tries the caller's own cell. If that cell cannot cover it, the debit borrows
+ * from the others under a lock shared by all borrowing debits, taking what each cell has
+ * until the amount is met; if the cells together cannot cover it, what was taken is put back
+ * and the debit fails. {@link #drain()} empties every cell for folding into the stored balance.
+ */
+public class StripedBalance {
+
+    // Each cell owns a 64-byte line, so neighbouring cells do not invalidate each other
+    private static final int PAD = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    private final ReentrantLock borrowLock = new ReentrantLock();
+
+    public StripedBalance(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.cells = new AtomicLongArray(size * PAD);
+        this.mask = size - 1;
+    }
+
+    public int getStripes() {
+        return mask + 1;
+    }
+
+    /**
+     * @throws ArithmeticException if the cell would overflow; nothing is added
+     */
+    public void credit(long minor) {
+        if (minor < 0) {
+            throw new IllegalArgumentException("Credit must not be negative: " + minor);
+        }
+        int cell = cell(home());
+        long current;
+        do {
+            current = cells.get(cell);
+        } while (!cells.compareAndSet(cell, current, Math.addExact(current, minor)));
+    }
+
+    /**
+     * Takes {@code minor} units if the cells together hold them.
+     */
+    public boolean debit(long minor) {
+        if (minor < 0) {
+            throw new IllegalArgumentException("Debit must not be negative: " + minor);
+        }
+        int home = home();
+        if (take(cell(home), minor)) {
+            return true;
+        }
+        borrowLock.lock();
+        try {
+            if (sum() < minor) {
+                return false;
+            }
+            long remaining = minor;
+            for (int i = 0; i <= mask && remaining > 0; i++) {
+                remaining -= takeUpTo(cell((home + i) & mask), remaining);
+            }
+            if (remaining == 0) {
+                return true;
+            }
+            // A debit on its own cell got there first; undo so the caller sees a clean failure
+            credit(minor - remaining);
+            return false;
+        } finally {
+            borrowLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the total of every cell. Exact when nothing changes during the call; otherwise
+     * some value the total passed through or close to it, as with {@code LongAdder.sum()}.
+     */
+    public long sum() {
+        long total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.get(cell(i));
+        }
+        return total;
+    }
+
+    /**
+     * Empties every cell and returns what they held. Credits landing during the call are
+     * either included or left for the next drain, never lost.
+     */
+    public long drain() {
+        borrowLock.lock();
+        try {
+            long total = 0;
+            for (int i = 0; i <= mask; i++) {
+                total += cells.getAndSet(cell(i), 0);
+            }
+            return total;
+        } finally {
+            borrowLock.unlock();
+        }
+    }
+
+    private boolean take(int cell, long minor) {
+        long current;
+        do {
+            current = cells.get(cell);
+            if (current < minor) {
+                return false;
+            }
+        } while (!cells.compareAndSet(cell, current, current - minor));
+        return true;
+    }
+
+    private long takeUpTo(int cell, long minor) {
+        long current;
+        long taken;
+        do {
+            current = cells.get(cell);
+            taken = Math.min(current, minor);
+            if (taken <= 0) {
+                return 0;
+            }
+        } while (!cells.compareAndSet(cell, current, current - taken));
+        return taken;
+    }
+
+    private int home() {
+        // Spread thread ids so consecutive threads do not share a cell
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & mask;
+    }
+
+    private static int cell(int index) {
+        return index * PAD;
+    }
+}
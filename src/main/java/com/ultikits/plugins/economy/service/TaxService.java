@@ -2,20 +2,43 @@ package com.ultikits.plugins.economy.service;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
 import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.plugins.economy.model.Money;
 import com.ultikits.ultitools.interfaces.DataOperator;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Transaction and wealth tax, and the treasury the tax is paid into.
+ * <p>
+ * Each currency's treasury balance is read from the database once and then kept in memory.
+ * With {@code tax.treasury-flush-interval} above zero, deposits collect in a
+ * {@link StripedBalance} without touching the database, and {@link #flush()} writes each
+ * changed balance on that interval and at shutdown; deposits since the last flush are lost if
+ * the server crashes. A deposit too large to count in minor units is written before it
+ * returns instead. At zero every deposit is written before it returns. Withdrawals are
+ * always written before they return. Share one instance, or instances will overwrite each
+ * other's balances.
+ */
 public class TaxService {
 
     private final EconomyConfig config;
     private final DataOperator<TreasuryEntity> treasuryDataOperator;
+    private final CurrencyManager currencyManager;
+    private final ConcurrentMap<String, Treasury> treasuries = new ConcurrentHashMap<>();
 
     public TaxService(EconomyConfig config, DataOperator<TreasuryEntity> treasuryDataOperator) {
+        this(config, treasuryDataOperator, null);
+    }
+
+    public TaxService(EconomyConfig config, DataOperator<TreasuryEntity> treasuryDataOperator,
+                      CurrencyManager currencyManager) {
         this.config = config;
         this.treasuryDataOperator = treasuryDataOperator;
+        this.currencyManager = currencyManager;
     }
 
     public double calculateTransactionTax(double amount) {
@@ -45,47 +68,162 @@ public class TaxService {
         return tax;
     }
 
+    /**
+     * @throws IllegalAccessException if the deposit is written through and the write fails;
+     *                                the balance is left unchanged
+     */
     public void depositToTreasury(double amount, String currencyId) throws IllegalAccessException {
-        List<TreasuryEntity> results = treasuryDataOperator.query()
-                .where("currency_id").eq(currencyId)
-                .list();
-        if (results.isEmpty()) {
-            TreasuryEntity entity = TreasuryEntity.builder()
-                    .currencyId(currencyId)
-                    .balance(amount)
-                    .build();
-            treasuryDataOperator.insert(entity);
-        } else {
-            TreasuryEntity existing = results.get(0);
-            existing.setBalance(existing.getBalance() + amount);
-            treasuryDataOperator.update(existing);
+        Treasury treasury = treasury(currencyId);
+        if (config.getTreasuryFlushInterval() > 0) {
+            try {
+                treasury.deposits.credit(Money.toMinor(amount, Money.MAX_PRECISION));
+                return;
+            } catch (ArithmeticException e) {
+                // Too large for the minor-unit cells; write it through instead
+            }
+        }
+        synchronized (treasury) {
+            double before = treasury.balance;
+            treasury.balance = plus(before, amount, currencyId);
+            try {
+                write(treasury);
+            } catch (IllegalAccessException e) {
+                treasury.balance = before;
+                throw e;
+            }
         }
     }
 
     public double getTreasuryBalance(String currencyId) {
-        List<TreasuryEntity> results = treasuryDataOperator.query()
-                .where("currency_id").eq(currencyId)
-                .list();
-        if (results.isEmpty()) {
-            return 0.0;
+        Treasury treasury = treasury(currencyId);
+        synchronized (treasury) {
+            long deposits = treasury.deposits.sum();
+            return deposits == 0 ? treasury.balance
+                    : plus(treasury.balance, Money.toMajor(deposits, Money.MAX_PRECISION), currencyId);
         }
-        return results.get(0).getBalance();
     }
 
+    /**
+     * @throws IllegalAccessException if the withdrawal cannot be written; the balance is left unchanged
+     */
     public boolean withdrawFromTreasury(double amount, String currencyId) throws IllegalAccessException {
-        List<TreasuryEntity> results = treasuryDataOperator.query()
-                .where("currency_id").eq(currencyId)
-                .list();
-        if (results.isEmpty()) {
-            return false;
+        Treasury treasury = treasury(currencyId);
+        synchronized (treasury) {
+            collect(treasury);
+            if (treasury.balance < amount) {
+                return false;
+            }
+            double before = treasury.balance;
+            treasury.balance = plus(before, -amount, currencyId);
+            try {
+                write(treasury);
+            } catch (IllegalAccessException e) {
+                treasury.balance = before;
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes every treasury balance that has changed since it was last written. Balances that
+     * fail to write stay in memory and are tried again on the next flush.
+     *
+     * @throws IllegalAccessException the last write failure, after every balance has been tried
+     */
+    public void flush() throws IllegalAccessException {
+        IllegalAccessException failure = null;
+        for (Treasury treasury : treasuries.values()) {
+            synchronized (treasury) {
+                collect(treasury);
+                if (!treasury.dirty) {
+                    continue;
+                }
+                try {
+                    write(treasury);
+                } catch (IllegalAccessException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
-        TreasuryEntity entry = results.get(0);
-        if (entry.getBalance() < amount) {
-            return false;
+    }
+
+    private Treasury treasury(String currencyId) {
+        Treasury treasury = treasuries.get(currencyId);
+        if (treasury != null) {
+            return treasury;
+        }
+        return treasuries.computeIfAbsent(currencyId, id -> {
+            List<TreasuryEntity> results = treasuryDataOperator.query()
+                    .where("currency_id").eq(id)
+                    .list();
+            return new Treasury(id, results.isEmpty() ? null : results.get(0), config.getHotAccountStripes());
+        });
+    }
+
+    /**
+     * Moves collected deposits into the balance. Caller holds the treasury's monitor.
+     */
+    private void collect(Treasury treasury) {
+        long deposits = treasury.deposits.drain();
+        if (deposits != 0) {
+            treasury.balance = plus(treasury.balance, Money.toMajor(deposits, Money.MAX_PRECISION),
+                    treasury.currencyId);
+            treasury.dirty = true;
+        }
+    }
+
+    /**
+     * Writes the balance, inserting the row the first time. Caller holds the treasury's monitor.
+     */
+    private void write(Treasury treasury) throws IllegalAccessException {
+        if (treasury.row == null) {
+            TreasuryEntity row = TreasuryEntity.builder()
+                    .currencyId(treasury.currencyId)
+                    .balance(treasury.balance)
+                    .build();
+            treasuryDataOperator.insert(row);
+            treasury.row = row;
+        } else {
+            double stored = treasury.row.getBalance();
+            treasury.row.setBalance(treasury.balance);
+            try {
+                treasuryDataOperator.update(treasury.row);
+            } catch (IllegalAccessException e) {
+                treasury.row.setBalance(stored);
+                treasury.dirty = true;
+                throw e;
+            }
+        }
+        treasury.dirty = false;
+    }
+
+    private double plus(double balance, double amount, String currencyId) {
+        if (!config.isFixedPointEnabled()) {
+            return balance + amount;
+        }
+        int precision = currencyManager != null
+                ? currencyManager.getPrecision(currencyId) : Money.DEFAULT_PRECISION;
+        return Money.add(balance, amount, precision);
+    }
+
+    private static final class Treasury {
+        private final String currencyId;
+        private final StripedBalance deposits;
+        // Guarded by the treasury's monitor
+        private TreasuryEntity row;
+        private double balance;
+        private boolean dirty;
+
+        private Treasury(String currencyId, TreasuryEntity row, int stripes) {
+            this.currencyId = currencyId;
+            this.row = row;
+            this.balance = row != null ? row.getBalance() : 0.0;
+            this.deposits = new StripedBalance(stripes);
         }
-        entry.setBalance(entry.getBalance() - amount);
-        treasuryDataOperator.update(entry);
-        return true;
     }
 
     @Getter
@@ -0,0 +1,86 @@
+package com.ultikits.plugins.economy.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the richest {@code k} players from a stream of balances with a bounded min-heap, so a
+ * refresh keeps K entries and a {@link WealthHistogram} instead of one entry per player and a
+ * full sort. An entry is only made for a balance that gets into the heap.
+ */
+public final class TopKSelector {
+
+    private final LeaderboardService.LeaderboardEntry[] heap;
+    private final WealthHistogram histogram = new WealthHistogram();
+    private int size;
+
+    public TopKSelector(int k) {
+        this.heap = new LeaderboardService.LeaderboardEntry[Math.max(1, k)];
+    }
+
+    public void offer(String uuid, String playerName, double wealth) {
+        histogram.add(wealth);
+        if (size < heap.length) {
+            heap[size] = new LeaderboardService.LeaderboardEntry(uuid, playerName, wealth);
+            siftUp(size++);
+            return;
+        }
+        LeaderboardService.LeaderboardEntry poorest = heap[0];
+        if (wealth < poorest.getTotalWealth()
+                || wealth == poorest.getTotalWealth() && uuid.compareTo(poorest.getUuid()) >= 0) {
+            return;
+        }
+        heap[0] = new LeaderboardService.LeaderboardEntry(uuid, playerName, wealth);
+        siftDown(0);
+    }
+
+    /**
+     * Publishes what has been offered: the selected entries richest first, ranked exactly,
+     * and the histogram for everyone else.
+     */
+    public LeaderboardSnapshot toSnapshot() {
+        List<LeaderboardService.LeaderboardEntry> sorted = new ArrayList<>(Arrays.asList(heap).subList(0, size));
+        sorted.sort(TopKSelector::richestFirst);
+        return new LeaderboardSnapshot(sorted, histogram);
+    }
+
+    private void siftUp(int i) {
+        LeaderboardService.LeaderboardEntry entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (richestFirst(heap[parent], entry) >= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private void siftDown(int i) {
+        LeaderboardService.LeaderboardEntry entry = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && richestFirst(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (richestFirst(entry, heap[child]) >= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Orders richer players first, ties by uuid; the heap keeps the last of this order on top.
+     */
+    private static int richestFirst(LeaderboardService.LeaderboardEntry a, LeaderboardService.LeaderboardEntry b) {
+        int byWealth = Double.compare(b.getTotalWealth(), a.getTotalWealth());
+        return byWealth != 0 ? byWealth : a.getUuid().compareTo(b.getUuid());
+    }
+}
@@ -0,0 +1,117 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Fills in the stored total wealth of rows written before it was kept, so database-ordered
+ * leaderboards see every player. With a JDBC connection this is one statement per table,
+ * which also adds the column and its index where missing, and runs on every startup since
+ * the store's own writes need the column. Otherwise the tables are read a page at a time and
+ * rows out of step are rewritten; every later write keeps them in step, so the caller records
+ * a complete run and skips the scan afterwards.
+ */
+public class TotalWealthMigration {
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final UltiToolsPlugin plugin;
+    private final DataOperator<PlayerAccountEntity> accountOperator;
+    private final DataOperator<CurrencyBalanceEntity> balanceOperator;
+    private final JdbcBalanceStore store;
+    private final int pageSize;
+
+    /**
+     * @param store null to rewrite rows through the data operators
+     */
+    public TotalWealthMigration(UltiToolsPlugin plugin,
+                                DataOperator<PlayerAccountEntity> accountOperator,
+                                DataOperator<CurrencyBalanceEntity> balanceOperator,
+                                JdbcBalanceStore store) {
+        this(plugin, accountOperator, balanceOperator, store, DEFAULT_PAGE_SIZE);
+    }
+
+    TotalWealthMigration(UltiToolsPlugin plugin,
+                         DataOperator<PlayerAccountEntity> accountOperator,
+                         DataOperator<CurrencyBalanceEntity> balanceOperator,
+                         JdbcBalanceStore store,
+                         int pageSize) {
+        this.plugin = plugin;
+        this.accountOperator = accountOperator;
+        this.balanceOperator = balanceOperator;
+        this.store = store;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return true if every row now holds its total wealth
+     */
+    public boolean run() {
+        if (store != null) {
+            try {
+                int filled = store.indexTotalWealth();
+                if (filled > 0) {
+                    plugin.getLogger().info("Stored the total wealth of " + filled + " rows");
+                }
+                return true;
+            } catch (SQLException e) {
+                plugin.getLogger().error("Failed to index total wealth: " + e.getMessage());
+                return false;
+            }
+        }
+
+        boolean complete = true;
+        int migrated = 0;
+        for (int offset = 0; ; offset += pageSize) {
+            List<PlayerAccountEntity> page = accountOperator.query()
+                    .orderBy("id").limit(pageSize).offset(offset).list();
+            for (PlayerAccountEntity account : page) {
+                if (account.getStoredWealth() == account.getTotalWealth()) {
+                    continue;
+                }
+                try {
+                    account.setStoredWealth(account.getTotalWealth());
+                    accountOperator.update(account);
+                    migrated++;
+                } catch (IllegalAccessException e) {
+                    complete = false;
+                    plugin.getLogger().error("Failed to store total wealth of account "
+                            + account.getUuid() + ": " + e.getMessage());
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        for (int offset = 0; ; offset += pageSize) {
+            List<CurrencyBalanceEntity> page = balanceOperator.query()
+                    .orderBy("id").limit(pageSize).offset(offset).list();
+            for (CurrencyBalanceEntity balance : page) {
+                if (balance.getStoredWealth() == balance.getTotalWealth()) {
+                    continue;
+                }
+                try {
+                    balance.setStoredWealth(balance.getTotalWealth());
+                    balanceOperator.update(balance);
+                    migrated++;
+                } catch (IllegalAccessException e) {
+                    complete = false;
+                    plugin.getLogger().error("Failed to store total wealth of balance " + balance.getUuid()
+                            + ":" + balance.getCurrencyId() + ": " + e.getMessage());
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        if (migrated > 0) {
+            plugin.getLogger().info("Stored the total wealth of " + migrated + " rows");
+        }
+        return complete;
+    }
+}
@@ -0,0 +1,275 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of balance after-images. Every mutation appends one record
+ * holding the new cash and bank of each row it touches before any of those rows is written,
+ * so a transfer's debit and credit are durable together or not at all. Replaying the log
+ * rewrites the rows to their last logged state; because records are after-images rather than
+ * deltas, replaying a record that already reached the database is harmless. Each image also
+ * carries the row version it was taken at, so rows that moved on since, for example through
+ * an atomic increment that bypasses the log, are not rolled back.
+ * <p>
+ * Each record is {@code [int length][int crc32][payload]}. Reading stops at the first record
+ * that is short or fails its checksum, which is where a crash cut the last append off.
+ */
+public class TransactionLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 24;
+    private static final byte ACCOUNT = 0;
+    private static final byte BALANCE = 1;
+
+    private final File file;
+    private final boolean fsync;
+    private FileChannel channel;
+    private long sequence;
+
+    public TransactionLog(File file, boolean fsync) throws IOException {
+        this.file = file;
+        this.fsync = fsync;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        this.channel = open();
+    }
+
+    private FileChannel open() throws IOException {
+        FileChannel opened = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        opened.position(opened.size());
+        return opened;
+    }
+
+    /**
+     * Appends one record holding every image of a single mutation. The record is on disk
+     * (or, without fsync, in the OS page cache, which survives a killed process) on return.
+     */
+    public synchronized void append(List<Image> images) throws IOException {
+        if (images.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + images.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(++sequence);
+        out.writeInt(images.size());
+        for (Image image : images) {
+            out.writeByte(image.currencyId == null ? ACCOUNT : BALANCE);
+            out.writeUTF(image.uuid);
+            if (image.currencyId != null) {
+                out.writeUTF(image.currencyId);
+            }
+            out.writeDouble(image.cash);
+            out.writeDouble(image.bank);
+            out.writeLong(image.version);
+        }
+        byte[] payload = bytes.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt(checksum(payload, payload.length)).put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads every intact record in append order. A torn or corrupt tail is cut off so the
+     * next append starts on a record boundary.
+     */
+    public synchronized List<Image> read() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Transaction log too large to replay: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+
+        List<Image> images = new ArrayList<>();
+        long valid = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(payload, length) != crc) {
+                break;
+            }
+            try {
+                sequence = Math.max(sequence, decode(payload, images));
+            } catch (IOException e) {
+                break;
+            }
+            valid = buffer.position();
+        }
+        if (valid < size) {
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        return images;
+    }
+
+    private static long decode(byte[] payload, List<Image> into) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long seq = in.readLong();
+        int count = in.readInt();
+        List<Image> decoded = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            String uuid = in.readUTF();
+            String currencyId = kind == BALANCE ? in.readUTF() : null;
+            decoded.add(new Image(uuid, currencyId, in.readDouble(), in.readDouble(), in.readLong()));
+        }
+        into.addAll(decoded);
+        return seq;
+    }
+
+    /**
+     * Returns the end of the log once no mutation is between its append and the point where
+     * it becomes visible to the flusher. Every stripe is held briefly, so records before the
+     * mark belong to mutations that have fully completed.
+     */
+    public long mark(AccountLocks locks) throws IOException {
+        ReentrantLock[] held = locks.all();
+        AccountLocks.lockAll(held);
+        try {
+            synchronized (this) {
+                return channel.size();
+            }
+        } finally {
+            AccountLocks.unlockAll(held);
+        }
+    }
+
+    /**
+     * Drops every record before {@code mark}, which the caller has made durable elsewhere.
+     * Records appended after the mark are copied into a fresh file that atomically replaces
+     * the log, so a crash while compacting leaves either the old log or the new one.
+     */
+    public synchronized void truncate(long mark) throws IOException {
+        long size = channel.size();
+        if (mark >= size) {
+            channel.truncate(0);
+            channel.position(0);
+            return;
+        }
+        if (mark <= 0) {
+            return;
+        }
+        File compacted = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long copied = 0;
+            while (copied < size - mark) {
+                copied += channel.transferTo(mark + copied, size - mark - copied, out);
+            }
+            out.force(false);
+        }
+        channel.close();
+        try {
+            Files.move(compacted.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = open();
+        }
+    }
+
+    /**
+     * Compacts the log when every logged mutation has already been written to the database,
+     * which is the case whenever the write-behind cache is off.
+     */
+    public void checkpoint(AccountLocks locks) throws IOException {
+        truncate(mark(locks));
+    }
+
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The state of one row after a mutation. {@code currencyId} is null for a primary account.
+     */
+    @Getter
+    public static final class Image {
+        private final String uuid;
+        private final String currencyId;
+        private final double cash;
+        private final double bank;
+        private final long version;
+
+        public Image(String uuid, String currencyId, double cash, double bank) {
+            this(uuid, currencyId, cash, bank, 0L);
+        }
+
+        public Image(String uuid, String currencyId, double cash, double bank, long version) {
+            this.uuid = uuid;
+            this.currencyId = currencyId;
+            this.cash = cash;
+            this.bank = bank;
+            this.version = version;
+        }
+
+        public static Image of(PlayerAccountEntity account) {
+            return new Image(account.getUuid(), null, account.getCash(), account.getBank(), account.getVersion());
+        }
+
+        public static Image of(CurrencyBalanceEntity balance) {
+            return new Image(balance.getUuid(), balance.getCurrencyId(),
+                    balance.getCash(), balance.getBank(), balance.getVersion());
+        }
+
+        public boolean isAccount() {
+            return currencyId == null;
+        }
+
+        String key() {
+            return currencyId == null ? uuid : BalanceCache.balanceKey(uuid, currencyId);
+        }
+    }
+}
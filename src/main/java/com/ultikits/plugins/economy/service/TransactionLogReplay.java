@@ -0,0 +1,126 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings the balance tables up to date with the {@link TransactionLog} on startup. Only the
+ * last image of each row matters, and rows that already hold it or have a newer version are
+ * skipped, so after a clean shutdown this is one read of an empty log. Rows storage no longer
+ * holds, such as a damaged record dropped from the balance file, are inserted again from their
+ * image. The log is cleared once every row is written; if any write fails it is kept so the
+ * next start tries again.
+ */
+public class TransactionLogReplay {
+
+    private final UltiToolsPlugin plugin;
+    private final TransactionLog log;
+    private final BalanceRepository repository;
+
+    public TransactionLogReplay(UltiToolsPlugin plugin,
+                                TransactionLog log,
+                                DataOperator<PlayerAccountEntity> accountOperator,
+                                DataOperator<CurrencyBalanceEntity> balanceOperator) {
+        this(plugin, log, new SplitTableRepository(accountOperator, balanceOperator));
+    }
+
+    public TransactionLogReplay(UltiToolsPlugin plugin, TransactionLog log, BalanceRepository repository) {
+        this.plugin = plugin;
+        this.log = log;
+        this.repository = repository;
+    }
+
+    /**
+     * @return number of rows rewritten
+     */
+    public int run() {
+        List<TransactionLog.Image> images;
+        try {
+            images = log.read();
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to read transaction log: " + e.getMessage());
+            return 0;
+        }
+        Map<String, TransactionLog.Image> latest = new LinkedHashMap<>();
+        for (TransactionLog.Image image : images) {
+            latest.put(image.key(), image);
+        }
+
+        int restored = 0;
+        boolean complete = true;
+        for (TransactionLog.Image image : latest.values()) {
+            try {
+                if (image.isAccount() ? restoreAccount(image) : restoreBalance(image)) {
+                    restored++;
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                complete = false;
+                plugin.getLogger().error("Failed to replay " + image.key() + ": " + e.getMessage());
+            }
+        }
+
+        if (complete) {
+            try {
+                log.truncate(log.size());
+            } catch (IOException e) {
+                plugin.getLogger().error("Failed to clear transaction log: " + e.getMessage());
+            }
+        }
+        return restored;
+    }
+
+    private boolean restoreAccount(TransactionLog.Image image) throws IllegalAccessException {
+        PlayerAccountEntity account = repository.findAccount(image.getUuid());
+        if (account == null) {
+            // The image is all that is left of the row, so the player's name stays blank
+            repository.insertAccount(PlayerAccountEntity.builder()
+                    .uuid(image.getUuid())
+                    .cash(image.getCash())
+                    .bank(image.getBank())
+                    .version(image.getVersion())
+                    .build());
+            plugin.getLogger().info("Restored missing account " + image.getUuid() + " from the transaction log");
+            return true;
+        }
+        if (account.getVersion() > image.getVersion()
+                || account.getCash() == image.getCash() && account.getBank() == image.getBank()) {
+            return false;
+        }
+        account.setCash(image.getCash());
+        account.setBank(image.getBank());
+        account.setVersion(account.getVersion() + 1);
+        repository.updateAccount(account);
+        return true;
+    }
+
+    private boolean restoreBalance(TransactionLog.Image image) throws IllegalAccessException {
+        CurrencyBalanceEntity balance = repository.findBalance(image.getUuid(), image.getCurrencyId());
+        if (balance == null) {
+            repository.insertBalance(CurrencyBalanceEntity.builder()
+                    .uuid(image.getUuid())
+                    .currencyId(image.getCurrencyId())
+                    .cash(image.getCash())
+                    .bank(image.getBank())
+                    .version(image.getVersion())
+                    .build());
+            plugin.getLogger().info("Restored missing balance " + image.key() + " from the transaction log");
+            return true;
+        }
+        if (balance.getVersion() > image.getVersion()
+                || balance.getCash() == image.getCash() && balance.getBank() == image.getBank()) {
+            return false;
+        }
+        balance.setCash(image.getCash());
+        balance.setBank(image.getBank());
+        balance.setVersion(balance.getVersion() + 1);
+        repository.updateBalance(balance);
+        return true;
+    }
+}
@@ -0,0 +1,165 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.WalletEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies the split {@code economy_accounts} and {@code currency_balances} tables into
+ * {@code economy_wallets}, a page at a time so large servers never hold either table in
+ * memory. Accounts go first, then every balance is added to its player's wallet. The old
+ * tables stay authoritative until a run completes, so each copy overwrites what a wallet
+ * holds and an interrupted run is simply started again. Switching wallets back off copies
+ * them into the old tables the same way with {@link #export(BalanceRepository)}.
+ */
+public class WalletMigration {
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final UltiToolsPlugin plugin;
+    private final DataOperator<PlayerAccountEntity> accountOperator;
+    private final DataOperator<CurrencyBalanceEntity> balanceOperator;
+    private final DataOperator<WalletEntity> walletOperator;
+    private final int pageSize;
+
+    public WalletMigration(UltiToolsPlugin plugin,
+                           DataOperator<PlayerAccountEntity> accountOperator,
+                           DataOperator<CurrencyBalanceEntity> balanceOperator,
+                           DataOperator<WalletEntity> walletOperator) {
+        this(plugin, accountOperator, balanceOperator, walletOperator, DEFAULT_PAGE_SIZE);
+    }
+
+    WalletMigration(UltiToolsPlugin plugin,
+                    DataOperator<PlayerAccountEntity> accountOperator,
+                    DataOperator<CurrencyBalanceEntity> balanceOperator,
+                    DataOperator<WalletEntity> walletOperator,
+                    int pageSize) {
+        this.plugin = plugin;
+        this.accountOperator = accountOperator;
+        this.balanceOperator = balanceOperator;
+        this.walletOperator = walletOperator;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return true if every row was copied
+     */
+    public boolean run() {
+        boolean complete = true;
+        int copied = 0;
+
+        for (int offset = 0; ; offset += pageSize) {
+            List<PlayerAccountEntity> page = accountOperator.query()
+                    .orderBy("id").limit(pageSize).offset(offset).list();
+            for (PlayerAccountEntity account : page) {
+                try {
+                    copy(account);
+                    copied++;
+                } catch (IllegalAccessException | RuntimeException e) {
+                    complete = false;
+                    plugin.getLogger().error("Failed to migrate account " + account.getUuid() + ": " + e.getMessage());
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        for (int offset = 0; ; offset += pageSize) {
+            List<CurrencyBalanceEntity> page = balanceOperator.query()
+                    .orderBy("id").limit(pageSize).offset(offset).list();
+            for (CurrencyBalanceEntity balance : page) {
+                try {
+                    copy(balance);
+                    copied++;
+                } catch (IllegalAccessException | RuntimeException e) {
+                    complete = false;
+                    plugin.getLogger().error("Failed to migrate balance " + balance.getUuid()
+                            + ":" + balance.getCurrencyId() + ": " + e.getMessage());
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        plugin.getLogger().info("Migrated " + copied + " rows into wallets");
+        return complete;
+    }
+
+    /**
+     * Copies every wallet back into the old tables, overwriting what they hold.
+     *
+     * @return true if every row was copied
+     */
+    public boolean export(BalanceRepository tables) {
+        boolean complete = true;
+        int copied = 0;
+
+        for (int offset = 0; ; offset += pageSize) {
+            List<WalletEntity> page = walletOperator.query()
+                    .orderBy("id").limit(pageSize).offset(offset).list();
+            for (WalletEntity wallet : page) {
+                try {
+                    PlayerAccountEntity account = WalletRepository.account(wallet);
+                    if (account != null) {
+                        MappedFileBridge.copy(account, tables);
+                        copied++;
+                    }
+                    for (CurrencyBalanceEntity balance : WalletRepository.decode(wallet).values()) {
+                        MappedFileBridge.copy(balance, tables);
+                        copied++;
+                    }
+                } catch (IllegalAccessException | RuntimeException e) {
+                    complete = false;
+                    plugin.getLogger().error("Failed to export wallet " + wallet.getUuid() + ": " + e.getMessage());
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        plugin.getLogger().info("Exported " + copied + " rows from wallets");
+        return complete;
+    }
+
+    private void copy(PlayerAccountEntity account) throws IllegalAccessException {
+        WalletEntity wallet = find(account.getUuid());
+        if (wallet == null) {
+            wallet = WalletEntity.builder().uuid(account.getUuid()).build();
+            WalletRepository.assign(wallet, account);
+            walletOperator.insert(wallet);
+            return;
+        }
+        WalletRepository.assign(wallet, account);
+        walletOperator.update(wallet);
+    }
+
+    private void copy(CurrencyBalanceEntity balance) throws IllegalAccessException {
+        WalletEntity wallet = find(balance.getUuid());
+        if (wallet == null) {
+            wallet = WalletEntity.builder().uuid(balance.getUuid()).build();
+            wallet.setBalances(WalletRepository.encode(Collections.singletonList(balance)));
+            walletOperator.insert(wallet);
+            return;
+        }
+        Map<String, CurrencyBalanceEntity> balances = WalletRepository.decode(wallet);
+        balances.put(balance.getCurrencyId(), balance);
+        wallet.setBalances(WalletRepository.encode(balances.values()));
+        walletOperator.update(wallet);
+    }
+
+    private WalletEntity find(String uuid) {
+        List<WalletEntity> results = walletOperator.query()
+                .where("uuid").eq(uuid)
+                .list();
+        return results.isEmpty() ? null : results.get(0);
+    }
+}
@@ -0,0 +1,318 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.WalletEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps each player's account and balances in one {@link WalletEntity} row, so looking a
+ * player up is one query and a sweep over everyone is one scan. Accounts and balances are
+ * handed out as the usual entities; writing one back re-reads the wallet row, replaces that
+ * part of it and writes the row, once for all balances passed to
+ * {@link #updateBalances(String, Collection)} and once for an account and balances passed to
+ * {@link #updatePlayer}. Those read-modify-writes are serialized per player here,
+ * since callers lock per currency and two currencies of one player share a row.
+ */
+public class WalletRepository implements BalanceRepository {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final DataOperator<WalletEntity> operator;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public WalletRepository(DataOperator<WalletEntity> operator) {
+        this.operator = operator;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // --- Accounts ---
+
+    @Override
+    public PlayerAccountEntity findAccount(String uuid) {
+        WalletEntity wallet = find(uuid);
+        return wallet != null ? account(wallet) : null;
+    }
+
+    @Override
+    public List<PlayerAccountEntity> findAccounts(Collection<String> uuids) {
+        if (uuids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return accounts(operator.query().where("uuid").in(uuids).list());
+    }
+
+    @Override
+    public List<PlayerAccountEntity> allAccounts() {
+        return accounts(operator.getAll());
+    }
+
+    @Override
+    public void insertAccount(PlayerAccountEntity account) {
+        ReentrantLock lock = lockFor(account.getUuid());
+        lock.lock();
+        try {
+            WalletEntity wallet = find(account.getUuid());
+            if (wallet == null) {
+                wallet = WalletEntity.builder().uuid(account.getUuid()).build();
+                assign(wallet, account);
+                operator.insert(wallet);
+                return;
+            }
+            assign(wallet, account);
+            write(wallet);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateAccount(PlayerAccountEntity account) throws IllegalAccessException {
+        write(account.getUuid(), account, Collections.emptyList());
+    }
+
+    // --- Balances ---
+
+    @Override
+    public CurrencyBalanceEntity findBalance(String uuid, String currencyId) {
+        WalletEntity wallet = find(uuid);
+        return wallet != null ? decode(wallet).get(currencyId) : null;
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(String uuid) {
+        WalletEntity wallet = find(uuid);
+        return wallet != null ? new ArrayList<>(decode(wallet).values()) : Collections.emptyList();
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> findBalances(Collection<String> uuids, Collection<String> currencyIds) {
+        if (uuids.isEmpty() || currencyIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CurrencyBalanceEntity> found = new ArrayList<>();
+        for (WalletEntity wallet : operator.query().where("uuid").in(uuids).list()) {
+            for (CurrencyBalanceEntity balance : decode(wallet).values()) {
+                if (currencyIds.contains(balance.getCurrencyId())) {
+                    found.add(balance);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<CurrencyBalanceEntity> allBalances() {
+        List<CurrencyBalanceEntity> found = new ArrayList<>();
+        for (WalletEntity wallet : operator.getAll()) {
+            found.addAll(decode(wallet).values());
+        }
+        return found;
+    }
+
+    @Override
+    public void insertBalance(CurrencyBalanceEntity balance) {
+        ReentrantLock lock = lockFor(balance.getUuid());
+        lock.lock();
+        try {
+            WalletEntity wallet = find(balance.getUuid());
+            if (wallet == null) {
+                wallet = WalletEntity.builder().uuid(balance.getUuid()).build();
+                wallet.setBalances(encode(Collections.singletonList(balance)));
+                operator.insert(wallet);
+                return;
+            }
+            Map<String, CurrencyBalanceEntity> balances = decode(wallet);
+            balances.put(balance.getCurrencyId(), balance);
+            wallet.setBalances(encode(balances.values()));
+            write(wallet);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateBalance(CurrencyBalanceEntity balance) throws IllegalAccessException {
+        updateBalances(balance.getUuid(), Collections.singletonList(balance));
+    }
+
+    /**
+     * Replaces every given balance in one read and one write of the player's wallet.
+     */
+    @Override
+    public void updateBalances(String uuid, Collection<CurrencyBalanceEntity> updated) throws IllegalAccessException {
+        write(uuid, null, updated);
+    }
+
+    /**
+     * Replaces the account and every given balance in one read and one write of the player's wallet.
+     */
+    @Override
+    public void updatePlayer(String uuid, PlayerAccountEntity account,
+                             Collection<CurrencyBalanceEntity> balances) throws IllegalAccessException {
+        write(uuid, account, balances);
+    }
+
+    // --- Whole wallets ---
+
+    @Override
+    public WalletSnapshot findWallet(String uuid) {
+        WalletEntity wallet = find(uuid);
+        if (wallet == null) {
+            return WalletSnapshot.empty(uuid);
+        }
+        return WalletSnapshot.of(uuid, account(wallet), decode(wallet).values());
+    }
+
+    @Override
+    public void forEachPlayer(BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor) {
+        for (WalletEntity wallet : operator.getAll()) {
+            visitor.accept(account(wallet), new ArrayList<>(decode(wallet).values()));
+        }
+    }
+
+    private WalletEntity find(String uuid) {
+        List<WalletEntity> results = operator.query()
+                .where("uuid").eq(uuid)
+                .list();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * @param account null to leave the wallet's account as it is
+     */
+    private void write(String uuid, PlayerAccountEntity account,
+                       Collection<CurrencyBalanceEntity> updated) throws IllegalAccessException {
+        ReentrantLock lock = lockFor(uuid);
+        lock.lock();
+        try {
+            WalletEntity wallet = find(uuid);
+            if (account != null && (wallet == null || !wallet.isAccountOpen())) {
+                throw new IllegalAccessException("No account for " + uuid);
+            }
+            Map<String, CurrencyBalanceEntity> balances = wallet != null ? decode(wallet) : null;
+            for (CurrencyBalanceEntity balance : updated) {
+                if (balances == null || !balances.containsKey(balance.getCurrencyId())) {
+                    throw new IllegalAccessException("No " + balance.getCurrencyId() + " balance for " + uuid);
+                }
+                balances.put(balance.getCurrencyId(), balance);
+            }
+            if (wallet == null) {
+                return;
+            }
+            if (account != null) {
+                assign(wallet, account);
+            }
+            if (!updated.isEmpty()) {
+                wallet.setBalances(encode(balances.values()));
+            }
+            operator.update(wallet);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(WalletEntity wallet) {
+        try {
+            operator.update(wallet);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to update wallet " + wallet.getUuid(), e);
+        }
+    }
+
+    private ReentrantLock lockFor(String uuid) {
+        return locks[(uuid.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    // --- Mapping ---
+
+    /**
+     * @return the wallet's primary account, or null if it only holds currency balances
+     */
+    static PlayerAccountEntity account(WalletEntity wallet) {
+        if (!wallet.isAccountOpen()) {
+            return null;
+        }
+        return PlayerAccountEntity.builder()
+                .uuid(wallet.getUuid())
+                .playerName(wallet.getPlayerName())
+                .cash(wallet.getCash())
+                .bank(wallet.getBank())
+                .version(wallet.getVersion())
+                .build();
+    }
+
+    private static List<PlayerAccountEntity> accounts(List<WalletEntity> wallets) {
+        List<PlayerAccountEntity> accounts = new ArrayList<>(wallets.size());
+        for (WalletEntity wallet : wallets) {
+            PlayerAccountEntity account = account(wallet);
+            if (account != null) {
+                accounts.add(account);
+            }
+        }
+        return accounts;
+    }
+
+    static void assign(WalletEntity wallet, PlayerAccountEntity account) {
+        wallet.setAccountOpen(true);
+        wallet.setPlayerName(account.getPlayerName());
+        wallet.setCash(account.getCash());
+        wallet.setBank(account.getBank());
+        wallet.setVersion(account.getVersion());
+    }
+
+    /**
+     * Whether a wallet row can hold balances of this currency. Balances are stored as
+     * {@code id=cash,bank,version;...} without escaping, so ids may not contain those separators.
+     */
+    public static boolean canStore(String currencyId) {
+        return currencyId.indexOf(';') < 0 && currencyId.indexOf('=') < 0 && currencyId.indexOf(',') < 0;
+    }
+
+    static Map<String, CurrencyBalanceEntity> decode(WalletEntity wallet) {
+        Map<String, CurrencyBalanceEntity> balances = new LinkedHashMap<>();
+        String encoded = wallet.getBalances();
+        if (encoded == null || encoded.isEmpty()) {
+            return balances;
+        }
+        for (String entry : encoded.split(";")) {
+            int eq = entry.indexOf('=');
+            String[] fields = entry.substring(eq + 1).split(",");
+            String currencyId = entry.substring(0, eq);
+            balances.put(currencyId, CurrencyBalanceEntity.builder()
+                    .uuid(wallet.getUuid())
+                    .currencyId(currencyId)
+                    .cash(Double.parseDouble(fields[0]))
+                    .bank(Double.parseDouble(fields[1]))
+                    .version(Long.parseLong(fields[2]))
+                    .build());
+        }
+        return balances;
+    }
+
+    static String encode(Collection<CurrencyBalanceEntity> balances) {
+        StringBuilder encoded = new StringBuilder();
+        for (CurrencyBalanceEntity balance : balances) {
+            if (encoded.length() > 0) {
+                encoded.append(';');
+            }
+            encoded.append(balance.getCurrencyId()).append('=')
+                    .append(balance.getCash()).append(',')
+                    .append(balance.getBank()).append(',')
+                    .append(balance.getVersion());
+        }
+        return encoded.toString();
+    }
+}
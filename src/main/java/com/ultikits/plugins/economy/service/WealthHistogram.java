@@ -0,0 +1,57 @@
+package com.ultikits.plugins.economy.service;
+
+/**
+ * Counts of players by wealth in log-spaced buckets, 16 to a decade from 0.01 up to 10^15,
+ * with one bucket for zero or less and one for everything larger. Used to estimate the rank
+ * of players outside a top-K leaderboard, assuming wealth spreads evenly across the log
+ * scale within a bucket; the estimate is off by at most the count of one bucket.
+ */
+public final class WealthHistogram {
+
+    private static final int PER_DECADE = 16;
+    private static final int LOWEST_DECADE = -2;
+    private static final int DECADES = 17;
+    private static final int BUCKETS = DECADES * PER_DECADE + 2;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    public void add(double wealth) {
+        counts[bucket(wealth)]++;
+        total++;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Estimates the 1-based rank among everyone counted of a player with this wealth, who is
+     * assumed to be counted too.
+     */
+    public long estimateRank(double wealth) {
+        int bucket = bucket(wealth);
+        long richer = 0;
+        for (int i = BUCKETS - 1; i > bucket; i--) {
+            richer += counts[i];
+        }
+        double above = 0;
+        if (bucket > 0 && bucket < BUCKETS - 1) {
+            // Position of the wealth within its bucket on the log scale, 0 at the bottom
+            double position = (Math.log10(wealth) - LOWEST_DECADE) * PER_DECADE - (bucket - 1);
+            above = Math.max(0, counts[bucket] - 1) * (1.0 - Math.max(0.0, Math.min(1.0, position)));
+        }
+        return richer + Math.round(above) + 1;
+    }
+
+    private static int bucket(double wealth) {
+        if (!(wealth > 0)) {
+            return 0;
+        }
+        double scaled = (Math.log10(wealth) - LOWEST_DECADE) * PER_DECADE;
+        if (scaled < 0) {
+            return 1;
+        }
+        return (int) Math.min(BUCKETS - 1, 1 + (long) scaled);
+    }
+}
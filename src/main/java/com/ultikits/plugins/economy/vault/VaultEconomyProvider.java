@@ -138,7 +138,7 @@ public class VaultEconomyProvider implements Economy {
 
     @Override
     public boolean has(OfflinePlayer player, double amount) {
-        return economyService.getCash(player.getUniqueId()) >= amount;
+        return getBalance(player) >= amount;
     }
 
     @Override
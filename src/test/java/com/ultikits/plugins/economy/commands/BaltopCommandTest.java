@@ -0,0 +1,129 @@
+package com.ultikits.plugins.economy.commands;
+
+import com.ultikits.plugins.economy.model.CurrencyDefinition;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
+import com.ultikits.plugins.economy.service.CurrencyManager;
+import com.ultikits.plugins.economy.service.EconomyService;
+import com.ultikits.plugins.economy.service.LeaderboardService;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("BaltopCommand")
+@ExtendWith(MockitoExtension.class)
+class BaltopCommandTest {
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private EconomyService economyService;
+    @Mock private AsyncEconomyService asyncEconomyService;
+    @Mock private LeaderboardService leaderboardService;
+    @Mock private CurrencyManager currencyManager;
+    @Mock private CommandSender sender;
+
+    private BaltopCommand command;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(plugin.i18n(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(asyncEconomyService.mainThread()).thenReturn(Runnable::run);
+        lenient().when(asyncEconomyService.submit(any())).thenAnswer(inv ->
+                completedFuture(((Function<EconomyService, Object>) inv.getArgument(0)).apply(economyService)));
+        lenient().when(leaderboardService.getDefaultDisplayCount()).thenReturn(10);
+        command = BaltopCommand.createForTest(plugin, economyService, asyncEconomyService,
+                leaderboardService, currencyManager);
+    }
+
+    private List<String> messages(int count) {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(sender, times(count)).sendMessage(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    @DisplayName("numbers later pages on from the ones before them")
+    void numbersPages() {
+        when(leaderboardService.getPage(2, null)).thenReturn(Arrays.asList(
+                new LeaderboardService.LeaderboardEntry("a", "Alice", 50),
+                new LeaderboardService.LeaderboardEntry("b", "Bob", 20)));
+        when(economyService.formatAmount(anyDouble())).thenAnswer(inv -> "$" + inv.getArgument(0));
+
+        command.onPage(sender, "2");
+
+        List<String> lines = messages(3);
+        assertThat(lines.get(0)).contains(String.format("财富排行榜 - 第 %d 页", 2));
+        assertThat(lines.get(1)).contains("#11 Alice").contains("$50.0");
+        assertThat(lines.get(2)).contains("#12 Bob").contains("$20.0");
+    }
+
+    @Test
+    @DisplayName("shows the first page without arguments")
+    void firstPage() {
+        when(leaderboardService.getPage(1, null)).thenReturn(Collections.singletonList(
+                new LeaderboardService.LeaderboardEntry("a", "Alice", 50)));
+        when(economyService.formatAmount(50.0)).thenReturn("$50.00");
+
+        command.onTop(sender);
+
+        assertThat(messages(2).get(1)).contains("#1 Alice").contains("$50.00");
+    }
+
+    @Test
+    @DisplayName("formats a currency page in that currency")
+    void currencyPage() {
+        when(currencyManager.getCurrency("gems")).thenReturn(CurrencyDefinition.builder().id("gems").build());
+        when(leaderboardService.getPage(1, "gems")).thenReturn(Collections.singletonList(
+                new LeaderboardService.LeaderboardEntry("a", "Alice", 9)));
+        when(economyService.formatAmount(9.0, "gems")).thenReturn("9 Gems");
+
+        command.onCurrencyPage(sender, "1", "gems");
+
+        List<String> lines = messages(2);
+        assertThat(lines.get(0)).contains("(gems)");
+        assertThat(lines.get(1)).contains("9 Gems");
+    }
+
+    @Test
+    @DisplayName("rejects an unknown currency without reading a page")
+    void unknownCurrency() {
+        command.onCurrencyPage(sender, "1", "nope");
+
+        assertThat(messages(1).get(0)).contains("货币不存在");
+        verifyNoInteractions(leaderboardService);
+    }
+
+    @Test
+    @DisplayName("rejects a page that is not a positive number")
+    void invalidPage() {
+        command.onPage(sender, "0");
+        command.onPage(sender, "abc");
+
+        assertThat(messages(2)).allMatch(message -> message.contains("无效的页码"));
+        verifyNoInteractions(leaderboardService);
+    }
+
+    @Test
+    @DisplayName("says so when the page is past the end")
+    void emptyPage() {
+        when(leaderboardService.getPage(9, null)).thenReturn(Collections.emptyList());
+
+        command.onPage(sender, "9");
+
+        assertThat(messages(1).get(0)).contains("该页没有数据");
+    }
+}
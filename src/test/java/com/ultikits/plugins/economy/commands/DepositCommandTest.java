@@ -1,6 +1,7 @@
 package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import org.bukkit.command.CommandSender;
@@ -12,8 +13,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.UUID;
+import java.util.function.Function;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -23,6 +27,7 @@ class DepositCommandTest {
 
     @Mock private UltiToolsPlugin plugin;
     @Mock private EconomyService economyService;
+    @Mock private AsyncEconomyService asyncEconomyService;
     @Mock private Player player;
 
     private EconomyConfig config;
@@ -34,7 +39,10 @@ class DepositCommandTest {
         config = new EconomyConfig();
         lenient().when(plugin.i18n(anyString())).thenAnswer(inv -> inv.getArgument(0));
         lenient().when(player.getUniqueId()).thenReturn(PLAYER_UUID);
-        command = new DepositCommand(plugin, economyService, config);
+        lenient().when(asyncEconomyService.mainThread()).thenReturn(Runnable::run);
+        lenient().when(asyncEconomyService.submit(any())).thenAnswer(inv ->
+                completedFuture(inv.<Function<EconomyService, ?>>getArgument(0).apply(economyService)));
+        command = new DepositCommand(plugin, economyService, asyncEconomyService, config);
     }
 
     @Test
@@ -125,7 +133,7 @@ class DepositCommandTest {
     @Test
     @DisplayName("successful deposit with specific currency")
     void depositWithCurrency() {
-        when(economyService.depositToBank(PLAYER_UUID, 500.0, "gems")).thenReturn(true);
+        when(asyncEconomyService.depositToBank(PLAYER_UUID, 500.0, "gems")).thenReturn(completedFuture(true));
         when(economyService.formatAmount(500.0, "gems")).thenReturn("G500.00");
 
         command.onDepositCurrency(player, "500", "gems");
@@ -168,7 +176,7 @@ class DepositCommandTest {
     @Test
     @DisplayName("currency deposit with insufficient cash shows error")
     void depositCurrencyInsufficientCash() {
-        when(economyService.depositToBank(PLAYER_UUID, 500.0, "gems")).thenReturn(false);
+        when(asyncEconomyService.depositToBank(PLAYER_UUID, 500.0, "gems")).thenReturn(completedFuture(false));
 
         command.onDepositCurrency(player, "500", "gems");
 
@@ -1,8 +1,13 @@
 package com.ultikits.plugins.economy.commands;
 
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
 import com.ultikits.plugins.economy.model.CurrencyDefinition;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.plugins.economy.service.BalanceRepository;
 import com.ultikits.plugins.economy.service.CurrencyManager;
 import com.ultikits.plugins.economy.service.EconomyService;
+import com.ultikits.plugins.economy.service.GroupCommitRepository;
 import com.ultikits.plugins.economy.service.TaxService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import org.bukkit.Bukkit;
@@ -16,6 +21,7 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -242,9 +248,10 @@ class EcoAdminCommandTest {
         void checkSuccess() {
             try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
                 bukkit.when(() -> Bukkit.getOfflinePlayer("Steve")).thenReturn(targetPlayer);
-                when(economyService.getCash(TARGET_UUID)).thenReturn(1000.0);
-                when(economyService.getBank(TARGET_UUID)).thenReturn(5000.0);
-                when(economyService.getTotalWealth(TARGET_UUID)).thenReturn(6000.0);
+                PlayerAccountEntity account = PlayerAccountEntity.builder()
+                        .uuid(TARGET_UUID.toString()).playerName("Steve").cash(1000.0).bank(5000.0).build();
+                when(economyService.getWallet(TARGET_UUID)).thenReturn(
+                        WalletSnapshot.of(TARGET_UUID.toString(), account, Collections.emptyList()));
                 when(economyService.formatAmount(1000.0)).thenReturn("$1,000.00");
                 when(economyService.formatAmount(5000.0)).thenReturn("$5,000.00");
                 when(economyService.formatAmount(6000.0)).thenReturn("$6,000.00");
@@ -320,9 +327,10 @@ class EcoAdminCommandTest {
         void checkCurrency() {
             try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
                 bukkit.when(() -> Bukkit.getOfflinePlayer("Steve")).thenReturn(targetPlayer);
-                when(economyService.getCash(TARGET_UUID, "gems")).thenReturn(250.0);
-                when(economyService.getBank(TARGET_UUID, "gems")).thenReturn(0.0);
-                when(economyService.getTotalWealth(TARGET_UUID, "gems")).thenReturn(250.0);
+                CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                        .uuid(TARGET_UUID.toString()).currencyId("gems").cash(250.0).bank(0.0).build();
+                when(economyService.getWallet(TARGET_UUID)).thenReturn(
+                        WalletSnapshot.of(TARGET_UUID.toString(), null, Collections.singletonList(gems)));
                 when(economyService.formatAmount(250.0, "gems")).thenReturn("G250.00");
                 when(economyService.formatAmount(0.0, "gems")).thenReturn("G0.00");
 
@@ -430,4 +438,36 @@ class EcoAdminCommandTest {
             assertThat(captor.getValue()).contains("税收系统未启用");
         }
     }
+
+    @Nested
+    @DisplayName("Stats")
+    class StatsTests {
+
+        @Test
+        @DisplayName("stats reports group-commit savings")
+        void stats() throws Exception {
+            GroupCommitRepository groupCommit = new GroupCommitRepository(plugin, mock(BalanceRepository.class), null);
+            for (int i = 0; i < 4; i++) {
+                groupCommit.updateAccount(PlayerAccountEntity.builder().uuid(TARGET_UUID.toString()).cash(i).build());
+            }
+            groupCommit.commit();
+            command.setGroupCommit(groupCommit);
+
+            command.onStats(sender);
+
+            ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+            verify(sender, times(2)).sendMessage(captor.capture());
+            assertThat(captor.getAllValues().get(0)).contains("4").contains("1").contains("75.0");
+        }
+
+        @Test
+        @DisplayName("stats shows error when group commit is off")
+        void statsDisabled() {
+            command.onStats(sender);
+
+            ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+            verify(sender).sendMessage(captor.capture());
+            assertThat(captor.getValue()).contains("写入合并未启用");
+        }
+    }
 }
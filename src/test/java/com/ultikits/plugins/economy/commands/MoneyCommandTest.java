@@ -1,5 +1,8 @@
 package com.ultikits.plugins.economy.commands;
 
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import org.bukkit.command.CommandSender;
@@ -10,10 +13,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -35,12 +41,21 @@ class MoneyCommandTest {
         command = new MoneyCommand(plugin, economyService);
     }
 
+    private static WalletSnapshot wallet(double cash, double bank, CurrencyBalanceEntity... balances) {
+        PlayerAccountEntity account = PlayerAccountEntity.builder()
+                .uuid(PLAYER_UUID.toString()).playerName("Steve").cash(cash).bank(bank).build();
+        return WalletSnapshot.of(PLAYER_UUID.toString(), account, Arrays.asList(balances));
+    }
+
+    private static CurrencyBalanceEntity balance(String currencyId, double cash, double bank) {
+        return CurrencyBalanceEntity.builder()
+                .uuid(PLAYER_UUID.toString()).currencyId(currencyId).cash(cash).bank(bank).build();
+    }
+
     @Test
     @DisplayName("shows cash, bank, and total wealth")
     void showsAllBalances() {
-        when(economyService.getCash(PLAYER_UUID)).thenReturn(1500.0);
-        when(economyService.getBank(PLAYER_UUID)).thenReturn(3000.0);
-        when(economyService.getTotalWealth(PLAYER_UUID)).thenReturn(4500.0);
+        when(economyService.getWallet(PLAYER_UUID)).thenReturn(wallet(1500.0, 3000.0));
         when(economyService.formatAmount(1500.0)).thenReturn("$1,500.00");
         when(economyService.formatAmount(3000.0)).thenReturn("$3,000.00");
         when(economyService.formatAmount(4500.0)).thenReturn("$4,500.00");
@@ -60,9 +75,7 @@ class MoneyCommandTest {
     @Test
     @DisplayName("shows zero balances for new player")
     void showsZeroBalances() {
-        when(economyService.getCash(PLAYER_UUID)).thenReturn(0.0);
-        when(economyService.getBank(PLAYER_UUID)).thenReturn(0.0);
-        when(economyService.getTotalWealth(PLAYER_UUID)).thenReturn(0.0);
+        when(economyService.getWallet(PLAYER_UUID)).thenReturn(WalletSnapshot.empty(PLAYER_UUID.toString()));
         when(economyService.formatAmount(0.0)).thenReturn("$0.00");
 
         command.onBalance(player);
@@ -76,9 +89,7 @@ class MoneyCommandTest {
     @Test
     @DisplayName("shows balance for specific currency")
     void showsCurrencyBalance() {
-        when(economyService.getCash(PLAYER_UUID, "gems")).thenReturn(250.0);
-        when(economyService.getBank(PLAYER_UUID, "gems")).thenReturn(0.0);
-        when(economyService.getTotalWealth(PLAYER_UUID, "gems")).thenReturn(250.0);
+        when(economyService.getWallet(PLAYER_UUID)).thenReturn(wallet(0.0, 0.0, balance("gems", 250.0, 0.0)));
         when(economyService.formatAmount(250.0, "gems")).thenReturn("G250.00");
         when(economyService.formatAmount(0.0, "gems")).thenReturn("G0.00");
 
@@ -91,6 +102,52 @@ class MoneyCommandTest {
         assertThat(messages.get(1)).contains("G250.00");
     }
 
+    @Test
+    @DisplayName("reads every figure from a single wallet fetch")
+    void singleWalletFetch() {
+        when(economyService.getWallet(PLAYER_UUID)).thenReturn(wallet(10.0, 20.0));
+        when(economyService.formatAmount(anyDouble())).thenReturn("$");
+
+        command.onBalance(player);
+
+        verify(economyService).getWallet(PLAYER_UUID);
+        verify(economyService, never()).getCash(any());
+        verify(economyService, never()).getBank(any());
+        verify(economyService, never()).getTotalWealth(any());
+    }
+
+    @Test
+    @DisplayName("all lists the primary account and every other currency")
+    void showsEveryCurrency() {
+        when(economyService.getWallet(PLAYER_UUID)).thenReturn(wallet(1500.0, 3000.0,
+                balance("coins", 1500.0, 3000.0), balance("gems", 250.0, 0.0), balance("tokens", 7.0, 1.0)));
+        when(economyService.getPrimaryCurrencyId()).thenReturn("coins");
+        when(economyService.formatAmount(anyDouble(), anyString()))
+                .thenAnswer(inv -> inv.getArgument(1) + ":" + inv.getArgument(0));
+
+        command.onAllBalances(player);
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(player, times(4)).sendMessage(captor.capture());
+        List<String> messages = captor.getAllValues();
+        assertThat(messages.get(1)).contains("coins:1500.0").contains("coins:3000.0");
+        assertThat(messages.get(2)).contains("gems:250.0");
+        assertThat(messages.get(3)).contains("tokens:7.0").contains("tokens:1.0");
+        verify(economyService, times(1)).getWallet(PLAYER_UUID);
+    }
+
+    @Test
+    @DisplayName("all shows only the primary line when the player holds no other currency")
+    void allWithoutOtherCurrencies() {
+        when(economyService.getWallet(PLAYER_UUID)).thenReturn(wallet(5.0, 0.0));
+        when(economyService.getPrimaryCurrencyId()).thenReturn("coins");
+        when(economyService.formatAmount(anyDouble(), anyString())).thenReturn("$");
+
+        command.onAllBalances(player);
+
+        verify(player, times(2)).sendMessage(anyString());
+    }
+
     @Test
     @DisplayName("handleHelp sends command usage messages")
     void handleHelpShowsCommands() throws Exception {
@@ -102,6 +159,6 @@ class MoneyCommandTest {
         helpMethod.setAccessible(true);
         helpMethod.invoke(command, sender);
 
-        verify(sender, atLeast(2)).sendMessage(anyString());
+        verify(sender, atLeast(3)).sendMessage(anyString());
     }
 }
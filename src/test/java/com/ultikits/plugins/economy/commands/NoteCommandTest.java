@@ -1,8 +1,11 @@
 package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.factory.MoneyNoteFactory;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -10,11 +13,15 @@ import org.bukkit.inventory.PlayerInventory;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +32,7 @@ class NoteCommandTest {
 
     @Mock private UltiToolsPlugin plugin;
     @Mock private EconomyService economyService;
+    @Mock private AsyncEconomyService asyncEconomyService;
     @Mock private MoneyNoteFactory noteFactory;
     @Mock private Player player;
     @Mock private PlayerInventory inventory;
@@ -40,8 +48,11 @@ class NoteCommandTest {
         lenient().when(player.getUniqueId()).thenReturn(PLAYER_UUID);
         lenient().when(player.getName()).thenReturn("TestPlayer");
         lenient().when(player.getInventory()).thenReturn(inventory);
+        lenient().when(player.isOnline()).thenReturn(true);
         lenient().when(economyService.getPrimaryCurrencyId()).thenReturn("coins");
-        command = NoteCommand.createForTest(plugin, economyService, noteFactory);
+        lenient().when(asyncEconomyService.mainThread()).thenReturn(Runnable::run);
+        lenient().when(heldItem.clone()).thenReturn(noteItem);
+        command = NoteCommand.createForTest(plugin, economyService, asyncEconomyService, noteFactory);
     }
 
     @Nested
@@ -51,35 +62,67 @@ class NoteCommandTest {
         @Test
         @DisplayName("creates note and deducts cash for primary currency")
         void createsNoteForPrimaryCurrency() {
-            when(economyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(true);
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(completedFuture(true));
             when(noteFactory.createNote("coins", 500.0, PLAYER_UUID, "TestPlayer"))
                     .thenReturn(noteItem);
 
             command.onCreateNote(player, "500");
 
-            verify(economyService).takeCash(PLAYER_UUID, 500.0);
+            verify(asyncEconomyService).takeCash(PLAYER_UUID, 500.0);
             verify(inventory).addItem(noteItem);
         }
 
         @Test
         @DisplayName("creates note with specific currency")
         void createsNoteForSpecificCurrency() {
-            when(economyService.takeCash(PLAYER_UUID, 1000.0, "gems")).thenReturn(true);
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 1000.0, "gems")).thenReturn(completedFuture(true));
             when(noteFactory.createNote("gems", 1000.0, PLAYER_UUID, "TestPlayer"))
                     .thenReturn(noteItem);
 
             command.onCreateCurrencyNote(player, "1000", "gems");
 
-            verify(economyService).takeCash(PLAYER_UUID, 1000.0, "gems");
+            verify(asyncEconomyService).takeCash(PLAYER_UUID, 1000.0, "gems");
             verify(inventory).addItem(noteItem);
         }
 
+        @Test
+        @DisplayName("refunds the cash when the player logs off before the note is issued")
+        void refundsOfflinePlayer() {
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(completedFuture(true));
+            when(asyncEconomyService.addCash(PLAYER_UUID, 500.0)).thenReturn(completedFuture(true));
+            when(player.isOnline()).thenReturn(false);
+
+            command.onCreateNote(player, "500");
+
+            verify(asyncEconomyService).addCash(PLAYER_UUID, 500.0);
+            verify(noteFactory, never()).createNote(anyString(), anyDouble(), any(), anyString());
+            verify(inventory, never()).addItem(any(ItemStack.class));
+        }
+
+        @Test
+        @DisplayName("drops the note at the player's feet when the inventory is full")
+        void dropsWhenFull() {
+            World world = mock(World.class);
+            Location location = mock(Location.class);
+            HashMap<Integer, ItemStack> leftover = new HashMap<>();
+            leftover.put(0, noteItem);
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(completedFuture(true));
+            when(noteFactory.createNote("coins", 500.0, PLAYER_UUID, "TestPlayer")).thenReturn(noteItem);
+            when(inventory.addItem(noteItem)).thenReturn(leftover);
+            when(player.getWorld()).thenReturn(world);
+            when(player.getLocation()).thenReturn(location);
+
+            command.onCreateNote(player, "500");
+
+            verify(world).dropItemNaturally(location, noteItem);
+        }
+
         @Test
         @DisplayName("rejects invalid amount")
         void rejectsInvalidAmount() {
             command.onCreateNote(player, "abc");
 
-            verify(economyService, never()).takeCash(any(), anyDouble());
+            verify(asyncEconomyService, never()).takeCash(any(), anyDouble());
             verify(player).sendMessage(contains("无效的金额"));
         }
 
@@ -88,14 +131,14 @@ class NoteCommandTest {
         void rejectsZeroAmount() {
             command.onCreateNote(player, "0");
 
-            verify(economyService, never()).takeCash(any(), anyDouble());
+            verify(asyncEconomyService, never()).takeCash(any(), anyDouble());
             verify(player).sendMessage(contains("金额必须大于零"));
         }
 
         @Test
         @DisplayName("rejects insufficient balance")
         void rejectsInsufficientBalance() {
-            when(economyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(false);
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(completedFuture(false));
 
             command.onCreateNote(player, "500");
 
@@ -108,7 +151,7 @@ class NoteCommandTest {
         void rejectsCurrencyInvalidAmount() {
             command.onCreateCurrencyNote(player, "abc", "gems");
 
-            verify(economyService, never()).takeCash(any(), anyDouble(), anyString());
+            verify(asyncEconomyService, never()).takeCash(any(), anyDouble(), anyString());
             verify(player).sendMessage(contains("无效的金额"));
         }
 
@@ -123,7 +166,7 @@ class NoteCommandTest {
         @Test
         @DisplayName("rejects currency note with insufficient balance")
         void rejectsCurrencyInsufficientBalance() {
-            when(economyService.takeCash(PLAYER_UUID, 500.0, "gems")).thenReturn(false);
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 500.0, "gems")).thenReturn(completedFuture(false));
 
             command.onCreateCurrencyNote(player, "500", "gems");
 
@@ -143,12 +186,12 @@ class NoteCommandTest {
             when(noteFactory.isMoneyNote(heldItem)).thenReturn(true);
             when(noteFactory.getNoteValue(heldItem)).thenReturn(750.0);
             when(noteFactory.getNoteCurrency(heldItem)).thenReturn("coins");
-            when(economyService.addCash(PLAYER_UUID, 750.0)).thenReturn(true);
+            when(asyncEconomyService.addCash(PLAYER_UUID, 750.0)).thenReturn(completedFuture(true));
             when(heldItem.getAmount()).thenReturn(1);
 
             command.onRedeem(player);
 
-            verify(economyService).addCash(PLAYER_UUID, 750.0);
+            verify(asyncEconomyService).addCash(PLAYER_UUID, 750.0);
             verify(inventory).setItemInMainHand(null);
         }
 
@@ -159,12 +202,12 @@ class NoteCommandTest {
             when(noteFactory.isMoneyNote(heldItem)).thenReturn(true);
             when(noteFactory.getNoteValue(heldItem)).thenReturn(500.0);
             when(noteFactory.getNoteCurrency(heldItem)).thenReturn("gems");
-            when(economyService.addCash(PLAYER_UUID, 500.0, "gems")).thenReturn(true);
+            when(asyncEconomyService.addCash(PLAYER_UUID, 500.0, "gems")).thenReturn(completedFuture(true));
             when(heldItem.getAmount()).thenReturn(1);
 
             command.onRedeem(player);
 
-            verify(economyService).addCash(PLAYER_UUID, 500.0, "gems");
+            verify(asyncEconomyService).addCash(PLAYER_UUID, 500.0, "gems");
         }
 
         @Test
@@ -175,7 +218,7 @@ class NoteCommandTest {
 
             command.onRedeem(player);
 
-            verify(economyService, never()).addCash(any(), anyDouble());
+            verify(asyncEconomyService, never()).addCash(any(), anyDouble());
             verify(player).sendMessage(contains("手中没有纸币"));
         }
 
@@ -186,7 +229,7 @@ class NoteCommandTest {
             when(noteFactory.isMoneyNote(heldItem)).thenReturn(true);
             when(noteFactory.getNoteValue(heldItem)).thenReturn(100.0);
             when(noteFactory.getNoteCurrency(heldItem)).thenReturn("coins");
-            when(economyService.addCash(PLAYER_UUID, 100.0)).thenReturn(true);
+            when(asyncEconomyService.addCash(PLAYER_UUID, 100.0)).thenReturn(completedFuture(true));
             when(heldItem.getAmount()).thenReturn(3);
 
             command.onRedeem(player);
@@ -194,6 +237,58 @@ class NoteCommandTest {
             verify(heldItem).setAmount(2);
             verify(inventory, never()).setItemInMainHand(null);
         }
+
+        @Test
+        @DisplayName("consumes the note before crediting and hands it back on failure")
+        void returnsNoteOnFailure() {
+            when(inventory.getItemInMainHand()).thenReturn(heldItem);
+            when(noteFactory.isMoneyNote(heldItem)).thenReturn(true);
+            when(noteFactory.getNoteValue(heldItem)).thenReturn(100.0);
+            when(noteFactory.getNoteCurrency(heldItem)).thenReturn("coins");
+            when(asyncEconomyService.addCash(PLAYER_UUID, 100.0)).thenReturn(completedFuture(false));
+            when(heldItem.getAmount()).thenReturn(1);
+
+            command.onRedeem(player);
+
+            InOrder order = inOrder(inventory, asyncEconomyService);
+            order.verify(inventory).setItemInMainHand(null);
+            order.verify(asyncEconomyService).addCash(PLAYER_UUID, 100.0);
+            order.verify(inventory).addItem(noteItem);
+            verify(noteItem).setAmount(1);
+        }
+
+        @Test
+        @DisplayName("credits a failed redemption back when the player has logged off")
+        void refundsOfflineRedemption() {
+            when(inventory.getItemInMainHand()).thenReturn(heldItem);
+            when(noteFactory.isMoneyNote(heldItem)).thenReturn(true);
+            when(noteFactory.getNoteValue(heldItem)).thenReturn(100.0);
+            when(noteFactory.getNoteCurrency(heldItem)).thenReturn("gems");
+            when(asyncEconomyService.addCash(PLAYER_UUID, 100.0, "gems"))
+                    .thenReturn(completedFuture(false))
+                    .thenReturn(completedFuture(true));
+            when(heldItem.getAmount()).thenReturn(1);
+            when(player.isOnline()).thenReturn(false);
+
+            command.onRedeem(player);
+
+            verify(asyncEconomyService, times(2)).addCash(PLAYER_UUID, 100.0, "gems");
+            verify(inventory, never()).addItem(any(ItemStack.class));
+        }
+
+        @Test
+        @DisplayName("does not hand out a note until the debit completes")
+        void waitsForDebit() {
+            CompletableFuture<Boolean> pending = new CompletableFuture<>();
+            when(asyncEconomyService.takeCash(PLAYER_UUID, 500.0)).thenReturn(pending);
+            when(noteFactory.createNote("coins", 500.0, PLAYER_UUID, "TestPlayer")).thenReturn(noteItem);
+
+            command.onCreateNote(player, "500");
+            verify(inventory, never()).addItem(any(ItemStack.class));
+
+            pending.complete(true);
+            verify(inventory).addItem(noteItem);
+        }
     }
 
     @Test
@@ -1,5 +1,6 @@
 package com.ultikits.plugins.economy.commands;
 
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import org.bukkit.Bukkit;
@@ -14,7 +15,9 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -25,6 +28,7 @@ class PayCommandTest {
 
     @Mock private UltiToolsPlugin plugin;
     @Mock private EconomyService economyService;
+    @Mock private AsyncEconomyService asyncEconomyService;
     @Mock private Player sender;
     @Mock private Player target;
     @Mock private Server server;
@@ -40,7 +44,8 @@ class PayCommandTest {
         lenient().when(sender.getName()).thenReturn("Alice");
         lenient().when(target.getUniqueId()).thenReturn(TARGET_UUID);
         lenient().when(target.getName()).thenReturn("Bob");
-        command = new PayCommand(plugin, economyService);
+        lenient().when(asyncEconomyService.mainThread()).thenReturn(Runnable::run);
+        command = new PayCommand(plugin, economyService, asyncEconomyService);
     }
 
     @Nested
@@ -53,7 +58,7 @@ class PayCommandTest {
             try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
                 bukkit.when(() -> Bukkit.getPlayer("Bob")).thenReturn(target);
 
-                when(economyService.transfer(SENDER_UUID, TARGET_UUID, 500.0)).thenReturn(true);
+                when(asyncEconomyService.transfer(SENDER_UUID, TARGET_UUID, 500.0)).thenReturn(completedFuture(true));
                 when(economyService.formatAmount(500.0)).thenReturn("$500.00");
 
                 command.onPay(sender, "Bob", "500");
@@ -139,7 +144,7 @@ class PayCommandTest {
         void insufficientFunds() {
             try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
                 bukkit.when(() -> Bukkit.getPlayer("Bob")).thenReturn(target);
-                when(economyService.transfer(SENDER_UUID, TARGET_UUID, 999999.0)).thenReturn(false);
+                when(asyncEconomyService.transfer(SENDER_UUID, TARGET_UUID, 999999.0)).thenReturn(completedFuture(false));
 
                 command.onPay(sender, "Bob", "999999");
 
@@ -148,6 +153,24 @@ class PayCommandTest {
                 assertThat(captor.getValue()).contains("余额不足");
             }
         }
+
+        @Test
+        @DisplayName("failed async transfer reports operation failure")
+        void asyncFailure() {
+            try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+                bukkit.when(() -> Bukkit.getPlayer("Bob")).thenReturn(target);
+                CompletableFuture<Boolean> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalStateException("db down"));
+                when(asyncEconomyService.transfer(SENDER_UUID, TARGET_UUID, 100.0)).thenReturn(failed);
+
+                command.onPay(sender, "Bob", "100");
+
+                ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+                verify(sender).sendMessage(captor.capture());
+                assertThat(captor.getValue()).contains("操作失败");
+                verify(target, never()).sendMessage(anyString());
+            }
+        }
     }
 
     @Test
@@ -156,7 +179,7 @@ class PayCommandTest {
         try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
             bukkit.when(() -> Bukkit.getPlayer("Bob")).thenReturn(target);
 
-            when(economyService.transfer(SENDER_UUID, TARGET_UUID, 500.0, "gems")).thenReturn(true);
+            when(asyncEconomyService.transfer(SENDER_UUID, TARGET_UUID, 500.0, "gems")).thenReturn(completedFuture(true));
             when(economyService.formatAmount(500.0, "gems")).thenReturn("G500.00");
 
             command.onPayWithCurrency(sender, "Bob", "500", "gems");
@@ -236,7 +259,7 @@ class PayCommandTest {
         void currencyInsufficientFunds() {
             try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
                 bukkit.when(() -> Bukkit.getPlayer("Bob")).thenReturn(target);
-                when(economyService.transfer(SENDER_UUID, TARGET_UUID, 999999.0, "gems")).thenReturn(false);
+                when(asyncEconomyService.transfer(SENDER_UUID, TARGET_UUID, 999999.0, "gems")).thenReturn(completedFuture(false));
 
                 command.onPayWithCurrency(sender, "Bob", "999999", "gems");
 
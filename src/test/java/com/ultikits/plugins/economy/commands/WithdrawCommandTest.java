@@ -1,6 +1,7 @@
 package com.ultikits.plugins.economy.commands;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
+import com.ultikits.plugins.economy.service.AsyncEconomyService;
 import com.ultikits.plugins.economy.service.EconomyService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import org.bukkit.command.CommandSender;
@@ -13,6 +14,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.UUID;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -23,6 +25,7 @@ class WithdrawCommandTest {
 
     @Mock private UltiToolsPlugin plugin;
     @Mock private EconomyService economyService;
+    @Mock private AsyncEconomyService asyncEconomyService;
     @Mock private Player player;
 
     private EconomyConfig config;
@@ -34,13 +37,14 @@ class WithdrawCommandTest {
         config = new EconomyConfig();
         lenient().when(plugin.i18n(anyString())).thenAnswer(inv -> inv.getArgument(0));
         lenient().when(player.getUniqueId()).thenReturn(PLAYER_UUID);
-        command = new WithdrawCommand(plugin, economyService, config);
+        lenient().when(asyncEconomyService.mainThread()).thenReturn(Runnable::run);
+        command = new WithdrawCommand(plugin, economyService, asyncEconomyService, config);
     }
 
     @Test
     @DisplayName("successful withdrawal")
     void successfulWithdraw() {
-        when(economyService.withdrawFromBank(PLAYER_UUID, 500.0)).thenReturn(true);
+        when(asyncEconomyService.withdrawFromBank(PLAYER_UUID, 500.0)).thenReturn(completedFuture(true));
         when(economyService.formatAmount(500.0)).thenReturn("$500.00");
 
         command.onWithdraw(player, "500");
@@ -85,7 +89,7 @@ class WithdrawCommandTest {
     @Test
     @DisplayName("insufficient bank balance shows error")
     void insufficientBalance() {
-        when(economyService.withdrawFromBank(PLAYER_UUID, 5000.0)).thenReturn(false);
+        when(asyncEconomyService.withdrawFromBank(PLAYER_UUID, 5000.0)).thenReturn(completedFuture(false));
 
         command.onWithdraw(player, "5000");
 
@@ -97,7 +101,7 @@ class WithdrawCommandTest {
     @Test
     @DisplayName("successful withdrawal with specific currency")
     void withdrawWithCurrency() {
-        when(economyService.withdrawFromBank(PLAYER_UUID, 300.0, "gems")).thenReturn(true);
+        when(asyncEconomyService.withdrawFromBank(PLAYER_UUID, 300.0, "gems")).thenReturn(completedFuture(true));
         when(economyService.formatAmount(300.0, "gems")).thenReturn("G300.00");
 
         command.onWithdrawCurrency(player, "300", "gems");
@@ -150,7 +154,7 @@ class WithdrawCommandTest {
     @Test
     @DisplayName("currency withdrawal with insufficient balance shows error")
     void withdrawCurrencyInsufficientBalance() {
-        when(economyService.withdrawFromBank(PLAYER_UUID, 5000.0, "gems")).thenReturn(false);
+        when(asyncEconomyService.withdrawFromBank(PLAYER_UUID, 5000.0, "gems")).thenReturn(completedFuture(false));
 
         command.onWithdrawCurrency(player, "5000", "gems");
 
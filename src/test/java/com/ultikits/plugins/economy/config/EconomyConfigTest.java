@@ -24,13 +24,39 @@ class EconomyConfigTest {
         assertThat(config.getMaxInterest()).isEqualTo(10000.0);
         assertThat(config.getLeaderboardUpdateInterval()).isEqualTo(60);
         assertThat(config.getLeaderboardDisplayCount()).isEqualTo(10);
+        assertThat(config.isLeaderboardLive()).isTrue();
+        assertThat(config.getLeaderboardRepairInterval()).isEqualTo(600);
+        assertThat(config.getLeaderboardTopK()).isZero();
+        assertThat(config.isLeaderboardDatabase()).isFalse();
         assertThat(config.isTaxEnabled()).isFalse();
         assertThat(config.isTransactionTaxEnabled()).isTrue();
         assertThat(config.getTransactionTaxRate()).isEqualTo(0.05);
         assertThat(config.getTransactionTaxExemptPermission()).isEqualTo("ultieconomy.tax.exempt");
+        assertThat(config.getTreasuryFlushInterval()).isEqualTo(10);
         assertThat(config.isWealthTaxEnabled()).isFalse();
         assertThat(config.getWealthTaxInterval()).isEqualTo(3600);
         assertThat(config.getWealthTaxExemptPermission()).isEqualTo("ultieconomy.wealthtax.exempt");
+        assertThat(config.isCacheEnabled()).isTrue();
+        assertThat(config.getCacheFlushInterval()).isEqualTo(30);
+        assertThat(config.isGroupCommitEnabled()).isFalse();
+        assertThat(config.getGroupCommitWindow()).isEqualTo(20);
+        assertThat(config.getHotAccountUuids()).isEmpty();
+        assertThat(config.getHotAccountStripes()).isEqualTo(16);
+        assertThat(config.getHotAccountFoldInterval()).isEqualTo(5);
+        assertThat(config.isFixedPointEnabled()).isFalse();
+        assertThat(config.isWalEnabled()).isTrue();
+        assertThat(config.isWalFsync()).isFalse();
+        assertThat(config.getWalCheckpointInterval()).isEqualTo(300);
+        assertThat(config.isOptimisticLockingEnabled()).isFalse();
+        assertThat(config.getOptimisticLockingMaxRetries()).isEqualTo(3);
+        assertThat(config.getStorageJdbcUrl()).isEmpty();
+        assertThat(config.isWalletStorageEnabled()).isFalse();
+        assertThat(config.isMappedFileEnabled()).isFalse();
+        assertThat(config.getMappedFileSyncInterval()).isEqualTo(30);
+        assertThat(config.isOffHeapEnabled()).isFalse();
+        assertThat(config.getIdempotencyTtl()).isEqualTo(86400);
+        assertThat(config.getIdempotencyMaxKeys()).isEqualTo(100000);
+        assertThat(config.getAsyncIoThreads()).isEqualTo(4);
     }
 
     @Test
@@ -45,5 +45,6 @@ class CurrencyBalanceEntityTest {
 
         assertThat(entity.getCash()).isEqualTo(0.0);
         assertThat(entity.getBank()).isEqualTo(0.0);
+        assertThat(entity.getVersion()).isZero();
     }
 }
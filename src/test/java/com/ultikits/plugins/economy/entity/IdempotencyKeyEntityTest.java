@@ -0,0 +1,22 @@
+package com.ultikits.plugins.economy.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("IdempotencyKeyEntity")
+class IdempotencyKeyEntityTest {
+
+    @Test
+    @DisplayName("builder creates entity with all fields")
+    void builderCreates() {
+        IdempotencyKeyEntity entity = IdempotencyKeyEntity.builder()
+                .idempotencyKey("reward-1")
+                .createdAt(1234L)
+                .build();
+
+        assertThat(entity.getIdempotencyKey()).isEqualTo("reward-1");
+        assertThat(entity.getCreatedAt()).isEqualTo(1234L);
+    }
+}
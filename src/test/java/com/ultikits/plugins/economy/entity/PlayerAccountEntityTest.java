@@ -56,4 +56,14 @@ class PlayerAccountEntityTest {
         assertThat(entity.getCash()).isEqualTo(100.0);
         assertThat(entity.getBank()).isEqualTo(200.0);
     }
+
+    @Test
+    @DisplayName("new accounts start at version zero")
+    void versionDefaultsToZero() {
+        PlayerAccountEntity entity = PlayerAccountEntity.builder()
+                .uuid("test-uuid")
+                .build();
+
+        assertThat(entity.getVersion()).isZero();
+    }
 }
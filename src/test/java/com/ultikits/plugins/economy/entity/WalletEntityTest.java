@@ -0,0 +1,42 @@
+package com.ultikits.plugins.economy.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("WalletEntity")
+class WalletEntityTest {
+
+    @Test
+    @DisplayName("builder creates entity with all fields")
+    void builderCreates() {
+        WalletEntity entity = WalletEntity.builder()
+                .uuid("550e8400-e29b-41d4-a716-446655440000")
+                .playerName("Steve")
+                .accountOpen(true)
+                .cash(100.0)
+                .bank(50.0)
+                .version(2)
+                .balances("gems=1.0,0.0,0")
+                .build();
+
+        assertThat(entity.getUuid()).isEqualTo("550e8400-e29b-41d4-a716-446655440000");
+        assertThat(entity.getPlayerName()).isEqualTo("Steve");
+        assertThat(entity.isAccountOpen()).isTrue();
+        assertThat(entity.getCash()).isEqualTo(100.0);
+        assertThat(entity.getBank()).isEqualTo(50.0);
+        assertThat(entity.getVersion()).isEqualTo(2L);
+        assertThat(entity.getBalances()).isEqualTo("gems=1.0,0.0,0");
+    }
+
+    @Test
+    @DisplayName("defaults to no account and no balances")
+    void defaults() {
+        WalletEntity entity = WalletEntity.builder().uuid("test-uuid").build();
+
+        assertThat(entity.isAccountOpen()).isFalse();
+        assertThat(entity.getBalances()).isEmpty();
+        assertThat(entity.getVersion()).isZero();
+    }
+}
@@ -3,18 +3,28 @@ package com.ultikits.plugins.economy.listener;
 import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
 import com.ultikits.plugins.economy.service.CurrencyManager;
 import com.ultikits.plugins.economy.service.EconomyService;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.StringReader;
+import java.net.InetAddress;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -68,6 +78,144 @@ class PlayerJoinListenerTest {
         verify(economyService).getOrCreateAccount(PLAYER_UUID, "TestPlayer");
     }
 
+    @Nested
+    @DisplayName("Working set")
+    class WorkingSetTests {
+
+        @Test
+        @DisplayName("preloads the player during async pre-login")
+        void preloadsOnPreLogin() {
+            AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent(
+                    "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID);
+            listener.onPreLogin(event);
+
+            verify(economyService).preloadPlayer(PLAYER_UUID, "TestPlayer");
+        }
+
+        @Test
+        @DisplayName("skips preloading when the login was denied")
+        void skipsDeniedLogin() {
+            AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent(
+                    "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, "banned");
+            listener.onPreLogin(event);
+
+            verify(economyService, never()).preloadPlayer(any(), any());
+        }
+
+        @Test
+        @DisplayName("join repeats nothing the pre-login already did")
+        void joinAfterPreLogin() {
+            listener.onPreLogin(new AsyncPlayerPreLoginEvent(
+                    "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID));
+
+            listener.onPlayerJoin(new PlayerJoinEvent(player, "TestPlayer joined"));
+
+            verify(economyService).preloadPlayer(PLAYER_UUID, "TestPlayer");
+            verifyNoMoreInteractions(economyService);
+        }
+
+        @Test
+        @DisplayName("a quit's eviction leaves a player who has reconnected since")
+        void keepsReconnectedPlayer() {
+            try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+                BukkitScheduler scheduler = mock(BukkitScheduler.class);
+                PluginManager pluginManager = mock(PluginManager.class);
+                bukkit.when(Bukkit::getScheduler).thenReturn(scheduler);
+                bukkit.when(Bukkit::getPluginManager).thenReturn(pluginManager);
+                AsyncPlayerPreLoginEvent login = new AsyncPlayerPreLoginEvent(
+                        "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID);
+                listener.onPreLogin(login);
+                listener.onPlayerJoin(new PlayerJoinEvent(player, "TestPlayer joined"));
+
+                listener.onPlayerQuit(new PlayerQuitEvent(player, "TestPlayer left"));
+                listener.onPreLogin(login);
+                ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+                verify(scheduler).runTaskAsynchronously(any(), task.capture());
+                task.getValue().run();
+
+                verify(economyService, never()).releasePlayer(any());
+            }
+        }
+
+        @Test
+        @DisplayName("a quit's eviction runs when the player has not come back")
+        void releasesAfterSession() {
+            try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+                BukkitScheduler scheduler = mock(BukkitScheduler.class);
+                PluginManager pluginManager = mock(PluginManager.class);
+                bukkit.when(Bukkit::getScheduler).thenReturn(scheduler);
+                bukkit.when(Bukkit::getPluginManager).thenReturn(pluginManager);
+                listener.onPreLogin(new AsyncPlayerPreLoginEvent(
+                        "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID));
+
+                listener.onPlayerQuit(new PlayerQuitEvent(player, "TestPlayer left"));
+                ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+                verify(scheduler).runTaskAsynchronously(any(), task.capture());
+                task.getValue().run();
+
+                verify(economyService).releasePlayer(PLAYER_UUID);
+            }
+        }
+
+        @Test
+        @DisplayName("releases a player whose login a later check refused")
+        void releasesRefusedLogin() {
+            try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+                BukkitScheduler scheduler = mock(BukkitScheduler.class);
+                PluginManager pluginManager = mock(PluginManager.class);
+                bukkit.when(Bukkit::getScheduler).thenReturn(scheduler);
+                bukkit.when(Bukkit::getPluginManager).thenReturn(pluginManager);
+                listener.onPreLogin(new AsyncPlayerPreLoginEvent(
+                        "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID));
+                PlayerLoginEvent login = new PlayerLoginEvent(player, "localhost", InetAddress.getLoopbackAddress());
+                login.disallow(PlayerLoginEvent.Result.KICK_WHITELIST, "not whitelisted");
+
+                listener.onLogin(login);
+                ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+                verify(scheduler).runTaskAsynchronously(any(), task.capture());
+                task.getValue().run();
+
+                verify(economyService).releasePlayer(PLAYER_UUID);
+                // A later join is no longer taken as preloaded
+                listener.onPlayerJoin(new PlayerJoinEvent(player, "TestPlayer joined"));
+                verify(economyService).getOrCreateAccount(PLAYER_UUID, "TestPlayer");
+            }
+        }
+
+        @Test
+        @DisplayName("keeps a player whose login was allowed")
+        void keepsAllowedLogin() {
+            listener.onPreLogin(new AsyncPlayerPreLoginEvent(
+                    "TestPlayer", InetAddress.getLoopbackAddress(), PLAYER_UUID));
+
+            listener.onLogin(new PlayerLoginEvent(player, "localhost", InetAddress.getLoopbackAddress()));
+
+            verify(economyService, never()).releasePlayer(any());
+        }
+
+        @Test
+        @DisplayName("releases the player asynchronously on quit")
+        void releasesOnQuit() {
+            try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+                BukkitScheduler scheduler = mock(BukkitScheduler.class);
+                PluginManager pluginManager = mock(PluginManager.class);
+                Plugin host = mock(Plugin.class);
+                bukkit.when(Bukkit::getScheduler).thenReturn(scheduler);
+                bukkit.when(Bukkit::getPluginManager).thenReturn(pluginManager);
+                when(pluginManager.getPlugin("UltiTools")).thenReturn(host);
+
+                listener.onPlayerQuit(new PlayerQuitEvent(player, "TestPlayer left"));
+
+                ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+                verify(scheduler).runTaskAsynchronously(eq(host), task.capture());
+                verify(economyService, never()).releasePlayer(any());
+                task.getValue().run();
+                verify(economyService).releasePlayer(PLAYER_UUID);
+            }
+        }
+    }
+
     @Nested
     @DisplayName("Multi-currency balance creation")
     class CurrencyBalanceTests {
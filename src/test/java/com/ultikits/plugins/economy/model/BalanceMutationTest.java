@@ -0,0 +1,23 @@
+package com.ultikits.plugins.economy.model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BalanceMutation Tests")
+class BalanceMutationTest {
+
+    @Test
+    @DisplayName("defaults to the cash bucket of the primary currency")
+    void defaults() {
+        UUID uuid = UUID.randomUUID();
+        BalanceMutation mutation = BalanceMutation.builder().uuid(uuid).delta(-5).build();
+
+        assertThat(mutation.getUuid()).isEqualTo(uuid);
+        assertThat(mutation.getCurrencyId()).isNull();
+        assertThat(mutation.getDelta()).isEqualTo(-5.0);
+        assertThat(mutation.getBucket()).isEqualTo(BalanceMutation.Bucket.CASH);
+    }
+}
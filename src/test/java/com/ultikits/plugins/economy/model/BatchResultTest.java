@@ -0,0 +1,35 @@
+package com.ultikits.plugins.economy.model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("BatchResult Tests")
+class BatchResultTest {
+
+    @Test
+    @DisplayName("exposes per-item statuses in order")
+    void statusesInOrder() {
+        BatchResult result = new BatchResult(false, Arrays.asList(
+                BatchResult.Status.SKIPPED, BatchResult.Status.NO_ACCOUNT));
+
+        assertThat(result.isApplied()).isFalse();
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(result.getStatus(1)).isEqualTo(BatchResult.Status.NO_ACCOUNT);
+    }
+
+    @Test
+    @DisplayName("statuses cannot be modified")
+    void immutable() {
+        List<BatchResult.Status> statuses = new ArrayList<>(Arrays.asList(BatchResult.Status.APPLIED));
+        BatchResult result = new BatchResult(true, statuses);
+
+        assertThatThrownBy(() -> result.getStatuses().add(BatchResult.Status.SKIPPED))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
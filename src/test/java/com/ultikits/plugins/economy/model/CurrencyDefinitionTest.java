@@ -42,5 +42,6 @@ class CurrencyDefinitionTest {
         assertThat(def.getInitialCash()).isEqualTo(0.0);
         assertThat(def.isBankEnabled()).isFalse();
         assertThat(def.isPrimary()).isFalse();
+        assertThat(def.getPrecision()).isEqualTo(2);
     }
 }
@@ -0,0 +1,62 @@
+package com.ultikits.plugins.economy.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Single-threaded cost of formatting a balance with a shared {@link DecimalFormat}, with
+ * {@code String.format("%.2f")} and with {@link MoneyFormatter}, grouped and plain. Excluded
+ * from the default test run; use {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Money formatting benchmark")
+class MoneyFormatterBenchmarkTest {
+
+    private static final int AMOUNTS = 4096;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 500;
+
+    @Test
+    @DisplayName("nanoseconds per formatted amount")
+    void formatting() {
+        double[] amounts = new double[AMOUNTS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = Money.toMajor(random.nextLong(0, 100_000_000_00L), 2);
+        }
+        DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+        MoneyFormatter grouped = new MoneyFormatter("$", 2, true);
+
+        report("DecimalFormat", amounts, amount -> "$" + decimalFormat.format(amount));
+        report("MoneyFormatter", amounts, grouped::format);
+        report("String.format %.2f", amounts, amount -> String.format("%.2f", amount));
+        report("MoneyFormatter.PLAIN", amounts, MoneyFormatter.PLAIN::format);
+    }
+
+    private static void report(String name, double[] amounts, DoubleFunction<String> format) {
+        long sink = run(amounts, format, WARMUP_ROUNDS);
+        long start = System.nanoTime();
+        sink += run(amounts, format, ROUNDS);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-22s %7.1f ns/op%n", name, (double) elapsed / ((long) ROUNDS * amounts.length));
+        assertThat(sink).isPositive();
+    }
+
+    private static long run(double[] amounts, DoubleFunction<String> format, int rounds) {
+        long sink = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (double amount : amounts) {
+                sink += format.apply(amount).length();
+            }
+        }
+        return sink;
+    }
+}
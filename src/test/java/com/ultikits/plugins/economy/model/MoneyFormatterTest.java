@@ -0,0 +1,145 @@
+package com.ultikits.plugins.economy.model;
+
+import org.junit.jupiter.api.*;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("MoneyFormatter Tests")
+class MoneyFormatterTest {
+
+    @Nested
+    @DisplayName("Formatting")
+    class Formatting {
+
+        private final MoneyFormatter dollars = new MoneyFormatter("$", 2, true);
+
+        @Test
+        @DisplayName("groups thousands and pads decimals")
+        void grouped() {
+            assertThat(dollars.format(1234.56)).isEqualTo("$1,234.56");
+            assertThat(dollars.format(1_000_000.0)).isEqualTo("$1,000,000.00");
+            assertThat(dollars.format(999.5)).isEqualTo("$999.50");
+            assertThat(dollars.format(0)).isEqualTo("$0.00");
+            assertThat(dollars.format(0.07)).isEqualTo("$0.07");
+        }
+
+        @Test
+        @DisplayName("puts the sign after the prefix")
+        void negative() {
+            assertThat(dollars.format(-1234.5)).isEqualTo("$-1,234.50");
+            assertThat(dollars.format(-0.001)).isEqualTo("$0.00");
+        }
+
+        @Test
+        @DisplayName("rounds half away from zero at the precision")
+        void rounds() {
+            assertThat(dollars.format(0.125)).isEqualTo("$0.13");
+            assertThat(dollars.format(-0.125)).isEqualTo("$-0.13");
+            assertThat(dollars.format(0.1 + 0.2)).isEqualTo("$0.30");
+        }
+
+        @Test
+        @DisplayName("follows the precision")
+        void precision() {
+            assertThat(new MoneyFormatter("G", 0, true).format(1234.6)).isEqualTo("G1,235");
+            assertThat(new MoneyFormatter("", 8, true).format(0.00000001)).isEqualTo("0.00000001");
+        }
+
+        @Test
+        @DisplayName("PLAIN matches %.2f without grouping")
+        void plain() {
+            assertThat(MoneyFormatter.PLAIN.format(50000.0)).isEqualTo("50000.00");
+            assertThat(MoneyFormatter.PLAIN.format(-3.456)).isEqualTo("-3.46");
+        }
+
+        @Test
+        @DisplayName("falls back for amounts beyond minor units in a long")
+        void huge() {
+            assertThat(dollars.format(1e20)).isEqualTo("$100,000,000,000,000,000,000.00");
+            assertThat(MoneyFormatter.PLAIN.format(-1e20)).isEqualTo("-100000000000000000000.00");
+            assertThat(MoneyFormatter.PLAIN.format(1e14)).isEqualTo("100000000000000.00");
+        }
+
+        @Test
+        @DisplayName("handles long prefixes")
+        void longPrefix() {
+            String prefix = new String(new char[100]).replace('\0', 'x');
+
+            assertThat(new MoneyFormatter(prefix, 2, true).format(1.0)).isEqualTo(prefix + "1.00");
+        }
+
+        @Test
+        @DisplayName("builds from a currency definition")
+        void ofCurrency() {
+            CurrencyDefinition gems = CurrencyDefinition.builder().id("gems").symbol("G").precision(3).build();
+
+            MoneyFormatter formatter = MoneyFormatter.of(gems);
+
+            assertThat(formatter.getPrefix()).isEqualTo("G");
+            assertThat(formatter.getPrecision()).isEqualTo(3);
+            assertThat(formatter.format(1.5)).isEqualTo("G1.500");
+        }
+
+        @Test
+        @DisplayName("rejects precisions Money cannot hold")
+        void invalidPrecision() {
+            assertThatThrownBy(() -> new MoneyFormatter("$", 9, true))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Agreement")
+    class Agreement {
+
+        @Test
+        @DisplayName("matches DecimalFormat on amounts already on the grid")
+        void matchesDecimalFormat() {
+            DecimalFormat reference = new DecimalFormat("#,##0.00", DecimalFormatSymbols.getInstance(Locale.ROOT));
+            MoneyFormatter formatter = new MoneyFormatter("", 2, true);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 10_000; i++) {
+                double amount = Money.toMajor(random.nextLong(-10_000_000_000L, 10_000_000_000L), 2);
+
+                assertThat(formatter.format(amount)).isEqualTo(reference.format(amount));
+            }
+        }
+
+        @Test
+        @DisplayName("is safe to share between threads")
+        void threads() throws InterruptedException {
+            MoneyFormatter formatter = new MoneyFormatter("$", 2, true);
+            AtomicReference<String> mismatch = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long base = t * 1_000_000L;
+                threads.add(new Thread(() -> {
+                    for (long minor = base; minor < base + 20_000; minor++) {
+                        String expected = String.format(Locale.ROOT, "$%,.2f", Money.toMajor(minor, 2));
+                        String actual = formatter.format(Money.toMajor(minor, 2));
+                        if (!expected.equals(actual)) {
+                            mismatch.compareAndSet(null, expected + " != " + actual);
+                        }
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertThat(mismatch.get()).isNull();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ultikits.plugins.economy.model;
+
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Money Tests")
+class MoneyTest {
+
+    @Nested
+    @DisplayName("Conversion")
+    class Conversion {
+
+        @Test
+        @DisplayName("converts major units to minor units at the given precision")
+        void toMinor() {
+            assertThat(Money.toMinor(12.34, 2)).isEqualTo(1234L);
+            assertThat(Money.toMinor(12.0, 0)).isEqualTo(12L);
+            assertThat(Money.toMinor(0.001, 3)).isEqualTo(1L);
+        }
+
+        @Test
+        @DisplayName("rounds half away from zero")
+        void roundsHalfAwayFromZero() {
+            assertThat(Money.toMinor(0.125, 2)).isEqualTo(13L);
+            assertThat(Money.toMinor(-0.125, 2)).isEqualTo(-13L);
+        }
+
+        @Test
+        @DisplayName("round-trips minor units back to major units")
+        void toMajor() {
+            assertThat(Money.toMajor(1234L, 2)).isEqualTo(12.34);
+            assertThat(Money.toMajor(5L, 0)).isEqualTo(5.0);
+        }
+
+        @Test
+        @DisplayName("round snaps binary residue onto the grid")
+        void roundRemovesResidue() {
+            assertThat(Money.round(0.1 + 0.2, 2)).isEqualTo(0.3);
+        }
+
+        @Test
+        @DisplayName("rejects out-of-range precision")
+        void invalidPrecision() {
+            assertThatThrownBy(() -> Money.scale(-1)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Money.scale(Money.MAX_PRECISION + 1)).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("rejects amounts that do not fit in a long")
+        void outOfRange() {
+            assertThatThrownBy(() -> Money.toMinor(1e18, 2)).isInstanceOf(ArithmeticException.class);
+            assertThatThrownBy(() -> Money.toMinor(Double.NaN, 2)).isInstanceOf(ArithmeticException.class);
+        }
+
+        @Test
+        @DisplayName("rejects amounts a double cannot hold to the minor unit")
+        void beyondExactDoubles() {
+            assertThat(Money.toMinor(9e13, 2)).isEqualTo(9_000_000_000_000_000L);
+            assertThatThrownBy(() -> Money.toMinor(1e14, 2)).isInstanceOf(ArithmeticException.class);
+            assertThatThrownBy(() -> Money.add(5e13, 5e13, 2)).isInstanceOf(ArithmeticException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Arithmetic")
+    class Arithmetic {
+
+        @Test
+        @DisplayName("adds and subtracts exactly")
+        void exactSums() {
+            double total = 0.0;
+            for (int i = 0; i < 1000; i++) {
+                total = Money.add(total, 0.1, 2);
+            }
+            assertThat(total).isEqualTo(100.0);
+            assertThat(Money.subtract(total, 0.01, 2)).isEqualTo(99.99);
+        }
+
+        @Test
+        @DisplayName("throws on overflow instead of wrapping")
+        void overflow() {
+            assertThatThrownBy(() -> Money.add(Long.MAX_VALUE, 1L)).isInstanceOf(ArithmeticException.class);
+            assertThatThrownBy(() -> Money.subtract(Long.MIN_VALUE, 1L)).isInstanceOf(ArithmeticException.class);
+        }
+
+        @Test
+        @DisplayName("multiplies by a rate and rounds to whole minor units")
+        void multiply() {
+            assertThat(Money.multiply(10_000L, 0.03)).isEqualTo(300L);
+            assertThat(Money.multiply(333L, 0.5)).isEqualTo(167L);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ultikits.plugins.economy.model;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("WalletSnapshot Tests")
+class WalletSnapshotTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+
+    private static CurrencyBalanceEntity balance(String currencyId, double cash, double bank) {
+        return CurrencyBalanceEntity.builder().uuid(UUID).currencyId(currencyId).cash(cash).bank(bank).build();
+    }
+
+    @Test
+    @DisplayName("copies primary and per-currency values")
+    void copiesValues() {
+        PlayerAccountEntity account = PlayerAccountEntity.builder()
+                .uuid(UUID).playerName("Steve").cash(100.0).bank(50.0).build();
+
+        WalletSnapshot wallet = WalletSnapshot.of(UUID, account,
+                Arrays.asList(balance("gems", 3.0, 4.0), balance("tokens", 1.0, 0.0)));
+
+        assertThat(wallet.getUuid()).isEqualTo(UUID);
+        assertThat(wallet.hasAccount()).isTrue();
+        assertThat(wallet.getCash()).isEqualTo(100.0);
+        assertThat(wallet.getBank()).isEqualTo(50.0);
+        assertThat(wallet.getTotalWealth()).isEqualTo(150.0);
+        assertThat(wallet.getCash("gems")).isEqualTo(3.0);
+        assertThat(wallet.getBank("gems")).isEqualTo(4.0);
+        assertThat(wallet.getTotalWealth("gems")).isEqualTo(7.0);
+        assertThat(wallet.getCurrencyIds()).containsExactly("gems", "tokens");
+    }
+
+    @Test
+    @DisplayName("unknown currencies and missing accounts read as zero")
+    void missingReadsZero() {
+        WalletSnapshot wallet = WalletSnapshot.of(UUID, null, Collections.singletonList(balance("gems", 3.0, 0.0)));
+
+        assertThat(wallet.hasAccount()).isFalse();
+        assertThat(wallet.getCash()).isZero();
+        assertThat(wallet.hasBalance("gems")).isTrue();
+        assertThat(wallet.hasBalance("tokens")).isFalse();
+        assertThat(wallet.getTotalWealth("tokens")).isZero();
+    }
+
+    @Test
+    @DisplayName("is not affected by later entity changes")
+    void detachedFromEntities() {
+        PlayerAccountEntity account = PlayerAccountEntity.builder()
+                .uuid(UUID).playerName("Steve").cash(100.0).bank(0.0).build();
+        CurrencyBalanceEntity gems = balance("gems", 3.0, 0.0);
+        WalletSnapshot wallet = WalletSnapshot.of(UUID, account, Collections.singletonList(gems));
+
+        account.setCash(0.0);
+        gems.setCash(0.0);
+
+        assertThat(wallet.getCash()).isEqualTo(100.0);
+        assertThat(wallet.getCash("gems")).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("plusCash adds to a copy and leaves the original alone")
+    void plusCash() {
+        PlayerAccountEntity account = PlayerAccountEntity.builder()
+                .uuid(UUID).playerName("Steve").cash(100.0).bank(5.0).build();
+        WalletSnapshot wallet = WalletSnapshot.of(UUID, account, Collections.singletonList(balance("gems", 3.0, 1.0)));
+
+        WalletSnapshot credited = wallet.plusCash(null, 20.0).plusCash("gems", 2.0);
+
+        assertThat(credited.getCash()).isEqualTo(120.0);
+        assertThat(credited.getBank()).isEqualTo(5.0);
+        assertThat(credited.getCash("gems")).isEqualTo(5.0);
+        assertThat(credited.getBank("gems")).isEqualTo(1.0);
+        assertThat(wallet.getCash()).isEqualTo(100.0);
+        assertThat(wallet.getCash("gems")).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("empty snapshot has no account and no holdings")
+    void empty() {
+        WalletSnapshot wallet = WalletSnapshot.empty(UUID);
+
+        assertThat(wallet.hasAccount()).isFalse();
+        assertThat(wallet.getTotalWealth()).isZero();
+        assertThat(wallet.getCurrencyIds()).isEmpty();
+    }
+}
@@ -16,7 +16,10 @@ import java.util.Collections;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("EconomyPlaceholderExpansion")
@@ -83,6 +86,7 @@ class EconomyPlaceholderExpansionTest {
         void cash() {
             when(economyService.getCash(PLAYER_UUID)).thenReturn(1234.56);
             assertThat(expansion.onRequest(player, "cash")).isEqualTo("1234.56");
+            verify(economyService, never()).getWallet(any());
         }
 
         @Test
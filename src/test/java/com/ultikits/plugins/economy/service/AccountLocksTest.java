@@ -0,0 +1,90 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AccountLocks")
+class AccountLocksTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("550e8400-e29b-41d4-a716-446655440000");
+
+    @Test
+    @DisplayName("rounds the stripe count up to a power of two")
+    void roundsStripeCount() {
+        assertThat(new AccountLocks(1000).getStripeCount()).isEqualTo(1024);
+        assertThat(new AccountLocks(16).getStripeCount()).isEqualTo(16);
+        assertThat(new AccountLocks(1).getStripeCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("the same account always maps to the same lock")
+    void stableAccountLock() {
+        AccountLocks locks = new AccountLocks();
+        assertThat(locks.forAccount(PLAYER_UUID))
+                .isSameAs(locks.forAccount(UUID.fromString(PLAYER_UUID.toString())));
+        assertThat(locks.forBalance(PLAYER_UUID, "gems")).isSameAs(locks.forBalance(PLAYER_UUID, "gems"));
+    }
+
+    @Test
+    @DisplayName("distinct accounts spread across stripes")
+    void accountsSpread() {
+        AccountLocks locks = new AccountLocks(64);
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 256; i++) {
+            used.add(locks.accountIndex(UUID.randomUUID()));
+        }
+        assertThat(used.size()).isGreaterThan(48);
+    }
+
+    @Test
+    @DisplayName("currencies of one player spread across stripes")
+    void currenciesSpread() {
+        AccountLocks locks = new AccountLocks(64);
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 64; i++) {
+            used.add(locks.balanceIndex(PLAYER_UUID, "currency" + i));
+        }
+        assertThat(used.size()).isGreaterThan(24);
+    }
+
+    @Test
+    @DisplayName("forStripes deduplicates and orders stripes ascending")
+    void forStripesOrdered() {
+        AccountLocks locks = new AccountLocks(8);
+        ReentrantLock[] held = locks.forStripes(new int[]{5, 1, 5, 3, 1});
+
+        assertThat(held).containsExactly(
+                locks.forStripes(new int[]{1})[0],
+                locks.forStripes(new int[]{3})[0],
+                locks.forStripes(new int[]{5})[0]);
+    }
+
+    @Test
+    @DisplayName("forPlayer covers the account and every balance stripe")
+    void forPlayerCoversAll() {
+        AccountLocks locks = new AccountLocks();
+        ReentrantLock[] held = locks.forPlayer(PLAYER_UUID, Arrays.asList("coins", "gems"));
+
+        assertThat(held).contains(locks.forAccount(PLAYER_UUID),
+                locks.forBalance(PLAYER_UUID, "coins"), locks.forBalance(PLAYER_UUID, "gems"));
+        assertThat(new HashSet<>(Arrays.asList(held))).hasSize(held.length);
+    }
+
+    @Test
+    @DisplayName("all returns every distinct stripe")
+    void allStripes() {
+        AccountLocks locks = new AccountLocks(8);
+        ReentrantLock[] all = locks.all();
+
+        assertThat(all).hasSize(8).contains(locks.forAccount(PLAYER_UUID));
+        assertThat(new HashSet<>(Arrays.asList(all))).hasSize(8);
+    }
+}
@@ -0,0 +1,166 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.plugins.economy.model.BatchResult;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("AsyncEconomyServiceImpl")
+@ExtendWith(MockitoExtension.class)
+class AsyncEconomyServiceImplTest {
+
+    private static final UUID PLAYER = UUID.fromString("550e8400-e29b-41d4-a716-446655440000");
+    private static final UUID OTHER = UUID.fromString("660e8400-e29b-41d4-a716-446655440000");
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private EconomyService economyService;
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private AsyncEconomyServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        Executor io = queued::add;
+        service = AsyncEconomyServiceImpl.createForTest(plugin, economyService, io, Runnable::run);
+    }
+
+    private void drain() {
+        while (!queued.isEmpty()) {
+            queued.remove(0).run();
+        }
+    }
+
+    @Nested
+    @DisplayName("Delegation")
+    class Delegation {
+
+        @Test
+        @DisplayName("runs operations on the I/O executor, not the caller")
+        void runsOffCaller() throws Exception {
+            when(economyService.transfer(PLAYER, OTHER, 50.0)).thenReturn(true);
+
+            CompletableFuture<Boolean> future = service.transfer(PLAYER, OTHER, 50.0);
+
+            assertThat(future).isNotDone();
+            verifyNoInteractions(economyService);
+            drain();
+            assertThat(future.get()).isTrue();
+        }
+
+        @Test
+        @DisplayName("forwards currency-specific operations")
+        void currencyOperations() throws Exception {
+            when(economyService.addCash(PLAYER, 5.0, "gems")).thenReturn(true);
+            when(economyService.withdrawFromBank(PLAYER, 2.0, "gems")).thenReturn(false);
+
+            CompletableFuture<Boolean> add = service.addCash(PLAYER, 5.0, "gems");
+            CompletableFuture<Boolean> withdraw = service.withdrawFromBank(PLAYER, 2.0, "gems");
+            drain();
+
+            assertThat(add.get()).isTrue();
+            assertThat(withdraw.get()).isFalse();
+        }
+
+        @Test
+        @DisplayName("forwards wallet reads and batches")
+        void walletAndBatch() throws Exception {
+            WalletSnapshot wallet = WalletSnapshot.empty(PLAYER.toString());
+            List<BalanceMutation> batch = Collections.singletonList(
+                    BalanceMutation.builder().uuid(PLAYER).delta(1.0).build());
+            BatchResult result = new BatchResult(true,
+                    Collections.singletonList(BatchResult.Status.APPLIED));
+            when(economyService.getWallet(PLAYER)).thenReturn(wallet);
+            when(economyService.applyBatch(batch)).thenReturn(result);
+
+            CompletableFuture<WalletSnapshot> walletFuture = service.getWallet(PLAYER);
+            CompletableFuture<BatchResult> batchFuture = service.applyBatch(batch);
+            drain();
+
+            assertThat(walletFuture.get()).isSameAs(wallet);
+            assertThat(batchFuture.get()).isSameAs(result);
+        }
+
+        @Test
+        @DisplayName("exposes the main-thread executor for callbacks")
+        void mainThread() {
+            Executor main = service.mainThread();
+            List<String> ran = new ArrayList<>();
+
+            main.execute(() -> ran.add("callback"));
+
+            assertThat(ran).containsExactly("callback");
+        }
+    }
+
+    @Nested
+    @DisplayName("Failures")
+    class Failures {
+
+        @Test
+        @DisplayName("completes exceptionally when the operation throws")
+        void operationThrows() {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            when(economyService.takeCash(PLAYER, 10.0)).thenThrow(new IllegalStateException("db down"));
+
+            CompletableFuture<Boolean> future = service.takeCash(PLAYER, 10.0);
+            drain();
+
+            assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            verify(logger).error(anyString());
+        }
+
+        @Test
+        @DisplayName("completes exceptionally when the operation throws an error")
+        void operationErrors() {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            when(economyService.takeCash(PLAYER, 10.0)).thenThrow(new NoClassDefFoundError("missing"));
+
+            CompletableFuture<Boolean> future = service.takeCash(PLAYER, 10.0);
+            drain();
+
+            assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(NoClassDefFoundError.class);
+            verify(logger).error(anyString());
+        }
+
+        @Test
+        @DisplayName("fails fast when the I/O queue is full")
+        void queueFull() {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            Executor full = task -> {
+                throw new RejectedExecutionException("full");
+            };
+            AsyncEconomyServiceImpl saturated =
+                    AsyncEconomyServiceImpl.createForTest(plugin, economyService, full, Runnable::run);
+
+            CompletableFuture<Boolean> future = saturated.addCash(PLAYER, 1.0);
+
+            assertThat(future).isCompletedExceptionally();
+            verifyNoInteractions(economyService);
+            verify(logger).error(anyString());
+        }
+    }
+}
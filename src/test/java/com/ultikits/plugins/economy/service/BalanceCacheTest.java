@@ -0,0 +1,439 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("BalanceCache")
+@ExtendWith(MockitoExtension.class)
+class BalanceCacheTest {
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private DataOperator<PlayerAccountEntity> accountOperator;
+    @Mock private DataOperator<CurrencyBalanceEntity> balanceOperator;
+
+    private BalanceCache cache;
+
+    private static final UUID PLAYER = UUID.fromString("550e8400-e29b-41d4-a716-446655440000");
+    private static final String PLAYER_UUID = PLAYER.toString();
+    private static final List<String> CURRENCIES = Arrays.asList("coins", "gems");
+
+    @BeforeEach
+    void setUp() {
+        cache = new BalanceCache(plugin, accountOperator, balanceOperator, new AccountLocks());
+    }
+
+    private PlayerAccountEntity makeAccount(double cash) {
+        return PlayerAccountEntity.builder()
+                .uuid(PLAYER_UUID).playerName("Steve").cash(cash).bank(0.0).build();
+    }
+
+    private CurrencyBalanceEntity makeBalance(String currencyId, double cash) {
+        return CurrencyBalanceEntity.builder()
+                .uuid(PLAYER_UUID).currencyId(currencyId).cash(cash).bank(0.0).build();
+    }
+
+    @Nested
+    @DisplayName("Reads")
+    class Reads {
+
+        @Test
+        @DisplayName("loads account once and serves later reads from memory")
+        void loadsAccountOnce() {
+            PlayerAccountEntity account = makeAccount(100);
+            when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(account)));
+
+            assertThat(cache.getAccount(PLAYER_UUID)).isSameAs(account);
+            assertThat(cache.getAccount(PLAYER_UUID)).isSameAs(account);
+            verify(accountOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("returns null for unknown account")
+        void missingAccount() {
+            when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+            assertThat(cache.getAccount(PLAYER_UUID)).isNull();
+        }
+
+        @Test
+        @DisplayName("loads currency balance once per currency")
+        void loadsBalanceOnce() {
+            CurrencyBalanceEntity gems = makeBalance("gems", 5);
+            when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(gems)));
+
+            assertThat(cache.getBalance(PLAYER_UUID, "gems")).usingRecursiveComparison().isEqualTo(gems);
+            assertThat(cache.getBalance(PLAYER_UUID, "gems")).usingRecursiveComparison().isEqualTo(gems);
+            verify(balanceOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("balances are handed out detached until marked dirty")
+        void balancesDetached() {
+            CurrencyBalanceEntity gems = cache.insertBalance(makeBalance("gems", 5));
+            gems.setCash(9);
+
+            assertThat(cache.getBalance(PLAYER_UUID, "gems").getCash()).isEqualTo(5.0);
+            cache.markDirty(gems);
+            assertThat(cache.getBalance(PLAYER_UUID, "gems").getCash()).isEqualTo(9.0);
+        }
+
+        @Test
+        @DisplayName("resolve prefers the cached copy over a stored row")
+        void resolvePrefersCached() {
+            PlayerAccountEntity live = makeAccount(500);
+            cache.insertAccount(live);
+
+            assertThat(cache.resolve(makeAccount(100))).isSameAs(live);
+        }
+
+        @Test
+        @DisplayName("resolve falls back to the stored row when not cached")
+        void resolveFallsBack() {
+            PlayerAccountEntity stored = makeAccount(100);
+            assertThat(cache.resolve(stored)).isSameAs(stored);
+        }
+    }
+
+    @Nested
+    @DisplayName("Write-back")
+    class WriteBack {
+
+        @Test
+        @DisplayName("insertAccount writes through immediately")
+        void insertWritesThrough() {
+            PlayerAccountEntity account = makeAccount(100);
+            cache.insertAccount(account);
+
+            verify(accountOperator).insert(account);
+            assertThat(cache.getAccount(PLAYER_UUID)).isSameAs(account);
+        }
+
+        @Test
+        @DisplayName("markDirty defers the update until flush")
+        void markDirtyDefersUpdate() throws Exception {
+            PlayerAccountEntity account = makeAccount(100);
+            cache.insertAccount(account);
+            account.setCash(250);
+            cache.markDirty(account);
+
+            verify(accountOperator, never()).update(any());
+            assertThat(cache.getDirtyCount()).isEqualTo(1);
+
+            assertThat(cache.flush()).isEqualTo(1);
+            verify(accountOperator).update(account);
+            assertThat(cache.getDirtyCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("repeated mutations collapse into one write")
+        void repeatedMutationsCollapse() throws Exception {
+            PlayerAccountEntity account = makeAccount(100);
+            cache.insertAccount(account);
+            for (int i = 0; i < 10; i++) {
+                account.setCash(account.getCash() + 1);
+                cache.markDirty(account);
+            }
+
+            cache.flush();
+            verify(accountOperator, times(1)).update(account);
+        }
+
+        @Test
+        @DisplayName("flushes dirty currency balances")
+        void flushesBalances() throws Exception {
+            CurrencyBalanceEntity gems = makeBalance("gems", 5);
+            cache.insertBalance(gems);
+            gems.setCash(8);
+            cache.markDirty(gems);
+
+            assertThat(cache.flush()).isEqualTo(1);
+            verify(balanceOperator).update(argThat(b -> b.getCurrencyId().equals("gems") && b.getCash() == 8.0));
+        }
+
+        @Test
+        @DisplayName("writes a player's dirty balances in one call")
+        void flushesPlayerTogether() throws Exception {
+            BalanceRepository repository = mock(BalanceRepository.class);
+            BalanceCache grouped = new BalanceCache(plugin, repository, new AccountLocks(), null);
+            for (String currencyId : Arrays.asList("gems", "coins")) {
+                CurrencyBalanceEntity balance = makeBalance(currencyId, 5);
+                grouped.insertBalance(balance);
+                grouped.markDirty(balance);
+            }
+
+            assertThat(grouped.flush()).isEqualTo(2);
+            verify(repository).updateBalances(eq(PLAYER_UUID), argThat(balances -> balances.size() == 2));
+            verify(repository, never()).updateBalance(any());
+        }
+
+        @Test
+        @DisplayName("writes a player's dirty account and balances in one call")
+        void flushesAccountWithBalances() throws Exception {
+            BalanceRepository repository = mock(BalanceRepository.class);
+            BalanceCache grouped = new BalanceCache(plugin, repository, new AccountLocks(), null);
+            PlayerAccountEntity account = makeAccount(100);
+            grouped.insertAccount(account);
+            grouped.markDirty(account);
+            CurrencyBalanceEntity balance = makeBalance("gems", 5);
+            grouped.insertBalance(balance);
+            grouped.markDirty(balance);
+
+            assertThat(grouped.flush()).isEqualTo(2);
+            verify(repository).updatePlayer(eq(PLAYER_UUID), any(), argThat(balances -> balances.size() == 1));
+            verify(repository, never()).updateAccount(any());
+            verify(repository, never()).updateBalances(any(), any());
+        }
+
+        @Test
+        @DisplayName("failed writes stay dirty for the next flush")
+        void failedWritesRetry() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity account = makeAccount(100);
+            cache.insertAccount(account);
+            cache.markDirty(account);
+            doThrow(new IllegalAccessException("down")).doNothing().when(accountOperator).update(account);
+
+            assertThat(cache.flush()).isZero();
+            verify(logger).error(anyString());
+            assertThat(cache.getDirtyCount()).isEqualTo(1);
+
+            assertThat(cache.flush()).isEqualTo(1);
+            assertThat(cache.getDirtyCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("clean flush compacts the transaction log up to where it started")
+        void cleanFlushCompactsLog() throws Exception {
+            TransactionLog log = mock(TransactionLog.class);
+            when(log.mark(any())).thenReturn(42L);
+            BalanceCache logged = new BalanceCache(plugin, accountOperator, balanceOperator, new AccountLocks(), log);
+            PlayerAccountEntity account = makeAccount(100);
+            logged.insertAccount(account);
+            logged.markDirty(account);
+
+            assertThat(logged.flush()).isEqualTo(1);
+            verify(log).truncate(42L);
+        }
+
+        @Test
+        @DisplayName("failed flush keeps the transaction log")
+        void failedFlushKeepsLog() throws Exception {
+            when(plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+            TransactionLog log = mock(TransactionLog.class);
+            when(log.mark(any())).thenReturn(42L);
+            BalanceCache logged = new BalanceCache(plugin, accountOperator, balanceOperator, new AccountLocks(), log);
+            PlayerAccountEntity account = makeAccount(100);
+            logged.insertAccount(account);
+            logged.markDirty(account);
+            doThrow(new IllegalAccessException("down")).when(accountOperator).update(account);
+
+            assertThat(logged.flush()).isZero();
+            verify(log, never()).truncate(anyLong());
+        }
+
+        @Test
+        @DisplayName("keeps the transaction log when the writes cannot be synced")
+        void unsyncedFlushKeepsLog() throws Exception {
+            when(plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+            TransactionLog log = mock(TransactionLog.class);
+            when(log.mark(any())).thenReturn(42L);
+            BalanceRepository repository = mock(BalanceRepository.class);
+            doThrow(new IOException("disk full")).when(repository).sync();
+            BalanceCache logged = new BalanceCache(plugin, repository, new AccountLocks(), log);
+            PlayerAccountEntity account = makeAccount(100);
+            logged.insertAccount(account);
+            logged.markDirty(account);
+
+            assertThat(logged.flush()).isEqualTo(1);
+            verify(repository).updateAccount(any());
+            verify(log, never()).truncate(anyLong());
+        }
+
+        @Test
+        @DisplayName("flush with nothing dirty writes nothing")
+        void emptyFlush() throws Exception {
+            assertThat(cache.flush()).isZero();
+            verify(accountOperator, never()).update(any());
+            verify(balanceOperator, never()).update(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulk reads")
+    class BulkReads {
+
+        private final String other = UUID.fromString("660e8400-e29b-41d4-a716-446655440001").toString();
+
+        @Test
+        @DisplayName("getAccounts loads every miss with one query and serves hits from memory")
+        void accountsInOneQuery() {
+            PlayerAccountEntity cached = cache.insertAccount(makeAccount(100));
+            PlayerAccountEntity loaded = PlayerAccountEntity.builder()
+                    .uuid(other).playerName("Alex").cash(5).bank(0).build();
+            when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(loaded)));
+
+            Map<String, PlayerAccountEntity> found = cache.getAccounts(Arrays.asList(PLAYER_UUID, other));
+
+            assertThat(found).containsEntry(PLAYER_UUID, cached).containsEntry(other, loaded);
+            assertThat(cache.getAccount(other)).isSameAs(loaded);
+            verify(accountOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("getAccounts issues no query when everything is cached")
+        void accountsAllCached() {
+            cache.insertAccount(makeAccount(100));
+
+            assertThat(cache.getAccounts(Collections.singletonList(PLAYER_UUID))).hasSize(1);
+            verify(accountOperator, never()).query();
+        }
+
+        @Test
+        @DisplayName("getBalances drops rows for keys that were not requested")
+        void balancesFiltered() {
+            CurrencyBalanceEntity gems = makeBalance("gems", 2);
+            CurrencyBalanceEntity stray = makeBalance("coins", 1);
+            when(balanceOperator.query()).thenReturn(new MockQuery<>(Arrays.asList(gems, stray)));
+
+            Map<String, CurrencyBalanceEntity> found = cache.getBalances(
+                    Collections.singleton(BalanceCache.balanceKey(PLAYER_UUID, "gems")));
+
+            assertThat(found).containsOnlyKeys(BalanceCache.balanceKey(PLAYER_UUID, "gems"));
+            assertThat(cache.size()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Working set")
+    class WorkingSet {
+
+        @Test
+        @DisplayName("preload fetches the account and all balances with one query each")
+        void preloadBatches() {
+            PlayerAccountEntity account = makeAccount(100);
+            CurrencyBalanceEntity coins = makeBalance("coins", 1);
+            CurrencyBalanceEntity gems = makeBalance("gems", 2);
+            when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(account)));
+            when(balanceOperator.query()).thenReturn(new MockQuery<>(Arrays.asList(coins, gems)));
+
+            cache.preload(PLAYER, CURRENCIES);
+
+            assertThat(cache.getAccount(PLAYER_UUID)).isSameAs(account);
+            assertThat(cache.getBalance(PLAYER_UUID, "coins")).usingRecursiveComparison().isEqualTo(coins);
+            assertThat(cache.getBalance(PLAYER_UUID, "gems")).usingRecursiveComparison().isEqualTo(gems);
+            verify(accountOperator, times(1)).query();
+            verify(balanceOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("preload skips queries for entries already in memory")
+        void preloadSkipsCached() {
+            cache.insertAccount(makeAccount(100));
+            cache.insertBalance(makeBalance("coins", 1));
+            cache.insertBalance(makeBalance("gems", 2));
+
+            cache.preload(PLAYER, CURRENCIES);
+
+            verify(accountOperator, never()).query();
+            verify(balanceOperator, never()).query();
+        }
+
+        @Test
+        @DisplayName("evict writes back dirty entries and drops them")
+        void evictWritesBack() throws Exception {
+            PlayerAccountEntity account = makeAccount(100);
+            CurrencyBalanceEntity gems = makeBalance("gems", 2);
+            cache.insertAccount(account);
+            cache.insertBalance(gems);
+            cache.markDirty(account);
+
+            assertThat(cache.evict(PLAYER, CURRENCIES)).isTrue();
+
+            verify(accountOperator).update(account);
+            verify(balanceOperator, never()).update(any());
+            assertThat(cache.size()).isZero();
+            assertThat(cache.getDirtyCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("evict keeps entries that fail to write")
+        void evictKeepsFailedEntries() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity account = makeAccount(100);
+            cache.insertAccount(account);
+            cache.markDirty(account);
+            doThrow(new IllegalAccessException("down")).when(accountOperator).update(account);
+
+            assertThat(cache.evict(PLAYER, CURRENCIES)).isFalse();
+
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(cache.getDirtyCount()).isEqualTo(1);
+            verify(logger).error(anyString());
+        }
+
+        @Test
+        @DisplayName("snapshot loads a cold player with one query per table")
+        void snapshotLoadsCold() {
+            when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(makeAccount(100))));
+            when(balanceOperator.query()).thenReturn(new MockQuery<>(
+                    Arrays.asList(makeBalance("coins", 1), makeBalance("gems", 2))));
+
+            WalletSnapshot wallet = cache.snapshot(PLAYER, CURRENCIES);
+
+            assertThat(wallet.hasAccount()).isTrue();
+            assertThat(wallet.getCash()).isEqualTo(100.0);
+            assertThat(wallet.getCash("gems")).isEqualTo(2.0);
+            assertThat(wallet.getCurrencyIds()).containsExactly("coins", "gems");
+            verify(accountOperator, times(1)).query();
+            verify(balanceOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("snapshot of a warm player needs no queries")
+        void snapshotServesFromMemory() {
+            cache.insertAccount(makeAccount(100));
+            cache.insertBalance(makeBalance("coins", 1));
+            cache.insertBalance(makeBalance("gems", 2));
+
+            WalletSnapshot wallet = cache.snapshot(PLAYER, CURRENCIES);
+
+            assertThat(wallet.getTotalWealth("coins")).isEqualTo(1.0);
+            verify(accountOperator, never()).query();
+            verify(balanceOperator, never()).query();
+        }
+
+        @Test
+        @DisplayName("snapshot is detached from later mutations")
+        void snapshotIsDetached() {
+            PlayerAccountEntity account = cache.insertAccount(makeAccount(100));
+            cache.insertBalance(makeBalance("coins", 1));
+            cache.insertBalance(makeBalance("gems", 2));
+
+            WalletSnapshot wallet = cache.snapshot(PLAYER, CURRENCIES);
+            account.setCash(0);
+
+            assertThat(wallet.getCash()).isEqualTo(100.0);
+        }
+    }
+}
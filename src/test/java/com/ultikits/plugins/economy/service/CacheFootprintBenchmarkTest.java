@@ -0,0 +1,94 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Retained heap of a million cached wallets with three currencies each, first in the old
+ * layout of one entity per balance under a {@code uuid:currency} key, then in
+ * {@link BalanceCache}'s per-player primitive arrays. Every row gets its own uuid and currency
+ * strings, as rows read from the database do. Excluded from the default test run;
+ * use {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Cache footprint benchmark")
+class CacheFootprintBenchmarkTest {
+
+    private static final int WALLETS = 1_000_000;
+    private static final String[] CURRENCIES = {"coins", "gems", "tokens"};
+
+    @Test
+    @DisplayName("heap retained by one million cached wallets")
+    void cachedWallets() throws Exception {
+        String[] players = new String[WALLETS];
+        for (int i = 0; i < WALLETS; i++) {
+            players[i] = UUID.randomUUID().toString();
+        }
+
+        long base = usedHeap();
+        ConcurrentMap<String, CurrencyBalanceEntity> entities = new ConcurrentHashMap<>();
+        for (String player : players) {
+            for (String currency : CURRENCIES) {
+                CurrencyBalanceEntity row = row(player, currency);
+                entities.put(BalanceCache.balanceKey(row.getUuid(), row.getCurrencyId()), row);
+            }
+        }
+        long before = usedHeap() - base;
+        assertThat(entities).hasSize(WALLETS * CURRENCIES.length);
+        entities = null;
+
+        base = usedHeap();
+        BalanceRepository repository = mock(BalanceRepository.class, withSettings().stubOnly());
+        CurrencyOrdinals ordinals = new CurrencyOrdinals();
+        for (String currency : CURRENCIES) {
+            ordinals.intern(currency);
+        }
+        BalanceCache cache = new BalanceCache(mock(UltiToolsPlugin.class), repository,
+                new AccountLocks(), null, ordinals);
+        for (String player : players) {
+            for (String currency : CURRENCIES) {
+                cache.insertBalance(row(player, currency));
+            }
+        }
+        long after = usedHeap() - base;
+        assertThat(cache.size()).isEqualTo(WALLETS * CURRENCIES.length);
+
+        System.out.printf("%d wallets x %d currencies: entity map %.1f MB (%d B/wallet), "
+                        + "primitive arrays %.1f MB (%d B/wallet)%n",
+                WALLETS, CURRENCIES.length,
+                before / 1048576.0, before / WALLETS,
+                after / 1048576.0, after / WALLETS);
+        assertThat(after).isLessThan(before);
+    }
+
+    private static CurrencyBalanceEntity row(String player, String currency) {
+        CurrencyBalanceEntity row = CurrencyBalanceEntity.builder()
+                .uuid(new String(player))
+                .currencyId(new String(currency))
+                .cash(100.0)
+                .bank(25.0)
+                .build();
+        row.setId(UUID.randomUUID().toString());
+        return row;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
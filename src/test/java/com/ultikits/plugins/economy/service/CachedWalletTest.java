@@ -0,0 +1,71 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CachedWallet")
+class CachedWalletTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+
+    private CurrencyBalanceEntity balance(String currencyId, double cash, double bank, long version) {
+        return CurrencyBalanceEntity.builder()
+                .uuid(UUID).currencyId(currencyId).cash(cash).bank(bank).version(version).build();
+    }
+
+    @Test
+    @DisplayName("stores and returns balances by ordinal")
+    void putGet() {
+        CachedWallet wallet = new CachedWallet(UUID, 2);
+        wallet.put(1, balance("gems", 3.5, 1.5, 4));
+
+        CurrencyBalanceEntity gems = wallet.get(1, "gems");
+
+        assertThat(gems.getUuid()).isEqualTo(UUID);
+        assertThat(gems.getCurrencyId()).isEqualTo("gems");
+        assertThat(gems.getCash()).isEqualTo(3.5);
+        assertThat(gems.getBank()).isEqualTo(1.5);
+        assertThat(gems.getVersion()).isEqualTo(4L);
+        assertThat(wallet.has(0)).isFalse();
+        assertThat(wallet.get(0, "coins")).isNull();
+    }
+
+    @Test
+    @DisplayName("grows for ordinals past its capacity")
+    void grows() {
+        CachedWallet wallet = new CachedWallet(UUID, 1);
+        wallet.put(0, balance("coins", 1, 0, 0));
+        wallet.put(5, balance("tokens", 2, 0, 0));
+
+        assertThat(wallet.get(5, "tokens").getCash()).isEqualTo(2.0);
+        assertThat(wallet.has(3)).isFalse();
+        assertThat(wallet.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("returned balances are copies")
+    void detached() {
+        CachedWallet wallet = new CachedWallet(UUID, 1);
+        wallet.put(0, balance("coins", 1, 0, 0));
+
+        wallet.get(0, "coins").setCash(99);
+
+        assertThat(wallet.get(0, "coins").getCash()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("removed ordinals read as absent")
+    void remove() {
+        CachedWallet wallet = new CachedWallet(UUID, 2);
+        wallet.put(0, balance("coins", 1, 0, 0));
+
+        wallet.remove(0);
+        wallet.remove(7);
+
+        assertThat(wallet.has(0)).isFalse();
+        assertThat(wallet.count()).isZero();
+    }
+}
@@ -27,6 +27,7 @@ class CurrencyManagerTest {
             "    symbol: 'G'\n" +
             "    initial-cash: 0.0\n" +
             "    bank-enabled: false\n" +
+            "    precision: 0\n" +
             "    primary: false\n";
 
     private CurrencyManager manager;
@@ -44,6 +45,15 @@ class CurrencyManagerTest {
         assertThat(all).hasSize(2);
     }
 
+    @Test
+    @DisplayName("interns configured currencies to ordinals in file order")
+    void ordinals() {
+        assertThat(manager.getOrdinal("coins")).isZero();
+        assertThat(manager.getOrdinal("gems")).isEqualTo(1);
+        assertThat(manager.getOrdinal("nonexistent")).isEqualTo(-1);
+        assertThat(manager.getOrdinals().idOf(1)).isEqualTo("gems");
+    }
+
     @Test
     @DisplayName("getCurrency returns correct definition")
     void getCurrency() {
@@ -75,6 +85,41 @@ class CurrencyManagerTest {
         assertThat(manager.hasCurrency("nope")).isFalse();
     }
 
+    @Test
+    @DisplayName("reads precision with a default of two decimal places")
+    void precision() {
+        assertThat(manager.getCurrency("coins").getPrecision()).isEqualTo(2);
+        assertThat(manager.getPrecision("gems")).isEqualTo(0);
+        assertThat(manager.getPrecision("unknown")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("keeps one formatter per currency for its symbol and precision")
+    void formatters() {
+        assertThat(manager.getFormatter("coins").format(1234.5)).isEqualTo("$1,234.50");
+        assertThat(manager.getFormatter("gems").format(1234.5)).isEqualTo("G1,235");
+        assertThat(manager.getFormatter("coins")).isSameAs(manager.getFormatter("coins"));
+        assertThat(manager.getFormatter("unknown").format(1234.5)).isEqualTo("1,234.50");
+    }
+
+    @Test
+    @DisplayName("throws on out-of-range precision")
+    void invalidPrecision() {
+        String yaml = "currencies:\n  coins:\n    precision: 12\n    primary: true\n";
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(new StringReader(yaml));
+        assertThatThrownBy(() -> new CurrencyManager(config))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("precision");
+    }
+
+    @Test
+    @DisplayName("accepts ids only wallet storage cannot hold; startup checks those with wallets on")
+    void separatorId() {
+        String yaml = "currencies:\n  'co,ins':\n    primary: true\n";
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(new StringReader(yaml));
+        assertThat(new CurrencyManager(config).hasCurrency("co,ins")).isTrue();
+    }
+
     @Test
     @DisplayName("throws if no primary currency defined")
     void noPrimary() {
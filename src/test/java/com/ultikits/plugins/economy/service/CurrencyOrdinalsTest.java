@@ -0,0 +1,41 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CurrencyOrdinals")
+class CurrencyOrdinalsTest {
+
+    @Test
+    @DisplayName("assigns dense ordinals in first-seen order")
+    void dense() {
+        CurrencyOrdinals ordinals = new CurrencyOrdinals();
+
+        assertThat(ordinals.intern("coins")).isZero();
+        assertThat(ordinals.intern("gems")).isEqualTo(1);
+        assertThat(ordinals.intern("coins")).isZero();
+        assertThat(ordinals.size()).isEqualTo(2);
+        assertThat(ordinals.idOf(1)).isEqualTo("gems");
+    }
+
+    @Test
+    @DisplayName("hands out the interned id instance")
+    void interned() {
+        CurrencyOrdinals ordinals = new CurrencyOrdinals();
+        String first = new String("gems");
+        ordinals.intern(first);
+
+        assertThat(ordinals.idOf(ordinals.intern(new String("gems")))).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("looking up an unknown id does not assign one")
+    void unknown() {
+        CurrencyOrdinals ordinals = new CurrencyOrdinals();
+
+        assertThat(ordinals.ordinalOf("gems")).isEqualTo(-1);
+        assertThat(ordinals.size()).isZero();
+    }
+}
@@ -0,0 +1,105 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.Mockito.*;
+
+@DisplayName("DatabaseLeaderboard")
+@ExtendWith(MockitoExtension.class)
+class DatabaseLeaderboardTest {
+
+    private static final String UUID_A = "550e8400-e29b-41d4-a716-446655440001";
+    private static final String UUID_B = "550e8400-e29b-41d4-a716-446655440002";
+
+    @Mock private DataOperator<PlayerAccountEntity> accountOperator;
+    @Mock private DataOperator<CurrencyBalanceEntity> balanceOperator;
+
+    private DatabaseLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new DatabaseLeaderboard(accountOperator, balanceOperator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Query<T> query() {
+        return mock(Query.class, RETURNS_SELF);
+    }
+
+    @Test
+    @DisplayName("pages the primary leaderboard in the database by total wealth")
+    void primaryPage() {
+        Query<PlayerAccountEntity> query = query();
+        when(accountOperator.query()).thenReturn(query);
+        when(query.list()).thenReturn(Arrays.asList(
+                PlayerAccountEntity.builder().uuid(UUID_A).playerName("Alice").cash(50).bank(10).build(),
+                PlayerAccountEntity.builder().uuid(UUID_B).playerName("Bob").cash(20).bank(0).build()));
+
+        List<LeaderboardService.LeaderboardEntry> page = leaderboard.page(null, 20, 10);
+
+        verify(query).orderByDesc(DatabaseLeaderboard.WEALTH_COLUMN);
+        verify(query).offset(20);
+        verify(query).limit(10);
+        assertThat(page).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                .containsExactly("Alice", "Bob");
+        assertThat(page.get(0).getTotalWealth()).isEqualTo(60.0);
+    }
+
+    @Test
+    @DisplayName("names currency entries from their accounts in one query, falling back to the uuid")
+    void currencyPage() {
+        Query<CurrencyBalanceEntity> balances = query();
+        when(balanceOperator.query()).thenReturn(balances);
+        when(balances.list()).thenReturn(Arrays.asList(
+                CurrencyBalanceEntity.builder().uuid(UUID_A).currencyId("gems").cash(9).build(),
+                CurrencyBalanceEntity.builder().uuid(UUID_B).currencyId("gems").cash(3).build()));
+        Query<PlayerAccountEntity> accounts = query();
+        when(accountOperator.query()).thenReturn(accounts);
+        when(accounts.list()).thenReturn(Collections.singletonList(
+                PlayerAccountEntity.builder().uuid(UUID_A).playerName("Alice").build()));
+
+        List<LeaderboardService.LeaderboardEntry> page = leaderboard.page("gems", 0, 10);
+
+        verify(balances).where("currency_id");
+        verify(balances).eq("gems");
+        verify(accounts).in(argThat(uuids -> uuids.size() == 2));
+        assertThat(page).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                .containsExactly("Alice", UUID_B);
+    }
+
+    @Test
+    @DisplayName("ranks one place below the rows counted as richer")
+    void rank() {
+        Query<CurrencyBalanceEntity> query = query();
+        when(balanceOperator.query()).thenReturn(query);
+        when(query.count()).thenReturn(41L);
+
+        assertThat(leaderboard.rankOf("gems", 12.5)).isEqualTo(42);
+
+        verify(query).and(DatabaseLeaderboard.WEALTH_COLUMN);
+        verify(query).gt(12.5);
+    }
+
+    @Test
+    @DisplayName("reads nothing for an empty page")
+    void emptyPage() {
+        assertThat(leaderboard.page(null, 0, 0)).isEmpty();
+
+        verifyNoInteractions(accountOperator, balanceOperator);
+    }
+}
@@ -2,8 +2,13 @@ package com.ultikits.plugins.economy.service;
 
 import com.ultikits.plugins.economy.config.EconomyConfig;
 import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.IdempotencyKeyEntity;
 import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import com.ultikits.plugins.economy.model.BatchResult;
 import com.ultikits.plugins.economy.model.CurrencyDefinition;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.interfaces.DataOperator;
 import com.ultikits.ultitools.interfaces.Query;
@@ -11,11 +16,19 @@ import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.StringReader;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -528,6 +541,108 @@ class EconomyServiceImplTest {
             assertThat(receiver.getCash()).isEqualTo(290.0);
             verify(taxService).depositToTreasury(10.0, "gems");
         }
+
+        private void mockTransferQueries(PlayerAccountEntity sender, PlayerAccountEntity receiver) {
+            when(dataOperator.query()).thenReturn(query);
+            when(query.where("uuid")).thenReturn(query);
+            when(query.eq(PLAYER_UUID.toString())).thenReturn(query);
+            when(query.eq(OTHER_UUID.toString())).thenReturn(query);
+            when(query.list())
+                    .thenReturn(Collections.singletonList(sender))
+                    .thenReturn(Collections.singletonList(receiver));
+        }
+
+        @Test
+        @DisplayName("transfer rolls back the debit when the credit cannot be written")
+        void transferRollsBackOnReceiverFailure() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 200, 0);
+            mockTransferQueries(sender, receiver);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(receiver);
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 300)).isFalse();
+            assertThat(sender.getCash()).isEqualTo(1000.0);
+            assertThat(receiver.getCash()).isEqualTo(200.0);
+            verify(dataOperator, times(2)).update(sender);
+            verify(logger).error(anyString());
+        }
+
+        @Test
+        @DisplayName("transfer refunds the treasury when the credit cannot be written")
+        void transferRefundsTreasuryOnFailure() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            TaxService taxService = mock(TaxService.class);
+            when(taxService.calculateTransactionTax(100.0)).thenReturn(5.0);
+            service.setTaxService(taxService);
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            mockTransferQueries(sender, receiver);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(receiver);
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 100)).isFalse();
+            verify(taxService).depositToTreasury(5.0, "coins");
+            verify(taxService).withdrawFromTreasury(5.0, "coins");
+            assertThat(sender.getCash()).isEqualTo(1000.0);
+        }
+
+        @Test
+        @DisplayName("transfer writes nothing when the treasury cannot be credited")
+        void transferAbortsOnTreasuryFailure() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            TaxService taxService = mock(TaxService.class);
+            when(taxService.calculateTransactionTax(100.0)).thenReturn(5.0);
+            doThrow(new IllegalAccessException("down")).when(taxService).depositToTreasury(5.0, "coins");
+            service.setTaxService(taxService);
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            mockTransferQueries(sender, receiver);
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 100)).isFalse();
+            assertThat(sender.getCash()).isEqualTo(1000.0);
+            assertThat(receiver.getCash()).isEqualTo(0.0);
+            verify(dataOperator, never()).update(any());
+            verify(logger).error(anyString());
+        }
+
+        @Test
+        @DisplayName("transfer restores both balances when the treasury throws")
+        void transferRestoresOnTreasuryException() throws Exception {
+            TaxService taxService = mock(TaxService.class);
+            when(taxService.calculateTransactionTax(100.0)).thenReturn(5.0);
+            doThrow(new ArithmeticException("Amount out of range")).when(taxService).depositToTreasury(5.0, "coins");
+            service.setTaxService(taxService);
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            mockTransferQueries(sender, receiver);
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 100)).isFalse();
+            assertThat(sender.getCash()).isEqualTo(1000.0);
+            assertThat(receiver.getCash()).isEqualTo(0.0);
+            verify(dataOperator, never()).update(any());
+        }
+
+        @Test
+        @DisplayName("transfer taxed beyond the treasury's minor-unit range writes the tax through")
+        void transferWithHugeTax() throws Exception {
+            @SuppressWarnings("unchecked")
+            DataOperator<TreasuryEntity> treasuryOperator = mock(DataOperator.class);
+            when(treasuryOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+            service.setTaxService(new TaxService(config, treasuryOperator, currencyManager));
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 3e9, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            mockTransferQueries(sender, receiver);
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 2e9)).isTrue();
+            assertThat(sender.getCash()).isEqualTo(1e9);
+            assertThat(receiver.getCash()).isEqualTo(1.9e9);
+            ArgumentCaptor<TreasuryEntity> captor = ArgumentCaptor.forClass(TreasuryEntity.class);
+            verify(treasuryOperator).insert(captor.capture());
+            assertThat(captor.getValue().getBalance()).isEqualTo(1e8);
+        }
     }
 
     @Nested
@@ -548,6 +663,21 @@ class EconomyServiceImplTest {
             assertThat(service.formatAmount(0)).isEqualTo("$0.00");
         }
 
+        @Test
+        @DisplayName("formatAmount prefers the primary currency's formatter")
+        void formatPrimary() {
+            config.setCurrencySymbol("#");
+            assertThat(service.formatAmount(1234.56)).isEqualTo("$1,234.56");
+        }
+
+        @Test
+        @DisplayName("formatAmount falls back to the configured symbol without currencies")
+        void formatWithoutCurrencies() {
+            config.setCurrencySymbol("#");
+            EconomyServiceImpl plain = EconomyServiceImpl.createForTest(plugin, dataOperator, config, currencyDataOperator, null);
+            assertThat(plain.formatAmount(1234.56)).isEqualTo("#1,234.56");
+        }
+
         @Test
         @DisplayName("formatAmount handles large numbers")
         void formatLarge() {
@@ -594,6 +724,99 @@ class EconomyServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Transaction Log")
+    class TransactionLogging {
+
+        @TempDir
+        Path dir;
+
+        private TransactionLog log;
+
+        @BeforeEach
+        void setUpLog() throws Exception {
+            log = new TransactionLog(dir.resolve("transactions.wal").toFile(), false);
+            service.setTransactionLog(log);
+        }
+
+        @AfterEach
+        void closeLog() throws Exception {
+            log.close();
+        }
+
+        @Test
+        @DisplayName("transfer logs both rows in one record before writing")
+        void transferLogged() throws Exception {
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 200, 0);
+            when(dataOperator.query()).thenReturn(query);
+            when(query.where("uuid")).thenReturn(query);
+            when(query.eq(PLAYER_UUID.toString())).thenReturn(query);
+            when(query.eq(OTHER_UUID.toString())).thenReturn(query);
+            when(query.list())
+                    .thenReturn(Collections.singletonList(sender))
+                    .thenReturn(Collections.singletonList(receiver));
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 300)).isTrue();
+
+            List<TransactionLog.Image> images = log.read();
+            assertThat(images).hasSize(2);
+            assertThat(images.get(0).getUuid()).isEqualTo(PLAYER_UUID.toString());
+            assertThat(images.get(0).getCash()).isEqualTo(700.0);
+            assertThat(images.get(1).getUuid()).isEqualTo(OTHER_UUID.toString());
+            assertThat(images.get(1).getCash()).isEqualTo(500.0);
+        }
+
+        @Test
+        @DisplayName("currency mutations log the balance row")
+        void currencyLogged() throws Exception {
+            CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(10.0).bank(0.0).build();
+            mockCurrencyQueryReturns(PLAYER_UUID, "gems", gems);
+
+            assertThat(service.addCash(PLAYER_UUID, 5, "gems")).isTrue();
+
+            List<TransactionLog.Image> images = log.read();
+            assertThat(images).hasSize(1);
+            assertThat(images.get(0).getCurrencyId()).isEqualTo("gems");
+            assertThat(images.get(0).getCash()).isEqualTo(15.0);
+        }
+
+        @Test
+        @DisplayName("a failed write logs the restored values after the attempted ones")
+        void failedWriteCompensated() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(any());
+
+            assertThat(service.addCash(PLAYER_UUID, 100)).isFalse();
+
+            List<TransactionLog.Image> images = log.read();
+            assertThat(images).extracting(TransactionLog.Image::getCash).containsExactly(1100.0, 1000.0);
+            assertThat(account.getCash()).isEqualTo(1000.0);
+        }
+
+        @Test
+        @DisplayName("mutation is not applied when the log cannot be written")
+        void logFailureAborts() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            TransactionLog broken = mock(TransactionLog.class);
+            doThrow(new java.io.IOException("disk full")).when(broken).append(anyList());
+            service.setTransactionLog(broken);
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.takeCash(PLAYER_UUID, 100)).isFalse();
+
+            assertThat(account.getCash()).isEqualTo(1000.0);
+            verify(dataOperator, never()).update(any());
+            verify(logger).error(contains("transaction log"));
+        }
+    }
+
     @Nested
     @DisplayName("Multi-Currency Operations")
     class MultiCurrencyOps {
@@ -897,4 +1120,1072 @@ class EconomyServiceImplTest {
             assertThat(service.transfer(PLAYER_UUID, PLAYER_UUID, 100.0, "gems")).isFalse();
         }
     }
+
+    @Nested
+    @DisplayName("Batch Mutations")
+    class BatchOps {
+
+        private BalanceMutation credit(UUID uuid, double delta) {
+            return BalanceMutation.builder().uuid(uuid).delta(delta).build();
+        }
+
+        private void mockAccounts(PlayerAccountEntity... accounts) {
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Arrays.asList(accounts)));
+        }
+
+        @Test
+        @DisplayName("applies every item with one load query")
+        void appliesAll() throws Exception {
+            PlayerAccountEntity steve = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            PlayerAccountEntity alex = makeAccount(OTHER_UUID, "Alex", 0, 10);
+            mockAccounts(steve, alex);
+
+            BatchResult result = service.applyBatch(Arrays.asList(
+                    credit(PLAYER_UUID, 25),
+                    BalanceMutation.builder().uuid(OTHER_UUID).delta(5)
+                            .bucket(BalanceMutation.Bucket.BANK).build()));
+
+            assertThat(result.isApplied()).isTrue();
+            assertThat(result.getStatuses()).containsOnly(BatchResult.Status.APPLIED);
+            assertThat(steve.getCash()).isEqualTo(125.0);
+            assertThat(alex.getBank()).isEqualTo(15.0);
+            verify(dataOperator, times(1)).query();
+            verify(dataOperator).update(steve);
+            verify(dataOperator).update(alex);
+        }
+
+        @Test
+        @DisplayName("one insufficient debit rejects the whole batch")
+        void allOrNone() throws Exception {
+            PlayerAccountEntity steve = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            PlayerAccountEntity alex = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            mockAccounts(steve, alex);
+
+            BatchResult result = service.applyBatch(Arrays.asList(
+                    credit(OTHER_UUID, 10), credit(PLAYER_UUID, -500)));
+
+            assertThat(result.isApplied()).isFalse();
+            assertThat(result.getStatuses()).containsExactly(
+                    BatchResult.Status.SKIPPED, BatchResult.Status.INSUFFICIENT_FUNDS);
+            assertThat(alex.getCash()).isEqualTo(0.0);
+            assertThat(steve.getCash()).isEqualTo(100.0);
+            verify(dataOperator, never()).update(any());
+        }
+
+        @Test
+        @DisplayName("items on the same record see earlier items")
+        void itemsCompose() throws Exception {
+            PlayerAccountEntity steve = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            mockAccounts(steve);
+
+            BatchResult result = service.applyBatch(Arrays.asList(
+                    credit(PLAYER_UUID, 50), credit(PLAYER_UUID, -120), credit(PLAYER_UUID, 1)));
+
+            assertThat(result.isApplied()).isTrue();
+            assertThat(steve.getCash()).isEqualTo(31.0);
+            verify(dataOperator, times(1)).update(steve);
+        }
+
+        @Test
+        @DisplayName("malformed items are rejected before anything is loaded")
+        void validatesFirst() {
+            BatchResult result = service.applyBatch(Arrays.asList(
+                    credit(PLAYER_UUID, 0),
+                    BalanceMutation.builder().uuid(PLAYER_UUID).currencyId("rubies").delta(1).build(),
+                    credit(OTHER_UUID, 5)));
+
+            assertThat(result.getStatuses()).containsExactly(BatchResult.Status.INVALID,
+                    BatchResult.Status.UNKNOWN_CURRENCY, BatchResult.Status.SKIPPED);
+            verifyNoInteractions(dataOperator, currencyDataOperator);
+        }
+
+        @Test
+        @DisplayName("players without a record are reported")
+        void missingAccount() {
+            mockAccounts(makeAccount(PLAYER_UUID, "Steve", 100, 0));
+
+            BatchResult result = service.applyBatch(Arrays.asList(
+                    credit(PLAYER_UUID, 1), credit(OTHER_UUID, 1)));
+
+            assertThat(result.getStatuses()).containsExactly(
+                    BatchResult.Status.SKIPPED, BatchResult.Status.NO_ACCOUNT);
+        }
+
+        @Test
+        @DisplayName("currency items update balance rows")
+        void currencyItems() throws Exception {
+            CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(3.0).bank(0.0).build();
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(gems)));
+
+            BatchResult result = service.applyBatch(Collections.singletonList(
+                    BalanceMutation.builder().uuid(PLAYER_UUID).currencyId("gems").delta(-2).build()));
+
+            assertThat(result.isApplied()).isTrue();
+            assertThat(gems.getCash()).isEqualTo(1.0);
+            verify(currencyDataOperator).update(gems);
+            verify(dataOperator, never()).query();
+        }
+
+        @Test
+        @DisplayName("a failed write restores and rewrites records already persisted")
+        void writeFailureRollsBack() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity steve = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            PlayerAccountEntity alex = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            mockAccounts(steve, alex);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(alex);
+
+            BatchResult result = service.applyBatch(Arrays.asList(
+                    credit(PLAYER_UUID, -40), credit(OTHER_UUID, 40)));
+
+            assertThat(result.isApplied()).isFalse();
+            assertThat(result.getStatuses()).containsExactly(
+                    BatchResult.Status.SKIPPED, BatchResult.Status.WRITE_FAILED);
+            assertThat(steve.getCash()).isEqualTo(100.0);
+            assertThat(alex.getCash()).isEqualTo(0.0);
+            verify(dataOperator, times(2)).update(steve);
+        }
+
+        @Test
+        @DisplayName("with the cache enabled writes are deferred to the next flush")
+        void cachedBatchDeferred() throws Exception {
+            BalanceCache cache = new BalanceCache(plugin, dataOperator, currencyDataOperator, new AccountLocks());
+            service = EconomyServiceImpl.createForTest(plugin, dataOperator, config,
+                    currencyDataOperator, currencyManager, cache);
+            PlayerAccountEntity steve = cache.insertAccount(makeAccount(PLAYER_UUID, "Steve", 100, 0));
+
+            assertThat(service.applyBatch(Collections.singletonList(credit(PLAYER_UUID, 5))).isApplied()).isTrue();
+            verify(dataOperator, never()).query();
+            verify(dataOperator, never()).update(any());
+
+            assertThat(cache.flush()).isEqualTo(1);
+            verify(dataOperator).update(steve);
+        }
+    }
+
+    @Nested
+    @DisplayName("Wallet Snapshot")
+    class WalletOps {
+
+        @Test
+        @DisplayName("getWallet reads the account and every balance with one query each")
+        void oneQueryPerTable() {
+            CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(5.0).bank(2.0).build();
+            when(dataOperator.query()).thenReturn(new MockQuery<>(
+                    Collections.singletonList(makeAccount(PLAYER_UUID, "Steve", 1000, 500))));
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(gems)));
+
+            WalletSnapshot wallet = service.getWallet(PLAYER_UUID);
+
+            assertThat(wallet.getCash()).isEqualTo(1000.0);
+            assertThat(wallet.getTotalWealth()).isEqualTo(1500.0);
+            assertThat(wallet.getTotalWealth("gems")).isEqualTo(7.0);
+            verify(dataOperator, times(1)).query();
+            verify(currencyDataOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("getWallet returns an empty snapshot for unknown players")
+        void unknownPlayer() {
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+
+            WalletSnapshot wallet = service.getWallet(PLAYER_UUID);
+
+            assertThat(wallet.hasAccount()).isFalse();
+            assertThat(wallet.getCash("gems")).isZero();
+            verify(dataOperator, never()).insert(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Write-behind Cache")
+    class WriteBehindCache {
+
+        private BalanceCache cache;
+
+        @BeforeEach
+        void setUpCache() {
+            cache = new BalanceCache(plugin, dataOperator, currencyDataOperator, new AccountLocks());
+            service = EconomyServiceImpl.createForTest(plugin, dataOperator, config,
+                    currencyDataOperator, currencyManager, cache);
+        }
+
+        @Test
+        @DisplayName("repeated reads hit the database once")
+        void readsServedFromMemory() {
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Steve", 1000, 0));
+
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(1000.0);
+            assertThat(service.getBank(PLAYER_UUID)).isEqualTo(0.0);
+            assertThat(service.getTotalWealth(PLAYER_UUID)).isEqualTo(1000.0);
+            verify(dataOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("mutations are deferred until flush")
+        void mutationsDeferred() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.addCash(PLAYER_UUID, 100)).isTrue();
+            assertThat(service.takeCash(PLAYER_UUID, 50)).isTrue();
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(1050.0);
+            verify(dataOperator, never()).update(any());
+
+            cache.flush();
+            verify(dataOperator, times(1)).update(account);
+        }
+
+        @Test
+        @DisplayName("created accounts are inserted once and then cached")
+        void createdAccountCached() {
+            mockQueryReturns(PLAYER_UUID, null);
+
+            PlayerAccountEntity created = service.getOrCreateAccount(PLAYER_UUID, "Steve");
+            assertThat(service.getAccount(PLAYER_UUID)).isSameAs(created);
+            verify(dataOperator).insert(created);
+            verify(dataOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("currency mutations are deferred until flush")
+        void currencyMutationsDeferred() throws Exception {
+            CurrencyBalanceEntity balance = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(100.0).bank(0.0).build();
+            mockCurrencyQueryReturns(PLAYER_UUID, "gems", balance);
+
+            assertThat(service.addCash(PLAYER_UUID, 25.0, "gems")).isTrue();
+            assertThat(service.getCash(PLAYER_UUID, "gems")).isEqualTo(125.0);
+            verify(currencyDataOperator, never()).update(any());
+
+            cache.flush();
+            verify(currencyDataOperator).update(argThat(b -> b.getCurrencyId().equals("gems") && b.getCash() == 125.0));
+        }
+
+        @Test
+        @DisplayName("preloadPlayer warms the working set so the join needs no queries")
+        void preloadServesJoin() {
+            CurrencyBalanceEntity coins = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("coins").cash(10.0).bank(0.0).build();
+            CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(5.0).bank(0.0).build();
+            when(dataOperator.query()).thenReturn(new MockQuery<>(
+                    Collections.singletonList(makeAccount(PLAYER_UUID, "Steve", 1000, 0))));
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Arrays.asList(coins, gems)));
+
+            service.preloadPlayer(PLAYER_UUID, "Steve");
+            service.getOrCreateAccount(PLAYER_UUID, "Steve");
+            service.getOrCreateBalance(PLAYER_UUID, "Steve", "coins");
+            service.getOrCreateBalance(PLAYER_UUID, "Steve", "gems");
+
+            verify(dataOperator, times(1)).query();
+            verify(currencyDataOperator, times(1)).query();
+            verify(dataOperator, never()).insert(any());
+            verify(currencyDataOperator, never()).insert(any());
+        }
+
+        @Test
+        @DisplayName("preloadPlayer creates missing account and balances")
+        void preloadCreatesMissing() {
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+
+            service.preloadPlayer(PLAYER_UUID, "Steve");
+
+            verify(dataOperator).insert(any(PlayerAccountEntity.class));
+            verify(currencyDataOperator, times(2)).insert(any(CurrencyBalanceEntity.class));
+            assertThat(cache.size()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("getWallet after preload is served from memory and reflects mutations")
+        void walletFromWorkingSet() {
+            when(dataOperator.query()).thenReturn(new MockQuery<>(
+                    Collections.singletonList(makeAccount(PLAYER_UUID, "Steve", 1000, 0))));
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+            service.preloadPlayer(PLAYER_UUID, "Steve");
+            assertThat(service.addCash(PLAYER_UUID, 5.0, "gems")).isTrue();
+            clearInvocations(dataOperator, currencyDataOperator);
+
+            WalletSnapshot wallet = service.getWallet(PLAYER_UUID);
+
+            assertThat(wallet.getCash()).isEqualTo(1000.0);
+            assertThat(wallet.getCash("gems")).isEqualTo(5.0);
+            assertThat(wallet.getCurrencyIds()).containsExactlyInAnyOrder("coins", "gems");
+            verify(dataOperator, never()).query();
+            verify(currencyDataOperator, never()).query();
+        }
+
+        @Test
+        @DisplayName("releasePlayer writes back and evicts the player")
+        void releaseEvicts() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 1000, 0);
+            cache.insertAccount(account);
+            assertThat(service.addCash(PLAYER_UUID, 5)).isTrue();
+
+            service.releasePlayer(PLAYER_UUID);
+
+            verify(dataOperator).update(account);
+            assertThat(cache.size()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Fixed-point Mode")
+    class FixedPointMode {
+
+        @BeforeEach
+        void enableFixedPoint() {
+            config.setFixedPointEnabled(true);
+        }
+
+        @Test
+        @DisplayName("sums land exactly on the minor-unit grid")
+        void exactSums() {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 0.1, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.addCash(PLAYER_UUID, 0.2)).isTrue();
+            assertThat(account.getCash()).isEqualTo(0.3);
+        }
+
+        @Test
+        @DisplayName("amounts are rounded to the currency precision")
+        void amountsRounded() {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 10, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.takeCash(PLAYER_UUID, 1.004)).isTrue();
+            assertThat(account.getCash()).isEqualTo(9.0);
+        }
+
+        @Test
+        @DisplayName("rejects amounts below one minor unit")
+        void rejectsSubMinorAmounts() {
+            assertThat(service.addCash(PLAYER_UUID, 0.001)).isFalse();
+            assertThat(service.addCash(PLAYER_UUID, 0.004, "gems")).isFalse();
+        }
+
+        @Test
+        @DisplayName("rejects amounts that overflow minor units")
+        void rejectsOverflow() {
+            assertThat(service.setCash(PLAYER_UUID, 1e18)).isFalse();
+            assertThat(service.addBank(PLAYER_UUID, Double.MAX_VALUE)).isFalse();
+        }
+
+        @Test
+        @DisplayName("transfer rounds tax so sender, receiver and treasury balance exactly")
+        void transferTaxRounded() throws Exception {
+            TaxService taxService = mock(TaxService.class);
+            when(taxService.calculateTransactionTax(10.0)).thenReturn(0.333);
+            service.setTaxService(taxService);
+            PlayerAccountEntity sender = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 0, 0);
+
+            when(dataOperator.query()).thenReturn(query);
+            when(query.where("uuid")).thenReturn(query);
+            when(query.eq(PLAYER_UUID.toString())).thenReturn(query);
+            when(query.eq(OTHER_UUID.toString())).thenReturn(query);
+            when(query.list())
+                    .thenReturn(Collections.singletonList(sender))
+                    .thenReturn(Collections.singletonList(receiver));
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 10)).isTrue();
+            assertThat(sender.getCash()).isEqualTo(90.0);
+            assertThat(receiver.getCash()).isEqualTo(9.67);
+            verify(taxService).depositToTreasury(0.33, "coins");
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent Mutations")
+    class ConcurrentMutations {
+
+        private static final int THREADS = 16;
+        private static final int ITERATIONS = 2000;
+
+        private BalanceCache cache;
+
+        @BeforeEach
+        void setUpCache() {
+            cache = new BalanceCache(plugin, dataOperator, currencyDataOperator, new AccountLocks());
+            service = EconomyServiceImpl.createForTest(plugin, dataOperator, config,
+                    currencyDataOperator, currencyManager, cache);
+        }
+
+        private void hammer(Runnable op) throws InterruptedException {
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < THREADS; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        op.run();
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        @Test
+        @DisplayName("concurrent adds on one account are never lost")
+        void concurrentAdds() throws Exception {
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Steve", 0, 0));
+            service.getAccount(PLAYER_UUID);
+
+            hammer(() -> service.addCash(PLAYER_UUID, 1.0));
+
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo((double) THREADS * ITERATIONS);
+        }
+
+        @Test
+        @DisplayName("concurrent takes never overdraw or lose money")
+        void concurrentTakes() throws Exception {
+            double initial = THREADS * ITERATIONS / 2;
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Steve", initial, 0));
+            service.getAccount(PLAYER_UUID);
+            AtomicInteger succeeded = new AtomicInteger();
+
+            hammer(() -> {
+                if (service.takeCash(PLAYER_UUID, 1.0)) {
+                    succeeded.incrementAndGet();
+                }
+            });
+
+            assertThat(succeeded.get()).isEqualTo((int) initial);
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(0.0);
+        }
+
+        @Test
+        @DisplayName("mixed cash and bank moves conserve total wealth")
+        void mixedMovesConserveWealth() throws Exception {
+            config.setMinDeposit(0);
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Steve", 500, 500));
+            service.getAccount(PLAYER_UUID);
+            AtomicInteger added = new AtomicInteger();
+            AtomicInteger taken = new AtomicInteger();
+
+            hammer(() -> {
+                int pick = ThreadLocalRandom.current().nextInt(5);
+                if (pick == 0 && service.addCash(PLAYER_UUID, 1.0)) {
+                    added.incrementAndGet();
+                } else if (pick == 1 && service.takeCash(PLAYER_UUID, 1.0)) {
+                    taken.incrementAndGet();
+                } else if (pick == 2) {
+                    service.depositToBank(PLAYER_UUID, 3.0);
+                } else if (pick == 3) {
+                    service.withdrawFromBank(PLAYER_UUID, 3.0);
+                } else if (pick == 4 && service.takeBank(PLAYER_UUID, 1.0)) {
+                    taken.incrementAndGet();
+                }
+            });
+
+            assertThat(service.getTotalWealth(PLAYER_UUID))
+                    .isEqualTo(1000.0 + added.get() - taken.get());
+            assertThat(service.getCash(PLAYER_UUID)).isGreaterThanOrEqualTo(0.0);
+            assertThat(service.getBank(PLAYER_UUID)).isGreaterThanOrEqualTo(0.0);
+        }
+
+        @Test
+        @DisplayName("concurrent currency adds and takes conserve the balance")
+        void concurrentCurrencyMoves() throws Exception {
+            mockCurrencyQueryReturns(PLAYER_UUID, "gems", CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(1000.0).bank(0.0).build());
+            service.getBalance(PLAYER_UUID, "gems");
+            AtomicInteger net = new AtomicInteger();
+
+            hammer(() -> {
+                if (service.addCash(PLAYER_UUID, 2.0, "gems")) {
+                    net.addAndGet(2);
+                }
+                if (service.takeCash(PLAYER_UUID, 1.0, "gems")) {
+                    net.addAndGet(-1);
+                }
+            });
+
+            assertThat(service.getCash(PLAYER_UUID, "gems")).isEqualTo(1000.0 + net.get());
+        }
+
+        @Test
+        @DisplayName("random-pair transfers in both directions never deadlock or drift")
+        void randomPairTransfers() throws Exception {
+            UUID[] players = new UUID[8];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = UUID.randomUUID();
+                cache.insertAccount(makeAccount(players[i], "p" + i, 100, 0));
+            }
+
+            hammer(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                UUID from = players[random.nextInt(players.length)];
+                UUID to = players[random.nextInt(players.length)];
+                service.transfer(from, to, 1 + random.nextInt(10));
+            });
+
+            double total = 0;
+            for (UUID player : players) {
+                assertThat(service.getCash(player)).isGreaterThanOrEqualTo(0.0);
+                total += service.getCash(player);
+            }
+            assertThat(total).isEqualTo(800.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Idempotency keys")
+    class IdempotencyKeys {
+
+        @Mock private DataOperator<IdempotencyKeyEntity> keyOperator;
+
+        @BeforeEach
+        void setUpStore() {
+            service.setIdempotencyStore(new IdempotencyStore(plugin, keyOperator, 60_000L, 100));
+        }
+
+        @Test
+        @DisplayName("a repeated key pays out once")
+        void duplicateAddNotApplied() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.addCash(PLAYER_UUID, 50, null, "reward-1")).isTrue();
+            assertThat(service.addCash(PLAYER_UUID, 50, null, "reward-1")).isTrue();
+
+            assertThat(account.getCash()).isEqualTo(150.0);
+            verify(dataOperator, times(1)).update(account);
+            verify(keyOperator, times(1)).insert(any(IdempotencyKeyEntity.class));
+        }
+
+        @Test
+        @DisplayName("a failed call is not remembered and can be retried")
+        void failureRetried() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 10, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.takeCash(PLAYER_UUID, 50, null, "fine-1")).isFalse();
+            account.setCash(100);
+            assertThat(service.takeCash(PLAYER_UUID, 50, null, "fine-1")).isTrue();
+
+            assertThat(account.getCash()).isEqualTo(50.0);
+            verify(keyOperator, times(1)).insert(any(IdempotencyKeyEntity.class));
+        }
+
+        @Test
+        @DisplayName("null key applies every time")
+        void nullKey() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            service.addCash(PLAYER_UUID, 50, null, null);
+            service.addCash(PLAYER_UUID, 50, null, null);
+
+            assertThat(account.getCash()).isEqualTo(200.0);
+            verifyNoInteractions(keyOperator);
+        }
+
+        @Test
+        @DisplayName("a repeated batch reports every item applied without writing")
+        void duplicateBatch() throws Exception {
+            PlayerAccountEntity steve = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(steve)));
+            List<BalanceMutation> batch = Arrays.asList(
+                    BalanceMutation.builder().uuid(PLAYER_UUID).delta(10).build(),
+                    BalanceMutation.builder().uuid(PLAYER_UUID).delta(5).build());
+
+            assertThat(service.applyBatch(batch, "batch-1").isApplied()).isTrue();
+            BatchResult repeat = service.applyBatch(batch, "batch-1");
+
+            assertThat(repeat.isApplied()).isTrue();
+            assertThat(repeat.getStatuses()).hasSize(2).containsOnly(BatchResult.Status.APPLIED);
+            assertThat(steve.getCash()).isEqualTo(115.0);
+            verify(dataOperator, times(1)).update(steve);
+        }
+    }
+
+    @Nested
+    @DisplayName("Optimistic locking")
+    class OptimisticLocking {
+
+        private PlayerAccountEntity versioned(double cash, long version) {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", cash, 0);
+            account.setVersion(version);
+            return account;
+        }
+
+        @BeforeEach
+        void enable() {
+            config.setOptimisticLockingEnabled(true);
+            config.setOptimisticLockingMaxRetries(1);
+            when(dataOperator.query()).thenReturn(query);
+            when(query.where("uuid")).thenReturn(query);
+            when(query.eq(PLAYER_UUID.toString())).thenReturn(query);
+        }
+
+        @Test
+        @DisplayName("re-reads and retries when another writer changed the row")
+        void retriesOnConflict() throws Exception {
+            PlayerAccountEntity stale = versioned(100, 0);
+            PlayerAccountEntity fresh = versioned(200, 1);
+            when(query.list()).thenReturn(
+                    Collections.singletonList(stale),
+                    Collections.singletonList(versioned(200, 1)),
+                    Collections.singletonList(fresh),
+                    Collections.singletonList(versioned(200, 1)));
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+
+            assertThat(stale.getCash()).isEqualTo(100.0);
+            assertThat(fresh.getCash()).isEqualTo(250.0);
+            assertThat(fresh.getVersion()).isEqualTo(2L);
+            verify(dataOperator, never()).update(stale);
+            verify(dataOperator).update(fresh);
+        }
+
+        @Test
+        @DisplayName("gives up after the configured retries")
+        void givesUp() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            when(query.list()).thenReturn(
+                    Collections.singletonList(versioned(100, 0)),
+                    Collections.singletonList(versioned(100, 1)),
+                    Collections.singletonList(versioned(100, 1)),
+                    Collections.singletonList(versioned(100, 2)));
+
+            assertThat(service.takeCash(PLAYER_UUID, 50)).isFalse();
+
+            verify(dataOperator, never()).update(any());
+            verify(logger).error(contains("version conflicts"));
+        }
+
+        @Test
+        @DisplayName("transfer checks both rows before writing either")
+        void transferConflict() throws Exception {
+            config.setOptimisticLockingMaxRetries(0);
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            when(query.eq(OTHER_UUID.toString())).thenReturn(query);
+            PlayerAccountEntity sender = versioned(1000, 0);
+            PlayerAccountEntity receiver = makeAccount(OTHER_UUID, "Alex", 0, 0);
+            PlayerAccountEntity movedOn = makeAccount(OTHER_UUID, "Alex", 10, 0);
+            movedOn.setVersion(1);
+            when(query.list()).thenReturn(
+                    Collections.singletonList(sender),
+                    Collections.singletonList(receiver),
+                    Collections.singletonList(versioned(1000, 0)),
+                    Collections.singletonList(movedOn));
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 100)).isFalse();
+
+            assertThat(sender.getCash()).isEqualTo(1000.0);
+            assertThat(receiver.getCash()).isEqualTo(0.0);
+            verify(dataOperator, never()).update(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Compare-and-set over JDBC")
+    class CompareAndSet {
+
+        @Mock private JdbcBalanceStore balanceStore;
+
+        @BeforeEach
+        void enable() {
+            config.setOptimisticLockingEnabled(true);
+            config.setOptimisticLockingMaxRetries(1);
+            service.setBalanceStore(balanceStore);
+        }
+
+        private PlayerAccountEntity versioned(UUID uuid, double cash, long version) {
+            PlayerAccountEntity account = makeAccount(uuid, "Steve", cash, 0);
+            account.setVersion(version);
+            return account;
+        }
+
+        @Test
+        @DisplayName("writes on the version read, without reading the row again")
+        void conditionalWrite() throws Exception {
+            PlayerAccountEntity account = versioned(PLAYER_UUID, 1000, 3);
+            mockQueryReturns(PLAYER_UUID, account);
+            when(balanceStore.compareAndSet(same(account), eq(3L))).thenReturn(true);
+
+            assertThat(service.depositToBank(PLAYER_UUID, 200)).isTrue();
+
+            assertThat(account.getBank()).isEqualTo(200.0);
+            assertThat(account.getVersion()).isEqualTo(4L);
+            verify(dataOperator, times(1)).query();
+            verify(dataOperator, never()).update(any());
+        }
+
+        @Test
+        @DisplayName("re-reads and retries when another server wrote the row first")
+        void retriesOnConflict() throws Exception {
+            PlayerAccountEntity stale = versioned(PLAYER_UUID, 1000, 0);
+            PlayerAccountEntity fresh = versioned(PLAYER_UUID, 1000, 1);
+            when(dataOperator.query()).thenReturn(query);
+            when(query.where("uuid")).thenReturn(query);
+            when(query.eq(PLAYER_UUID.toString())).thenReturn(query);
+            when(query.list()).thenReturn(Collections.singletonList(stale), Collections.singletonList(fresh));
+            when(balanceStore.compareAndSet(same(stale), eq(0L))).thenReturn(false);
+            when(balanceStore.compareAndSet(same(fresh), eq(1L))).thenReturn(true);
+
+            assertThat(service.depositToBank(PLAYER_UUID, 200)).isTrue();
+
+            assertThat(stale.getBank()).isEqualTo(0.0);
+            assertThat(stale.getVersion()).isZero();
+            assertThat(fresh.getBank()).isEqualTo(200.0);
+            assertThat(fresh.getVersion()).isEqualTo(2L);
+        }
+
+        @Test
+        @DisplayName("a transfer whose credit conflicts takes its debit back")
+        void transferConflict() throws Exception {
+            config.setOptimisticLockingMaxRetries(0);
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity sender = versioned(PLAYER_UUID, 1000, 0);
+            PlayerAccountEntity receiver = versioned(OTHER_UUID, 0, 0);
+            when(dataOperator.query()).thenReturn(query);
+            when(query.where("uuid")).thenReturn(query);
+            when(query.eq(anyString())).thenReturn(query);
+            when(query.list()).thenReturn(Collections.singletonList(sender), Collections.singletonList(receiver));
+            when(balanceStore.compareAndSet(same(sender), anyLong())).thenReturn(true);
+            when(balanceStore.compareAndSet(same(receiver), eq(0L))).thenReturn(false);
+
+            assertThat(service.transfer(PLAYER_UUID, OTHER_UUID, 100)).isFalse();
+
+            assertThat(sender.getCash()).isEqualTo(1000.0);
+            assertThat(receiver.getCash()).isEqualTo(0.0);
+            verify(balanceStore).compareAndSet(same(sender), eq(0L));
+            verify(balanceStore).compareAndSet(same(sender), eq(1L));
+            verify(logger).error(contains("version conflicts"));
+            verify(dataOperator, never()).update(any());
+        }
+    }
+
+    @Test
+    @DisplayName("direct writes bump the row version without re-reading it when locking is off")
+    void versionBumpedOnWrite() throws Exception {
+        PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+        mockQueryReturns(PLAYER_UUID, account);
+
+        assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+
+        assertThat(account.getVersion()).isEqualTo(1L);
+        verify(dataOperator, times(1)).query();
+    }
+
+    @Nested
+    @DisplayName("Atomic increments")
+    class AtomicIncrements {
+
+        @Mock private JdbcBalanceStore balanceStore;
+
+        @BeforeEach
+        void setUpStore() {
+            service.setBalanceStore(balanceStore);
+        }
+
+        @Test
+        @DisplayName("add goes to the store without reading the account")
+        void addIncrements() throws Exception {
+            when(balanceStore.increment(PLAYER_UUID.toString(), null, BalanceMutation.Bucket.CASH, 50.0, -1))
+                    .thenReturn(1);
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+
+            verifyNoInteractions(dataOperator);
+        }
+
+        @Test
+        @DisplayName("take passes a negative delta and fails when no row changed")
+        void takeGuarded() throws Exception {
+            when(balanceStore.increment(PLAYER_UUID.toString(), "gems", BalanceMutation.Bucket.BANK, -5.0, -1))
+                    .thenReturn(0);
+
+            assertThat(service.takeBank(PLAYER_UUID, 5, "gems")).isFalse();
+
+            verifyNoInteractions(currencyDataOperator);
+        }
+
+        @Test
+        @DisplayName("rounds in the database in fixed-point mode")
+        void fixedPoint() throws Exception {
+            config.setFixedPointEnabled(true);
+            when(balanceStore.increment(PLAYER_UUID.toString(), null, BalanceMutation.Bucket.CASH, 1.25, 2))
+                    .thenReturn(1);
+
+            assertThat(service.addCash(PLAYER_UUID, 1.25)).isTrue();
+        }
+
+        @Test
+        @DisplayName("a database error is logged and reported as failure")
+        void storeError() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            when(balanceStore.increment(anyString(), any(), any(), anyDouble(), anyInt()))
+                    .thenThrow(new java.sql.SQLException("down"));
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isFalse();
+            verify(logger).error(anyString());
+        }
+
+        @Test
+        @DisplayName("group commit holds adds instead of incrementing, then writes them as one row")
+        void groupCommit() throws Exception {
+            GroupCommitRepository groupCommit = new GroupCommitRepository(plugin,
+                    new SplitTableRepository(dataOperator, currencyDataOperator), balanceStore);
+            service.setBalanceRepository(groupCommit);
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Steve", 100, 0));
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+            assertThat(groupCommit.commit()).isEqualTo(1);
+
+            verify(balanceStore, never()).increment(anyString(), any(), any(), anyDouble(), anyInt());
+            verify(dataOperator, never()).update(any());
+            verify(balanceStore).update(
+                    argThat(accounts -> accounts.size() == 1 && accounts.get(0).getCash() == 200.0),
+                    eq(Collections.emptyList()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Off-heap mirror")
+    class OffHeapMirror {
+
+        private OffHeapBalanceStore store;
+
+        @BeforeEach
+        void setUpStore() {
+            store = new OffHeapBalanceStore(currencyManager.getOrdinals().size(), 16);
+            service.setOffHeapStore(store);
+        }
+
+        private double cash(int slot) {
+            double[] found = {Double.NaN};
+            store.forEach(slot, (record, cash, bank) -> found[0] = cash);
+            return found[0];
+        }
+
+        @Test
+        @DisplayName("copies written balances into the store")
+        void mirrorsWrites() {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+
+            assertThat(cash(OffHeapBalanceStore.ACCOUNT)).isEqualTo(150.0);
+            assertThat(store.playerName(store.find(PLAYER_UUID.toString()))).isEqualTo("Steve");
+        }
+
+        @Test
+        @DisplayName("leaves the store alone when the write fails")
+        void skipsFailedWrites() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            store.putAccount(PLAYER_UUID.toString(), "Steve", 100.0, 0.0);
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(account);
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isFalse();
+
+            assertThat(cash(OffHeapBalanceStore.ACCOUNT)).isEqualTo(100.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Live leaderboards")
+    class LiveLeaderboardMirror {
+
+        private LiveLeaderboards live;
+
+        @BeforeEach
+        void setUpLive() {
+            live = new LiveLeaderboards();
+            service.setLiveLeaderboards(live);
+        }
+
+        @Test
+        @DisplayName("moves the player on every write")
+        void updatesOnWrite() {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 20);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+
+            assertThat(live.accounts().top(1).get(0).getTotalWealth()).isEqualTo(170.0);
+            assertThat(live.accounts().nameOf(PLAYER_UUID.toString())).isEqualTo("Steve");
+        }
+
+        @Test
+        @DisplayName("ranks currency balances in their own leaderboard")
+        void updatesCurrency() {
+            CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                    .uuid(PLAYER_UUID.toString()).currencyId("gems").cash(10).bank(0).build();
+            mockCurrencyQueryReturns(PLAYER_UUID, "gems", gems);
+
+            assertThat(service.addCash(PLAYER_UUID, 5, "gems")).isTrue();
+
+            assertThat(live.find("gems").rankOf(PLAYER_UUID.toString())).isEqualTo(1);
+            assertThat(live.find("gems").top(1).get(0).getTotalWealth()).isEqualTo(15.0);
+        }
+
+        @Test
+        @DisplayName("leaves the leaderboard alone when the write fails")
+        void skipsFailedWrites() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Steve", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(account);
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isFalse();
+
+            assertThat(live.accounts().size()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Hot accounts")
+    class HotAccountOps {
+
+        private HotAccounts hot;
+
+        @BeforeEach
+        void setUpHot() {
+            hot = new HotAccounts(Collections.singletonList(PLAYER_UUID), 4);
+            service.setHotAccounts(hot);
+        }
+
+        @Test
+        @DisplayName("credits collect without writing the row")
+        void creditsCollect() throws Exception {
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Shop", 100, 0));
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+            assertThat(service.addCash(PLAYER_UUID, 50)).isTrue();
+
+            verify(dataOperator, never()).update(any());
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(200.0);
+        }
+
+        @Test
+        @DisplayName("a credit too large to collect is written to the row")
+        void hugeCredit() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Shop", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+
+            assertThat(service.addCash(PLAYER_UUID, 2e8)).isTrue();
+
+            verify(dataOperator).update(account);
+            assertThat(account.getCash()).isEqualTo(2e8 + 100);
+            assertThat(hot.pending(PLAYER_UUID, null)).isZero();
+        }
+
+        @Test
+        @DisplayName("credits to a missing account are refused")
+        void missingAccount() {
+            mockQueryReturns(PLAYER_UUID, null);
+
+            assertThat(service.addCash(PLAYER_UUID, 50)).isFalse();
+            assertThat(hot.pending(PLAYER_UUID, null)).isZero();
+        }
+
+        @Test
+        @DisplayName("the wallet snapshot includes what has collected")
+        void walletIncludesPending() {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Shop", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            when(currencyDataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+            service.addCash(PLAYER_UUID, 50);
+
+            WalletSnapshot wallet = service.getWallet(PLAYER_UUID);
+
+            assertThat(wallet.getCash()).isEqualTo(150.0);
+            assertThat(wallet.getTotalWealth()).isEqualTo(150.0);
+        }
+
+        @Test
+        @DisplayName("debits come out of what has collected when it covers them")
+        void debitCollected() throws Exception {
+            mockQueryReturns(PLAYER_UUID, makeAccount(PLAYER_UUID, "Shop", 100, 0));
+            service.addCash(PLAYER_UUID, 50);
+
+            assertThat(service.takeCash(PLAYER_UUID, 30)).isTrue();
+
+            verify(dataOperator, never()).update(any());
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(120.0);
+        }
+
+        @Test
+        @DisplayName("larger debits fold the collected amount into the row first")
+        void debitStored() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Shop", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            service.addCash(PLAYER_UUID, 50);
+
+            assertThat(service.takeCash(PLAYER_UUID, 120)).isTrue();
+            assertThat(service.takeCash(PLAYER_UUID, 31)).isFalse();
+
+            assertThat(account.getCash()).isEqualTo(30.0);
+            assertThat(hot.pending(PLAYER_UUID, null)).isZero();
+        }
+
+        @Test
+        @DisplayName("a set replaces what has collected as well")
+        void set() {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Shop", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            service.addCash(PLAYER_UUID, 50);
+
+            assertThat(service.setCash(PLAYER_UUID, 500)).isTrue();
+
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(500.0);
+        }
+
+        @Test
+        @DisplayName("folding writes each balance once")
+        void fold() throws Exception {
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Shop", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            for (int i = 0; i < 3; i++) {
+                service.addCash(PLAYER_UUID, 30);
+            }
+
+            assertThat(service.foldHotAccounts()).isEqualTo(1);
+
+            verify(dataOperator).update(account);
+            assertThat(account.getCash()).isEqualTo(190.0);
+            assertThat(service.foldHotAccounts()).isZero();
+        }
+
+        @Test
+        @DisplayName("a failed fold keeps the amount collected")
+        void failedFold() throws Exception {
+            when(plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+            PlayerAccountEntity account = makeAccount(PLAYER_UUID, "Shop", 100, 0);
+            mockQueryReturns(PLAYER_UUID, account);
+            service.addCash(PLAYER_UUID, 30);
+            doThrow(new IllegalAccessException("down")).when(dataOperator).update(account);
+
+            assertThat(service.foldHotAccounts()).isZero();
+
+            assertThat(hot.pending(PLAYER_UUID, null)).isEqualTo(30.0);
+            assertThat(service.getCash(PLAYER_UUID)).isEqualTo(130.0);
+        }
+    }
 }
@@ -0,0 +1,134 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.TreasuryEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("FixedPointMigration")
+@ExtendWith(MockitoExtension.class)
+class FixedPointMigrationTest {
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private DataOperator<PlayerAccountEntity> accountOperator;
+    @Mock private DataOperator<CurrencyBalanceEntity> balanceOperator;
+    @Mock private DataOperator<TreasuryEntity> treasuryOperator;
+
+    private FixedPointMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        String yaml = "currencies:\n" +
+                "  coins:\n    primary: true\n" +
+                "  gems:\n    precision: 0\n";
+        CurrencyManager currencyManager = new CurrencyManager(
+                YamlConfiguration.loadConfiguration(new StringReader(yaml)));
+        migration = new FixedPointMigration(plugin, currencyManager,
+                accountOperator, balanceOperator, treasuryOperator);
+    }
+
+    private PlayerAccountEntity account(String uuid, double cash, double bank) {
+        return PlayerAccountEntity.builder().uuid(uuid).playerName("p").cash(cash).bank(bank).build();
+    }
+
+    @Test
+    @DisplayName("rounds off-grid rows to each currency's precision")
+    void roundsOffGridRows() throws Exception {
+        PlayerAccountEntity drifted = account("a", 0.1 + 0.2, 10.005001);
+        CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                .uuid("a").currencyId("gems").cash(4.6).bank(0.0).build();
+        TreasuryEntity treasury = TreasuryEntity.builder().currencyId("coins").balance(1.23456).build();
+        when(accountOperator.getAll()).thenReturn(Collections.singletonList(drifted));
+        when(balanceOperator.getAll()).thenReturn(Collections.singletonList(gems));
+        when(treasuryOperator.getAll()).thenReturn(Collections.singletonList(treasury));
+
+        assertThat(migration.run()).isEqualTo(3);
+        assertThat(migration.isComplete()).isTrue();
+
+        assertThat(drifted.getCash()).isEqualTo(0.3);
+        assertThat(drifted.getBank()).isEqualTo(10.01);
+        assertThat(gems.getCash()).isEqualTo(5.0);
+        assertThat(treasury.getBalance()).isEqualTo(1.23);
+        verify(accountOperator).update(drifted);
+        verify(balanceOperator).update(gems);
+        verify(treasuryOperator).update(treasury);
+    }
+
+    @Test
+    @DisplayName("leaves rows already on the grid untouched")
+    void skipsCleanRows() throws Exception {
+        when(accountOperator.getAll()).thenReturn(Arrays.asList(account("a", 100.25, 0), account("b", 0, 3)));
+        when(balanceOperator.getAll()).thenReturn(Collections.emptyList());
+        when(treasuryOperator.getAll()).thenReturn(Collections.emptyList());
+
+        assertThat(migration.run()).isZero();
+        verify(accountOperator, never()).update(any());
+    }
+
+    @Test
+    @DisplayName("logs and continues when a row cannot be written")
+    void continuesAfterFailure() throws Exception {
+        PluginLogger logger = mock(PluginLogger.class);
+        when(plugin.getLogger()).thenReturn(logger);
+        PlayerAccountEntity first = account("a", 0.333, 0);
+        PlayerAccountEntity second = account("b", 0.666, 0);
+        when(accountOperator.getAll()).thenReturn(Arrays.asList(first, second));
+        when(balanceOperator.getAll()).thenReturn(Collections.emptyList());
+        when(treasuryOperator.getAll()).thenReturn(Collections.emptyList());
+        doThrow(new IllegalAccessException("down")).when(accountOperator).update(first);
+
+        assertThat(migration.run()).isEqualTo(1);
+        assertThat(migration.isComplete()).isFalse();
+        verify(accountOperator).update(second);
+        verify(logger).error(anyString());
+    }
+
+    @Test
+    @DisplayName("describes every currency's precision in a stable order")
+    void precisions() {
+        String yaml = "currencies:\n" +
+                "  gems:\n    precision: 0\n" +
+                "  coins:\n    primary: true\n";
+        CurrencyManager currencyManager = new CurrencyManager(
+                YamlConfiguration.loadConfiguration(new StringReader(yaml)));
+
+        assertThat(FixedPointMigration.precisions(currencyManager)).isEqualTo("coins=2,gems=0");
+    }
+
+    @Test
+    @DisplayName("skips rows that cannot be held in minor units instead of failing startup")
+    void skipsUnroundableRows() throws Exception {
+        PluginLogger logger = mock(PluginLogger.class);
+        when(plugin.getLogger()).thenReturn(logger);
+        PlayerAccountEntity broken = account("a", Double.NaN, 0);
+        PlayerAccountEntity drifted = account("b", 0.1 + 0.2, 0);
+        CurrencyBalanceEntity huge = CurrencyBalanceEntity.builder()
+                .uuid("a").currencyId("gems").cash(1e17).bank(0.0).build();
+        when(accountOperator.getAll()).thenReturn(Arrays.asList(broken, drifted));
+        when(balanceOperator.getAll()).thenReturn(Collections.singletonList(huge));
+        when(treasuryOperator.getAll()).thenReturn(Collections.emptyList());
+
+        assertThat(migration.run()).isEqualTo(1);
+        assertThat(migration.isComplete()).isTrue();
+        verify(accountOperator).update(drifted);
+        verify(accountOperator, never()).update(broken);
+        verify(balanceOperator, never()).update(any());
+        verify(logger, times(2)).error(anyString());
+    }
+}
@@ -0,0 +1,247 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@DisplayName("GroupCommitRepository")
+@ExtendWith(MockitoExtension.class)
+class GroupCommitRepositoryTest {
+
+    private static final String UUID_A = "550e8400-e29b-41d4-a716-446655440001";
+    private static final String UUID_B = "550e8400-e29b-41d4-a716-446655440002";
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private PluginLogger logger;
+    @Mock private BalanceRepository delegate;
+    @Mock private JdbcBalanceStore batchStore;
+
+    private GroupCommitRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(plugin.getLogger()).thenReturn(logger);
+        repository = new GroupCommitRepository(plugin, delegate, null);
+    }
+
+    private static PlayerAccountEntity account(String uuid, double cash) {
+        return PlayerAccountEntity.builder().uuid(uuid).playerName("Steve").cash(cash).bank(0.0).build();
+    }
+
+    private static CurrencyBalanceEntity balance(String uuid, String currencyId, double cash) {
+        return CurrencyBalanceEntity.builder().uuid(uuid).currencyId(currencyId).cash(cash).bank(0.0).build();
+    }
+
+    @Nested
+    @DisplayName("Holding")
+    class Holding {
+
+        @Test
+        @DisplayName("merges every update to a row in a window into one write of the final value")
+        void merges() throws Exception {
+            for (int i = 1; i <= 50; i++) {
+                repository.updateAccount(account(UUID_A, i));
+            }
+
+            assertThat(repository.commit()).isEqualTo(1);
+
+            ArgumentCaptor<PlayerAccountEntity> written = ArgumentCaptor.forClass(PlayerAccountEntity.class);
+            verify(delegate).updateAccount(written.capture());
+            assertThat(written.getValue().getCash()).isEqualTo(50.0);
+            assertThat(repository.getUpdates()).isEqualTo(50);
+            assertThat(repository.getRowsWritten()).isEqualTo(1);
+            assertThat(repository.getSavedFraction()).isCloseTo(0.98, within(1e-9));
+        }
+
+        @Test
+        @DisplayName("keeps each currency of a player as its own row, written together")
+        void perCurrency() throws Exception {
+            repository.updateBalance(balance(UUID_A, "gems", 1.0));
+            repository.updateBalance(balance(UUID_A, "coins", 2.0));
+            repository.updateBalance(balance(UUID_A, "gems", 3.0));
+
+            assertThat(repository.commit()).isEqualTo(2);
+
+            verify(delegate).updateBalances(eq(UUID_A), argThat(balances -> balances.size() == 2));
+        }
+
+        @Test
+        @DisplayName("writes a player's account and balances in one call")
+        void perPlayer() throws Exception {
+            repository.updateAccount(account(UUID_A, 1.0));
+            repository.updateBalance(balance(UUID_A, "gems", 2.0));
+
+            assertThat(repository.commit()).isEqualTo(2);
+
+            verify(delegate).updatePlayer(eq(UUID_A), any(), argThat(balances -> balances.size() == 1));
+            verify(delegate, never()).updateAccount(any());
+        }
+
+        @Test
+        @DisplayName("keeps the row id so the write reaches the stored row")
+        void keepsId() throws Exception {
+            PlayerAccountEntity stored = account(UUID_A, 1.0);
+            stored.setId("42");
+            repository.updateAccount(stored);
+
+            repository.commit();
+
+            ArgumentCaptor<PlayerAccountEntity> written = ArgumentCaptor.forClass(PlayerAccountEntity.class);
+            verify(delegate).updateAccount(written.capture());
+            assertThat(written.getValue().getId()).isEqualTo("42");
+        }
+
+        @Test
+        @DisplayName("passes inserts straight through")
+        void inserts() {
+            repository.insertAccount(account(UUID_A, 1.0));
+            repository.insertBalance(balance(UUID_A, "gems", 1.0));
+
+            verify(delegate).insertAccount(any());
+            verify(delegate).insertBalance(any());
+            assertThat(repository.getHeldCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("commits nothing when nothing is held")
+        void empty() {
+            assertThat(repository.commit()).isZero();
+            assertThat(repository.getCommits()).isZero();
+            verifyNoInteractions(delegate);
+        }
+    }
+
+    @Nested
+    @DisplayName("Reads")
+    class Reads {
+
+        @Test
+        @DisplayName("see held values without asking storage")
+        void heldFirst() {
+            repository.updateAccount(account(UUID_A, 75.0));
+            repository.updateBalance(balance(UUID_A, "gems", 5.0));
+
+            assertThat(repository.findAccount(UUID_A).getCash()).isEqualTo(75.0);
+            assertThat(repository.findBalance(UUID_A, "gems").getCash()).isEqualTo(5.0);
+            verify(delegate, never()).findAccount(any());
+            verify(delegate, never()).findBalance(any(), any());
+        }
+
+        @Test
+        @DisplayName("hand out copies that do not change what is held")
+        void detached() {
+            repository.updateAccount(account(UUID_A, 75.0));
+
+            repository.findAccount(UUID_A).setCash(0.0);
+
+            assertThat(repository.findAccount(UUID_A).getCash()).isEqualTo(75.0);
+        }
+
+        @Test
+        @DisplayName("overlay held values on bulk reads and sweeps")
+        void overlays() {
+            when(delegate.allAccounts()).thenReturn(Arrays.asList(account(UUID_A, 1.0), account(UUID_B, 2.0)));
+            when(delegate.findBalances(UUID_A)).thenReturn(Collections.singletonList(balance(UUID_A, "gems", 1.0)));
+            repository.updateAccount(account(UUID_A, 10.0));
+            repository.updateBalance(balance(UUID_A, "gems", 9.0));
+
+            assertThat(repository.allAccounts()).extracting(PlayerAccountEntity::getCash).containsExactly(10.0, 2.0);
+            assertThat(repository.findWallet(UUID_A).getCash("gems")).isEqualTo(9.0);
+        }
+
+        @Test
+        @DisplayName("fall through to storage once committed")
+        void afterCommit() {
+            repository.updateAccount(account(UUID_A, 75.0));
+            repository.commit();
+            when(delegate.findAccount(UUID_A)).thenReturn(account(UUID_A, 75.0));
+
+            assertThat(repository.findAccount(UUID_A).getCash()).isEqualTo(75.0);
+            verify(delegate).findAccount(UUID_A);
+        }
+    }
+
+    @Nested
+    @DisplayName("Commits")
+    class Commits {
+
+        @Test
+        @DisplayName("send a window to the database as one batch")
+        @SuppressWarnings("unchecked")
+        void batched() throws Exception {
+            repository = new GroupCommitRepository(plugin, delegate, batchStore);
+            repository.updateAccount(account(UUID_A, 1.0));
+            repository.updateAccount(account(UUID_B, 2.0));
+            repository.updateBalance(balance(UUID_A, "gems", 3.0));
+
+            assertThat(repository.commit()).isEqualTo(3);
+
+            ArgumentCaptor<List<PlayerAccountEntity>> accounts = ArgumentCaptor.forClass(List.class);
+            ArgumentCaptor<List<CurrencyBalanceEntity>> balances = ArgumentCaptor.forClass(List.class);
+            verify(batchStore).update(accounts.capture(), balances.capture());
+            assertThat(accounts.getValue()).hasSize(2);
+            assertThat(balances.getValue()).hasSize(1);
+            verify(delegate, never()).updateAccount(any());
+            assertThat(repository.getBatches()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("fall back to row-by-row writes when the batch fails")
+        void batchFails() throws Exception {
+            repository = new GroupCommitRepository(plugin, delegate, batchStore);
+            doThrow(new SQLException("down")).when(batchStore).update(anyList(), anyList());
+            repository.updateAccount(account(UUID_A, 1.0));
+
+            assertThat(repository.commit()).isEqualTo(1);
+
+            verify(delegate).updateAccount(any());
+            verify(logger).error(contains("down"));
+            assertThat(repository.getBatches()).isZero();
+        }
+
+        @Test
+        @DisplayName("hold a row again when its write fails")
+        void retries() throws Exception {
+            doThrow(new IllegalAccessException("locked")).doNothing().when(delegate).updateAccount(any());
+            repository.updateAccount(account(UUID_A, 1.0));
+
+            assertThat(repository.commit()).isZero();
+            assertThat(repository.getHeldCount()).isEqualTo(1);
+            assertThat(repository.findAccount(UUID_A).getCash()).isEqualTo(1.0);
+
+            assertThat(repository.commit()).isEqualTo(1);
+            assertThat(repository.getHeldCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("commit before syncing storage")
+        void sync() throws Exception {
+            repository.updateAccount(account(UUID_A, 1.0));
+
+            repository.sync();
+
+            InOrder order = inOrder(delegate);
+            order.verify(delegate).updateAccount(any());
+            order.verify(delegate).sync();
+        }
+    }
+}
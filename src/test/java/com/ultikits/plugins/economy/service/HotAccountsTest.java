@@ -0,0 +1,102 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("HotAccounts")
+class HotAccountsTest {
+
+    private static final UUID SHOP = UUID.fromString("550e8400-e29b-41d4-a716-446655440001");
+    private static final UUID PLAYER = UUID.fromString("550e8400-e29b-41d4-a716-446655440002");
+
+    private HotAccounts hot;
+
+    @BeforeEach
+    void setUp() {
+        hot = new HotAccounts(Collections.singletonList(SHOP), 4);
+    }
+
+    @Test
+    @DisplayName("only listed accounts are hot")
+    void listed() {
+        assertThat(hot.isHot(SHOP)).isTrue();
+        assertThat(hot.isHot(PLAYER)).isFalse();
+        assertThat(hot.isCollecting(SHOP, null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("keeps the primary account and each currency apart")
+    void perCurrency() {
+        hot.credit(SHOP, null, 1.25);
+        hot.credit(SHOP, "gems", 3.0);
+
+        assertThat(hot.pending(SHOP, null)).isEqualTo(1.25);
+        assertThat(hot.pending(SHOP, "gems")).isEqualTo(3.0);
+        assertThat(hot.isCollecting(SHOP, "gems")).isTrue();
+    }
+
+    @Test
+    @DisplayName("debits only what has collected")
+    void debit() {
+        hot.credit(SHOP, null, 10.0);
+
+        assertThat(hot.debit(SHOP, null, 4.5)).isTrue();
+        assertThat(hot.debit(SHOP, null, 6.0)).isFalse();
+        assertThat(hot.debit(SHOP, "gems", 1.0)).isFalse();
+        assertThat(hot.pending(SHOP, null)).isEqualTo(5.5);
+    }
+
+    @Test
+    @DisplayName("drains and restores")
+    void drainAndRestore() {
+        hot.credit(SHOP, null, 0.1);
+        hot.credit(SHOP, null, 0.2);
+
+        double drained = hot.drain(SHOP, null);
+        assertThat(drained).isEqualTo(0.3);
+        assertThat(hot.pending(SHOP, null)).isZero();
+
+        hot.restore(SHOP, null, drained);
+        assertThat(hot.pending(SHOP, null)).isEqualTo(0.3);
+    }
+
+    @Test
+    @DisplayName("collects only credits it can count exactly")
+    void canCollect() {
+        assertThat(hot.canCollect(5e7)).isTrue();
+        assertThat(hot.canCollect(1e8)).isFalse();
+    }
+
+    @Test
+    @DisplayName("restores a drained total larger than one credit can take")
+    void restoreLarge() {
+        hot.credit(SHOP, null, 6e7);
+        hot.credit(SHOP, null, 6e7);
+
+        double drained = hot.drain(SHOP, null);
+        hot.restore(SHOP, null, drained);
+
+        assertThat(hot.pending(SHOP, null)).isEqualTo(1.2e8);
+    }
+
+    @Test
+    @DisplayName("lists every balance with something collected")
+    void collected() {
+        hot.credit(SHOP, null, 1.0);
+        hot.credit(SHOP, "gems", 1.0);
+        hot.drain(SHOP, "gems");
+        List<String> visited = new ArrayList<>();
+
+        hot.forEachCollected((uuid, currencyId) -> visited.add(uuid + "/" + currencyId));
+
+        assertThat(visited).containsExactly(SHOP + "/null");
+    }
+}
@@ -0,0 +1,142 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.IdempotencyKeyEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("IdempotencyStore")
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    private static final long TTL = 60_000L;
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private DataOperator<IdempotencyKeyEntity> operator;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final AtomicInteger runs = new AtomicInteger();
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(plugin, operator, TTL, 3, now::get);
+    }
+
+    private boolean run(String key) {
+        return store.execute(key, () -> runs.incrementAndGet() > 0, Boolean::booleanValue, () -> true);
+    }
+
+    private static IdempotencyKeyEntity stored(String key, long createdAt) {
+        return IdempotencyKeyEntity.builder().idempotencyKey(key).createdAt(createdAt).build();
+    }
+
+    @Nested
+    @DisplayName("Execute")
+    class Execute {
+
+        @Test
+        @DisplayName("runs once per key and persists it")
+        void runsOnce() throws Exception {
+            assertThat(run("a")).isTrue();
+            assertThat(run("a")).isTrue();
+
+            assertThat(runs.get()).isEqualTo(1);
+            ArgumentCaptor<IdempotencyKeyEntity> captor = ArgumentCaptor.forClass(IdempotencyKeyEntity.class);
+            verify(operator).insert(captor.capture());
+            assertThat(captor.getValue().getIdempotencyKey()).isEqualTo("a");
+            assertThat(captor.getValue().getCreatedAt()).isEqualTo(now.get());
+        }
+
+        @Test
+        @DisplayName("failed results are not remembered")
+        void failureNotRecorded() throws Exception {
+            assertThat(store.execute("a", () -> false, Boolean::booleanValue, () -> true)).isFalse();
+
+            assertThat(store.contains("a")).isFalse();
+            verify(operator, never()).insert(any());
+        }
+
+        @Test
+        @DisplayName("keys expire after the ttl")
+        void expires() {
+            run("a");
+            now.addAndGet(TTL);
+
+            run("a");
+
+            assertThat(runs.get()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("oldest keys are dropped beyond capacity")
+        void boundedByCapacity() {
+            run("a");
+            run("b");
+            run("c");
+            run("d");
+
+            assertThat(store.size()).isEqualTo(3);
+            assertThat(store.contains("a")).isFalse();
+            assertThat(store.contains("d")).isTrue();
+        }
+
+        @Test
+        @DisplayName("a failed insert is logged and the key still remembered")
+        void persistFailure() throws Exception {
+            PluginLogger logger = mock(PluginLogger.class);
+            when(plugin.getLogger()).thenReturn(logger);
+            doThrow(new IllegalStateException("down")).when(operator).insert(any());
+
+            assertThat(run("a")).isTrue();
+
+            assertThat(store.contains("a")).isTrue();
+            verify(logger).error(anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Persistence")
+    class Persistence {
+
+        @Test
+        @DisplayName("load keeps only unexpired keys")
+        void loadSkipsExpired() {
+            when(operator.getAll()).thenReturn(Arrays.asList(
+                    stored("old", now.get() - TTL), stored("fresh", now.get() - 1)));
+
+            assertThat(store.load()).isEqualTo(1);
+
+            assertThat(store.contains("fresh")).isTrue();
+            assertThat(store.contains("old")).isFalse();
+            run("fresh");
+            assertThat(runs.get()).isZero();
+        }
+
+        @Test
+        @DisplayName("purge drops expired keys from memory and the table")
+        void purge() {
+            run("a");
+            now.addAndGet(TTL);
+            when(operator.query()).thenReturn(new MockQuery<>(Arrays.asList(stored("a", 0L))));
+
+            assertThat(store.purgeExpired()).isEqualTo(1);
+
+            assertThat(store.size()).isZero();
+        }
+    }
+}
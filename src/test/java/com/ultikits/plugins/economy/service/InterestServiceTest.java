@@ -381,4 +381,32 @@ class InterestServiceTest {
             }
         }
     }
+
+    @Nested
+    @DisplayName("Off-heap store")
+    class OffHeapTests {
+
+        @Test
+        @DisplayName("pays interest from the store without reading the database")
+        void sweepsStore() {
+            OffHeapBalanceStore store = new OffHeapBalanceStore(currencyManager.getOrdinals().size(), 16);
+            store.putAccount(PLAYER1_UUID.toString(), "Player1", 100.0, 10000.0);
+            store.putAccount(PLAYER2_UUID.toString(), "Player2", 100.0, 0.0);
+            store.putBalance(PLAYER1_UUID.toString(), currencyManager.getOrdinal("coins"), 0.0, 1000.0);
+            store.putBalance(PLAYER2_UUID.toString(), currencyManager.getOrdinal("gems"), 0.0, 1000.0);
+            service.setOffHeapStore(store);
+
+            try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+                bukkit.when(() -> Bukkit.getPlayer(any(UUID.class))).thenReturn(null);
+
+                service.distributeInterest();
+            }
+
+            verify(economyService).addBank(PLAYER1_UUID, 300.0);
+            verify(economyService).addBank(PLAYER1_UUID, 30.0, "coins");
+            verify(economyService, never()).addBank(eq(PLAYER2_UUID), anyDouble());
+            verify(economyService, never()).addBank(any(), anyDouble(), eq("gems"));
+            verifyNoInteractions(dataOperator, currencyDataOperator);
+        }
+    }
 }
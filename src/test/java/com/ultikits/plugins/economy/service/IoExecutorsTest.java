@@ -0,0 +1,74 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("IoExecutors Tests")
+class IoExecutorsTest {
+
+    @Test
+    @DisplayName("uses a fixed number of workers and a capped queue")
+    void bounded() {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) IoExecutors.create(3);
+        try {
+            assertThat(executor.getCorePoolSize()).isEqualTo(3);
+            assertThat(executor.getMaximumPoolSize()).isEqualTo(3);
+            assertThat(executor.getQueue().remainingCapacity()).isEqualTo(IoExecutors.QUEUE_CAPACITY);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("keeps at least one worker for non-positive settings")
+    void atLeastOneWorker() {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) IoExecutors.create(0);
+        try {
+            assertThat(executor.getMaximumPoolSize()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("rejects work once the queue is full")
+    void rejectsWhenFull() throws Exception {
+        ExecutorService executor = IoExecutors.create(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int i = 0; i < IoExecutors.QUEUE_CAPACITY; i++) {
+                executor.execute(() -> { });
+            }
+
+            assertThatThrownBy(() -> executor.execute(() -> { }))
+                    .isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @DisplayName("thread factory produces named worker threads")
+    void namedThreads() {
+        Thread thread = IoExecutors.threadFactory().newThread(() -> { });
+
+        assertThat(thread.getName()).startsWith("UltiEconomy-IO-");
+    }
+}
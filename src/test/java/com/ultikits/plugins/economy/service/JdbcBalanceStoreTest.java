@@ -0,0 +1,275 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.BalanceMutation;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@DisplayName("JdbcBalanceStore")
+@ExtendWith(MockitoExtension.class)
+class JdbcBalanceStoreTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+
+    @Mock private Connection connection;
+    @Mock private PreparedStatement statement;
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private JdbcBalanceStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new JdbcBalanceStore(() -> {
+            opened.incrementAndGet();
+            return connection;
+        }, "economy_accounts", "currency_balances");
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(statement);
+        lenient().when(connection.isValid(anyInt())).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("increments the primary account in one guarded statement")
+    void accountIncrement() throws Exception {
+        when(statement.executeUpdate()).thenReturn(1);
+
+        assertThat(store.increment(UUID, null, BalanceMutation.Bucket.CASH, -25.0, 2)).isEqualTo(1);
+
+        verify(connection).prepareStatement(
+                "UPDATE economy_accounts SET total_wealth = ROUND(cash + ?, 2) + bank,"
+                        + " cash = ROUND(cash + ?, 2), version = version + 1"
+                        + " WHERE uuid = ? AND ROUND(cash + ?, 2) >= 0");
+        verify(statement).setDouble(1, -25.0);
+        verify(statement).setDouble(2, -25.0);
+        verify(statement).setString(3, UUID);
+        verify(statement).setDouble(4, -25.0);
+    }
+
+    @Test
+    @DisplayName("currency rows are matched on uuid and currency, unrounded when precision is negative")
+    void balanceIncrement() throws Exception {
+        when(statement.executeUpdate()).thenReturn(0);
+
+        assertThat(store.increment(UUID, "gems", BalanceMutation.Bucket.BANK, 5.0, -1)).isZero();
+
+        verify(connection).prepareStatement(
+                "UPDATE currency_balances SET total_wealth = bank + ? + cash, bank = bank + ?, version = version + 1"
+                        + " WHERE uuid = ? AND currency_id = ? AND bank + ? >= 0");
+        verify(statement).setString(4, "gems");
+        verify(statement).setDouble(5, 5.0);
+    }
+
+    @Test
+    @DisplayName("writes a whole row only while its version is the one read")
+    void compareAndSet() throws Exception {
+        when(statement.executeUpdate()).thenReturn(1, 0);
+        CurrencyBalanceEntity balance = CurrencyBalanceEntity.builder()
+                .uuid(UUID).currencyId("gems").cash(7).bank(3).build();
+
+        assertThat(store.compareAndSet(balance, 4L)).isTrue();
+        assertThat(store.compareAndSet(balance, 4L)).isFalse();
+
+        verify(connection, times(2)).prepareStatement(
+                "UPDATE currency_balances SET cash = ?, bank = ?, total_wealth = ?, version = version + 1"
+                        + " WHERE uuid = ? AND currency_id = ? AND version = ?");
+        verify(statement, times(2)).setDouble(3, 10.0);
+        verify(statement, times(2)).setString(5, "gems");
+        verify(statement, times(2)).setLong(6, 4L);
+    }
+
+    @Test
+    @DisplayName("reuses an idle connection")
+    void reusesConnection() throws Exception {
+        when(statement.executeUpdate()).thenReturn(1);
+
+        store.increment(UUID, null, BalanceMutation.Bucket.CASH, 1.0, 2);
+        store.increment(UUID, null, BalanceMutation.Bucket.CASH, 1.0, 2);
+
+        assertThat(opened.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("replaces an idle connection the server has dropped")
+    void replacesStaleConnection() throws Exception {
+        when(statement.executeUpdate()).thenReturn(1);
+        store.increment(UUID, null, BalanceMutation.Bucket.CASH, 1.0, 2);
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        assertThat(store.increment(UUID, null, BalanceMutation.Bucket.CASH, 1.0, 2)).isEqualTo(1);
+
+        verify(connection).close();
+        assertThat(opened.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("drops the connection after an error")
+    void dropsBrokenConnection() throws Exception {
+        when(statement.executeUpdate()).thenThrow(new SQLException("gone"));
+
+        assertThatThrownBy(() -> store.increment(UUID, null, BalanceMutation.Bucket.CASH, 1.0, 2))
+                .isInstanceOf(SQLException.class);
+
+        verify(connection).close();
+        assertThatThrownBy(() -> store.increment(UUID, null, BalanceMutation.Bucket.CASH, 1.0, 2))
+                .isInstanceOf(SQLException.class);
+        assertThat(opened.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("writes whole rows as one batch per table in one transaction")
+    void batchUpdate() throws Exception {
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(statement.executeBatch()).thenReturn(new int[]{1}, new int[]{1, Statement.SUCCESS_NO_INFO});
+
+        store.update(
+                Collections.singletonList(PlayerAccountEntity.builder().uuid(UUID).cash(10.0).bank(2.0).version(7).build()),
+                Arrays.asList(
+                        CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems").cash(1.0).bank(0.0).build(),
+                        CurrencyBalanceEntity.builder().uuid(UUID).currencyId("coins").cash(2.0).bank(0.0).build()));
+
+        verify(connection).prepareStatement(
+                "UPDATE economy_accounts SET cash = ?, bank = ?, total_wealth = ?, version = ? WHERE uuid = ?");
+        verify(connection).prepareStatement(
+                "UPDATE currency_balances SET cash = ?, bank = ?, total_wealth = ?, version = ? WHERE uuid = ? AND currency_id = ?");
+        verify(statement, times(3)).addBatch();
+        verify(statement).setDouble(3, 12.0);
+        verify(statement).setLong(4, 7L);
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    @DisplayName("rolls the batch back when a row is missing")
+    void batchMissingRow() throws Exception {
+        when(statement.executeBatch()).thenReturn(new int[]{0});
+
+        assertThatThrownBy(() -> store.update(
+                Collections.singletonList(PlayerAccountEntity.builder().uuid(UUID).cash(10.0).bank(0.0).build()),
+                Collections.emptyList())).isInstanceOf(SQLException.class);
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Nested
+    @DisplayName("addColumns")
+    class AddColumns {
+
+        @Mock private DatabaseMetaData metadata;
+        @Mock private Statement ddl;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(connection.getMetaData()).thenReturn(metadata);
+            when(connection.createStatement()).thenReturn(ddl);
+        }
+
+        private ResultSet columns(String... names) throws SQLException {
+            ResultSet columns = mock(ResultSet.class);
+            AtomicInteger row = new AtomicInteger(-1);
+            when(columns.next()).thenAnswer(invocation -> row.incrementAndGet() < names.length);
+            when(columns.getString("COLUMN_NAME")).thenAnswer(invocation -> names[row.get()]);
+            return columns;
+        }
+
+        @Test
+        @DisplayName("adds version and total_wealth to tables created before them")
+        void preSeriesSchema() throws Exception {
+            when(metadata.getColumns(any(), any(), anyString(), any()))
+                    .thenAnswer(invocation -> columns("id", "uuid", "cash", "bank"));
+
+            store.addColumns();
+
+            verify(ddl).executeUpdate("ALTER TABLE economy_accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+            verify(ddl).executeUpdate("ALTER TABLE economy_accounts ADD COLUMN total_wealth DOUBLE NOT NULL DEFAULT 0");
+            verify(ddl).executeUpdate("ALTER TABLE currency_balances ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+            verify(ddl).executeUpdate("ALTER TABLE currency_balances ADD COLUMN total_wealth DOUBLE NOT NULL DEFAULT 0");
+        }
+
+        @Test
+        @DisplayName("changes nothing when both columns exist")
+        void current() throws Exception {
+            when(metadata.getColumns(any(), any(), anyString(), any()))
+                    .thenAnswer(invocation -> columns("id", "uuid", "cash", "bank", "version", "total_wealth"));
+
+            store.addColumns();
+
+            verify(ddl, never()).executeUpdate(anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("indexTotalWealth")
+    class IndexTotalWealth {
+
+        @Mock private DatabaseMetaData metadata;
+        @Mock private Statement ddl;
+        @Mock private ResultSet empty;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(connection.getMetaData()).thenReturn(metadata);
+            when(connection.createStatement()).thenReturn(ddl);
+            lenient().when(metadata.getColumns(any(), any(), anyString(), any())).thenReturn(empty);
+            lenient().when(metadata.getIndexInfo(any(), any(), anyString(), anyBoolean(), anyBoolean())).thenReturn(empty);
+        }
+
+        @Test
+        @DisplayName("adds, fills and indexes the column on tables that lack it")
+        void createsColumnAndIndex() throws Exception {
+            when(ddl.executeUpdate(startsWith("UPDATE economy_accounts"))).thenReturn(3);
+            when(ddl.executeUpdate(startsWith("UPDATE currency_balances"))).thenReturn(4);
+
+            assertThat(store.indexTotalWealth()).isEqualTo(7);
+
+            verify(ddl).executeUpdate("ALTER TABLE economy_accounts ADD COLUMN total_wealth DOUBLE NOT NULL DEFAULT 0");
+            verify(ddl).executeUpdate("UPDATE economy_accounts SET total_wealth = cash + bank"
+                    + " WHERE total_wealth IS NULL OR total_wealth <> cash + bank");
+            verify(ddl).executeUpdate("CREATE INDEX idx_economy_accounts_wealth ON economy_accounts (total_wealth)");
+            verify(ddl).executeUpdate("CREATE INDEX idx_currency_balances_wealth"
+                    + " ON currency_balances (currency_id, total_wealth)");
+        }
+
+        @Test
+        @DisplayName("only fills the column when it and the index already exist, in any letter case")
+        void existing() throws Exception {
+            ResultSet column = mock(ResultSet.class);
+            when(column.next()).thenReturn(true, false);
+            when(column.getString("COLUMN_NAME")).thenReturn("TOTAL_WEALTH");
+            ResultSet index = mock(ResultSet.class);
+            when(index.next()).thenReturn(true, false);
+            when(index.getString("INDEX_NAME")).thenReturn("IDX_ECONOMY_ACCOUNTS_WEALTH");
+            when(metadata.getColumns(null, null, "ECONOMY_ACCOUNTS", null)).thenReturn(column);
+            when(metadata.getIndexInfo(null, null, "ECONOMY_ACCOUNTS", false, true)).thenReturn(index);
+
+            store.indexTotalWealth();
+
+            verify(ddl, never()).executeUpdate(startsWith("ALTER TABLE economy_accounts"));
+            verify(ddl, never()).executeUpdate(startsWith("CREATE INDEX idx_economy_accounts"));
+            verify(ddl).executeUpdate(startsWith("UPDATE economy_accounts"));
+            verify(ddl).executeUpdate(startsWith("ALTER TABLE currency_balances"));
+        }
+    }
+}
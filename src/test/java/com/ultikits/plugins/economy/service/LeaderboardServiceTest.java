@@ -14,6 +14,11 @@ import java.io.StringReader;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @DisplayName("LeaderboardService")
@@ -276,4 +281,463 @@ class LeaderboardServiceTest {
             assertThat(top.get(0).getPlayerName()).isEqualTo("Rich");
         }
     }
+
+    @Nested
+    @DisplayName("Off-heap store")
+    class OffHeapTests {
+
+        private OffHeapBalanceStore store;
+
+        @BeforeEach
+        void setUp() {
+            store = new OffHeapBalanceStore(currencyManager.getOrdinals().size(), 16);
+            store.putAccount(UUID_POOR.toString(), "Poor", 100, 0);
+            store.putAccount(UUID_RICH.toString(), "Rich", 5000, 10000);
+            store.putAccount(UUID_MIDDLE.toString(), "Middle", 2000, 1000);
+            service.setOffHeapStore(store);
+        }
+
+        @Test
+        @DisplayName("ranks from the store without reading the database")
+        void ranksFromStore() {
+            service.refreshLeaderboard();
+
+            List<LeaderboardService.LeaderboardEntry> top = service.getTopPlayers(2);
+            assertThat(top).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich", "Middle");
+            assertThat(top.get(0).getUuid()).isEqualTo(UUID_RICH.toString());
+            assertThat(top.get(0).getTotalWealth()).isEqualTo(15000.0);
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(3);
+            assertThat(service.getPlayerRank(UUID.randomUUID())).isEqualTo(-1);
+            verifyNoInteractions(dataOperator, currencyDataOperator);
+        }
+
+        @Test
+        @DisplayName("ranks a currency by its own slot")
+        void currencyFromStore() {
+            store.putBalance(UUID_POOR.toString(), currencyManager.getOrdinal("gems"), 900, 0);
+            store.putBalance(UUID_MIDDLE.toString(), currencyManager.getOrdinal("gems"), 50, 0);
+
+            service.refreshCurrencyLeaderboard("gems");
+
+            assertThat(service.getTopPlayers(10, "gems"))
+                    .extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Poor", "Middle");
+            assertThat(service.getPlayerRank(UUID_RICH, "gems")).isEqualTo(-1);
+            assertThat(service.getPlayerRank(UUID_MIDDLE, "gems")).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("refreshAll ranks the primary and every currency together")
+        void refreshAll() {
+            store.putBalance(UUID_POOR.toString(), currencyManager.getOrdinal("gems"), 900, 0);
+
+            service.refreshAll();
+
+            assertThat(service.getTopPlayers(1)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich");
+            assertThat(service.getTopPlayers(1, "gems")).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Poor");
+            verifyNoInteractions(dataOperator, currencyDataOperator);
+        }
+    }
+
+    @Nested
+    @DisplayName("refreshAll")
+    class RefreshAllTests {
+
+        @BeforeEach
+        void setUp() {
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(
+                    PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(0).build()
+            ));
+            when(currencyDataOperator.getAll()).thenReturn(Arrays.asList(
+                    CurrencyBalanceEntity.builder().uuid(UUID_RICH.toString()).currencyId("gems").cash(1).bank(0).build(),
+                    CurrencyBalanceEntity.builder().uuid(UUID_POOR.toString()).currencyId("gems").cash(50).bank(0).build(),
+                    CurrencyBalanceEntity.builder().uuid(UUID_RICH.toString()).currencyId("coins").cash(7).bank(0).build(),
+                    CurrencyBalanceEntity.builder().uuid(UUID_MIDDLE.toString()).currencyId("gems").cash(9).bank(0).build()
+            ));
+        }
+
+        @Test
+        @DisplayName("reads each table once for the primary and every currency leaderboard")
+        void singlePass() {
+            service.refreshAll();
+
+            verify(dataOperator, times(1)).getAll();
+            verify(currencyDataOperator, times(1)).getAll();
+            assertThat(service.getTopPlayers(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich", "Poor");
+            assertThat(service.getTopPlayers(10, "gems")).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Poor", UUID_MIDDLE.toString(), "Rich");
+            assertThat(service.getTopPlayers(10, "coins")).extracting(LeaderboardService.LeaderboardEntry::getTotalWealth)
+                    .containsExactly(7.0);
+            assertThat(service.getPlayerRank(UUID_RICH, "gems")).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("keeps the richest K of every leaderboard in one pass")
+        void topK() {
+            config.setLeaderboardTopK(1);
+
+            service.refreshAll();
+
+            assertThat(service.getTopPlayers(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich");
+            assertThat(service.getTopPlayers(10, "gems")).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Poor");
+        }
+
+        @Test
+        @DisplayName("a later single-currency refresh keeps the other published leaderboards")
+        void keepsOthers() {
+            service.refreshAll();
+
+            service.refreshCurrencyLeaderboard("coins");
+
+            assertThat(service.getTopPlayers(10)).hasSize(2);
+            assertThat(service.getTopPlayers(10, "gems")).hasSize(3);
+            assertThat(service.getTopPlayers(10, "coins")).hasSize(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Top-K leaderboards")
+    class TopKTests {
+
+        @BeforeEach
+        void setUp() {
+            config.setLeaderboardTopK(2);
+        }
+
+        @Test
+        @DisplayName("keeps only the richest K on refresh")
+        void keepsTopK() {
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(
+                    PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(10000).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_MIDDLE.toString()).playerName("Middle").cash(2000).bank(1000).build()
+            ));
+
+            service.refreshLeaderboard();
+
+            assertThat(service.getTopPlayers(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich", "Middle");
+            assertThat(service.getPlayerRank(UUID_MIDDLE)).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("estimates the rank of players outside the top K from their balance")
+        void estimatesOutside() {
+            PlayerAccountEntity poor = PlayerAccountEntity.builder()
+                    .uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build();
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(poor,
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(10000).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_MIDDLE.toString()).playerName("Middle").cash(2000).bank(1000).build()
+            ));
+            service.refreshLeaderboard();
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(poor)));
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("reads an estimated player's balance once per refresh")
+        void estimatesOncePerRefresh() {
+            PlayerAccountEntity poor = PlayerAccountEntity.builder()
+                    .uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build();
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(poor,
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_MIDDLE.toString()).playerName("Middle").cash(2000).bank(0).build()
+            ));
+            service.refreshLeaderboard();
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(poor)));
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(3);
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(3);
+            verify(dataOperator, times(1)).query();
+
+            service.refreshLeaderboard();
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(3);
+            verify(dataOperator, times(2)).query();
+        }
+
+        @Test
+        @DisplayName("answers -1 until the I/O executor has read the balance")
+        void estimatesOffThread() {
+            List<Runnable> tasks = new ArrayList<>();
+            service.setIoExecutor(tasks::add);
+            PlayerAccountEntity poor = PlayerAccountEntity.builder()
+                    .uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build();
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(poor,
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_MIDDLE.toString()).playerName("Middle").cash(2000).bank(0).build()
+            ));
+            service.refreshLeaderboard();
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(poor)));
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(-1);
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(-1);
+            assertThat(tasks).hasSize(1);
+            verify(dataOperator, never()).query();
+
+            tasks.get(0).run();
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("returns -1 for players outside the top K with no account")
+        void unknownOutside() {
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(
+                    PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_MIDDLE.toString()).playerName("Middle").cash(2000).bank(0).build()
+            ));
+            service.refreshLeaderboard();
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+
+            assertThat(service.getPlayerRank(UUID.fromString("999e8400-e29b-41d4-a716-446655440000"))).isEqualTo(-1);
+        }
+
+        @Test
+        @DisplayName("keeps the richest K of a currency")
+        void currency() {
+            config.setLeaderboardTopK(1);
+            when(dataOperator.getAll()).thenReturn(Collections.emptyList());
+            when(currencyDataOperator.getAll()).thenReturn(Arrays.asList(
+                    CurrencyBalanceEntity.builder().uuid(UUID_POOR.toString()).currencyId("gems").cash(1).bank(0).build(),
+                    CurrencyBalanceEntity.builder().uuid(UUID_RICH.toString()).currencyId("gems").cash(9).bank(0).build()
+            ));
+
+            service.refreshCurrencyLeaderboard("gems");
+
+            assertThat(service.getTopPlayers(10, "gems")).extracting(LeaderboardService.LeaderboardEntry::getUuid)
+                    .containsExactly(UUID_RICH.toString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Database leaderboards")
+    class DatabaseTests {
+
+        private DatabaseLeaderboard database;
+
+        @BeforeEach
+        void setUp() {
+            database = mock(DatabaseLeaderboard.class);
+            service.setDatabaseLeaderboard(database);
+        }
+
+        @Test
+        @DisplayName("refresh reads only the first rows in database order")
+        void refreshReadsFirstRows() {
+            when(database.page(null, 0, 10)).thenReturn(Arrays.asList(
+                    new LeaderboardService.LeaderboardEntry(UUID_RICH.toString(), "Rich", 15000),
+                    new LeaderboardService.LeaderboardEntry(UUID_MIDDLE.toString(), "Middle", 3000)));
+
+            service.refreshLeaderboard();
+
+            assertThat(service.getTopPlayers(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich", "Middle");
+            assertThat(service.getPlayerRank(UUID_MIDDLE)).isEqualTo(2);
+            verifyNoInteractions(dataOperator, currencyDataOperator);
+        }
+
+        @Test
+        @DisplayName("refreshAll reads every leaderboard before publishing them together")
+        void refreshAllPublishesTogether() {
+            when(database.page(null, 0, 10)).thenReturn(Collections.singletonList(
+                    new LeaderboardService.LeaderboardEntry(UUID_RICH.toString(), "Rich", 15000)));
+            when(database.page("gems", 0, 10)).thenAnswer(inv -> {
+                assertThat(service.getTopPlayers(10)).isEmpty();
+                return Collections.singletonList(
+                        new LeaderboardService.LeaderboardEntry(UUID_POOR.toString(), "Poor", 50));
+            });
+            when(database.page("coins", 0, 10)).thenReturn(Collections.emptyList());
+
+            service.refreshAll();
+
+            assertThat(service.getTopPlayers(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich");
+            assertThat(service.getTopPlayers(10, "gems")).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Poor");
+            verifyNoInteractions(dataOperator, currencyDataOperator);
+        }
+
+        @Test
+        @DisplayName("counts the rank of a player past the kept rows once per refresh")
+        void countsRankOncePerRefresh() {
+            when(database.page(null, 0, 10)).thenReturn(Collections.singletonList(
+                    new LeaderboardService.LeaderboardEntry(UUID_RICH.toString(), "Rich", 15000)));
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(
+                    PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build())));
+            when(database.rankOf(null, 100.0)).thenReturn(57);
+            service.refreshLeaderboard();
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(57);
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(57);
+            verify(database, times(1)).rankOf(null, 100.0);
+
+            service.refreshLeaderboard();
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(57);
+            verify(database, times(2)).rankOf(null, 100.0);
+        }
+
+        @Test
+        @DisplayName("counts ranks on the I/O executor and answers -1 until then")
+        void countsOffThread() {
+            List<Runnable> tasks = new ArrayList<>();
+            service.setIoExecutor(tasks::add);
+            when(database.page(null, 0, 10)).thenReturn(Collections.singletonList(
+                    new LeaderboardService.LeaderboardEntry(UUID_RICH.toString(), "Rich", 15000)));
+            when(dataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(
+                    PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build())));
+            when(database.rankOf(null, 100.0)).thenReturn(57);
+            service.refreshLeaderboard();
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(-1);
+            verify(database, never()).rankOf(null, 100.0);
+            assertThat(tasks).hasSize(1);
+
+            tasks.get(0).run();
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(57);
+            verify(database, times(1)).rankOf(null, 100.0);
+        }
+
+        @Test
+        @DisplayName("refreshes a currency from its first rows")
+        void currency() {
+            when(database.page("gems", 0, 10)).thenReturn(Collections.singletonList(
+                    new LeaderboardService.LeaderboardEntry(UUID_RICH.toString(), "Rich", 9)));
+
+            service.refreshCurrencyLeaderboard("gems");
+
+            assertThat(service.getPlayerRank(UUID_RICH, "gems")).isEqualTo(1);
+            verifyNoInteractions(currencyDataOperator);
+        }
+
+        @Test
+        @DisplayName("reads each page from the database at its offset")
+        void pages() {
+            List<LeaderboardService.LeaderboardEntry> rows = Collections.singletonList(
+                    new LeaderboardService.LeaderboardEntry(UUID_POOR.toString(), "Poor", 100));
+            when(database.page("gems", 20, 10)).thenReturn(rows);
+
+            assertThat(service.getPage(3, "gems")).isSameAs(rows);
+        }
+    }
+
+    @Test
+    @DisplayName("getPage slices the cached leaderboard without a database")
+    void pageFromCache() {
+        config.setLeaderboardDisplayCount(2);
+        when(dataOperator.getAll()).thenReturn(Arrays.asList(
+                PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build(),
+                PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(10000).build(),
+                PlayerAccountEntity.builder().uuid(UUID_MIDDLE.toString()).playerName("Middle").cash(2000).bank(1000).build()
+        ));
+        service.refreshLeaderboard();
+
+        assertThat(service.getPage(2, null)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                .containsExactly("Poor");
+        assertThat(service.getPage(3, null)).isEmpty();
+    }
+
+    @Nested
+    @DisplayName("Live leaderboards")
+    class LiveTests {
+
+        private LiveLeaderboards live;
+
+        @BeforeEach
+        void setUp() {
+            live = new LiveLeaderboards();
+            service.setLiveLeaderboards(live);
+        }
+
+        @Test
+        @DisplayName("loads the live leaderboard on refresh and reads it without a cached list")
+        void loads() {
+            when(dataOperator.getAll()).thenReturn(Arrays.asList(
+                    PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build(),
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5000).bank(10000).build()
+            ));
+
+            service.refreshLeaderboard();
+
+            assertThat(service.getTopPlayers(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly("Rich", "Poor");
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(2);
+            assertThat(live.accounts().size()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("reflects balance changes without another refresh")
+        void updatesLive() {
+            live.update(PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(500).bank(0).build());
+            live.update(PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(100).bank(0).build());
+
+            live.update(PlayerAccountEntity.builder().uuid(UUID_POOR.toString()).playerName("Poor").cash(900).bank(0).build());
+
+            assertThat(service.getPlayerRank(UUID_POOR)).isEqualTo(1);
+            assertThat(service.getTopPlayers(1).get(0).getTotalWealth()).isEqualTo(900.0);
+            verifyNoInteractions(dataOperator);
+        }
+
+        @Test
+        @DisplayName("ranks currencies live, named after the primary account")
+        void currencies() {
+            live.update(PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(0).bank(0).build());
+            live.update(CurrencyBalanceEntity.builder().uuid(UUID_RICH.toString()).currencyId("gems").cash(10).bank(0).build());
+            live.update(CurrencyBalanceEntity.builder().uuid(UUID_POOR.toString()).currencyId("gems").cash(20).bank(0).build());
+
+            List<LeaderboardService.LeaderboardEntry> top = service.getTopPlayers(10, "gems");
+
+            assertThat(top).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                    .containsExactly(UUID_POOR.toString(), "Rich");
+            assertThat(service.getPlayerRank(UUID_RICH, "gems")).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("falls back to the primary leaderboard for currencies with no entries")
+        void fallsBack() {
+            live.update(PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5).bank(0).build());
+
+            assertThat(service.getTopPlayers(10, "gems")).hasSize(1);
+            assertThat(service.getPlayerRank(UUID_RICH, "gems")).isEqualTo(1);
+            assertThat(live.find("gems")).isNull();
+        }
+
+        @Test
+        @DisplayName("refreshAll reloads the primary and every currency leaderboard")
+        void refreshAll() {
+            when(dataOperator.getAll()).thenReturn(Collections.singletonList(
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5).bank(0).build()));
+            when(currencyDataOperator.getAll()).thenReturn(Collections.singletonList(
+                    CurrencyBalanceEntity.builder().uuid(UUID_RICH.toString()).currencyId("gems").cash(7).bank(0).build()));
+
+            service.refreshAll();
+
+            assertThat(live.accounts().size()).isEqualTo(1);
+            assertThat(live.find("gems").top(1).get(0).getPlayerName()).isEqualTo("Rich");
+            assertThat(live.find("coins").size()).isZero();
+        }
+
+        @Test
+        @DisplayName("refreshAll swaps in the reloaded leaderboards instead of refilling them one by one")
+        void refreshAllSwaps() {
+            LiveLeaderboard before = live.accounts();
+            when(dataOperator.getAll()).thenReturn(Collections.singletonList(
+                    PlayerAccountEntity.builder().uuid(UUID_RICH.toString()).playerName("Rich").cash(5).bank(0).build()));
+
+            service.refreshAll();
+
+            assertThat(live.accounts()).isNotSameAs(before);
+            assertThat(before.size()).isZero();
+            assertThat(service.getTopPlayers(10)).hasSize(1);
+        }
+    }
 }
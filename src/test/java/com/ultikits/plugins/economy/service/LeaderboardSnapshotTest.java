@@ -0,0 +1,98 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LeaderboardSnapshot")
+class LeaderboardSnapshotTest {
+
+    private static final UUID UUID_A = UUID.fromString("550e8400-e29b-41d4-a716-446655440001");
+    private static final UUID UUID_B = UUID.fromString("550e8400-e29b-41d4-a716-446655440002");
+
+    private static LeaderboardService.LeaderboardEntry entry(String uuid, double wealth) {
+        return new LeaderboardService.LeaderboardEntry(uuid, "name", wealth);
+    }
+
+    @Test
+    @DisplayName("indexes every player's rank in list order")
+    void ranks() {
+        LeaderboardSnapshot snapshot = new LeaderboardSnapshot(Arrays.asList(
+                entry(UUID_B.toString(), 20), entry(UUID_A.toString(), 10)));
+
+        assertThat(snapshot.rankOf(UUID_B)).isEqualTo(1);
+        assertThat(snapshot.rankOf(UUID_A)).isEqualTo(2);
+        assertThat(snapshot.rankOf(UUID.randomUUID())).isEqualTo(-1);
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("keeps the first rank of a repeated uuid and skips uuids that do not parse")
+    void duplicatesAndInvalid() {
+        LeaderboardSnapshot snapshot = new LeaderboardSnapshot(Arrays.asList(
+                entry("not-a-uuid", 30), entry(UUID_A.toString(), 20), entry(UUID_A.toString(), 10)));
+
+        assertThat(snapshot.rankOf(UUID_A)).isEqualTo(2);
+        assertThat(snapshot.top(10)).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("returns copies of the top entries")
+    void top() {
+        LeaderboardSnapshot snapshot = new LeaderboardSnapshot(Arrays.asList(
+                entry(UUID_B.toString(), 20), entry(UUID_A.toString(), 10)));
+
+        List<LeaderboardService.LeaderboardEntry> top = snapshot.top(1);
+        top.clear();
+
+        assertThat(snapshot.top(1)).extracting(LeaderboardService.LeaderboardEntry::getTotalWealth)
+                .containsExactly(20.0);
+        assertThat(snapshot.top(0)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("the empty snapshot ranks nobody")
+    void empty() {
+        assertThat(LeaderboardSnapshot.EMPTY.isEmpty()).isTrue();
+        assertThat(LeaderboardSnapshot.EMPTY.rankOf(UUID_A)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("estimates unlisted ranks below the listed entries when truncated")
+    void estimates() {
+        WealthHistogram histogram = new WealthHistogram();
+        for (int wealth = 1; wealth <= 100; wealth++) {
+            histogram.add(wealth);
+        }
+        LeaderboardSnapshot snapshot = new LeaderboardSnapshot(Arrays.asList(
+                entry(UUID_B.toString(), 100), entry(UUID_A.toString(), 99)), histogram);
+
+        assertThat(snapshot.isTruncated()).isTrue();
+        assertThat(snapshot.estimateRank(1000)).isEqualTo(3);
+        assertThat(snapshot.estimateRank(-1)).isEqualTo(100);
+        assertThat(snapshot.estimateRank(50)).isBetween(40, 60);
+        assertThat(new LeaderboardSnapshot(snapshot.top(2)).estimateRank(50)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("finds every rank among many sequential uuids")
+    void many() {
+        List<LeaderboardService.LeaderboardEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            entries.add(entry(new UUID(0, i).toString(), 50_000 - i));
+        }
+
+        LeaderboardSnapshot snapshot = new LeaderboardSnapshot(entries);
+
+        for (int i = 0; i < 50_000; i++) {
+            assertThat(snapshot.rankOf(new UUID(0, i))).isEqualTo(i + 1);
+        }
+        assertThat(snapshot.rankOf(new UUID(1, 0))).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.config.EconomyConfig;
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Time to refresh the primary leaderboard and the heap its snapshot retains, listing every
+ * account against keeping the top 100 and a histogram. Excluded from the default test run;
+ * use {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Top-K leaderboard benchmark")
+class LeaderboardTopKBenchmarkTest {
+
+    private static final int TOP_K = 100;
+
+    @ParameterizedTest(name = "{0} accounts")
+    @ValueSource(ints = {100_000, 1_000_000})
+    @DisplayName("full snapshot against top-K refresh")
+    @SuppressWarnings("unchecked")
+    void refresh(int players) throws Exception {
+        Random random = new Random(3);
+        List<PlayerAccountEntity> accounts = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            accounts.add(PlayerAccountEntity.builder()
+                    .uuid(UUID.randomUUID().toString())
+                    .playerName("player" + i)
+                    .cash(Math.pow(10, random.nextDouble() * 7))
+                    .bank(0)
+                    .build());
+        }
+        DataOperator<PlayerAccountEntity> operator = mock(DataOperator.class, withSettings().stubOnly());
+        when(operator.getAll()).thenReturn(accounts);
+        CurrencyManager currencies = new CurrencyManager(YamlConfiguration.loadConfiguration(new StringReader(
+                "currencies:\n  coins:\n    primary: true\n")));
+
+        long[] full = measure(new EconomyConfig(), operator, currencies);
+        EconomyConfig topK = new EconomyConfig();
+        topK.setLeaderboardTopK(TOP_K);
+        long[] bounded = measure(topK, operator, currencies);
+
+        System.out.printf("%d accounts: full %d ms, %.1f MB; top %d %d ms, %.1f MB%n",
+                players, full[0], full[1] / 1048576.0, TOP_K, bounded[0], bounded[1] / 1048576.0);
+        assertThat(bounded[1]).isLessThan(full[1]);
+    }
+
+    /**
+     * @return the best refresh time of three in ms, and the heap retained by the last snapshot
+     */
+    private static long[] measure(EconomyConfig config, DataOperator<PlayerAccountEntity> operator,
+                                  CurrencyManager currencies) throws InterruptedException {
+        DataOperator<CurrencyBalanceEntity> balances = mock(DataOperator.class, withSettings().stubOnly());
+        long base = usedHeap();
+        LeaderboardService service = LeaderboardService.createForTest(config, operator, balances, currencies);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            service.refreshLeaderboard();
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        long retained = usedHeap() - base;
+        assertThat(service.getTopPlayers(1)).hasSize(1);
+        return new long[] {best, retained};
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,127 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LiveLeaderboard")
+class LiveLeaderboardTest {
+
+    private LiveLeaderboard board;
+
+    @BeforeEach
+    void setUp() {
+        board = new LiveLeaderboard();
+    }
+
+    private static LeaderboardService.LeaderboardEntry entry(String uuid, double wealth) {
+        return new LeaderboardService.LeaderboardEntry(uuid, "name-" + uuid, wealth);
+    }
+
+    @Test
+    @DisplayName("orders players richest first")
+    void orders() {
+        board.put("a", "Alex", 10);
+        board.put("b", "Bo", 30);
+        board.put("c", "Cy", 20);
+
+        assertThat(board.top(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                .containsExactly("Bo", "Cy", "Alex");
+        assertThat(board.rankOf("a")).isEqualTo(3);
+        assertThat(board.rankOf("missing")).isEqualTo(-1);
+        assertThat(board.top(2)).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("moves a player when their wealth changes")
+    void moves() {
+        board.put("a", "Alex", 10);
+        board.put("b", "Bo", 30);
+
+        board.put("a", null, 50);
+        board.add("b", 25);
+
+        assertThat(board.rankOf("b")).isEqualTo(1);
+        assertThat(board.top(1).get(0).getTotalWealth()).isEqualTo(55.0);
+        assertThat(board.nameOf("a")).isEqualTo("Alex");
+        assertThat(board.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("breaks ties by uuid and ignores adds for unknown players")
+    void ties() {
+        board.put("b", null, 5);
+        board.put("a", null, 5);
+        board.add("z", 100);
+
+        assertThat(board.top(2)).extracting(LeaderboardService.LeaderboardEntry::getUuid).containsExactly("a", "b");
+        assertThat(board.nameOf("b")).isEqualTo("b");
+        assertThat(board.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("removes players")
+    void removes() {
+        board.put("a", null, 1);
+        board.put("b", null, 2);
+
+        assertThat(board.remove("b")).isTrue();
+        assertThat(board.remove("b")).isFalse();
+        assertThat(board.rankOf("a")).isEqualTo(1);
+        assertThat(board.top(5)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("replaceAll swaps in a fresh ranking, later duplicates winning")
+    void replaceAll() {
+        board.put("old", null, 1000);
+
+        board.replaceAll(Arrays.asList(entry("a", 1), entry("b", 3), entry("a", 5)));
+
+        assertThat(board.size()).isEqualTo(2);
+        assertThat(board.rankOf("old")).isEqualTo(-1);
+        assertThat(board.top(5)).extracting(LeaderboardService.LeaderboardEntry::getTotalWealth)
+                .containsExactly(5.0, 3.0);
+    }
+
+    @Test
+    @DisplayName("matches a full sort through random updates, removals and reloads")
+    void matchesSort() {
+        Random random = new Random(42);
+        Map<String, Double> expected = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            String uuid = "p" + random.nextInt(500);
+            int op = random.nextInt(20);
+            if (op == 0) {
+                board.remove(uuid);
+                expected.remove(uuid);
+            } else if (op == 1 && step % 1000 == 1) {
+                List<LeaderboardService.LeaderboardEntry> all = new ArrayList<>();
+                expected.forEach((id, wealth) -> all.add(entry(id, wealth)));
+                board.replaceAll(all);
+            } else {
+                double wealth = random.nextInt(200);
+                board.put(uuid, null, wealth);
+                expected.put(uuid, wealth);
+            }
+        }
+
+        List<String> sorted = new ArrayList<>(expected.keySet());
+        sorted.sort(Comparator.<String>comparingDouble(expected::get).reversed().thenComparing(id -> id));
+        assertThat(board.top(sorted.size() + 10)).extracting(LeaderboardService.LeaderboardEntry::getUuid)
+                .containsExactlyElementsOf(sorted);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertThat(board.rankOf(sorted.get(i))).isEqualTo(i + 1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LiveLeaderboards")
+class LiveLeaderboardsTest {
+
+    private static final String UUID_A = "550e8400-e29b-41d4-a716-446655440001";
+
+    @Test
+    @DisplayName("keeps accounts and each currency on their own leaderboard")
+    void separate() {
+        LiveLeaderboards live = new LiveLeaderboards();
+        live.update(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(10).bank(5).build());
+        live.update(CurrencyBalanceEntity.builder().uuid(UUID_A).currencyId("gems").cash(3).bank(0).build());
+
+        live.add(UUID_A, null, 5);
+        live.add(UUID_A, "gems", 1);
+
+        assertThat(live.accounts().top(1).get(0).getTotalWealth()).isEqualTo(20.0);
+        assertThat(live.find("gems").top(1).get(0).getTotalWealth()).isEqualTo(4.0);
+        assertThat(live.find("gems").nameOf(UUID_A)).isEqualTo("Steve");
+        assertThat(live.find("coins")).isNull();
+    }
+
+    @Test
+    @DisplayName("swaps in reloaded leaderboards together, keeping currencies left out")
+    void replacesAll() {
+        LiveLeaderboards live = new LiveLeaderboards();
+        live.update(CurrencyBalanceEntity.builder().uuid(UUID_A).currencyId("coins").cash(2).bank(0).build());
+        LiveLeaderboard oldAccounts = live.accounts();
+        LiveLeaderboard accounts = new LiveLeaderboard();
+        LiveLeaderboard gems = new LiveLeaderboard();
+
+        live.replaceAll(accounts, Collections.singletonMap("gems", gems));
+        live.update(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(5).bank(0).build());
+
+        assertThat(live.accounts()).isSameAs(accounts);
+        assertThat(live.find("gems")).isSameAs(gems);
+        assertThat(live.find("coins").size()).isEqualTo(1);
+        assertThat(accounts.size()).isEqualTo(1);
+        assertThat(oldAccounts.size()).isZero();
+    }
+}
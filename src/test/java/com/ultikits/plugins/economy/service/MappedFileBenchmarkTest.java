@@ -0,0 +1,65 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of the balance file for the economy's usual pattern: read an account, change
+ * it, write it back. The same loop against SQLite or MySQL through the data operator is what
+ * to compare it with on a real server. Excluded from the default test run; use
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Balance file benchmark")
+class MappedFileBenchmarkTest {
+
+    private static final int ACCOUNTS = 100_000;
+    private static final int UPDATES = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("read-modify-write throughput over 100k accounts")
+    void readModifyWrite() throws Exception {
+        String[] uuids = new String[ACCOUNTS];
+        try (MappedFileRepository repository = new MappedFileRepository(dir.resolve("balances.dat").toFile())) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                uuids[i] = UUID.randomUUID().toString();
+                repository.insertAccount(PlayerAccountEntity.builder()
+                        .uuid(uuids[i]).playerName("p" + i).cash(100.0).bank(0.0).build());
+            }
+            long inserted = System.nanoTime() - start;
+
+            Random random = new Random(42);
+            start = System.nanoTime();
+            for (int i = 0; i < UPDATES; i++) {
+                PlayerAccountEntity account = repository.findAccount(uuids[random.nextInt(ACCOUNTS)]);
+                account.setCash(account.getCash() + 1.0);
+                account.setVersion(account.getVersion() + 1);
+                repository.updateAccount(account);
+            }
+            long updated = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            repository.sync();
+            long synced = System.nanoTime() - start;
+
+            System.out.printf("%d inserts: %.0f/s; %d read-modify-writes: %.0f/s; checkpoint %.1f ms%n",
+                    ACCOUNTS, ACCOUNTS / (inserted / 1e9),
+                    UPDATES, UPDATES / (updated / 1e9),
+                    synced / 1e6);
+            assertThat(repository.getPlayerCount()).isEqualTo(ACCOUNTS);
+        }
+    }
+}
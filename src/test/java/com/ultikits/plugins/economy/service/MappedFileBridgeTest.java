@@ -0,0 +1,145 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@DisplayName("MappedFileBridge")
+@ExtendWith(MockitoExtension.class)
+class MappedFileBridgeTest {
+
+    private static final String UUID_A = "550e8400-e29b-41d4-a716-446655440001";
+    private static final String UUID_B = "550e8400-e29b-41d4-a716-446655440002";
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private PluginLogger logger;
+    @Mock private BalanceRepository database;
+
+    @TempDir
+    Path dir;
+
+    private MappedFileRepository file;
+    private MappedFileBridge bridge;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        lenient().when(plugin.getLogger()).thenReturn(logger);
+        file = new MappedFileRepository(dir.resolve("balances.dat").toFile());
+        bridge = new MappedFileBridge(plugin, file);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        file.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void databaseHolds(PlayerAccountEntity account, List<CurrencyBalanceEntity> balances) {
+        doAnswer(inv -> {
+            BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor = inv.getArgument(0);
+            visitor.accept(account, balances);
+            return null;
+        }).when(database).forEachPlayer(any());
+    }
+
+    @Test
+    @DisplayName("imports every account and balance into the file")
+    void imports() {
+        databaseHolds(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(100.0).bank(5.0).version(4).build(),
+                Collections.singletonList(CurrencyBalanceEntity.builder().uuid(UUID_A).currencyId("gems").cash(7.0).build()));
+
+        assertThat(bridge.importFrom(database)).isTrue();
+
+        assertThat(file.findAccount(UUID_A).getCash()).isEqualTo(100.0);
+        assertThat(file.findAccount(UUID_A).getVersion()).isEqualTo(4L);
+        assertThat(file.findBalance(UUID_A, "gems").getCash()).isEqualTo(7.0);
+        assertThat(file.getCheckpoint()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("a second import overwrites what the file holds")
+    void reimport() {
+        file.insertAccount(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(1.0).build());
+        databaseHolds(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(100.0).build(),
+                Collections.emptyList());
+
+        bridge.importFrom(database);
+
+        assertThat(file.findAccount(UUID_A).getCash()).isEqualTo(100.0);
+        assertThat(file.getPlayerCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("exports new rows as inserts and existing rows as updates")
+    void exports() throws Exception {
+        file.insertAccount(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(100.0).build());
+        file.insertBalance(CurrencyBalanceEntity.builder().uuid(UUID_B).currencyId("gems").cash(3.0).build());
+        PlayerAccountEntity stored = PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(1.0).build();
+        when(database.findAccount(UUID_A)).thenReturn(stored);
+
+        assertThat(bridge.exportTo(database)).isTrue();
+
+        verify(database).updateAccount(stored);
+        assertThat(stored.getCash()).isEqualTo(100.0);
+        ArgumentCaptor<CurrencyBalanceEntity> inserted = ArgumentCaptor.forClass(CurrencyBalanceEntity.class);
+        verify(database).insertBalance(inserted.capture());
+        assertThat(inserted.getValue().getUuid()).isEqualTo(UUID_B);
+        assertThat(inserted.getValue().getCash()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("reports rows it could not write")
+    void failures() throws Exception {
+        file.insertAccount(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(100.0).build());
+        file.insertAccount(PlayerAccountEntity.builder().uuid(UUID_B).playerName("Alex").cash(5.0).build());
+        when(database.findAccount(any())).thenReturn(PlayerAccountEntity.builder().uuid(UUID_A).build());
+        doThrow(new IllegalAccessException("locked")).doNothing().when(database).updateAccount(any());
+
+        assertThat(bridge.exportTo(database)).isFalse();
+
+        verify(database, times(2)).updateAccount(any());
+        verify(logger).error(contains("locked"));
+    }
+
+    @Test
+    @DisplayName("copies nothing from an empty source")
+    void empty() {
+        assertThat(bridge.importFrom(database)).isTrue();
+        assertThat(file.getPlayerCount()).isZero();
+        verify(database, never()).insertAccount(any());
+        verify(logger).info(contains("0 rows"));
+    }
+
+    @Test
+    @DisplayName("moves balances between two files unchanged")
+    void roundTrip() throws Exception {
+        try (MappedFileRepository other = new MappedFileRepository(dir.resolve("other.dat").toFile())) {
+            for (String uuid : Arrays.asList(UUID_A, UUID_B)) {
+                other.insertAccount(PlayerAccountEntity.builder().uuid(uuid).playerName("p").cash(0.1 + 0.2).build());
+            }
+
+            bridge.importFrom(other);
+        }
+
+        assertThat(file.findAccount(UUID_B).getCash()).isEqualTo(0.1 + 0.2);
+    }
+}
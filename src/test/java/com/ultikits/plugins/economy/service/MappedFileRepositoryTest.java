@@ -0,0 +1,267 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("MappedFileRepository")
+class MappedFileRepositoryTest {
+
+    private static final String UUID_A = "550e8400-e29b-41d4-a716-446655440001";
+    private static final String UUID_B = "550e8400-e29b-41d4-a716-446655440002";
+
+    @TempDir
+    Path dir;
+
+    private File file;
+    private MappedFileRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("balances.dat").toFile();
+        repository = new MappedFileRepository(file, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+    }
+
+    private MappedFileRepository reopen() throws IOException {
+        repository.close();
+        repository = new MappedFileRepository(file, 4);
+        return repository;
+    }
+
+    private static PlayerAccountEntity account(String uuid, String name, double cash, double bank) {
+        return PlayerAccountEntity.builder().uuid(uuid).playerName(name).cash(cash).bank(bank).build();
+    }
+
+    private static CurrencyBalanceEntity balance(String uuid, String currencyId, double cash) {
+        return CurrencyBalanceEntity.builder().uuid(uuid).currencyId(currencyId).cash(cash).bank(0.0).build();
+    }
+
+    @Nested
+    @DisplayName("Accounts")
+    class Accounts {
+
+        @Test
+        @DisplayName("reads back an inserted account")
+        void insertAndFind() {
+            repository.insertAccount(account(UUID_A, "Steve", 100.0, 50.0));
+
+            PlayerAccountEntity found = repository.findAccount(UUID_A);
+
+            assertThat(found.getUuid()).isEqualTo(UUID_A);
+            assertThat(found.getPlayerName()).isEqualTo("Steve");
+            assertThat(found.getCash()).isEqualTo(100.0);
+            assertThat(found.getBank()).isEqualTo(50.0);
+            assertThat(repository.findAccount(UUID_B)).isNull();
+        }
+
+        @Test
+        @DisplayName("updates in place, including the version")
+        void update() throws Exception {
+            repository.insertAccount(account(UUID_A, "Steve", 100.0, 0.0));
+            PlayerAccountEntity found = repository.findAccount(UUID_A);
+            found.setCash(40.0);
+            found.setVersion(2);
+
+            repository.updateAccount(found);
+
+            assertThat(repository.findAccount(UUID_A).getCash()).isEqualTo(40.0);
+            assertThat(repository.findAccount(UUID_A).getVersion()).isEqualTo(2L);
+            assertThat(repository.getPlayerCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("rejects updates to accounts it does not hold")
+        void updateMissing() {
+            assertThatThrownBy(() -> repository.updateAccount(account(UUID_A, "Steve", 1.0, 0.0)))
+                    .isInstanceOf(IllegalAccessException.class);
+        }
+
+        @Test
+        @DisplayName("keeps non-ASCII names and cuts long ones on a character boundary")
+        void names() {
+            repository.insertAccount(account(UUID_A, "玩家一号", 1.0, 0.0));
+            repository.insertAccount(account(UUID_B, "名字名字名字名字名字名字名字名字", 1.0, 0.0));
+
+            assertThat(repository.findAccount(UUID_A).getPlayerName()).isEqualTo("玩家一号");
+            assertThat(repository.findAccount(UUID_B).getPlayerName()).isEqualTo("名字名字名字名字名字名字名");
+        }
+    }
+
+    @Nested
+    @DisplayName("Balances")
+    class Balances {
+
+        @Test
+        @DisplayName("keeps one record per currency beside the account")
+        void perCurrency() throws Exception {
+            repository.insertAccount(account(UUID_A, "Steve", 100.0, 0.0));
+            repository.insertBalance(balance(UUID_A, "gems", 5.0));
+            repository.insertBalance(balance(UUID_A, "coins", 7.0));
+            CurrencyBalanceEntity gems = repository.findBalance(UUID_A, "gems");
+            gems.setBank(3.0);
+            repository.updateBalance(gems);
+
+            assertThat(repository.findBalance(UUID_A, "gems").getBank()).isEqualTo(3.0);
+            assertThat(repository.findBalances(UUID_A))
+                    .extracting(CurrencyBalanceEntity::getCurrencyId).containsExactly("gems", "coins");
+            assertThat(repository.findAccount(UUID_A).getCash()).isEqualTo(100.0);
+        }
+
+        @Test
+        @DisplayName("filters bulk reads to the requested players and currencies")
+        void bulk() {
+            repository.insertBalance(balance(UUID_A, "gems", 1.0));
+            repository.insertBalance(balance(UUID_A, "coins", 2.0));
+            repository.insertBalance(balance(UUID_B, "gems", 3.0));
+
+            List<CurrencyBalanceEntity> found = repository.findBalances(
+                    Arrays.asList(UUID_A, UUID_B, UUID.randomUUID().toString()), Collections.singletonList("gems"));
+
+            assertThat(found).extracting(CurrencyBalanceEntity::getCash).containsExactly(1.0, 3.0);
+        }
+
+        @Test
+        @DisplayName("rejects currency ids that do not fit a record")
+        void longCurrencyId() {
+            assertThatThrownBy(() -> repository.insertBalance(
+                    balance(UUID_A, "a-currency-id-well-past-thirty-two-bytes", 1.0)))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+
+        @Test
+        @DisplayName("reads a whole wallet")
+        void wallet() {
+            repository.insertAccount(account(UUID_A, "Steve", 100.0, 0.0));
+            repository.insertBalance(balance(UUID_A, "gems", 5.0));
+
+            WalletSnapshot snapshot = repository.findWallet(UUID_A);
+
+            assertThat(snapshot.hasAccount()).isTrue();
+            assertThat(snapshot.getCash()).isEqualTo(100.0);
+            assertThat(snapshot.getCash("gems")).isEqualTo(5.0);
+            assertThat(repository.findWallet(UUID_B).hasAccount()).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Sweeps")
+    class Sweeps {
+
+        @Test
+        @DisplayName("visits each player once with everything they hold")
+        void forEachPlayer() {
+            repository.insertAccount(account(UUID_A, "Steve", 1.0, 0.0));
+            repository.insertBalance(balance(UUID_B, "gems", 3.0));
+            repository.insertBalance(balance(UUID_A, "gems", 2.0));
+            List<String> visited = new ArrayList<>();
+
+            repository.forEachPlayer((account, balances) ->
+                    visited.add((account != null ? account.getPlayerName() : "none") + "/" + balances.size()));
+
+            assertThat(visited).containsExactlyInAnyOrder("Steve/1", "none/1");
+            assertThat(repository.allAccounts()).hasSize(1);
+            assertThat(repository.allBalances()).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("lets the visitor write back")
+        void writesDuringSweep() {
+            repository.insertAccount(account(UUID_A, "Steve", 1.0, 0.0));
+
+            repository.forEachPlayer((account, balances) -> {
+                repository.insertBalance(balance(account.getUuid(), "gems", 1.0));
+                repository.insertAccount(account(UUID_B, "Alex", 1.0, 0.0));
+            });
+
+            assertThat(repository.findBalance(UUID_A, "gems")).isNotNull();
+            assertThat(repository.findAccount(UUID_B)).isNotNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("File")
+    class FileTests {
+
+        @Test
+        @DisplayName("survives a reopen and grows past its initial size")
+        void reopen() throws IOException {
+            List<String> uuids = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                String uuid = UUID.randomUUID().toString();
+                uuids.add(uuid);
+                repository.insertAccount(account(uuid, "p" + i, i, 0.0));
+                repository.insertBalance(balance(uuid, "gems", i * 2));
+            }
+
+            reopen();
+
+            assertThat(repository.getPlayerCount()).isEqualTo(500);
+            for (int i = 0; i < uuids.size(); i++) {
+                assertThat(repository.findAccount(uuids.get(i)).getCash()).isEqualTo(i);
+                assertThat(repository.findBalance(uuids.get(i), "gems").getCash()).isEqualTo(i * 2.0);
+            }
+        }
+
+        @Test
+        @DisplayName("counts checkpoints in the header")
+        void checkpoints() throws IOException {
+            repository.sync();
+            repository.sync();
+
+            assertThat(reopen().getCheckpoint()).isEqualTo(3L);
+        }
+
+        @Test
+        @DisplayName("drops damaged records and reuses their space")
+        void damaged() throws IOException {
+            repository.insertAccount(account(UUID_A, "Steve", 100.0, 0.0));
+            repository.insertAccount(account(UUID_B, "Alex", 50.0, 0.0));
+            repository.close();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(MappedFileRepository.HEADER_SIZE + 96);
+                raf.writeDouble(1_000_000.0);
+            }
+
+            repository = new MappedFileRepository(file, 4);
+            long size = file.length();
+
+            assertThat(repository.getDiscarded()).isEqualTo(1);
+            assertThat(repository.findAccount(UUID_A)).isNull();
+            assertThat(repository.findAccount(UUID_B).getCash()).isEqualTo(50.0);
+
+            repository.insertAccount(account(UUID_A, "Steve", 100.0, 0.0));
+            assertThat(file.length()).isEqualTo(size);
+            assertThat(reopen().findAccount(UUID_A).getCash()).isEqualTo(100.0);
+        }
+
+        @Test
+        @DisplayName("refuses files of another format")
+        void foreign() throws IOException {
+            File other = dir.resolve("other.dat").toFile();
+            Files.write(other.toPath(), new byte[128]);
+
+            assertThatThrownBy(() -> new MappedFileRepository(other)).isInstanceOf(IOException.class);
+        }
+    }
+}
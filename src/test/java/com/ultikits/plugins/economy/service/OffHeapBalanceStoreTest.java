@@ -0,0 +1,283 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("OffHeapBalanceStore")
+class OffHeapBalanceStoreTest {
+
+    private static final String UUID_A = "550e8400-e29b-41d4-a716-446655440001";
+    private static final String UUID_B = "550e8400-e29b-41d4-a716-446655440002";
+    private static final String UUID_C = "550e8400-e29b-41d4-a716-446655440003";
+
+    private OffHeapBalanceStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new OffHeapBalanceStore(2, 4);
+    }
+
+    private List<String> visit(int slot) {
+        List<String> visited = new ArrayList<>();
+        store.forEach(slot, (record, cash, bank) -> visited.add(store.uuid(record) + "=" + cash + "/" + bank));
+        return visited;
+    }
+
+    @Nested
+    @DisplayName("Records")
+    class Records {
+
+        @Test
+        @DisplayName("stores an account under its uuid")
+        void putAccount() {
+            store.putAccount(UUID_A, "Steve", 100.0, 50.0);
+
+            int record = store.find(UUID_A);
+            assertThat(record).isEqualTo(0);
+            assertThat(store.uuid(record)).isEqualTo(UUID_A);
+            assertThat(store.playerName(record)).isEqualTo("Steve");
+            assertThat(visit(OffHeapBalanceStore.ACCOUNT)).containsExactly(UUID_A + "=100.0/50.0");
+        }
+
+        @Test
+        @DisplayName("keeps one record per player across account and currencies")
+        void onePerPlayer() {
+            store.putBalance(UUID_A, 1, 7.0, 0.0);
+            store.putAccount(UUID_A, "Steve", 100.0, 0.0);
+            store.putAccount(UUID_A, "Steve", 90.0, 10.0);
+
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(visit(OffHeapBalanceStore.ACCOUNT)).containsExactly(UUID_A + "=90.0/10.0");
+            assertThat(visit(1)).containsExactly(UUID_A + "=7.0/0.0");
+            assertThat(visit(0)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("a player known only by a currency balance has no name")
+        void noName() {
+            store.putBalance(UUID_A, 0, 1.0, 0.0);
+
+            assertThat(store.playerName(store.find(UUID_A))).isNull();
+            assertThat(visit(OffHeapBalanceStore.ACCOUNT)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("ignores currency ordinals it has no slot for")
+        void unknownOrdinal() {
+            store.putBalance(UUID_A, 2, 1.0, 0.0);
+            store.putBalance(UUID_A, -1, 1.0, 0.0);
+
+            assertThat(store.find(UUID_A)).isEqualTo(-1);
+        }
+
+        @Test
+        @DisplayName("returns -1 for unknown players")
+        void missing() {
+            store.putAccount(UUID_A, "Steve", 1.0, 0.0);
+
+            assertThat(store.find(UUID_B)).isEqualTo(-1);
+        }
+
+        @Test
+        @DisplayName("grows past its initial capacity")
+        void grows() {
+            List<String> uuids = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                String uuid = UUID.randomUUID().toString();
+                uuids.add(uuid);
+                store.putAccount(uuid, "p" + i, i, 0.0);
+            }
+
+            assertThat(store.size()).isEqualTo(1000);
+            for (int i = 0; i < uuids.size(); i++) {
+                assertThat(store.find(uuids.get(i))).isEqualTo(i);
+                assertThat(store.playerName(i)).isEqualTo("p" + i);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Increments")
+    class Increments {
+
+        @Test
+        @DisplayName("adds to the requested bucket")
+        void adds() {
+            store.putAccount(UUID_A, "Steve", 100.0, 50.0);
+            store.putBalance(UUID_A, 0, 10.0, 0.0);
+
+            store.addAccount(UUID_A, true, 25.0, -1);
+            store.addBalance(UUID_A, 0, false, -4.0, -1);
+
+            assertThat(visit(OffHeapBalanceStore.ACCOUNT)).containsExactly(UUID_A + "=100.0/75.0");
+            assertThat(visit(0)).containsExactly(UUID_A + "=6.0/0.0");
+        }
+
+        @Test
+        @DisplayName("rounds the result like the database")
+        void rounds() {
+            store.putAccount(UUID_A, "Steve", 0.1, 0.0);
+
+            store.addAccount(UUID_A, false, 0.2, 2);
+
+            assertThat(visit(OffHeapBalanceStore.ACCOUNT)).containsExactly(UUID_A + "=0.3/0.0");
+        }
+
+        @Test
+        @DisplayName("does not create missing slots")
+        void missingSlot() {
+            store.putAccount(UUID_A, "Steve", 1.0, 0.0);
+
+            store.addBalance(UUID_A, 1, false, 5.0, -1);
+            store.addAccount(UUID_B, false, 5.0, -1);
+
+            assertThat(visit(1)).isEmpty();
+            assertThat(store.find(UUID_B)).isEqualTo(-1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Ranking")
+    class RankingTests {
+
+        @Test
+        @DisplayName("orders by total wealth, richest first")
+        void ranks() {
+            store.putAccount(UUID_A, "Poor", 100.0, 0.0);
+            store.putAccount(UUID_B, "Rich", 5000.0, 10000.0);
+            store.putAccount(UUID_C, "Middle", 2000.0, 1000.0);
+
+            OffHeapBalanceStore.Ranking ranking = store.rank(OffHeapBalanceStore.ACCOUNT);
+
+            assertThat(ranking.size()).isEqualTo(3);
+            assertThat(store.playerName(ranking.record(0))).isEqualTo("Rich");
+            assertThat(ranking.wealth(0)).isEqualTo(15000.0);
+            assertThat(store.playerName(ranking.record(2))).isEqualTo("Poor");
+            assertThat(ranking.positionOf(store.find(UUID_C))).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("keeps insertion order between equal wealth")
+        void stable() {
+            store.putAccount(UUID_A, "First", 10.0, 0.0);
+            store.putAccount(UUID_B, "Second", 10.0, 0.0);
+            store.putAccount(UUID_C, "Third", 10.0, 0.0);
+
+            OffHeapBalanceStore.Ranking ranking = store.rank(OffHeapBalanceStore.ACCOUNT);
+
+            assertThat(ranking.record(0)).isEqualTo(0);
+            assertThat(ranking.record(1)).isEqualTo(1);
+            assertThat(ranking.record(2)).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("leaves out players without the slot")
+        void unranked() {
+            store.putAccount(UUID_A, "Steve", 1.0, 0.0);
+            store.putBalance(UUID_B, 0, 3.0, 0.0);
+
+            OffHeapBalanceStore.Ranking ranking = store.rank(0);
+
+            assertThat(ranking.size()).isEqualTo(1);
+            assertThat(ranking.positionOf(store.find(UUID_A))).isEqualTo(-1);
+            assertThat(ranking.positionOf(-1)).isEqualTo(-1);
+        }
+
+        @Test
+        @DisplayName("sorts a large shuffled set")
+        void large() {
+            List<Integer> amounts = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                amounts.add(i);
+            }
+            Collections.shuffle(amounts);
+            for (int amount : amounts) {
+                store.putAccount(UUID.randomUUID().toString(), "p", amount, 0.0);
+            }
+
+            OffHeapBalanceStore.Ranking ranking = store.rank(OffHeapBalanceStore.ACCOUNT);
+
+            for (int i = 0; i < 5000; i++) {
+                assertThat(ranking.wealth(i)).isEqualTo(4999.0 - i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("loads every account and configured balance from the repository")
+    @SuppressWarnings("unchecked")
+    void load() {
+        CurrencyManager currencyManager = new CurrencyManager(YamlConfiguration.loadConfiguration(new StringReader(
+                "currencies:\n  coins:\n    primary: true\n  gems:\n    primary: false\n")));
+        BalanceRepository repository = mock(BalanceRepository.class);
+        doAnswer(inv -> {
+            BiConsumer<PlayerAccountEntity, List<CurrencyBalanceEntity>> visitor = inv.getArgument(0);
+            visitor.accept(PlayerAccountEntity.builder().uuid(UUID_A).playerName("Steve").cash(5.0).bank(1.0).build(),
+                    Arrays.asList(
+                            CurrencyBalanceEntity.builder().uuid(UUID_A).currencyId("gems").cash(2.0).build(),
+                            CurrencyBalanceEntity.builder().uuid(UUID_A).currencyId("removed").cash(9.0).build()));
+            visitor.accept(null, Collections.singletonList(
+                    CurrencyBalanceEntity.builder().uuid(UUID_B).currencyId("gems").cash(3.0).build()));
+            return null;
+        }).when(repository).forEachPlayer(any());
+
+        store.load(repository, currencyManager);
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(visit(OffHeapBalanceStore.ACCOUNT)).containsExactly(UUID_A + "=5.0/1.0");
+        assertThat(visit(currencyManager.getOrdinal("gems"))).containsExactly(UUID_A + "=2.0/0.0", UUID_B + "=3.0/0.0");
+    }
+
+    @Test
+    @DisplayName("readers see whole records while a writer updates them")
+    void concurrentReaders() throws Exception {
+        store.putAccount(UUID_A, "Steve", 0.0, 0.0);
+        AtomicBoolean torn = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(2);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                while (!done.get()) {
+                    store.forEach(OffHeapBalanceStore.ACCOUNT, (record, cash, bank) -> {
+                        if (cash != bank) {
+                            torn.set(true);
+                        }
+                    });
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        started.await();
+
+        for (int i = 1; i <= 20000; i++) {
+            store.putAccount(UUID_A, "Steve", i, i);
+            store.putAccount(UUID.randomUUID().toString(), "x", i, i);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(torn).isFalse();
+    }
+}
@@ -0,0 +1,125 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("StripedBalance")
+class StripedBalanceTest {
+
+    @Test
+    @DisplayName("rounds the stripe count up to a power of two")
+    void stripes() {
+        assertThat(new StripedBalance(10).getStripes()).isEqualTo(16);
+        assertThat(new StripedBalance(0).getStripes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sums credits and takes debits from them")
+    void creditAndDebit() {
+        StripedBalance balance = new StripedBalance(4);
+        balance.credit(100);
+        balance.credit(50);
+
+        assertThat(balance.debit(120)).isTrue();
+        assertThat(balance.sum()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("refuses debits the cells cannot cover and leaves them unchanged")
+    void insufficient() {
+        StripedBalance balance = new StripedBalance(4);
+        balance.credit(10);
+
+        assertThat(balance.debit(11)).isFalse();
+        assertThat(balance.sum()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("borrows across cells credited by other threads")
+    void borrows() throws InterruptedException {
+        StripedBalance balance = new StripedBalance(16);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> balance.credit(10)));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(balance.debit(80)).isTrue();
+        assertThat(balance.sum()).isZero();
+    }
+
+    @Test
+    @DisplayName("drain empties every cell")
+    void drain() {
+        StripedBalance balance = new StripedBalance(4);
+        balance.credit(25);
+
+        assertThat(balance.drain()).isEqualTo(25);
+        assertThat(balance.sum()).isZero();
+        assertThat(balance.debit(1)).isFalse();
+    }
+
+    @Test
+    @DisplayName("rejects negative amounts")
+    void negative() {
+        StripedBalance balance = new StripedBalance(4);
+
+        assertThatThrownBy(() -> balance.credit(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> balance.debit(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("never loses or invents money under concurrent credits, debits and drains")
+    void concurrent() throws InterruptedException {
+        StripedBalance balance = new StripedBalance(8);
+        AtomicLong credited = new AtomicLong();
+        AtomicLong debited = new AtomicLong();
+        AtomicLong drained = new AtomicLong();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    if (id == 0 && i % 1000 == 0) {
+                        drained.addAndGet(balance.drain());
+                    } else if (id % 2 == 0) {
+                        balance.credit(3);
+                        credited.addAndGet(3);
+                    } else if (balance.debit(5)) {
+                        debited.addAndGet(5);
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(balance.sum()).isEqualTo(credited.get() - debited.get() - drained.get());
+        assertThat(balance.sum()).isNotNegative();
+    }
+}
@@ -14,6 +14,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -162,6 +163,21 @@ class TaxServiceTest {
             assertThat(existing.getBalance()).isEqualTo(1500.0);
         }
 
+        @Test
+        @DisplayName("depositToTreasury sums exactly in fixed-point mode")
+        void fixedPointDeposit() throws IllegalAccessException {
+            when(config.isFixedPointEnabled()).thenReturn(true);
+            TreasuryEntity existing = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(0.1)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+
+            taxService.depositToTreasury(0.2, "coins");
+
+            assertThat(existing.getBalance()).isEqualTo(0.3);
+        }
+
         @Test
         @DisplayName("getTreasuryBalance returns balance for existing currency")
         void getsBalance() {
@@ -212,5 +228,139 @@ class TaxServiceTest {
             assertThat(result).isFalse();
             assertThat(entry.getBalance()).isEqualTo(100.0);
         }
+
+        @Test
+        @DisplayName("withdrawFromTreasury keeps the balance when the write fails")
+        void withdrawWriteFails() throws IllegalAccessException {
+            TreasuryEntity entry = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(100.0)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(entry)));
+            doThrow(new IllegalAccessException("down")).when(treasuryDataOperator).update(entry);
+
+            assertThatThrownBy(() -> taxService.withdrawFromTreasury(50.0, "coins"))
+                    .isInstanceOf(IllegalAccessException.class);
+            assertThat(taxService.getTreasuryBalance("coins")).isEqualTo(100.0);
+            assertThat(entry.getBalance()).isEqualTo(100.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Treasury Accumulation")
+    class AccumulationTests {
+
+        @BeforeEach
+        void setUp() {
+            lenient().when(config.getTreasuryFlushInterval()).thenReturn(10);
+            lenient().when(config.getHotAccountStripes()).thenReturn(4);
+        }
+
+        @Test
+        @DisplayName("reads the stored balance once and then from memory")
+        void readsOnce() {
+            TreasuryEntity entry = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(5000.0)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(entry)));
+
+            taxService.getTreasuryBalance("coins");
+            taxService.getTreasuryBalance("coins");
+
+            verify(treasuryDataOperator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("collects deposits without writing until flushed")
+        void collects() throws IllegalAccessException {
+            TreasuryEntity existing = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(1000.0)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+
+            for (int i = 0; i < 100; i++) {
+                taxService.depositToTreasury(5.0, "coins");
+            }
+
+            assertThat(taxService.getTreasuryBalance("coins")).isEqualTo(1500.0);
+            verify(treasuryDataOperator, never()).update(any());
+
+            taxService.flush();
+
+            verify(treasuryDataOperator, times(1)).update(existing);
+            assertThat(existing.getBalance()).isEqualTo(1500.0);
+        }
+
+        @Test
+        @DisplayName("inserts a new treasury on the first flush")
+        void insertsOnFlush() throws IllegalAccessException {
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+
+            taxService.depositToTreasury(2.5, "gems");
+            taxService.depositToTreasury(2.5, "gems");
+            taxService.flush();
+            taxService.flush();
+
+            ArgumentCaptor<TreasuryEntity> captor = ArgumentCaptor.forClass(TreasuryEntity.class);
+            verify(treasuryDataOperator).insert(captor.capture());
+            assertThat(captor.getValue().getBalance()).isEqualTo(5.0);
+            verify(treasuryDataOperator, never()).update(any());
+        }
+
+        @Test
+        @DisplayName("withdrawals can spend deposits not yet flushed")
+        void withdrawsPending() throws IllegalAccessException {
+            TreasuryEntity existing = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(10.0)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+            taxService.depositToTreasury(40.0, "coins");
+
+            assertThat(taxService.withdrawFromTreasury(45.0, "coins")).isTrue();
+
+            verify(treasuryDataOperator).update(existing);
+            assertThat(existing.getBalance()).isEqualTo(5.0);
+            assertThat(taxService.getTreasuryBalance("coins")).isEqualTo(5.0);
+        }
+
+        @Test
+        @DisplayName("writes through a deposit too large to count in minor units")
+        void writesThroughHugeDeposit() throws IllegalAccessException {
+            TreasuryEntity existing = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(10.0)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+            taxService.depositToTreasury(5.0, "coins");
+
+            taxService.depositToTreasury(1e8, "coins");
+
+            verify(treasuryDataOperator).update(existing);
+            assertThat(existing.getBalance()).isEqualTo(1e8 + 10.0);
+            assertThat(taxService.getTreasuryBalance("coins")).isEqualTo(1e8 + 15.0);
+        }
+
+        @Test
+        @DisplayName("keeps a balance whose flush fails and writes it next time")
+        void retriesFailedFlush() throws IllegalAccessException {
+            TreasuryEntity existing = TreasuryEntity.builder()
+                    .currencyId("coins")
+                    .balance(0.0)
+                    .build();
+            when(treasuryDataOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+            doThrow(new IllegalAccessException("down")).doNothing().when(treasuryDataOperator).update(existing);
+            taxService.depositToTreasury(7.0, "coins");
+
+            assertThatThrownBy(() -> taxService.flush()).isInstanceOf(IllegalAccessException.class);
+            assertThat(taxService.getTreasuryBalance("coins")).isEqualTo(7.0);
+
+            taxService.flush();
+
+            verify(treasuryDataOperator, times(2)).update(existing);
+            assertThat(existing.getBalance()).isEqualTo(7.0);
+        }
     }
 }
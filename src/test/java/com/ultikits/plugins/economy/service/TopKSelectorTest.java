@@ -0,0 +1,79 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TopKSelector")
+class TopKSelectorTest {
+
+    @Test
+    @DisplayName("keeps the richest K, richest first")
+    void keepsRichest() {
+        TopKSelector selector = new TopKSelector(2);
+        selector.offer(new UUID(0, 1).toString(), "a", 10);
+        selector.offer(new UUID(0, 2).toString(), "b", 30);
+        selector.offer(new UUID(0, 3).toString(), "c", 20);
+        selector.offer(new UUID(0, 4).toString(), "d", 5);
+
+        LeaderboardSnapshot snapshot = selector.toSnapshot();
+
+        assertThat(snapshot.top(10)).extracting(LeaderboardService.LeaderboardEntry::getPlayerName)
+                .containsExactly("b", "c");
+        assertThat(snapshot.isTruncated()).isTrue();
+        assertThat(snapshot.rankOf(new UUID(0, 3))).isEqualTo(2);
+        assertThat(snapshot.rankOf(new UUID(0, 1))).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("breaks ties by uuid like the full sort")
+    void ties() {
+        TopKSelector selector = new TopKSelector(1);
+        selector.offer(new UUID(0, 2).toString(), "later", 10);
+        selector.offer(new UUID(0, 1).toString(), "earlier", 10);
+        selector.offer(new UUID(0, 3).toString(), "last", 10);
+
+        assertThat(selector.toSnapshot().top(1).get(0).getPlayerName()).isEqualTo("earlier");
+    }
+
+    @Test
+    @DisplayName("is not truncated when fewer than K were offered")
+    void fewerThanK() {
+        TopKSelector selector = new TopKSelector(10);
+        selector.offer(new UUID(0, 1).toString(), "a", 10);
+
+        LeaderboardSnapshot snapshot = selector.toSnapshot();
+
+        assertThat(snapshot.size()).isEqualTo(1);
+        assertThat(snapshot.isTruncated()).isFalse();
+        assertThat(snapshot.estimateRank(5)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("matches the head of a full sort")
+    void matchesSort() {
+        Random random = new Random(11);
+        List<LeaderboardService.LeaderboardEntry> all = new ArrayList<>();
+        TopKSelector selector = new TopKSelector(100);
+        for (int i = 0; i < 20_000; i++) {
+            String uuid = new UUID(0, i).toString();
+            double wealth = random.nextInt(5_000);
+            all.add(new LeaderboardService.LeaderboardEntry(uuid, uuid, wealth));
+            selector.offer(uuid, uuid, wealth);
+        }
+        all.sort(Comparator.comparingDouble(LeaderboardService.LeaderboardEntry::getTotalWealth).reversed()
+                .thenComparing(LeaderboardService.LeaderboardEntry::getUuid));
+
+        assertThat(selector.toSnapshot().top(100)).extracting(LeaderboardService.LeaderboardEntry::getUuid)
+                .containsExactlyElementsOf(all.subList(0, 100).stream()
+                        .map(LeaderboardService.LeaderboardEntry::getUuid)
+                        .collect(java.util.stream.Collectors.toList()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TotalWealthMigration")
+@ExtendWith(MockitoExtension.class)
+class TotalWealthMigrationTest {
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private PluginLogger logger;
+    @Mock private DataOperator<PlayerAccountEntity> accountOperator;
+    @Mock private DataOperator<CurrencyBalanceEntity> balanceOperator;
+    @Mock private JdbcBalanceStore store;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(plugin.getLogger()).thenReturn(logger);
+    }
+
+    @Test
+    @DisplayName("rewrites only rows whose stored total wealth is out of step")
+    void rewritesStale() throws Exception {
+        PlayerAccountEntity stale = PlayerAccountEntity.builder().uuid("a").cash(10).bank(5).build();
+        PlayerAccountEntity current = PlayerAccountEntity.builder().uuid("b").cash(3).bank(0).storedWealth(3).build();
+        CurrencyBalanceEntity staleBalance = CurrencyBalanceEntity.builder().uuid("a").currencyId("gems").cash(2).build();
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Arrays.asList(stale, current)));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(staleBalance)));
+
+        assertThat(new TotalWealthMigration(plugin, accountOperator, balanceOperator, null).run()).isTrue();
+
+        verify(logger).info(contains("2 rows"));
+        verify(accountOperator).update(stale);
+        verify(accountOperator, never()).update(current);
+        verify(balanceOperator).update(staleBalance);
+        assertThat(stale.getStoredWealth()).isEqualTo(15.0);
+        assertThat(staleBalance.getStoredWealth()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("reads the tables page by page until a short page")
+    void pages() {
+        when(accountOperator.query()).thenReturn(
+                new MockQuery<>(Arrays.asList(
+                        PlayerAccountEntity.builder().uuid("a").storedWealth(0).build(),
+                        PlayerAccountEntity.builder().uuid("b").storedWealth(0).build())),
+                new MockQuery<>(Collections.emptyList()));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+
+        assertThat(new TotalWealthMigration(plugin, accountOperator, balanceOperator, null, 2).run()).isTrue();
+
+        verify(accountOperator, times(2)).query();
+        verify(balanceOperator, times(1)).query();
+    }
+
+    @Test
+    @DisplayName("reports failed rows so the scan is not recorded as done")
+    void failedRow() throws Exception {
+        PlayerAccountEntity stale = PlayerAccountEntity.builder().uuid("a").cash(10).build();
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(stale)));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+        doThrow(new IllegalAccessException("locked")).when(accountOperator).update(stale);
+
+        assertThat(new TotalWealthMigration(plugin, accountOperator, balanceOperator, null).run()).isFalse();
+
+        verify(logger).error(contains("locked"));
+    }
+
+    @Test
+    @DisplayName("leaves the work to one statement per table over JDBC")
+    void overJdbc() throws Exception {
+        when(store.indexTotalWealth()).thenReturn(12);
+
+        assertThat(new TotalWealthMigration(plugin, accountOperator, balanceOperator, store).run()).isTrue();
+
+        verifyNoInteractions(accountOperator, balanceOperator);
+    }
+
+    @Test
+    @DisplayName("logs a failed JDBC migration instead of stopping startup")
+    void jdbcFailure() throws Exception {
+        when(store.indexTotalWealth()).thenThrow(new SQLException("denied"));
+
+        assertThat(new TotalWealthMigration(plugin, accountOperator, balanceOperator, store).run()).isFalse();
+
+        verify(logger).error(contains("denied"));
+    }
+
+    @Test
+    @DisplayName("split tables store the total wealth on every write")
+    void stampsWrites() throws Exception {
+        SplitTableRepository repository = new SplitTableRepository(accountOperator, balanceOperator);
+        PlayerAccountEntity account = PlayerAccountEntity.builder().uuid("a").cash(1).bank(2).build();
+
+        repository.insertAccount(account);
+        assertThat(account.getStoredWealth()).isEqualTo(3.0);
+
+        account.setBank(7);
+        repository.updateAccount(account);
+        assertThat(account.getStoredWealth()).isEqualTo(8.0);
+        verify(accountOperator).update(any());
+    }
+}
@@ -0,0 +1,168 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TransactionLogReplay")
+@ExtendWith(MockitoExtension.class)
+class TransactionLogReplayTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private DataOperator<PlayerAccountEntity> accountOperator;
+    @Mock private DataOperator<CurrencyBalanceEntity> balanceOperator;
+
+    @TempDir
+    Path dir;
+
+    private TransactionLog log;
+    private TransactionLogReplay replay;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        log = new TransactionLog(dir.resolve("transactions.wal").toFile(), false);
+        replay = new TransactionLogReplay(plugin, log, accountOperator, balanceOperator);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        log.close();
+    }
+
+    private PlayerAccountEntity account(double cash) {
+        return PlayerAccountEntity.builder().uuid(UUID).playerName("Steve").cash(cash).bank(0.0).build();
+    }
+
+    @Test
+    @DisplayName("restores the last logged image of each row and clears the log")
+    void restoresLatest() throws Exception {
+        PlayerAccountEntity stored = account(1000.0);
+        CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                .uuid(UUID).currencyId("gems").cash(1.0).bank(0.0).build();
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(stored)));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(gems)));
+        log.append(Arrays.asList(
+                new TransactionLog.Image(UUID, null, 900.0, 0.0),
+                new TransactionLog.Image(UUID, "gems", 5.0, 2.0)));
+        log.append(Collections.singletonList(new TransactionLog.Image(UUID, null, 700.0, 200.0)));
+
+        assertThat(replay.run()).isEqualTo(2);
+
+        assertThat(stored.getCash()).isEqualTo(700.0);
+        assertThat(stored.getBank()).isEqualTo(200.0);
+        assertThat(stored.getVersion()).isEqualTo(1L);
+        assertThat(gems.getCash()).isEqualTo(5.0);
+        verify(accountOperator, times(1)).update(stored);
+        verify(balanceOperator).update(gems);
+        assertThat(log.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("skips rows that already hold the logged values")
+    void skipsDurableRows() throws Exception {
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(account(900.0))));
+        log.append(Collections.singletonList(new TransactionLog.Image(UUID, null, 900.0, 0.0)));
+
+        assertThat(replay.run()).isZero();
+        verify(accountOperator, never()).update(any());
+        assertThat(log.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("leaves rows that moved past the logged version")
+    void skipsNewerRows() throws Exception {
+        PlayerAccountEntity stored = account(950.0);
+        stored.setVersion(3);
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(stored)));
+        log.append(Collections.singletonList(new TransactionLog.Image(UUID, null, 900.0, 0.0, 2L)));
+
+        assertThat(replay.run()).isZero();
+        assertThat(stored.getCash()).isEqualTo(950.0);
+        verify(accountOperator, never()).update(any());
+    }
+
+    @Test
+    @DisplayName("keeps the log when a row cannot be written")
+    void keepsLogOnFailure() throws Exception {
+        PluginLogger logger = mock(PluginLogger.class);
+        when(plugin.getLogger()).thenReturn(logger);
+        PlayerAccountEntity stored = account(1000.0);
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(stored)));
+        doThrow(new IllegalAccessException("down")).when(accountOperator).update(stored);
+        log.append(Collections.singletonList(new TransactionLog.Image(UUID, null, 900.0, 0.0)));
+
+        assertThat(replay.run()).isZero();
+        verify(logger).error(anyString());
+        assertThat(log.read()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("inserts rows storage no longer holds from their image")
+    void insertsMissingRows() throws Exception {
+        when(plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+        log.append(Arrays.asList(
+                new TransactionLog.Image(UUID, null, 900.0, 10.0, 4L),
+                new TransactionLog.Image(UUID, "gems", 5.0, 0.0, 2L)));
+
+        assertThat(replay.run()).isEqualTo(2);
+
+        verify(accountOperator).insert(argThat(a -> a.getCash() == 900.0 && a.getBank() == 10.0 && a.getVersion() == 4L));
+        verify(balanceOperator).insert(argThat(b -> b.getCurrencyId().equals("gems") && b.getCash() == 5.0));
+        assertThat(log.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("restores a balance file record dropped for a bad checksum")
+    void restoresDamagedRecord() throws Exception {
+        when(plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+        File data = dir.resolve("balances.dat").toFile();
+        MappedFileRepository file = new MappedFileRepository(data, 4);
+        file.insertAccount(account(1000.0));
+        file.close();
+        try (RandomAccessFile raf = new RandomAccessFile(data, "rw")) {
+            raf.seek(MappedFileRepository.HEADER_SIZE + 96);
+            raf.writeDouble(1_000_000.0);
+        }
+        log.append(Collections.singletonList(new TransactionLog.Image(UUID, null, 1000.0, 0.0, 0L)));
+
+        file = new MappedFileRepository(data, 4);
+        try {
+            assertThat(file.getDiscarded()).isEqualTo(1);
+            assertThat(new TransactionLogReplay(plugin, log, file).run()).isEqualTo(1);
+
+            assertThat(file.findAccount(UUID).getCash()).isEqualTo(1000.0);
+            assertThat(log.size()).isZero();
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    @DisplayName("empty log touches nothing")
+    void emptyLog() {
+        assertThat(replay.run()).isZero();
+        verifyNoInteractions(accountOperator, balanceOperator);
+    }
+}
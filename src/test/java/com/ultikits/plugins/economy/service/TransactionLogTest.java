@@ -0,0 +1,195 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TransactionLog Tests")
+class TransactionLogTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+
+    @TempDir
+    Path dir;
+
+    private File file;
+    private TransactionLog log;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = dir.resolve("data/transactions.wal").toFile();
+        log = new TransactionLog(file, false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        log.close();
+    }
+
+    private static TransactionLog.Image account(double cash) {
+        return new TransactionLog.Image(UUID, null, cash, 0.0);
+    }
+
+    @Nested
+    @DisplayName("Append and read")
+    class AppendAndRead {
+
+        @Test
+        @DisplayName("round-trips account and balance images in order")
+        void roundTrip() throws Exception {
+            PlayerAccountEntity steve = PlayerAccountEntity.builder()
+                    .uuid(UUID).playerName("Steve").cash(700.0).bank(50.0).build();
+            CurrencyBalanceEntity gems = CurrencyBalanceEntity.builder()
+                    .uuid(UUID).currencyId("gems").cash(3.0).bank(4.0).build();
+
+            log.append(Arrays.asList(TransactionLog.Image.of(steve), TransactionLog.Image.of(gems)));
+
+            List<TransactionLog.Image> images = log.read();
+            assertThat(images).hasSize(2);
+            assertThat(images.get(0).isAccount()).isTrue();
+            assertThat(images.get(0).getCash()).isEqualTo(700.0);
+            assertThat(images.get(0).getBank()).isEqualTo(50.0);
+            assertThat(images.get(1).getCurrencyId()).isEqualTo("gems");
+            assertThat(images.get(1).getBank()).isEqualTo(4.0);
+        }
+
+        @Test
+        @DisplayName("keeps the row version of each image")
+        void version() throws Exception {
+            log.append(Collections.singletonList(new TransactionLog.Image(UUID, "gems", 1.0, 0.0, 7L)));
+
+            assertThat(log.read().get(0).getVersion()).isEqualTo(7L);
+        }
+
+        @Test
+        @DisplayName("survives reopening the file")
+        void reopen() throws Exception {
+            log.append(Collections.singletonList(account(1.0)));
+            log.close();
+
+            log = new TransactionLog(file, false);
+            log.append(Collections.singletonList(account(2.0)));
+
+            assertThat(log.read()).extracting(TransactionLog.Image::getCash).containsExactly(1.0, 2.0);
+        }
+
+        @Test
+        @DisplayName("ignores empty appends")
+        void emptyAppend() throws Exception {
+            log.append(Collections.emptyList());
+
+            assertThat(log.size()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Recovery")
+    class Recovery {
+
+        @Test
+        @DisplayName("drops a torn final record and keeps appending after the last good one")
+        void tornTail() throws Exception {
+            log.append(Collections.singletonList(account(1.0)));
+            long good = log.size();
+            log.close();
+            try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+                raw.seek(raw.length());
+                raw.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+            }
+
+            log = new TransactionLog(file, false);
+            assertThat(log.read()).hasSize(1);
+            assertThat(log.size()).isEqualTo(good);
+
+            log.append(Collections.singletonList(account(2.0)));
+            assertThat(log.read()).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("stops at a record whose checksum does not match")
+        void corruptRecord() throws Exception {
+            log.append(Collections.singletonList(account(1.0)));
+            long first = log.size();
+            log.append(Collections.singletonList(account(2.0)));
+            log.close();
+            try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+                raw.seek(raw.length() - 1);
+                raw.write(0x7F);
+            }
+
+            log = new TransactionLog(file, false);
+            assertThat(log.read()).extracting(TransactionLog.Image::getCash).containsExactly(1.0);
+            assertThat(log.size()).isEqualTo(first);
+        }
+    }
+
+    @Nested
+    @DisplayName("Compaction")
+    class Compaction {
+
+        @Test
+        @DisplayName("truncate keeps only records after the mark")
+        void keepsTail() throws Exception {
+            log.append(Collections.singletonList(account(1.0)));
+            long mark = log.mark(new AccountLocks());
+            log.append(Collections.singletonList(account(2.0)));
+
+            log.truncate(mark);
+
+            assertThat(log.read()).extracting(TransactionLog.Image::getCash).containsExactly(2.0);
+            log.append(Collections.singletonList(account(3.0)));
+            assertThat(log.read()).extracting(TransactionLog.Image::getCash).containsExactly(2.0, 3.0);
+        }
+
+        @Test
+        @DisplayName("checkpoint empties the log")
+        void checkpoint() throws Exception {
+            log.append(Collections.singletonList(account(1.0)));
+
+            log.checkpoint(new AccountLocks());
+
+            assertThat(log.size()).isZero();
+            assertThat(log.read()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("mark waits for in-flight mutations holding a stripe")
+        void markWaitsForStripes() throws Exception {
+            AccountLocks locks = new AccountLocks();
+            ReentrantLock stripe = locks.forAccount(java.util.UUID.fromString(UUID));
+            AtomicLong mark = new AtomicLong(-1);
+            Thread marker = new Thread(() -> {
+                try {
+                    mark.set(log.mark(locks));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            stripe.lock();
+            try {
+                marker.start();
+                log.append(Collections.singletonList(account(1.0)));
+                marker.join(100);
+                assertThat(marker.isAlive()).isTrue();
+            } finally {
+                stripe.unlock();
+            }
+            marker.join();
+
+            assertThat(mark.get()).isEqualTo(log.size());
+        }
+    }
+}
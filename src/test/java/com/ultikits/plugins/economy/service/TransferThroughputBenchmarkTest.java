@@ -0,0 +1,107 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.config.EconomyConfig;
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Throughput of random-pair transfers hammering the in-memory cache from many threads,
+ * the shape of a /pay storm during an event. Excluded from the default test run;
+ * use {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DisplayName("Transfer throughput benchmark")
+class TransferThroughputBenchmarkTest {
+
+    private static final int ACCOUNTS = 2000;
+    private static final int THREADS = 32;
+    private static final int WARMUP_TRANSFERS = 20_000;
+    private static final int TRANSFERS_PER_THREAD = 50_000;
+    private static final double INITIAL_CASH = 1_000.0;
+
+    @Test
+    @DisplayName("random-pair transfers across many threads")
+    @SuppressWarnings("unchecked")
+    void randomPairTransfers() throws Exception {
+        UltiToolsPlugin plugin = mock(UltiToolsPlugin.class);
+        DataOperator<PlayerAccountEntity> accounts = mock(DataOperator.class);
+        DataOperator<CurrencyBalanceEntity> balances = mock(DataOperator.class);
+        CurrencyManager currencyManager = new CurrencyManager(YamlConfiguration.loadConfiguration(
+                new StringReader("currencies:\n  coins:\n    symbol: '$'\n    primary: true\n")));
+        BalanceCache cache = new BalanceCache(plugin, accounts, balances, new AccountLocks());
+        EconomyServiceImpl service = EconomyServiceImpl.createForTest(plugin, accounts, new EconomyConfig(),
+                balances, currencyManager, cache);
+
+        UUID[] players = new UUID[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            players[i] = UUID.randomUUID();
+            cache.insertAccount(PlayerAccountEntity.builder()
+                    .uuid(players[i].toString()).playerName("bench" + i)
+                    .cash(INITIAL_CASH).bank(0.0).build());
+        }
+
+        run(service, players, 4, WARMUP_TRANSFERS);
+        long start = System.nanoTime();
+        long committed = run(service, players, THREADS, TRANSFERS_PER_THREAD);
+        long elapsed = System.nanoTime() - start;
+
+        long attempted = (long) THREADS * TRANSFERS_PER_THREAD;
+        System.out.printf("transfers: %d attempted, %d committed, %.0f ops/s over %d threads%n",
+                attempted, committed, attempted / (elapsed / 1e9), THREADS);
+
+        double total = 0;
+        for (UUID player : players) {
+            total += service.getCash(player);
+        }
+        assertThat(total).isEqualTo(ACCOUNTS * INITIAL_CASH);
+    }
+
+    private long run(EconomyServiceImpl service, UUID[] players, int threads, int perThread)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong committed = new AtomicLong();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long ok = 0;
+                for (int i = 0; i < perThread; i++) {
+                    UUID from = players[random.nextInt(players.length)];
+                    UUID to = players[random.nextInt(players.length)];
+                    if (service.transfer(from, to, 1 + random.nextInt(50))) {
+                        ok++;
+                    }
+                }
+                committed.addAndGet(ok);
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        return committed.get();
+    }
+}
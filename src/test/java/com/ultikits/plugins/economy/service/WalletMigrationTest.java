@@ -0,0 +1,150 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.WalletEntity;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.impl.logger.PluginLogger;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WalletMigration")
+@ExtendWith(MockitoExtension.class)
+class WalletMigrationTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+    private static final String OTHER = "6ba7b810-9dad-11d1-80b4-00c04fd430c8";
+
+    @Mock private UltiToolsPlugin plugin;
+    @Mock private PluginLogger logger;
+    @Mock private DataOperator<PlayerAccountEntity> accountOperator;
+    @Mock private DataOperator<CurrencyBalanceEntity> balanceOperator;
+    @Mock private DataOperator<WalletEntity> walletOperator;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(plugin.getLogger()).thenReturn(logger);
+    }
+
+    private PlayerAccountEntity account(String uuid) {
+        return PlayerAccountEntity.builder().uuid(uuid).playerName("Steve").cash(100.0).bank(20.0).version(2).build();
+    }
+
+    @Test
+    @DisplayName("reads the old tables page by page until a short page")
+    void pages() {
+        when(accountOperator.query()).thenReturn(
+                new MockQuery<>(Arrays.asList(account(UUID), account(OTHER))),
+                new MockQuery<>(Collections.emptyList()));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+        when(walletOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+
+        boolean complete = new WalletMigration(plugin, accountOperator, balanceOperator, walletOperator, 2).run();
+
+        assertThat(complete).isTrue();
+        verify(accountOperator, times(2)).query();
+        verify(balanceOperator, times(1)).query();
+        verify(walletOperator, times(2)).insert(any());
+    }
+
+    @Test
+    @DisplayName("folds an account and its balances into one wallet")
+    void folds() throws Exception {
+        WalletEntity created = WalletEntity.builder().uuid(UUID).build();
+        WalletRepository.assign(created, account(UUID));
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(account(UUID))));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(
+                CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems").cash(5.0).bank(1.0).build())));
+        when(walletOperator.query()).thenReturn(
+                new MockQuery<>(Collections.emptyList()),
+                new MockQuery<>(Collections.singletonList(created)));
+
+        new WalletMigration(plugin, accountOperator, balanceOperator, walletOperator).run();
+
+        ArgumentCaptor<WalletEntity> inserted = ArgumentCaptor.forClass(WalletEntity.class);
+        verify(walletOperator).insert(inserted.capture());
+        assertThat(inserted.getValue().isAccountOpen()).isTrue();
+        assertThat(inserted.getValue().getCash()).isEqualTo(100.0);
+        assertThat(inserted.getValue().getVersion()).isEqualTo(2L);
+        verify(walletOperator).update(created);
+        assertThat(WalletRepository.decode(created).get("gems").getBank()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("overwrites what a wallet holds when an interrupted run is repeated")
+    void rerun() throws Exception {
+        WalletEntity existing = WalletEntity.builder().uuid(UUID).accountOpen(true).cash(999.0)
+                .balances("gems=7.0,0.0,4").build();
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(account(UUID))));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(
+                CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems").cash(5.0).build())));
+        when(walletOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+
+        assertThat(new WalletMigration(plugin, accountOperator, balanceOperator, walletOperator).run()).isTrue();
+
+        verify(walletOperator, never()).insert(any());
+        verify(walletOperator, times(2)).update(existing);
+        assertThat(existing.getCash()).isEqualTo(100.0);
+        assertThat(WalletRepository.decode(existing).get("gems").getCash()).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("reports failed writes so the run is retried")
+    void failedWrite() throws Exception {
+        WalletEntity existing = WalletEntity.builder().uuid(UUID).build();
+        when(accountOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(account(UUID))));
+        when(balanceOperator.query()).thenReturn(new MockQuery<>(Collections.emptyList()));
+        when(walletOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(existing)));
+        doThrow(new IllegalAccessException("locked")).when(walletOperator).update(any());
+
+        assertThat(new WalletMigration(plugin, accountOperator, balanceOperator, walletOperator).run()).isFalse();
+
+        verify(logger).error(contains("locked"));
+    }
+
+    @Test
+    @DisplayName("copies wallets back into the old tables")
+    void exports() throws Exception {
+        WalletEntity wallet = WalletEntity.builder().uuid(UUID).balances("gems=7.0,1.0,4").build();
+        WalletRepository.assign(wallet, account(UUID));
+        BalanceRepository tables = mock(BalanceRepository.class);
+        PlayerAccountEntity stale = PlayerAccountEntity.builder().uuid(UUID).cash(1.0).build();
+        when(tables.findAccount(UUID)).thenReturn(stale);
+        when(walletOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(wallet)));
+
+        assertThat(new WalletMigration(plugin, accountOperator, balanceOperator, walletOperator).export(tables)).isTrue();
+
+        verify(tables).updateAccount(stale);
+        assertThat(stale.getCash()).isEqualTo(100.0);
+        ArgumentCaptor<CurrencyBalanceEntity> inserted = ArgumentCaptor.forClass(CurrencyBalanceEntity.class);
+        verify(tables).insertBalance(inserted.capture());
+        assertThat(inserted.getValue().getCurrencyId()).isEqualTo("gems");
+        assertThat(inserted.getValue().getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    @DisplayName("reports a wallet that could not be copied back")
+    void failedExport() throws Exception {
+        WalletEntity wallet = WalletEntity.builder().uuid(UUID).build();
+        WalletRepository.assign(wallet, account(UUID));
+        BalanceRepository tables = mock(BalanceRepository.class);
+        when(tables.findAccount(UUID)).thenReturn(account(UUID));
+        doThrow(new IllegalAccessException("locked")).when(tables).updateAccount(any());
+        when(walletOperator.query()).thenReturn(new MockQuery<>(Collections.singletonList(wallet)));
+
+        assertThat(new WalletMigration(plugin, accountOperator, balanceOperator, walletOperator).export(tables)).isFalse();
+
+        verify(logger).error(contains("locked"));
+    }
+}
@@ -0,0 +1,286 @@
+package com.ultikits.plugins.economy.service;
+
+import com.ultikits.plugins.economy.entity.CurrencyBalanceEntity;
+import com.ultikits.plugins.economy.entity.PlayerAccountEntity;
+import com.ultikits.plugins.economy.entity.WalletEntity;
+import com.ultikits.plugins.economy.model.WalletSnapshot;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WalletRepository")
+@ExtendWith(MockitoExtension.class)
+class WalletRepositoryTest {
+
+    private static final String UUID = "550e8400-e29b-41d4-a716-446655440000";
+    private static final String OTHER = "6ba7b810-9dad-11d1-80b4-00c04fd430c8";
+
+    @Mock private DataOperator<WalletEntity> operator;
+
+    private WalletRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new WalletRepository(operator);
+    }
+
+    private WalletEntity wallet(String uuid, boolean accountOpen, String balances) {
+        return WalletEntity.builder()
+                .uuid(uuid)
+                .playerName("Steve")
+                .accountOpen(accountOpen)
+                .cash(100.0)
+                .bank(50.0)
+                .version(3)
+                .balances(balances)
+                .build();
+    }
+
+    private void stored(WalletEntity... wallets) {
+        when(operator.query()).thenReturn(new MockQuery<>(Arrays.asList(wallets)));
+    }
+
+    @Nested
+    @DisplayName("Codec")
+    class Codec {
+
+        @Test
+        @DisplayName("only stores currency ids free of the separators")
+        void canStore() {
+            assertThat(WalletRepository.canStore("gold_coins")).isTrue();
+            assertThat(WalletRepository.canStore("co,ins")).isFalse();
+            assertThat(WalletRepository.canStore("a=b")).isFalse();
+            assertThat(WalletRepository.canStore("a;b")).isFalse();
+        }
+
+        @Test
+        @DisplayName("round-trips balances exactly")
+        void roundTrip() {
+            List<CurrencyBalanceEntity> balances = Arrays.asList(
+                    CurrencyBalanceEntity.builder().uuid(UUID).currencyId("coins")
+                            .cash(0.1 + 0.2).bank(1e-9).version(7).build(),
+                    CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems")
+                            .cash(12345678.9).bank(0.0).build());
+            WalletEntity wallet = wallet(UUID, true, WalletRepository.encode(balances));
+
+            Map<String, CurrencyBalanceEntity> decoded = WalletRepository.decode(wallet);
+
+            assertThat(decoded).containsOnlyKeys("coins", "gems");
+            assertThat(decoded.get("coins").getCash()).isEqualTo(0.1 + 0.2);
+            assertThat(decoded.get("coins").getBank()).isEqualTo(1e-9);
+            assertThat(decoded.get("coins").getVersion()).isEqualTo(7L);
+            assertThat(decoded.get("gems").getCash()).isEqualTo(12345678.9);
+            assertThat(decoded.get("gems").getUuid()).isEqualTo(UUID);
+        }
+
+        @Test
+        @DisplayName("an empty column holds no balances")
+        void empty() {
+            assertThat(WalletRepository.decode(wallet(UUID, true, ""))).isEmpty();
+            assertThat(WalletRepository.decode(wallet(UUID, true, null))).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Reads")
+    class Reads {
+
+        @Test
+        @DisplayName("maps the account columns to an account")
+        void findAccount() {
+            stored(wallet(UUID, true, ""));
+
+            PlayerAccountEntity account = repository.findAccount(UUID);
+
+            assertThat(account.getUuid()).isEqualTo(UUID);
+            assertThat(account.getPlayerName()).isEqualTo("Steve");
+            assertThat(account.getCash()).isEqualTo(100.0);
+            assertThat(account.getBank()).isEqualTo(50.0);
+            assertThat(account.getVersion()).isEqualTo(3L);
+        }
+
+        @Test
+        @DisplayName("a wallet with only balances has no account")
+        void noAccount() {
+            stored(wallet(UUID, false, "gems=1.0,0.0,0"));
+
+            assertThat(repository.findAccount(UUID)).isNull();
+            assertThat(repository.findBalance(UUID, "gems").getCash()).isEqualTo(1.0);
+        }
+
+        @Test
+        @DisplayName("reads a whole wallet with one query")
+        void findWallet() {
+            stored(wallet(UUID, true, "coins=10.0,5.0,0;gems=2.0,0.0,1"));
+
+            WalletSnapshot snapshot = repository.findWallet(UUID);
+
+            assertThat(snapshot.hasAccount()).isTrue();
+            assertThat(snapshot.getCash()).isEqualTo(100.0);
+            assertThat(snapshot.getTotalWealth("coins")).isEqualTo(15.0);
+            assertThat(snapshot.getCash("gems")).isEqualTo(2.0);
+            verify(operator, times(1)).query();
+        }
+
+        @Test
+        @DisplayName("filters bulk balance reads to the requested currencies")
+        void findBalancesFiltered() {
+            stored(wallet(UUID, true, "coins=10.0,0.0,0;gems=2.0,0.0,0"),
+                    wallet(OTHER, true, "coins=3.0,0.0,0"));
+
+            List<CurrencyBalanceEntity> found = repository.findBalances(
+                    Arrays.asList(UUID, OTHER), Collections.singletonList("coins"));
+
+            assertThat(found).extracting(CurrencyBalanceEntity::getUuid).containsExactly(UUID, OTHER);
+            assertThat(found).extracting(CurrencyBalanceEntity::getCurrencyId).containsOnly("coins");
+        }
+
+        @Test
+        @DisplayName("visits every player once from a single scan")
+        void forEachPlayer() {
+            when(operator.getAll()).thenReturn(Arrays.asList(
+                    wallet(UUID, true, "coins=10.0,0.0,0"),
+                    wallet(OTHER, false, "coins=3.0,0.0,0")));
+            List<String> visited = new ArrayList<>();
+
+            repository.forEachPlayer((account, balances) ->
+                    visited.add((account != null ? account.getUuid() : "none") + "/" + balances.size()));
+
+            assertThat(visited).containsExactly(UUID + "/1", "none/1");
+            verify(operator, never()).query();
+        }
+    }
+
+    @Nested
+    @DisplayName("Writes")
+    class Writes {
+
+        @Test
+        @DisplayName("creates a wallet for a new account")
+        void insertAccount() {
+            stored();
+            PlayerAccountEntity account = PlayerAccountEntity.builder()
+                    .uuid(UUID).playerName("Alex").cash(500.0).bank(0.0).build();
+
+            repository.insertAccount(account);
+
+            ArgumentCaptor<WalletEntity> captor = ArgumentCaptor.forClass(WalletEntity.class);
+            verify(operator).insert(captor.capture());
+            assertThat(captor.getValue().isAccountOpen()).isTrue();
+            assertThat(captor.getValue().getPlayerName()).isEqualTo("Alex");
+            assertThat(captor.getValue().getCash()).isEqualTo(500.0);
+            assertThat(captor.getValue().getBalances()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("adds a new balance to the existing wallet row")
+        void insertBalance() throws Exception {
+            WalletEntity existing = wallet(UUID, true, "coins=10.0,0.0,0");
+            stored(existing);
+
+            repository.insertBalance(CurrencyBalanceEntity.builder()
+                    .uuid(UUID).currencyId("gems").cash(5.0).bank(0.0).build());
+
+            verify(operator, never()).insert(any());
+            verify(operator).update(existing);
+            assertThat(WalletRepository.decode(existing)).containsOnlyKeys("coins", "gems");
+            assertThat(existing.getCash()).isEqualTo(100.0);
+        }
+
+        @Test
+        @DisplayName("updating one balance keeps the account and other balances")
+        void updateBalance() throws Exception {
+            WalletEntity existing = wallet(UUID, true, "coins=10.0,0.0,0;gems=2.0,0.0,0");
+            stored(existing);
+
+            repository.updateBalance(CurrencyBalanceEntity.builder()
+                    .uuid(UUID).currencyId("gems").cash(7.0).bank(1.0).version(1).build());
+
+            verify(operator).update(existing);
+            Map<String, CurrencyBalanceEntity> balances = WalletRepository.decode(existing);
+            assertThat(balances.get("gems").getCash()).isEqualTo(7.0);
+            assertThat(balances.get("gems").getVersion()).isEqualTo(1L);
+            assertThat(balances.get("coins").getCash()).isEqualTo(10.0);
+            assertThat(existing.getCash()).isEqualTo(100.0);
+        }
+
+        @Test
+        @DisplayName("updates several balances with one write")
+        void updateBalances() throws Exception {
+            WalletEntity existing = wallet(UUID, true, "coins=10.0,0.0,0;gems=2.0,0.0,0");
+            stored(existing);
+
+            repository.updateBalances(UUID, Arrays.asList(
+                    CurrencyBalanceEntity.builder().uuid(UUID).currencyId("coins").cash(11.0).build(),
+                    CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems").cash(3.0).build()));
+
+            verify(operator, times(1)).query();
+            verify(operator, times(1)).update(existing);
+            Map<String, CurrencyBalanceEntity> balances = WalletRepository.decode(existing);
+            assertThat(balances.get("coins").getCash()).isEqualTo(11.0);
+            assertThat(balances.get("gems").getCash()).isEqualTo(3.0);
+        }
+
+        @Test
+        @DisplayName("writes the account and balances together with one read and one write")
+        void updatePlayer() throws Exception {
+            WalletEntity existing = wallet(UUID, true, "coins=10.0,0.0,0;gems=2.0,0.0,0");
+            stored(existing);
+
+            repository.updatePlayer(UUID,
+                    PlayerAccountEntity.builder().uuid(UUID).playerName("Steve").cash(40.0).bank(5.0).version(4).build(),
+                    Collections.singletonList(CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems").cash(9.0).build()));
+
+            verify(operator, times(1)).query();
+            verify(operator, times(1)).update(existing);
+            assertThat(existing.getCash()).isEqualTo(40.0);
+            assertThat(existing.getVersion()).isEqualTo(4L);
+            Map<String, CurrencyBalanceEntity> balances = WalletRepository.decode(existing);
+            assertThat(balances.get("gems").getCash()).isEqualTo(9.0);
+            assertThat(balances.get("coins").getCash()).isEqualTo(10.0);
+        }
+
+        @Test
+        @DisplayName("updating the account keeps the balances")
+        void updateAccount() throws Exception {
+            WalletEntity existing = wallet(UUID, true, "coins=10.0,0.0,0");
+            stored(existing);
+
+            repository.updateAccount(PlayerAccountEntity.builder()
+                    .uuid(UUID).playerName("Steve").cash(40.0).bank(60.0).version(4).build());
+
+            verify(operator).update(existing);
+            assertThat(existing.getCash()).isEqualTo(40.0);
+            assertThat(existing.getVersion()).isEqualTo(4L);
+            assertThat(existing.getBalances()).isEqualTo("coins=10.0,0.0,0");
+        }
+
+        @Test
+        @DisplayName("rejects updates to rows that do not exist")
+        void missingRows() throws Exception {
+            stored(wallet(UUID, false, ""));
+
+            assertThatThrownBy(() -> repository.updateAccount(
+                    PlayerAccountEntity.builder().uuid(UUID).build()))
+                    .isInstanceOf(IllegalAccessException.class);
+            assertThatThrownBy(() -> repository.updateBalance(
+                    CurrencyBalanceEntity.builder().uuid(UUID).currencyId("gems").build()))
+                    .isInstanceOf(IllegalAccessException.class);
+            verify(operator, never()).update(any());
+        }
+    }
+}
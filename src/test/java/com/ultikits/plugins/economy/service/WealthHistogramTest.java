@@ -0,0 +1,63 @@
+package com.ultikits.plugins.economy.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("WealthHistogram")
+class WealthHistogramTest {
+
+    @Test
+    @DisplayName("ranks the richest first and the poorest last")
+    void extremes() {
+        WealthHistogram histogram = new WealthHistogram();
+        histogram.add(0);
+        histogram.add(10);
+        histogram.add(1_000);
+        histogram.add(100_000);
+
+        assertThat(histogram.getTotal()).isEqualTo(4);
+        assertThat(histogram.estimateRank(1e9)).isEqualTo(1);
+        assertThat(histogram.estimateRank(1_000)).isEqualTo(2);
+        assertThat(histogram.estimateRank(-5)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("counts overflow and negative balances")
+    void outOfRange() {
+        WealthHistogram histogram = new WealthHistogram();
+        histogram.add(1e30);
+        histogram.add(-1);
+        histogram.add(Double.NaN);
+
+        assertThat(histogram.getTotal()).isEqualTo(3);
+        assertThat(histogram.estimateRank(1)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("estimates ranks of log-spread wealth within a few percent")
+    void accuracy() {
+        Random random = new Random(7);
+        int players = 100_000;
+        double[] wealth = new double[players];
+        WealthHistogram histogram = new WealthHistogram();
+        for (int i = 0; i < players; i++) {
+            wealth[i] = Math.pow(10, random.nextDouble() * 8);
+            histogram.add(wealth[i]);
+        }
+
+        for (int probe = 0; probe < 200; probe++) {
+            double target = wealth[random.nextInt(players)];
+            long exact = 1;
+            for (double w : wealth) {
+                if (w > target) {
+                    exact++;
+                }
+            }
+            assertThat((double) Math.abs(histogram.estimateRank(target) - exact)).isLessThan(players * 0.01);
+        }
+    }
+}
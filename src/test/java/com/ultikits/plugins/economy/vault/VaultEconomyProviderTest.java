@@ -142,6 +142,7 @@ class VaultEconomyProviderTest {
         void getBalance() {
             when(economyService.getCash(PLAYER_UUID)).thenReturn(1500.0);
             assertThat(provider.getBalance(offlinePlayer)).isEqualTo(1500.0);
+            verify(economyService, never()).getWallet(any());
         }
 
         @Test